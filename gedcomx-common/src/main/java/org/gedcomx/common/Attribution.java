@@ -63,7 +63,9 @@ public final class Attribution {
   }
 
   /**
-   * The level of confidence the contributor has about the data.
+   * The level of confidence the contributor has about the data. A known confidence level (set with
+   * {@link #setKnownConfidenceLevel(ConfidenceLevel)} or read from JSON) is a shared instance, which throws an
+   * {@link UnsupportedOperationException} if its type is set; set a new reference instead.
    *
    * @return The level of confidence the contributor has about the data.
    */
@@ -98,7 +100,7 @@ public final class Attribution {
    */
   @JsonIgnore
   public void setKnownConfidenceLevel(ConfidenceLevel level) {
-    setConfidence(level == null ? null : new TypeReference<ConfidenceLevel>(level));
+    setConfidence(level == null ? null : TypeReference.<ConfidenceLevel>valueOf(level));
   }
 
   /**
@@ -15,9 +15,9 @@
  */
 package org.gedcomx.common;
 
-import org.codehaus.enunciate.XmlQNameEnumUtil;
 import org.codehaus.jackson.annotate.JsonIgnore;
 import org.gedcomx.rt.CommonModels;
+import org.gedcomx.types.QNameEnumTable;
 
 import javax.xml.XMLConstants;
 import javax.xml.bind.annotation.*;
@@ -94,7 +94,7 @@ public class FormalValue {
    * @return The value.
    */
   public <E extends Enum<E>> E getKnownValue(Class<E> clazz) {
-    return getResource() != null ? XmlQNameEnumUtil.fromURIValue(getResource().toString(), clazz) : null;
+    return getResource() != null ? QNameEnumTable.forType(clazz).fromURI(getResource()) : null;
   }
 
   /**
@@ -105,7 +105,7 @@ public class FormalValue {
   @XmlTransient
   @JsonIgnore
   public void setKnownValue(Enum value) {
-    this.resource = URI.create(XmlQNameEnumUtil.toURIValue(value));
+    this.resource = QNameEnumTable.uriOf(value);
   }
 
   /**
@@ -17,6 +17,8 @@ package org.gedcomx.common;
 
 import org.codehaus.jackson.annotate.JsonIgnore;
 import org.gedcomx.rt.CommonModels;
+import org.gedcomx.rt.ExtensionElementHandler;
+import org.gedcomx.rt.ExtensionElementList;
 import org.gedcomx.rt.SupportsExtensionElements;
 
 import javax.xml.bind.annotation.XmlAnyElement;
@@ -36,7 +38,7 @@ public abstract class GenealogicalResource implements Attributable, SupportsExte
 
   private String id;
   private Attribution attribution;
-  protected List<Object> extensionElements;
+  protected ExtensionElementList extensionElements;
 
   /**
    * A local, context-specific id for the data.
@@ -87,7 +89,7 @@ public abstract class GenealogicalResource implements Attributable, SupportsExte
    *
    * @return Custom extension elements for a genealogical resource.
    */
-  @XmlAnyElement (lax = true)
+  @XmlAnyElement (lax = true, value = ExtensionElementHandler.class)
   @JsonIgnore
   public List<Object> getExtensionElements() {
     return extensionElements;
@@ -100,7 +102,7 @@ public abstract class GenealogicalResource implements Attributable, SupportsExte
    */
   @JsonIgnore
   public void setExtensionElements(List<Object> extensionElements) {
-    this.extensionElements = extensionElements;
+    this.extensionElements = ExtensionElementList.wrap(extensionElements);
   }
 
   /**
@@ -110,7 +112,7 @@ public abstract class GenealogicalResource implements Attributable, SupportsExte
    */
   public void addExtensionElement(Object element) {
     if (this.extensionElements == null) {
-      this.extensionElements = new ArrayList<Object>();
+      this.extensionElements = new ExtensionElementList();
     }
 
     this.extensionElements.add(element);
@@ -124,15 +126,11 @@ public abstract class GenealogicalResource implements Attributable, SupportsExte
    */
   @SuppressWarnings ( {"unchecked"} )
   public <E> E findExtensionOfType(Class<E> clazz) {
-    if (this.extensionElements != null) {
-      for (Object extension : extensionElements) {
-        if (clazz.isInstance(extension)) {
-          return (E) extension;
-        }
-      }
+    if (this.extensionElements == null) {
+      return null;
     }
 
-    return null;
+    return this.extensionElements.findExtensionOfType(clazz);
   }
 
   /**
@@ -143,16 +141,11 @@ public abstract class GenealogicalResource implements Attributable, SupportsExte
    */
   @SuppressWarnings ( {"unchecked"} )
   public <E> List<E> findExtensionsOfType(Class<E> clazz) {
-    List<E> ext = new ArrayList<E>();
-    if (this.extensionElements != null) {
-      for (Object extension : extensionElements) {
-        if (clazz.isInstance(extension)) {
-          ext.add((E) extension);
-        }
-      }
+    if (this.extensionElements == null) {
+      return new ArrayList<E>();
     }
 
-    return ext;
+    return this.extensionElements.findExtensionsOfType(clazz);
   }
 
   /**
@@ -75,7 +75,7 @@ public final class Identifier {
    */
   @JsonIgnore
   public void setType(URI type) {
-    this.type = type == null ? null : new TypeReference<IdentifierType>(type);
+    this.type = type == null ? null : TypeReference.<IdentifierType>valueOf(type);
   }
 
   /**
@@ -96,7 +96,7 @@ public final class Identifier {
    */
   @JsonIgnore
   public void setKnownType(IdentifierType knownType) {
-    this.type = knownType == null ? null : new TypeReference<IdentifierType>(knownType);
+    this.type = knownType == null ? null : TypeReference.<IdentifierType>valueOf(knownType);
   }
 
   /**
@@ -0,0 +1,33 @@
+/**
+ * Copyright 2011-2012 Intellectual Reserve, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gedcomx.common;
+
+import javax.xml.bind.annotation.XmlTransient;
+
+/**
+ * Adapts a URI to a string, interning the URIs that are read (e.g. type URIs, which are repeated across a tree).
+ *
+ * @author Ryan Heaton
+ */
+@XmlTransient
+public class InternedURIAdapter extends URIAdapter {
+
+  @Override
+  public URI unmarshal(String v) throws Exception {
+    return v == null ? null : URI.intern(v);
+  }
+
+}
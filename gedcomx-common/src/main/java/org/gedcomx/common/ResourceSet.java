@@ -17,6 +17,8 @@ package org.gedcomx.common;
 
 import org.codehaus.jackson.annotate.JsonIgnore;
 import org.gedcomx.rt.CommonModels;
+import org.gedcomx.rt.ExtensionElementHandler;
+import org.gedcomx.rt.ExtensionElementList;
 import org.gedcomx.rt.json.JsonElementWrapper;
 import org.gedcomx.rt.SupportsExtensionElements;
 
@@ -36,7 +38,7 @@ import java.util.List;
 public class ResourceSet implements SupportsExtensionElements {
 
   private String id;
-  private List<Object> extensionElements;
+  private ExtensionElementList extensionElements;
 
   /**
    * The id of this bundle.
@@ -63,7 +65,7 @@ public class ResourceSet implements SupportsExtensionElements {
    *
    * @return The other (non-RDF) descriptions in this bundle.
    */
-  @XmlAnyElement ( lax = true )
+  @XmlAnyElement ( lax = true, value = ExtensionElementHandler.class )
   @JsonIgnore
   public List<Object> getExtensionElements() {
     return extensionElements;
@@ -76,7 +78,7 @@ public class ResourceSet implements SupportsExtensionElements {
    */
   @JsonIgnore
   public void setExtensionElements(List<Object> extensionElements) {
-    this.extensionElements = extensionElements;
+    this.extensionElements = ExtensionElementList.wrap(extensionElements);
   }
 
   /**
@@ -86,7 +88,7 @@ public class ResourceSet implements SupportsExtensionElements {
    */
   public void addExtensionElement(Object element) {
     if (this.extensionElements == null) {
-      this.extensionElements = new ArrayList<Object>();
+      this.extensionElements = new ExtensionElementList();
     }
 
     this.extensionElements.add(element);
@@ -100,15 +102,11 @@ public class ResourceSet implements SupportsExtensionElements {
    */
   @SuppressWarnings ( {"unchecked"} )
   public <E> E findExtensionOfType(Class<E> clazz) {
-    if (this.extensionElements != null) {
-      for (Object extension : extensionElements) {
-        if (clazz.isInstance(extension)) {
-          return (E) extension;
-        }
-      }
+    if (this.extensionElements == null) {
+      return null;
     }
 
-    return null;
+    return this.extensionElements.findExtensionOfType(clazz);
   }
 
   /**
@@ -119,15 +117,10 @@ public class ResourceSet implements SupportsExtensionElements {
    */
   @SuppressWarnings ( {"unchecked"} )
   public <E> List<E> findExtensionsOfType(Class<E> clazz) {
-    List<E> ext = new ArrayList<E>();
-    if (this.extensionElements != null) {
-      for (Object extension : extensionElements) {
-        if (clazz.isInstance(extension)) {
-          ext.add((E) extension);
-        }
-      }
+    if (this.extensionElements == null) {
+      return new ArrayList<E>();
     }
 
-    return ext;
+    return this.extensionElements.findExtensionsOfType(clazz);
   }
 }
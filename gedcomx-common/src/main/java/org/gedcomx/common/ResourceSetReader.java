@@ -0,0 +1,427 @@
+/**
+ * Copyright 2011-2012 Intellectual Reserve, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gedcomx.common;
+
+import org.gedcomx.rt.CapturedElement;
+import org.gedcomx.rt.CommonModels;
+import org.gedcomx.rt.ExtensionElementHandler;
+import org.gedcomx.rt.JAXBContextRegistry;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+import javax.xml.XMLConstants;
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.namespace.QName;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.transform.stream.StreamSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.util.*;
+
+/**
+ * A pull-style reader of a {@link ResourceSet} document. Instead of unmarshalling the whole document, the reader walks the
+ * children of the <code>rdf:RDF</code> root with StAX and unmarshals them one at a time, so that the memory needed to read
+ * a document is proportional to the size of its largest child rather than to the size of the document.<br/><br/>
+ *
+ * The children are read with the same (lax) semantics as {@link ResourceSet#getExtensionElements()}: a child that is known
+ * to the JAXB context is unmarshalled to its type, and a child that isn't is read as a DOM element (or, if capturing is
+ * {@link #setCaptureEnabled(boolean) enabled} on the reader, as a {@link CapturedElement}, as are the unknown extension
+ * elements of the known children).<br/><br/>
+ *
+ * The reader isn't thread-safe, and it can be iterated only once.
+ *
+ * @author Ryan Heaton
+ */
+public class ResourceSetReader implements Iterable<Object>, Closeable {
+
+  private static final QName RDF_ROOT = new QName(CommonModels.RDF_NAMESPACE, "RDF");
+  private static final XMLInputFactory INPUT_FACTORY;
+  static {
+    XMLInputFactory factory = XMLInputFactory.newInstance();
+    factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, Boolean.TRUE);
+    factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+    factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+    INPUT_FACTORY = factory;
+  }
+
+  private final InputStream stream;
+  private final XMLStreamReader reader;
+  private final JAXBContext context;
+  private final Unmarshaller unmarshaller;
+  private final String id;
+  private final Map<QName, Class<?>> elementTypes = new HashMap<QName, Class<?>>();
+  private Document document;
+  private boolean iterated = false;
+  private boolean closed = false;
+
+  /**
+   * Create a reader for the specified document.
+   *
+   * @param in The document.
+   * @param resourceClasses The classes of the resources in the document.
+   * @throws JAXBException If the JAXB context couldn't be created.
+   * @throws XMLStreamException If the root of the document couldn't be read or isn't <code>rdf:RDF</code>.
+   */
+  public ResourceSetReader(InputStream in, Class<?>... resourceClasses) throws JAXBException, XMLStreamException {
+    Class<?>[] classes = new Class<?>[resourceClasses.length + 1];
+    classes[0] = ResourceSet.class;
+    System.arraycopy(resourceClasses, 0, classes, 1, resourceClasses.length);
+    this.context = JAXBContextRegistry.getContext(classes);
+    this.stream = in;
+    this.reader = INPUT_FACTORY.createXMLStreamReader(in);
+    this.reader.nextTag();
+    if (!RDF_ROOT.equals(this.reader.getName())) {
+      throw new XMLStreamException("Not a resource set: " + this.reader.getName(), this.reader.getLocation());
+    }
+    String id = null;
+    for (int i = 0; i < this.reader.getAttributeCount(); i++) {
+      if ("ID".equals(this.reader.getAttributeLocalName(i))) {
+        id = this.reader.getAttributeValue(i);
+      }
+    }
+    this.id = id;
+    this.reader.next();
+    this.unmarshaller = JAXBContextRegistry.acquireUnmarshaller(this.context);
+  }
+
+  /**
+   * The id of the resource set.
+   *
+   * @return The id of the resource set.
+   */
+  public String getId() {
+    return id;
+  }
+
+  /**
+   * Whether unknown extension elements are read as {@link CapturedElement}s instead of DOM elements.
+   *
+   * @return Whether unknown extension elements are captured.
+   */
+  public boolean isCaptureEnabled() {
+    return ExtensionElementHandler.isCaptureEnabled(this.unmarshaller);
+  }
+
+  /**
+   * Whether unknown extension elements are to be read as {@link CapturedElement}s instead of DOM elements.
+   *
+   * @param captureEnabled Whether unknown extension elements are to be captured.
+   */
+  public void setCaptureEnabled(boolean captureEnabled) {
+    ExtensionElementHandler.setCaptureEnabled(this.unmarshaller, captureEnabled);
+  }
+
+  /**
+   * Iterate through the children of the resource set. The iterator throws an {@link IllegalStateException} if the document
+   * can't be read.
+   *
+   * @return The iterator.
+   */
+  public Iterator<Object> iterator() {
+    return findExtensionsOfType(Object.class).iterator();
+  }
+
+  /**
+   * Read the next child of the resource set.
+   *
+   * @return The next child, or null if there are no more children.
+   * @throws JAXBException If the child couldn't be unmarshalled.
+   * @throws XMLStreamException If the document couldn't be read.
+   */
+  public Object next() throws JAXBException, XMLStreamException {
+    return nextExtensionOfType(Object.class);
+  }
+
+  /**
+   * Read up to the next child of the specified type, skipping the children in between.
+   *
+   * @param clazz The type.
+   * @return The next child of the specified type, or null if there are no more.
+   * @throws JAXBException If a child couldn't be unmarshalled.
+   * @throws XMLStreamException If the document couldn't be read.
+   */
+  @SuppressWarnings ( {"unchecked"} )
+  public <E> E nextExtensionOfType(Class<E> clazz) throws JAXBException, XMLStreamException {
+    while (!this.closed && nextChild()) {
+      QName name = this.reader.getName();
+      Class<?> type = this.elementTypes.get(name);
+      if (type != null && !clazz.isAssignableFrom(type) && !type.isAssignableFrom(clazz)) {
+        //we've seen the element before, and it can't be of the requested type.
+        skipChild();
+        continue;
+      }
+
+      boolean known = isKnown(name);
+      Object child = known ? this.unmarshaller.unmarshal(this.reader) : isCaptureEnabled() ? readCapturedElement() : readElement();
+      if (known && type == null && child != null) {
+        this.elementTypes.put(name, child.getClass());
+      }
+      if (clazz.isInstance(child)) {
+        return (E) child;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Finds the first (remaining) child of the specified type, with the semantics of {@link ResourceSet#findExtensionOfType(Class)}.
+   *
+   * @param clazz The type.
+   * @return The child, or null if none found.
+   * @throws JAXBException If a child couldn't be unmarshalled.
+   * @throws XMLStreamException If the document couldn't be read.
+   */
+  public <E> E findExtensionOfType(Class<E> clazz) throws JAXBException, XMLStreamException {
+    return nextExtensionOfType(clazz);
+  }
+
+  /**
+   * Finds the (remaining) children of the specified type, with the semantics of {@link ResourceSet#findExtensionsOfType(Class)},
+   * except that the children are read lazily as the result is iterated. The result can be iterated only once, and the
+   * iterator throws an {@link IllegalStateException} if the document can't be read.
+   *
+   * @param clazz The type.
+   * @return The children of the specified type.
+   */
+  public <E> Iterable<E> findExtensionsOfType(final Class<E> clazz) {
+    if (this.iterated) {
+      throw new IllegalStateException("A resource set reader can only be iterated once.");
+    }
+    this.iterated = true;
+
+    return new Iterable<E>() {
+      public Iterator<E> iterator() {
+        return new Iterator<E>() {
+          private E next;
+
+          public boolean hasNext() {
+            if (this.next == null) {
+              try {
+                this.next = nextExtensionOfType(clazz);
+              }
+              catch (JAXBException e) {
+                throw new IllegalStateException(e);
+              }
+              catch (XMLStreamException e) {
+                throw new IllegalStateException(e);
+              }
+            }
+            return this.next != null;
+          }
+
+          public E next() {
+            if (!hasNext()) {
+              throw new NoSuchElementException();
+            }
+            E next = this.next;
+            this.next = null;
+            return next;
+          }
+
+          public void remove() {
+            throw new UnsupportedOperationException();
+          }
+        };
+      }
+    };
+  }
+
+  public void close() throws IOException {
+    if (!this.closed) {
+      this.closed = true;
+      JAXBContextRegistry.releaseUnmarshaller(this.context, this.unmarshaller);
+      try {
+        this.reader.close();
+      }
+      catch (XMLStreamException e) {
+        throw (IOException) new IOException(e.getMessage()).initCause(e);
+      }
+      finally {
+        this.stream.close();
+      }
+    }
+  }
+
+  /**
+   * Move to the start of the next child of the root, if any.
+   */
+  private boolean nextChild() throws XMLStreamException {
+    while (true) {
+      int event = this.reader.getEventType();
+      if (event == XMLStreamConstants.START_ELEMENT) {
+        return true;
+      }
+      else if (event == XMLStreamConstants.END_ELEMENT || event == XMLStreamConstants.END_DOCUMENT) {
+        //end of the root.
+        return false;
+      }
+      this.reader.next();
+    }
+  }
+
+  /**
+   * Skip the current child, leaving the reader just past its end.
+   */
+  private void skipChild() throws XMLStreamException {
+    int depth = 1;
+    while (depth > 0) {
+      int event = this.reader.next();
+      if (event == XMLStreamConstants.START_ELEMENT) {
+        depth++;
+      }
+      else if (event == XMLStreamConstants.END_ELEMENT) {
+        depth--;
+      }
+    }
+    this.reader.next();
+  }
+
+  /**
+   * Whether the element of the specified name is known to the JAXB context. An element is known if an empty element of
+   * the same name can be unmarshalled.
+   */
+  private boolean isKnown(QName name) {
+    if (this.elementTypes.containsKey(name)) {
+      return this.elementTypes.get(name) != Element.class;
+    }
+
+    String xml = "<x:" + name.getLocalPart() + " xmlns:x=\"" + name.getNamespaceURI().replace("&", "&amp;").replace("\"", "&quot;") + "\"/>";
+    if (XMLConstants.NULL_NS_URI.equals(name.getNamespaceURI())) {
+      xml = "<" + name.getLocalPart() + "/>";
+    }
+    try {
+      Unmarshaller probe = this.context.createUnmarshaller();
+      Object value = probe.unmarshal(new StreamSource(new StringReader(xml)));
+      return value != null;
+    }
+    catch (JAXBException e) {
+      this.elementTypes.put(name, Element.class);
+      return false;
+    }
+  }
+
+  /**
+   * Read the current child as a DOM element, leaving the reader just past its end.
+   */
+  private Element readElement() throws XMLStreamException {
+    if (this.document == null) {
+      try {
+        DocumentBuilderFactory builderFactory = DocumentBuilderFactory.newInstance();
+        builderFactory.setNamespaceAware(true);
+        this.document = builderFactory.newDocumentBuilder().newDocument();
+      }
+      catch (ParserConfigurationException e) {
+        throw new XMLStreamException(e);
+      }
+    }
+
+    Element root = null;
+    Node current = null;
+    do {
+      switch (this.reader.getEventType()) {
+        case XMLStreamConstants.START_ELEMENT:
+          Element element = this.document.createElementNS(emptyToNull(this.reader.getNamespaceURI()), qualifiedName(this.reader.getPrefix(), this.reader.getLocalName()));
+          for (int i = 0; i < this.reader.getNamespaceCount(); i++) {
+            String prefix = this.reader.getNamespacePrefix(i);
+            element.setAttributeNS(XMLConstants.XMLNS_ATTRIBUTE_NS_URI, prefix == null || prefix.length() == 0 ? "xmlns" : "xmlns:" + prefix, this.reader.getNamespaceURI(i));
+          }
+          for (int i = 0; i < this.reader.getAttributeCount(); i++) {
+            element.setAttributeNS(emptyToNull(this.reader.getAttributeNamespace(i)), qualifiedName(this.reader.getAttributePrefix(i), this.reader.getAttributeLocalName(i)), this.reader.getAttributeValue(i));
+          }
+          if (current == null) {
+            root = element;
+          }
+          else {
+            current.appendChild(element);
+          }
+          current = element;
+          break;
+        case XMLStreamConstants.CHARACTERS:
+        case XMLStreamConstants.SPACE:
+          current.appendChild(this.document.createTextNode(this.reader.getText()));
+          break;
+        case XMLStreamConstants.CDATA:
+          current.appendChild(this.document.createCDATASection(this.reader.getText()));
+          break;
+        case XMLStreamConstants.COMMENT:
+          current.appendChild(this.document.createComment(this.reader.getText()));
+          break;
+        case XMLStreamConstants.END_ELEMENT:
+          current = current.getParentNode();
+          break;
+        default:
+          break;
+      }
+      this.reader.next();
+    }
+    while (current != null);
+    return root;
+  }
+
+  /**
+   * Read the current child as a captured element, leaving the reader just past its end.
+   */
+  private CapturedElement readCapturedElement() throws XMLStreamException {
+    CapturedElement.Builder builder = new CapturedElement.Builder();
+    int depth = 0;
+    do {
+      switch (this.reader.getEventType()) {
+        case XMLStreamConstants.START_ELEMENT:
+          builder.startElement(this.reader.getNamespaceURI(), this.reader.getLocalName(), this.reader.getPrefix());
+          for (int i = 0; i < this.reader.getNamespaceCount(); i++) {
+            builder.namespace(this.reader.getNamespacePrefix(i), this.reader.getNamespaceURI(i));
+          }
+          for (int i = 0; i < this.reader.getAttributeCount(); i++) {
+            builder.attribute(this.reader.getAttributeNamespace(i), this.reader.getAttributeLocalName(i), this.reader.getAttributePrefix(i), this.reader.getAttributeValue(i));
+          }
+          depth++;
+          break;
+        case XMLStreamConstants.CHARACTERS:
+        case XMLStreamConstants.SPACE:
+        case XMLStreamConstants.CDATA:
+          builder.text(this.reader.getText());
+          break;
+        case XMLStreamConstants.END_ELEMENT:
+          builder.endElement();
+          depth--;
+          break;
+        default:
+          break;
+      }
+      this.reader.next();
+    }
+    while (depth > 0);
+    return builder.build();
+  }
+
+  private static String emptyToNull(String value) {
+    return value == null || value.length() == 0 ? null : value;
+  }
+
+  private static String qualifiedName(String prefix, String localName) {
+    return prefix == null || prefix.length() == 0 ? localName : prefix + ":" + localName;
+  }
+}
@@ -0,0 +1,169 @@
+/**
+ * Copyright 2011-2012 Intellectual Reserve, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gedcomx.common;
+
+import org.gedcomx.rt.CapturedElement;
+import org.gedcomx.rt.CommonModels;
+import org.gedcomx.rt.GedcomNamespaceManager;
+import org.gedcomx.rt.JAXBContextRegistry;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBElement;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.bind.annotation.XmlSchema;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Map;
+
+/**
+ * A streaming writer of a {@link ResourceSet} document. Instead of building the resource set and marshalling the whole graph,
+ * the writer opens the <code>rdf:RDF</code> root (declaring the namespace prefixes known to the {@link GedcomNamespaceManager})
+ * and marshals each resource to an {@link XMLStreamWriter} as it is supplied, so that the memory needed to write a document
+ * doesn't depend on the number of resources in it.<br/><br/>
+ *
+ * The writer isn't thread-safe.
+ *
+ * @author Ryan Heaton
+ */
+public class ResourceSetWriter implements Closeable {
+
+  private static final XMLOutputFactory OUTPUT_FACTORY = XMLOutputFactory.newInstance();
+
+  private final OutputStream stream;
+  private final XMLStreamWriter writer;
+  private final JAXBContext context;
+  private final Marshaller marshaller;
+  private String id;
+  private boolean started = false;
+  private boolean closed = false;
+
+  /**
+   * Create a writer to the specified stream. The document is encoded in UTF-8.
+   *
+   * @param out The stream.
+   * @param resourceClasses The classes of the resources to be written.
+   * @throws JAXBException If the JAXB context couldn't be created.
+   * @throws XMLStreamException If the document couldn't be started.
+   */
+  public ResourceSetWriter(OutputStream out, Class<?>... resourceClasses) throws JAXBException, XMLStreamException {
+    Class<?>[] classes = new Class<?>[resourceClasses.length + 1];
+    classes[0] = ResourceSet.class;
+    System.arraycopy(resourceClasses, 0, classes, 1, resourceClasses.length);
+    this.context = JAXBContextRegistry.getContext(classes);
+    this.stream = out;
+    this.writer = OUTPUT_FACTORY.createXMLStreamWriter(out, "UTF-8");
+    this.marshaller = JAXBContextRegistry.acquireMarshaller(this.context);
+    this.marshaller.setProperty(Marshaller.JAXB_FRAGMENT, Boolean.TRUE);
+    this.marshaller.setProperty("com.sun.xml.bind.namespacePrefixMapper", new GedcomNamespaceManager(ResourceSet.class));
+  }
+
+  /**
+   * The id of the resource set. The id must be set before the first resource is written.
+   *
+   * @param id The id of the resource set.
+   */
+  public void setId(String id) {
+    if (this.started) {
+      throw new IllegalStateException("The id of the resource set must be set before the first resource is written.");
+    }
+    this.id = id;
+  }
+
+  /**
+   * Write a resource to the resource set.
+   *
+   * @param resource The resource.
+   * @throws JAXBException If the resource couldn't be marshalled.
+   * @throws XMLStreamException If the resource couldn't be written.
+   */
+  @SuppressWarnings ( {"unchecked"} )
+  public void write(Object resource) throws JAXBException, XMLStreamException {
+    if (this.closed) {
+      throw new IllegalStateException("Writer is closed.");
+    }
+
+    start();
+    if (resource instanceof CapturedElement) {
+      ((CapturedElement) resource).writeTo(this.writer);
+      return;
+    }
+
+    Class<?> instanceClass = resource.getClass();
+    Object el = resource;
+    if (!instanceClass.isAnnotationPresent(XmlRootElement.class) && !(resource instanceof JAXBElement) && !(resource instanceof org.w3c.dom.Element)) {
+      String ns = "";
+      if (instanceClass.getPackage() != null && instanceClass.getPackage().getAnnotation(XmlSchema.class) != null) {
+        ns = instanceClass.getPackage().getAnnotation(XmlSchema.class).namespace();
+      }
+      el = new JAXBElement(new QName(ns, instanceClass.getSimpleName()), instanceClass, resource);
+    }
+    this.marshaller.marshal(el, this.writer);
+  }
+
+  /**
+   * Close the resource set (and the document), and close the stream.
+   *
+   * @throws IOException If the document couldn't be finished.
+   */
+  public void close() throws IOException {
+    if (this.closed) {
+      return;
+    }
+
+    this.closed = true;
+    try {
+      start();
+      this.writer.writeEndElement();
+      this.writer.writeEndDocument();
+      this.writer.close();
+    }
+    catch (XMLStreamException e) {
+      throw (IOException) new IOException(e.getMessage()).initCause(e);
+    }
+    finally {
+      JAXBContextRegistry.releaseMarshaller(this.context, this.marshaller);
+      this.stream.close();
+    }
+  }
+
+  private void start() throws XMLStreamException {
+    if (!this.started) {
+      this.started = true;
+      Map<String, String> prefixes = GedcomNamespaceManager.getKnownPrefixes();
+      String rdfPrefix = prefixes.containsKey(CommonModels.RDF_NAMESPACE) ? prefixes.get(CommonModels.RDF_NAMESPACE) : "rdf";
+      this.writer.writeStartDocument("UTF-8", "1.0");
+      this.writer.writeStartElement(rdfPrefix, "RDF", CommonModels.RDF_NAMESPACE);
+      this.writer.writeNamespace(rdfPrefix, CommonModels.RDF_NAMESPACE);
+      this.writer.setPrefix(rdfPrefix, CommonModels.RDF_NAMESPACE);
+      for (Map.Entry<String, String> prefix : prefixes.entrySet()) {
+        if (!CommonModels.RDF_NAMESPACE.equals(prefix.getKey())) {
+          this.writer.writeNamespace(prefix.getValue(), prefix.getKey());
+          this.writer.setPrefix(prefix.getValue(), prefix.getKey());
+        }
+      }
+      if (this.id != null) {
+        this.writer.writeAttribute(rdfPrefix, CommonModels.RDF_NAMESPACE, "ID", this.id);
+      }
+    }
+  }
+}
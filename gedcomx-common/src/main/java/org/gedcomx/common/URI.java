@@ -15,18 +15,28 @@
  */
 package org.gedcomx.common;
 
+import org.codehaus.jackson.annotate.JsonCreator;
 import org.codehaus.jackson.annotate.JsonValue;
 
 import javax.xml.bind.annotation.adapters.XmlJavaTypeAdapter;
 
 /**
- * A wrapper object for a URI.
+ * A wrapper object for a URI.<br/><br/>
+ *
+ * Type URIs (the URIs of the known enumerations and the types of {@link org.gedcomx.types.TypeReference}s read from XML
+ * or JSON) are {@link #intern(String) interned} in a weak, concurrent pool, so that a type URI repeated across a large tree
+ * is held by a single instance and compares equal by identity. Other URIs are only interned by {@link #create(String)}
+ * (which is used when URIs are read from XML or JSON) if interning is enabled with {@link #setInterning(boolean)} or by
+ * setting the <code>org.gedcomx.common.URI.intern</code> system property to <code>true</code>.
  *
  * @author Ryan Heaton
  */
 @XmlJavaTypeAdapter(URIAdapter.class)
 public final class URI {
 
+  private static final URIPool POOL = new URIPool();
+  private static volatile boolean interning = Boolean.getBoolean("org.gedcomx.common.URI.intern");
+
   private final String value;
 
   public URI(String value) {
@@ -37,8 +47,45 @@ public final class URI {
     this.value = value;
   }
 
+  @JsonCreator
   public static URI create(String uri) {
-    return new URI(uri);
+    if (uri == null) {
+      throw new IllegalArgumentException("value cannot be null");
+    }
+
+    return interning ? POOL.intern(uri) : new URI(uri);
+  }
+
+  /**
+   * Get the canonical instance of the specified URI from the pool, whether or not {@link #create(String)} interns.
+   *
+   * @param uri The URI.
+   * @return The canonical instance.
+   */
+  public static URI intern(String uri) {
+    if (uri == null) {
+      throw new IllegalArgumentException("value cannot be null");
+    }
+
+    return POOL.intern(uri);
+  }
+
+  /**
+   * Whether URIs created with {@link #create(String)} are interned. Interning is off by default.
+   *
+   * @return Whether URIs created with {@link #create(String)} are interned.
+   */
+  public static boolean isInterning() {
+    return interning;
+  }
+
+  /**
+   * Whether URIs created with {@link #create(String)} are interned.
+   *
+   * @param interning Whether URIs created with {@link #create(String)} are interned.
+   */
+  public static void setInterning(boolean interning) {
+    URI.interning = interning;
   }
 
   public java.net.URI toURI() {
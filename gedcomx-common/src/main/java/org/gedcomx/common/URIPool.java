@@ -0,0 +1,103 @@
+/**
+ * Copyright 2011-2012 Intellectual Reserve, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gedcomx.common;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A concurrent pool of canonical {@link URI} instances. The pool holds its instances weakly, so a URI that is no longer
+ * referenced anywhere else is collected and its entry is expunged from the pool.
+ *
+ * @author Ryan Heaton
+ */
+final class URIPool {
+
+  private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+  private final ReferenceQueue<URI> queue = new ReferenceQueue<URI>();
+
+  /**
+   * Get the canonical instance for the specified value, creating it if necessary.
+   *
+   * @param value The value.
+   * @return The canonical instance.
+   */
+  URI intern(String value) {
+    expunge();
+
+    Entry entry = this.entries.get(value);
+    while (true) {
+      URI uri = entry == null ? null : entry.get();
+      if (uri != null) {
+        return uri;
+      }
+
+      uri = new URI(value);
+      Entry candidate = new Entry(uri, this.queue);
+      if (entry == null) {
+        entry = this.entries.putIfAbsent(candidate.key, candidate);
+        if (entry == null) {
+          return uri;
+        }
+      }
+      else if (this.entries.replace(candidate.key, entry, candidate)) {
+        return uri;
+      }
+      else {
+        entry = this.entries.get(value);
+      }
+    }
+  }
+
+  /**
+   * The number of entries in the pool, including entries for instances that have been collected but not yet expunged.
+   *
+   * @return The number of entries in the pool.
+   */
+  int size() {
+    expunge();
+    return this.entries.size();
+  }
+
+  /**
+   * The reference held by the pool for the specified value.
+   *
+   * @param value The value.
+   * @return The reference, or null if the pool has no entry for the value.
+   */
+  WeakReference<URI> getReference(String value) {
+    return this.entries.get(value);
+  }
+
+  private void expunge() {
+    Entry entry;
+    while ((entry = (Entry) this.queue.poll()) != null) {
+      this.entries.remove(entry.key, entry);
+    }
+  }
+
+  private static final class Entry extends WeakReference<URI> {
+
+    private final String key;
+
+    private Entry(URI uri, ReferenceQueue<URI> queue) {
+      super(uri, queue);
+      this.key = uri.toString();
+    }
+  }
+}
@@ -42,13 +42,15 @@ public enum AgePartType {
   @XmlUnknownQNameEnumValue
   OTHER;
 
+  private static final QNameEnumTable<AgePartType> TABLE = QNameEnumTable.forType(AgePartType.class);
+
   /**
    * Return the QName value for this enum.
    *
    * @return The QName value for this enum.
    */
   public URI toQNameURI() {
-    return URI.create(org.codehaus.enunciate.XmlQNameEnumUtil.toURIValue(this));
+    return TABLE.toURI(this);
   }
 
   /**
@@ -58,7 +60,7 @@ public enum AgePartType {
    * @return The enumeration.
    */
   public static AgePartType fromQNameURI(URI qname) {
-    return org.codehaus.enunciate.XmlQNameEnumUtil.fromURIValue(qname.toString(), AgePartType.class);
+    return TABLE.fromURI(qname);
   }
 
 }
@@ -65,13 +65,15 @@ public enum ConfidenceLevel {
   @XmlUnknownQNameEnumValue
   OTHER;
 
+  private static final QNameEnumTable<ConfidenceLevel> TABLE = QNameEnumTable.forType(ConfidenceLevel.class);
+
   /**
    * Return the QName value for this enum.
    *
    * @return The QName value for this enum.
    */
   public URI toQNameURI() {
-    return URI.create(org.codehaus.enunciate.XmlQNameEnumUtil.toURIValue(this));
+    return TABLE.toURI(this);
   }
 
   /**
@@ -81,7 +83,7 @@ public enum ConfidenceLevel {
    * @return The enumeration.
    */
   public static ConfidenceLevel fromQNameURI(URI qname) {
-    return org.codehaus.enunciate.XmlQNameEnumUtil.fromURIValue(qname.toString(), ConfidenceLevel.class);
+    return TABLE.fromURI(qname);
   }
 
 }
@@ -41,13 +41,15 @@ public enum DateFormatType {
   @XmlUnknownQNameEnumValue
   OTHER;
 
+  private static final QNameEnumTable<DateFormatType> TABLE = QNameEnumTable.forType(DateFormatType.class);
+
   /**
    * Return the QName value for this enum.
    *
    * @return The QName value for this enum.
    */
   public URI toQNameURI() {
-    return URI.create(org.codehaus.enunciate.XmlQNameEnumUtil.toURIValue(this));
+    return TABLE.toURI(this);
   }
 
   /**
@@ -57,7 +59,7 @@ public enum DateFormatType {
    * @return The enumeration.
    */
   public static DateFormatType fromQNameURI(URI qname) {
-    return org.codehaus.enunciate.XmlQNameEnumUtil.fromURIValue(qname.toString(), DateFormatType.class);
+    return TABLE.fromURI(qname);
   }
 
 }
@@ -33,13 +33,15 @@ public enum DatePartType {
   @XmlUnknownQNameEnumValue
   OTHER;
 
+  private static final QNameEnumTable<DatePartType> TABLE = QNameEnumTable.forType(DatePartType.class);
+
   /**
    * Return the QName value for this enum.
    *
    * @return The QName value for this enum.
    */
   public URI toQNameURI() {
-    return URI.create(org.codehaus.enunciate.XmlQNameEnumUtil.toURIValue(this));
+    return TABLE.toURI(this);
   }
 
   /**
@@ -49,7 +51,7 @@ public enum DatePartType {
    * @return The enumeration.
    */
   public static DatePartType fromQName(URI qname) {
-    return org.codehaus.enunciate.XmlQNameEnumUtil.fromURIValue(qname.toString(), DatePartType.class);
+    return TABLE.fromURI(qname);
   }
 
 }
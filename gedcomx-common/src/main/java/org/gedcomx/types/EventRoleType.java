@@ -34,13 +34,15 @@ public enum EventRoleType {
   @XmlUnknownQNameEnumValue
   OTHER;
 
+  private static final QNameEnumTable<EventRoleType> TABLE = QNameEnumTable.forType(EventRoleType.class);
+
   /**
    * Return the QName value for this enum.
    *
    * @return The QName value for this enum.
    */
   public URI toQNameURI() {
-    return URI.create(org.codehaus.enunciate.XmlQNameEnumUtil.toURIValue(this));
+    return TABLE.toURI(this);
   }
 
   /**
@@ -50,7 +52,7 @@ public enum EventRoleType {
    * @return The enumeration.
    */
   public static EventRoleType fromQNameURI(URI qname) {
-    return org.codehaus.enunciate.XmlQNameEnumUtil.fromURIValue(qname.toString(), EventRoleType.class);
+    return TABLE.fromURI(qname);
   }
 
 }
\ No newline at end of file
@@ -68,13 +68,15 @@ public enum EventType {
   @XmlUnknownQNameEnumValue
   OTHER;
 
+  private static final QNameEnumTable<EventType> TABLE = QNameEnumTable.forType(EventType.class);
+
   /**
    * Return the QName value for this enum.
    *
    * @return The QName value for this enum.
    */
   public URI toQNameURI() {
-    return URI.create(org.codehaus.enunciate.XmlQNameEnumUtil.toURIValue(this));
+    return TABLE.toURI(this);
   }
 
   /**
@@ -84,7 +86,7 @@ public enum EventType {
    * @return The enumeration.
    */
   public static EventType fromQNameURI(URI qname) {
-    return org.codehaus.enunciate.XmlQNameEnumUtil.fromURIValue(qname.toString(), EventType.class);
+    return TABLE.fromURI(qname);
   }
 
 }
@@ -150,6 +150,8 @@ public enum FactType {
   @XmlUnknownQNameEnumValue
   OTHER;
 
+  private static final QNameEnumTable<FactType> TABLE = QNameEnumTable.forType(FactType.class);
+
   public final static Set<FactType> BIRTHLIKE_FACT_TYPES = Collections.unmodifiableSet(EnumSet.of(Baptism, Birth, Christening, Blessing, Circumcision, Adoption));
   public final static Set<FactType> DEATHLIKE_FACT_TYPES = Collections.unmodifiableSet(EnumSet.of(Death, Burial, Cremation, Funeral, Interment, Probate, Will));
   public final static Set<FactType> MARRIAGELIKE_FACT_TYPES = Collections.unmodifiableSet(EnumSet.of(Marriage, Engagement, MarriageBanns, MarriageContract, MarriageLicense, MarriageNotice, MarriageSettlement));
@@ -182,7 +184,7 @@ public enum FactType {
    * @return The QName value for this enum.
    */
   public URI toQNameURI() {
-    return URI.create(org.codehaus.enunciate.XmlQNameEnumUtil.toURIValue(this));
+    return TABLE.toURI(this);
   }
 
   /**
@@ -192,7 +194,7 @@ public enum FactType {
    * @return The enumeration.
    */
   public static FactType fromQNameURI(URI qname) {
-    return org.codehaus.enunciate.XmlQNameEnumUtil.fromURIValue(qname.toString(), FactType.class);
+    return TABLE.fromURI(qname);
   }
 
   /**
@@ -51,13 +51,15 @@ public enum GenderType {
   @XmlUnknownQNameEnumValue
   OTHER;
 
+  private static final QNameEnumTable<GenderType> TABLE = QNameEnumTable.forType(GenderType.class);
+
   /**
    * Return the QName value for this enum.
    *
    * @return The QName value for this enum.
    */
   public URI toQNameURI() {
-    return URI.create(org.codehaus.enunciate.XmlQNameEnumUtil.toURIValue(this));
+    return TABLE.toURI(this);
   }
 
   /**
@@ -67,7 +69,7 @@ public enum GenderType {
    * @return The enumeration.
    */
   public static GenderType fromQNameURI(URI qname) {
-    return org.codehaus.enunciate.XmlQNameEnumUtil.fromURIValue(qname.toString(), GenderType.class);
+    return TABLE.fromURI(qname);
   }
 
 }
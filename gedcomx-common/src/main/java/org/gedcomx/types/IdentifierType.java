@@ -42,13 +42,15 @@ public enum IdentifierType {
   @XmlUnknownQNameEnumValue
   OTHER;
 
+  private static final QNameEnumTable<IdentifierType> TABLE = QNameEnumTable.forType(IdentifierType.class);
+
   /**
    * Return the QName value for this enum.
    *
    * @return The QName value for this enum.
    */
   public URI toQNameURI() {
-    return URI.create(org.codehaus.enunciate.XmlQNameEnumUtil.toURIValue(this));
+    return TABLE.toURI(this);
   }
 
   /**
@@ -58,7 +60,7 @@ public enum IdentifierType {
    * @return The enumeration.
    */
   public static IdentifierType fromQNameURI(URI qname) {
-    return org.codehaus.enunciate.XmlQNameEnumUtil.fromURIValue(qname.toString(), IdentifierType.class);
+    return TABLE.fromURI(qname);
   }
 
 }
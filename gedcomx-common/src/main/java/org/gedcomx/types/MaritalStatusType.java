@@ -35,13 +35,15 @@ public enum MaritalStatusType {
   @XmlUnknownQNameEnumValue
   other;
 
+  private static final QNameEnumTable<MaritalStatusType> TABLE = QNameEnumTable.forType(MaritalStatusType.class);
+
   /**
    * Return the QName value for this enum.
    *
    * @return The QName value for this enum.
    */
   public URI toQNameURI() {
-    return URI.create(org.codehaus.enunciate.XmlQNameEnumUtil.toURIValue(this));
+    return TABLE.toURI(this);
   }
 
   /**
@@ -51,7 +53,7 @@ public enum MaritalStatusType {
    * @return The enumeration.
    */
   public static MaritalStatusType fromQNameURI(URI qname) {
-    return org.codehaus.enunciate.XmlQNameEnumUtil.fromURIValue(qname.toString(), MaritalStatusType.class);
+    return TABLE.fromURI(qname);
   }
 
 }
@@ -34,13 +34,15 @@ public enum NamePartType {
   @XmlUnknownQNameEnumValue
   OTHER;
 
+  private static final QNameEnumTable<NamePartType> TABLE = QNameEnumTable.forType(NamePartType.class);
+
   /**
    * Return the QName value for this enum.
    *
    * @return The QName value for this enum.
    */
   public URI toQNameURI() {
-    return URI.create(org.codehaus.enunciate.XmlQNameEnumUtil.toURIValue(this));
+    return TABLE.toURI(this);
   }
 
   /**
@@ -50,7 +52,7 @@ public enum NamePartType {
    * @return The enumeration.
    */
   public static NamePartType fromQNameURI(URI qname) {
-    return org.codehaus.enunciate.XmlQNameEnumUtil.fromURIValue(qname.toString(), NamePartType.class);
+    return TABLE.fromURI(qname);
   }
 
 }
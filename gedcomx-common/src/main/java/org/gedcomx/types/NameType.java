@@ -40,13 +40,15 @@ public enum NameType {
   @XmlUnknownQNameEnumValue
   OTHER;
 
+  private static final QNameEnumTable<NameType> TABLE = QNameEnumTable.forType(NameType.class);
+
   /**
    * Return the QName value for this enum.
    *
    * @return The QName value for this enum.
    */
   public URI toQNameURI() {
-    return URI.create(org.codehaus.enunciate.XmlQNameEnumUtil.toURIValue(this));
+    return TABLE.toURI(this);
   }
 
   /**
@@ -56,7 +58,7 @@ public enum NameType {
    * @return The enumeration.
    */
   public static NameType fromQNameURI(URI qname) {
-    return org.codehaus.enunciate.XmlQNameEnumUtil.fromURIValue(qname.toString(), NameType.class);
+    return TABLE.fromURI(qname);
   }
 
 }
@@ -54,13 +54,15 @@ public enum PlacePartType {
   @XmlUnknownQNameEnumValue
   OTHER;
 
+  private static final QNameEnumTable<PlacePartType> TABLE = QNameEnumTable.forType(PlacePartType.class);
+
   /**
    * Return the QName value for this enum.
    *
    * @return The QName value for this enum.
    */
   public URI toQNameURI() {
-    return URI.create(org.codehaus.enunciate.XmlQNameEnumUtil.toURIValue(this));
+    return TABLE.toURI(this);
   }
 
   /**
@@ -70,7 +72,7 @@ public enum PlacePartType {
    * @return The enumeration.
    */
   public static PlacePartType fromQNameURI(URI qname) {
-    return org.codehaus.enunciate.XmlQNameEnumUtil.fromURIValue(qname.toString(), PlacePartType.class);
+    return TABLE.fromURI(qname);
   }
 
 }
@@ -0,0 +1,186 @@
+/**
+ * Copyright 2011-2012 Intellectual Reserve, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gedcomx.types;
+
+import org.codehaus.enunciate.XmlQNameEnumUtil;
+import org.codehaus.enunciate.qname.XmlUnknownQNameEnumValue;
+import org.gedcomx.common.URI;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Precomputed lookup tables between the constants of a QName enumeration and their URI values. The tables are built once per
+ * enumeration (with {@link XmlQNameEnumUtil}), so that converting between a constant and its URI is an array or hash lookup
+ * instead of a reflective scan of the constants and their annotations.<br/><br/>
+ *
+ * The semantics are those of {@link XmlQNameEnumUtil}: a URI value that doesn't match any constant is converted to the
+ * {@link XmlUnknownQNameEnumValue unknown value} of the enumeration (or null if there isn't one), and the unknown value
+ * can't be converted to a URI.
+ *
+ * @author Ryan Heaton
+ */
+public final class QNameEnumTable<E extends Enum<E>> {
+
+  private static final ConcurrentMap<Class<?>, QNameEnumTable<?>> TABLES = new ConcurrentHashMap<Class<?>, QNameEnumTable<?>>();
+
+  private final Class<E> type;
+  private final Map<String, E> constants;
+  private final String[] values;
+  private final URI[] uris;
+  private final E unknown;
+
+  private QNameEnumTable(Class<E> type) {
+    E[] constants = type.getEnumConstants();
+    Map<String, E> byValue = new HashMap<String, E>(constants.length * 2);
+    String[] values = new String[constants.length];
+    URI[] uris = new URI[constants.length];
+    E unknown = null;
+    for (E constant : constants) {
+      if (isUnknownValue(type, constant)) {
+        unknown = constant;
+      }
+      else {
+        String value = XmlQNameEnumUtil.toURIValue(constant);
+        byValue.put(value, constant);
+        values[constant.ordinal()] = value;
+        uris[constant.ordinal()] = URI.intern(value);
+      }
+    }
+    this.type = type;
+    this.constants = byValue;
+    this.values = values;
+    this.uris = uris;
+    this.unknown = unknown;
+  }
+
+  private static boolean isUnknownValue(Class<?> type, Enum<?> constant) {
+    try {
+      return type.getField(constant.name()).isAnnotationPresent(XmlUnknownQNameEnumValue.class);
+    }
+    catch (NoSuchFieldException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Get the lookup tables for the specified enumeration, creating them if necessary.
+   *
+   * @param type The enumeration.
+   * @return The lookup tables.
+   */
+  @SuppressWarnings ( {"unchecked"} )
+  public static <E extends Enum<E>> QNameEnumTable<E> forType(Class<E> type) {
+    QNameEnumTable<E> table = (QNameEnumTable<E>) TABLES.get(type);
+    if (table == null) {
+      table = new QNameEnumTable<E>(type);
+      QNameEnumTable<E> existing = (QNameEnumTable<E>) TABLES.putIfAbsent(type, table);
+      if (existing != null) {
+        table = existing;
+      }
+    }
+    return table;
+  }
+
+  /**
+   * Get the URI of the specified constant of any QName enumeration.
+   *
+   * @param constant The constant.
+   * @return The URI.
+   * @throws IllegalArgumentException If the constant is null or the unknown value.
+   */
+  @SuppressWarnings ( {"unchecked"} )
+  public static URI uriOf(Enum constant) {
+    if (constant == null) {
+      throw new IllegalArgumentException("constant cannot be null");
+    }
+    return forType(constant.getDeclaringClass()).toURI(constant);
+  }
+
+  /**
+   * The enumeration.
+   *
+   * @return The enumeration.
+   */
+  public Class<E> getType() {
+    return type;
+  }
+
+  /**
+   * The unknown value of the enumeration.
+   *
+   * @return The unknown value of the enumeration, or null if there isn't one.
+   */
+  public E getUnknownValue() {
+    return unknown;
+  }
+
+  /**
+   * Get the URI value of the specified constant.
+   *
+   * @param constant The constant.
+   * @return The URI value.
+   * @throws IllegalArgumentException If the constant is the unknown value.
+   */
+  public String toURIValue(E constant) {
+    String value = this.values[constant.ordinal()];
+    if (value == null) {
+      throw new IllegalArgumentException(type.getName() + "." + constant.name() + " is not a QName enum value.");
+    }
+    return value;
+  }
+
+  /**
+   * Get the URI of the specified constant. The URI instances are shared.
+   *
+   * @param constant The constant.
+   * @return The URI.
+   * @throws IllegalArgumentException If the constant is the unknown value.
+   */
+  public URI toURI(E constant) {
+    URI uri = this.uris[constant.ordinal()];
+    if (uri == null) {
+      throw new IllegalArgumentException(type.getName() + "." + constant.name() + " is not a QName enum value.");
+    }
+    return uri;
+  }
+
+  /**
+   * Get the constant for the specified URI value.
+   *
+   * @param value The URI value.
+   * @return The constant, or the unknown value if the URI value doesn't match any constant (null if the URI value is null).
+   */
+  public E fromURIValue(String value) {
+    if (value == null) {
+      return null;
+    }
+    E constant = this.constants.get(value);
+    return constant == null ? this.unknown : constant;
+  }
+
+  /**
+   * Get the constant for the specified URI.
+   *
+   * @param uri The URI.
+   * @return The constant, or the unknown value if the URI doesn't match any constant (null if the URI is null).
+   */
+  public E fromURI(URI uri) {
+    return fromURIValue(uri == null ? null : uri.toString());
+  }
+}
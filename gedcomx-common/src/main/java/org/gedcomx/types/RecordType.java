@@ -57,6 +57,8 @@ public enum RecordType {
   @XmlUnknownQNameEnumValue
   OTHER;
 
+  private static final QNameEnumTable<RecordType> TABLE = QNameEnumTable.forType(RecordType.class);
+
   public static final Set<RecordType> VITAL_TYPES = Collections.unmodifiableSet(EnumSet.of(Birth, Death, Marriage));
   public static final Set<RecordType> MILITARY_TYPES = Collections.unmodifiableSet(EnumSet.of(Draft, Pension, Roll));
   public static final Set<RecordType> LEGAL_TYPES = Collections.unmodifiableSet(EnumSet.of(Bank, Land, Probate, Tax));
@@ -67,7 +69,7 @@ public enum RecordType {
    * @return The QName value for this enum.
    */
   public URI toQNameURI() {
-    return URI.create(org.codehaus.enunciate.XmlQNameEnumUtil.toURIValue(this));
+    return TABLE.toURI(this);
   }
 
   /**
@@ -77,7 +79,7 @@ public enum RecordType {
    * @return The enumeration.
    */
   public static RecordType fromQNameURI(URI qname) {
-    return org.codehaus.enunciate.XmlQNameEnumUtil.fromURIValue(qname.toString(), RecordType.class);
+    return TABLE.fromURI(qname);
   }
 
   public boolean isVital() {
@@ -32,13 +32,15 @@ public enum RelationshipType {
   @XmlUnknownQNameEnumValue
   OTHER;
 
+  private static final QNameEnumTable<RelationshipType> TABLE = QNameEnumTable.forType(RelationshipType.class);
+
   /**
    * Return the QName value for this enum.
    *
    * @return The QName value for this enum.
    */
   public URI toQNameURI() {
-    return URI.create(org.codehaus.enunciate.XmlQNameEnumUtil.toURIValue(this));
+    return TABLE.toURI(this);
   }
 
   /**
@@ -48,7 +50,7 @@ public enum RelationshipType {
    * @return The enumeration.
    */
   public static RelationshipType fromQNameURI(URI qname) {
-    return org.codehaus.enunciate.XmlQNameEnumUtil.fromURIValue(qname.toString(), RelationshipType.class);
+    return TABLE.fromURI(qname);
   }
 
 }
\ No newline at end of file
@@ -178,6 +178,8 @@ public enum ResourceType {
   @XmlUnknownQNameEnumValue
   OTHER;
 
+  private static final QNameEnumTable<ResourceType> TABLE = QNameEnumTable.forType(ResourceType.class);
+
 
   /**
    * Return the QName value for this enum.
@@ -185,7 +187,7 @@ public enum ResourceType {
    * @return The QName value for this enum.
    */
   public URI toQNameURI() {
-    return URI.create(org.codehaus.enunciate.XmlQNameEnumUtil.toURIValue(this));
+    return TABLE.toURI(this);
   }
 
   /**
@@ -195,6 +197,6 @@ public enum ResourceType {
    * @return The enumeration.
    */
   public static ResourceType fromQNameURI(URI qname) {
-    return org.codehaus.enunciate.XmlQNameEnumUtil.fromURIValue(qname.toString(), ResourceType.class);
+    return TABLE.fromURI(qname);
   }
 }
@@ -23,6 +23,7 @@ import org.codehaus.jackson.map.DeserializationContext;
 import org.codehaus.jackson.map.SerializerProvider;
 import org.codehaus.jackson.map.annotate.JsonDeserialize;
 import org.codehaus.jackson.map.annotate.JsonSerialize;
+import org.gedcomx.common.InternedURIAdapter;
 import org.gedcomx.common.URI;
 import org.gedcomx.rt.CommonModels;
 import org.gedcomx.rt.json.JsonSimpleValue;
@@ -32,10 +33,18 @@ import javax.xml.bind.annotation.XmlAttribute;
 import javax.xml.bind.annotation.XmlSchemaType;
 import javax.xml.bind.annotation.XmlTransient;
 import javax.xml.bind.annotation.XmlType;
+import javax.xml.bind.annotation.adapters.XmlJavaTypeAdapter;
 import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
- * A RDF reference to an age part type.
+ * A RDF reference to an age part type.<br/><br/>
+ *
+ * There is a shared, immutable instance (see {@link #valueOf(Enum)} and {@link #valueOf(URI)}) for each known value of the
+ * enumerations in this package, used when a known type is set on a conclusion or read from JSON. The shared instances
+ * throw an {@link UnsupportedOperationException} if their type is set.
  *
  * @author Ryan Heaton
  */
@@ -45,19 +54,99 @@ import java.io.IOException;
 @JsonSimpleValue
 public final class TypeReference<T extends Enum> {
 
+  private static final Map<String, TypeReference<?>> SHARED_INSTANCES;
+  static {
+    Map<String, TypeReference<?>> sharedInstances = new HashMap<String, TypeReference<?>>();
+    addSharedInstances(AgePartType.class, sharedInstances);
+    addSharedInstances(ConfidenceLevel.class, sharedInstances);
+    addSharedInstances(DateFormatType.class, sharedInstances);
+    addSharedInstances(DatePartType.class, sharedInstances);
+    addSharedInstances(EventRoleType.class, sharedInstances);
+    addSharedInstances(EventType.class, sharedInstances);
+    addSharedInstances(FactType.class, sharedInstances);
+    addSharedInstances(GenderType.class, sharedInstances);
+    addSharedInstances(IdentifierType.class, sharedInstances);
+    addSharedInstances(MaritalStatusType.class, sharedInstances);
+    addSharedInstances(NamePartType.class, sharedInstances);
+    addSharedInstances(NameType.class, sharedInstances);
+    addSharedInstances(PlacePartType.class, sharedInstances);
+    addSharedInstances(RecordType.class, sharedInstances);
+    addSharedInstances(RelationshipType.class, sharedInstances);
+    addSharedInstances(ResourceType.class, sharedInstances);
+    SHARED_INSTANCES = Collections.unmodifiableMap(sharedInstances);
+  }
+
+  private final boolean shared;
   private URI type;
 
   public TypeReference() {
+    this.shared = false;
   }
 
   public TypeReference(URI type) {
+    this.shared = false;
     this.type = type;
   }
 
   public TypeReference(T type) {
+    this.shared = false;
     setKnownType(type);
   }
 
+  private TypeReference(URI type, boolean shared) {
+    this.shared = shared;
+    this.type = type;
+  }
+
+  private static <E extends Enum<E>> void addSharedInstances(Class<E> knownType, Map<String, TypeReference<?>> sharedInstances) {
+    QNameEnumTable<E> table = QNameEnumTable.forType(knownType);
+    for (E constant : knownType.getEnumConstants()) {
+      if (constant != table.getUnknownValue()) {
+        URI uri = table.toURI(constant);
+        if (!sharedInstances.containsKey(uri.toString())) {
+          sharedInstances.put(uri.toString(), new TypeReference<E>(uri, true));
+        }
+      }
+    }
+  }
+
+  /**
+   * Get the shared instance for a known type.
+   *
+   * @param knownType The known type.
+   * @return The shared instance.
+   * @throws IllegalArgumentException If the known type is null or is the unknown value of its enumeration.
+   */
+  @SuppressWarnings ( {"unchecked"} )
+  public static <T extends Enum> TypeReference<T> valueOf(T knownType) {
+    URI uri = QNameEnumTable.uriOf(knownType);
+    TypeReference<T> shared = (TypeReference<T>) SHARED_INSTANCES.get(uri.toString());
+    return shared == null ? new TypeReference<T>(uri) : shared;
+  }
+
+  /**
+   * Get a reference to the specified type: the shared instance if the type is known, or a new instance otherwise.
+   *
+   * @param type The type.
+   * @return The reference.
+   */
+  @SuppressWarnings ( {"unchecked"} )
+  public static <T extends Enum> TypeReference<T> valueOf(URI type) {
+    TypeReference<T> shared = type == null ? null : (TypeReference<T>) SHARED_INSTANCES.get(type.toString());
+    return shared == null ? new TypeReference<T>(type) : shared;
+  }
+
+  /**
+   * Whether this is a shared, immutable instance.
+   *
+   * @return Whether this is a shared, immutable instance.
+   */
+  @XmlTransient
+  @JsonIgnore
+  public boolean isShared() {
+    return shared;
+  }
+
   /**
    * The identifier of the type being referenced.
    *
@@ -65,6 +154,7 @@ public final class TypeReference<T extends Enum> {
    */
   @XmlAttribute ( namespace= CommonModels.RDF_NAMESPACE, name = "resource" )
   @XmlSchemaType (name = "anyURI", namespace = XMLConstants.W3C_XML_SCHEMA_NS_URI)
+  @XmlJavaTypeAdapter ( InternedURIAdapter.class )
   public URI getType() {
     return type;
   }
@@ -75,6 +165,9 @@ public final class TypeReference<T extends Enum> {
    * @param type The identifier of the type being referenced.
    */
   public void setType(URI type) {
+    if (this.shared) {
+      throw new UnsupportedOperationException("A shared type reference is immutable.");
+    }
     this.type = type;
   }
 
@@ -86,7 +179,7 @@ public final class TypeReference<T extends Enum> {
   @XmlTransient
   @JsonIgnore
   public void setKnownType(T type) {
-    setType(URI.create(org.codehaus.enunciate.XmlQNameEnumUtil.toURIValue(type)));
+    setType(QNameEnumTable.uriOf(type));
   }
 
   public static class JsonSerializer extends org.codehaus.jackson.map.JsonSerializer<TypeReference> {
@@ -110,7 +203,7 @@ public final class TypeReference<T extends Enum> {
         return null;
       }
       else {
-        return new TypeReference(URI.create(text));
+        return TypeReference.valueOf(URI.intern(text));
       }
     }
   }
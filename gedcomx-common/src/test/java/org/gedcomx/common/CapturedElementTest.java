@@ -0,0 +1,141 @@
+package org.gedcomx.common;
+
+import org.gedcomx.rt.CapturedElement;
+import org.gedcomx.rt.ExtensionElementHandler;
+import org.gedcomx.rt.JAXBContextRegistry;
+import org.gedcomx.rt.SerializationUtil;
+import org.testng.annotations.Test;
+import org.w3c.dom.DOMException;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+
+import static org.testng.AssertJUnit.*;
+
+/**
+ * @author Ryan Heaton
+ */
+@Test
+public class CapturedElementTest {
+
+  /**
+   * tests capturing unknown extension elements instead of reading them as DOM elements.
+   */
+  public void testCaptureExtensionElements() throws Exception {
+    JAXBContext context = JAXBContextRegistry.getContext(ResourceSet.class, Note.class);
+    ResourceSet set = createTestResourceSet();
+    String xml = toXml(set, context);
+
+    Unmarshaller unmarshaller = context.createUnmarshaller();
+    assertFalse(ExtensionElementHandler.isCaptureEnabled(unmarshaller));
+    ExtensionElementHandler.setCaptureEnabled(unmarshaller, true);
+    assertTrue(ExtensionElementHandler.isCaptureEnabled(unmarshaller));
+    ResourceSet captured = (ResourceSet) unmarshaller.unmarshal(new StringReader(xml));
+    //capturing is enabled only on that unmarshaller.
+    ResourceSet dom = (ResourceSet) context.createUnmarshaller().unmarshal(new StringReader(xml));
+    assertFalse(dom.findExtensionOfType(Element.class) instanceof CapturedElement);
+
+    assertEquals("note", captured.findExtensionOfType(Note.class).getId());
+    CapturedElement custom = captured.findExtensionOfType(CapturedElement.class);
+    assertNotNull(custom);
+    assertSame(custom, captured.findExtensionOfType(Element.class));
+    assertEquals("urn:custom", custom.getNamespaceURI());
+    assertEquals("custom", custom.getLocalName());
+    assertEquals("valuechild", custom.getTextContent().trim());
+
+    assertEquals(xml, toXml(captured, context));
+    assertEquals(SerializationUtil.toJsonNode(dom), SerializationUtil.toJsonNode(captured));
+    assertEquals(xml, toXml(SerializationUtil.<ResourceSet>processThroughBinary(captured), context));
+
+    Element element = custom.toElement(DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument());
+    assertEquals("custom", element.getLocalName());
+    assertEquals("1", custom.getAttribute("id"));
+    assertEquals("1", element.getAttribute("id"));
+    assertEquals("child", ((Element) element.getElementsByTagNameNS("urn:custom", "child").item(0)).getTextContent());
+  }
+
+  /**
+   * tests navigating a captured element as DOM nodes.
+   */
+  public void testNavigateCapturedElement() throws Exception {
+    Document dom = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+    CapturedElement custom = CapturedElement.from((Element) createTestResourceSet().getExtensionElements().get(1));
+    assertTrue(custom.hasChildNodes());
+    assertEquals(2, custom.getChildNodes().getLength());
+    assertEquals(Node.TEXT_NODE, custom.getFirstChild().getNodeType());
+    assertEquals("value", custom.getFirstChild().getNodeValue());
+    assertEquals("child", custom.getLastChild().getLocalName());
+    assertSame(custom.getFirstChild(), custom.getFirstChild());
+    assertEquals("child", custom.getElementsByTagNameNS("urn:custom", "child").item(0).getTextContent());
+    assertEquals(1, custom.getElementsByTagName("custom:child").getLength());
+    assertEquals("1", custom.getAttributeNode("id").getValue());
+    assertNotNull(custom.getAttributes().getNamedItem("id"));
+    assertEquals("custom", ((Element) custom.cloneNode(true)).getLocalName());
+    assertNull(custom.getParentNode());
+
+    try {
+      custom.appendChild(dom.createElement("other"));
+      fail();
+    }
+    catch (DOMException e) {
+      assertEquals(DOMException.NO_MODIFICATION_ALLOWED_ERR, e.code);
+    }
+  }
+
+  /**
+   * tests capturing unknown extension elements while streaming a resource set.
+   */
+  public void testStreamCapturedElements() throws Exception {
+    byte[] xml = SerializationUtil.toXmlStream(createTestResourceSet(), ResourceSet.class, JAXBContextRegistry.getContext(ResourceSet.class, Note.class));
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ResourceSetReader reader = new ResourceSetReader(new ByteArrayInputStream(xml), Note.class);
+    reader.setCaptureEnabled(true);
+    CapturedElement custom = reader.findExtensionOfType(CapturedElement.class);
+    reader.close();
+    assertNotNull(custom);
+    assertEquals("valuechild", custom.getTextContent().trim());
+
+    ResourceSetWriter writer = new ResourceSetWriter(out, Note.class);
+    writer.setId("set");
+    writer.write(custom);
+    writer.close();
+
+    reader = new ResourceSetReader(new ByteArrayInputStream(out.toByteArray()), Note.class);
+    assertFalse(reader.isCaptureEnabled());
+    Element element = reader.findExtensionOfType(Element.class);
+    reader.close();
+    assertFalse(element instanceof CapturedElement);
+    assertEquals("urn:custom", element.getNamespaceURI());
+    assertEquals("1", element.getAttribute("id"));
+    assertEquals("valuechild", element.getTextContent().trim());
+  }
+
+  private static ResourceSet createTestResourceSet() throws Exception {
+    Document dom = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+    ResourceSet set = new ResourceSet();
+    set.setId("set");
+    Note note = new Note();
+    note.setId("note");
+    note.setText("hello");
+    set.addExtensionElement(note);
+    Element custom = dom.createElementNS("urn:custom", "custom:custom");
+    custom.setAttribute("id", "1");
+    custom.appendChild(dom.createTextNode("value"));
+    Element child = dom.createElementNS("urn:custom", "custom:child");
+    child.setTextContent("child");
+    custom.appendChild(child);
+    set.addExtensionElement(custom);
+    return set;
+  }
+
+  private static String toXml(ResourceSet set, JAXBContext context) throws Exception {
+    return new String(SerializationUtil.toXmlStream(set, ResourceSet.class, context), "utf-8");
+  }
+}
@@ -0,0 +1,76 @@
+package org.gedcomx.common;
+
+import org.gedcomx.rt.SerializationUtil;
+import org.gedcomx.rt.json.GedcomJsonStreamReader;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.testng.AssertJUnit.*;
+
+/**
+ * @author Ryan Heaton
+ */
+@Test
+public class GedcomJsonStreamReaderTest {
+
+  /**
+   * tests streaming the elements of a resource set.
+   */
+  public void testReadResourceSet() throws Exception {
+    byte[] json = SerializationUtil.toJsonStream(createTestResourceSet("a"));
+    GedcomJsonStreamReader reader = new GedcomJsonStreamReader(new ByteArrayInputStream(json), Note.class, Collection.class);
+    List<Object> elements = new ArrayList<Object>();
+    for (Object element : reader) {
+      elements.add(element);
+    }
+    reader.close();
+
+    assertEquals(3, elements.size());
+    List<String> ids = new ArrayList<String>();
+    for (Object element : elements) {
+      ids.add(((GenealogicalResource) element).getId());
+    }
+    assertTrue(ids.contains("a-note1"));
+    assertTrue(ids.contains("a-note2"));
+    assertTrue(ids.contains("a-collection"));
+  }
+
+  /**
+   * tests streaming the elements of multiple resource sets to a handler.
+   */
+  public void testReadResourceSets() throws Exception {
+    String json = "{\"resourceSets\" : [" + new String(SerializationUtil.toJsonStream(createTestResourceSet("a")), "utf-8")
+      + ", " + new String(SerializationUtil.toJsonStream(createTestResourceSet("b")), "utf-8") + "], \"other\" : { \"ignored\" : [1, 2] } }";
+    GedcomJsonStreamReader reader = new GedcomJsonStreamReader(new ByteArrayInputStream(json.getBytes("utf-8")), Note.class, Collection.class);
+    final List<String> ids = new ArrayList<String>();
+    reader.read(new GedcomJsonStreamReader.Handler() {
+      public void handle(String propertyName, Object element) throws IOException {
+        ids.add(((GenealogicalResource) element).getId());
+      }
+    });
+    reader.close();
+
+    assertEquals(6, ids.size());
+    assertTrue(ids.get(0).startsWith("a-"));
+    assertTrue(ids.get(5).startsWith("b-"));
+  }
+
+  private ResourceSet createTestResourceSet(String prefix) {
+    ResourceSet set = new ResourceSet();
+    set.setId(prefix);
+    Note note = new Note();
+    note.setId(prefix + "-note1");
+    set.addExtensionElement(note);
+    Collection collection = new Collection();
+    collection.setId(prefix + "-collection");
+    set.addExtensionElement(collection);
+    note = new Note();
+    note.setId(prefix + "-note2");
+    set.addExtensionElement(note);
+    return set;
+  }
+}
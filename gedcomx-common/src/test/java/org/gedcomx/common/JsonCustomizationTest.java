@@ -1,15 +1,21 @@
 package org.gedcomx.common;
 
 import org.gedcomx.rt.GedcomNamespaceManager;
+import org.gedcomx.rt.json.GedcomJsonMappers;
 import org.testng.annotations.Test;
 
 import javax.xml.bind.JAXBContext;
+import java.io.ByteArrayOutputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import static org.gedcomx.rt.SerializationUtil.processThroughJson;
 import static org.gedcomx.rt.SerializationUtil.processThroughXml;
 import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertTrue;
 import static org.testng.AssertJUnit.fail;
 
 /**
@@ -234,4 +240,52 @@ public class JsonCustomizationTest {
     }
   }
 
+  /**
+   * tests that a large keyed list is written in a stable order, by key in order of first appearance and by item within a key.
+   */
+  public void testLargeKeyedListJson() throws Exception {
+    CustomEntity custom = new CustomEntity();
+    custom.setKeyedItems(new ArrayList<CustomKeyedItem>());
+    Map<String, List<String>> expected = new LinkedHashMap<String, List<String>>();
+    for (int i = 0; i < 20000; i++) {
+      CustomKeyedItem item = new CustomKeyedItem();
+      item.setKey("k" + (i % 500));
+      item.setVal1(String.valueOf(i));
+      custom.getKeyedItems().add(item);
+      if (!expected.containsKey(item.getKey())) {
+        expected.put(item.getKey(), new ArrayList<String>());
+      }
+      expected.get(item.getKey()).add(item.getVal1());
+    }
+
+    ByteArrayOutputStream first = new ByteArrayOutputStream();
+    GedcomJsonMappers.getCompactWriter().writeValue(first, custom);
+    ByteArrayOutputStream second = new ByteArrayOutputStream();
+    GedcomJsonMappers.getCompactWriter().writeValue(second, custom);
+    assertTrue(Arrays.equals(first.toByteArray(), second.toByteArray()));
+
+    custom = processThroughJson(custom);
+    assertEquals(20000, custom.getKeyedItems().size());
+    Map<String, List<String>> actual = new LinkedHashMap<String, List<String>>();
+    for (CustomKeyedItem item : custom.getKeyedItems()) {
+      if (!actual.containsKey(item.getKey())) {
+        actual.put(item.getKey(), new ArrayList<String>());
+      }
+      actual.get(item.getKey()).add(item.getVal1());
+    }
+    assertEquals(new ArrayList<String>(expected.keySet()), new ArrayList<String>(actual.keySet()));
+    assertEquals(expected, actual);
+
+    if ("true".equals(System.getProperty("show.output"))) {
+      for (int i = 0; i < 50; i++) {
+        GedcomJsonMappers.getCompactWriter().writeValue(new ByteArrayOutputStream(), custom);
+      }
+      long time = System.nanoTime();
+      for (int i = 0; i < 100; i++) {
+        GedcomJsonMappers.getCompactWriter().writeValue(new ByteArrayOutputStream(), custom);
+      }
+      System.out.println(String.format("20000 keyed items: %d us per write", (System.nanoTime() - time) / 100000));
+    }
+  }
+
 }
@@ -0,0 +1,89 @@
+package org.gedcomx.common;
+
+import org.gedcomx.rt.JAXBContextRegistry;
+import org.gedcomx.rt.SerializationUtil;
+import org.testng.annotations.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.testng.AssertJUnit.*;
+
+/**
+ * @author Ryan Heaton
+ */
+@Test
+public class ResourceSetReaderTest {
+
+  /**
+   * tests reading the children of a resource set one at a time.
+   */
+  public void testReadChildren() throws Exception {
+    ResourceSetReader reader = new ResourceSetReader(new ByteArrayInputStream(createTestDocument()), Note.class, Collection.class);
+    assertEquals("set", reader.getId());
+    List<Object> children = new ArrayList<Object>();
+    for (Object child : reader) {
+      children.add(child);
+    }
+    reader.close();
+
+    assertEquals(5, children.size());
+    assertEquals("note1", ((Note) children.get(0)).getId());
+    assertEquals("hello", ((Note) children.get(0)).getText());
+    assertEquals("collection1", ((Collection) children.get(1)).getId());
+    assertTrue(children.get(2) instanceof Element);
+    assertEquals("custom", ((Element) children.get(2)).getLocalName());
+    assertEquals("urn:custom", ((Element) children.get(2)).getNamespaceURI());
+    assertEquals("value", ((Element) children.get(2)).getTextContent());
+    assertEquals("note2", ((Note) children.get(3)).getId());
+    assertTrue(children.get(4) instanceof Element);
+  }
+
+  /**
+   * tests finding the children of a type.
+   */
+  public void testFindExtensionsOfType() throws Exception {
+    ResourceSetReader reader = new ResourceSetReader(new ByteArrayInputStream(createTestDocument()), Note.class, Collection.class);
+    List<String> ids = new ArrayList<String>();
+    for (Note note : reader.findExtensionsOfType(Note.class)) {
+      ids.add(note.getId());
+    }
+    reader.close();
+
+    assertEquals(2, ids.size());
+    assertEquals("note1", ids.get(0));
+    assertEquals("note2", ids.get(1));
+
+    reader = new ResourceSetReader(new ByteArrayInputStream(createTestDocument()), Note.class, Collection.class);
+    assertEquals("collection1", reader.findExtensionOfType(Collection.class).getId());
+    assertNull(reader.findExtensionOfType(Collection.class));
+    reader.close();
+  }
+
+  private byte[] createTestDocument() throws Exception {
+    Document dom = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+    ResourceSet set = new ResourceSet();
+    set.setId("set");
+    Note note = new Note();
+    note.setId("note1");
+    note.setText("hello");
+    set.addExtensionElement(note);
+    Collection collection = new Collection();
+    collection.setId("collection1");
+    set.addExtensionElement(collection);
+    Element custom = dom.createElementNS("urn:custom", "custom");
+    custom.setTextContent("value");
+    set.addExtensionElement(custom);
+    note = new Note();
+    note.setId("note2");
+    set.addExtensionElement(note);
+    custom = dom.createElementNS("urn:custom", "custom");
+    custom.appendChild(dom.createElementNS("urn:custom", "child"));
+    set.addExtensionElement(custom);
+    return SerializationUtil.toXmlStream(set, ResourceSet.class, JAXBContextRegistry.getContext(ResourceSet.class, Note.class, Collection.class));
+  }
+}
@@ -3,10 +3,15 @@ package org.gedcomx.common;
 import org.testng.annotations.Test;
 
 import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
 
+import static org.gedcomx.rt.SerializationUtil.processThroughBinary;
 import static org.gedcomx.rt.SerializationUtil.processThroughJson;
 import static org.gedcomx.rt.SerializationUtil.processThroughXml;
 import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertNotNull;
+import static org.testng.AssertJUnit.assertNull;
 
 /**
  * @author Ryan Heaton
@@ -40,4 +45,82 @@ public class ResourceSetTest {
     assertEquals(1, meta.getExtensionElements().size());
   }
 
+  /**
+   * tests processing a resource set through the binary format.
+   */
+  public void testRDFMetadataBundleBinary() throws Exception {
+    ResourceSet meta = new ResourceSet();
+    meta.setId("id");
+    meta.setExtensionElements(new ArrayList<Object>());
+    meta.getExtensionElements().add(new ResourceSet());
+    Note note = new Note();
+    note.setId("note");
+    note.setText("text");
+    meta.getExtensionElements().add(note);
+    meta = processThroughBinary(meta);
+    assertEquals("id", meta.getId());
+    assertEquals(2, meta.getExtensionElements().size());
+    assertNotNull(meta.findExtensionOfType(ResourceSet.class));
+    assertEquals("text", meta.findExtensionOfType(Note.class).getText());
+  }
+
+  /**
+   * tests finding extensions of a type in a large resource set.
+   */
+  public void testFindExtensionsOfType() throws Exception {
+    ResourceSet set = new ResourceSet();
+    for (int i = 0; i < 100; i++) {
+      Note note = new Note();
+      note.setId("note" + i);
+      set.addExtensionElement(note);
+      if (i % 10 == 0) {
+        Collection collection = new Collection();
+        collection.setId("collection" + i);
+        set.addExtensionElement(collection);
+      }
+    }
+
+    assertEquals(100, set.findExtensionsOfType(Note.class).size());
+    assertEquals("note99", set.findExtensionsOfType(Note.class).get(99).getId());
+    assertEquals(10, set.findExtensionsOfType(Collection.class).size());
+    assertEquals("collection0", set.findExtensionOfType(Collection.class).getId());
+    assertNull(set.findExtensionOfType(ResourceSet.class));
+
+    //extensions of a supertype are found in order.
+    List<GenealogicalResource> resources = set.findExtensionsOfType(GenealogicalResource.class);
+    assertEquals(110, resources.size());
+    assertEquals("note0", resources.get(0).getId());
+    assertEquals("collection0", resources.get(1).getId());
+    assertEquals("note1", resources.get(2).getId());
+    assertEquals("collection90", resources.get(100).getId());
+    assertEquals("note0", set.findExtensionOfType(GenealogicalResource.class).getId());
+
+    //the index is rebuilt when the extensions change.
+    set.addExtensionElement(new ResourceSet());
+    assertNotNull(set.findExtensionOfType(ResourceSet.class));
+    set.getExtensionElements().add(new ResourceSet());
+    assertEquals(2, set.findExtensionsOfType(ResourceSet.class).size());
+
+    //changes that keep the size of the list are noticed, too.
+    List<Object> elements = set.getExtensionElements();
+    elements.set(0, new ResourceSet());
+    assertEquals(3, set.findExtensionsOfType(ResourceSet.class).size());
+    assertEquals(99, set.findExtensionsOfType(Note.class).size());
+    elements.remove(elements.size() - 1);
+    elements.add(new Note());
+    assertEquals(2, set.findExtensionsOfType(ResourceSet.class).size());
+    assertEquals(100, set.findExtensionsOfType(Note.class).size());
+    elements.subList(0, 1).set(0, new Note());
+    assertEquals(1, set.findExtensionsOfType(ResourceSet.class).size());
+    Iterator<Object> iterator = elements.iterator();
+    iterator.next();
+    iterator.remove();
+    assertEquals(100, set.findExtensionsOfType(Note.class).size());
+    assertEquals("note1", set.findExtensionOfType(Note.class).getId());
+
+    set.setExtensionElements(new ArrayList<Object>(set.findExtensionsOfType(Collection.class)));
+    assertEquals(0, set.findExtensionsOfType(Note.class).size());
+    assertEquals(10, set.findExtensionsOfType(GenealogicalResource.class).size());
+  }
+
 }
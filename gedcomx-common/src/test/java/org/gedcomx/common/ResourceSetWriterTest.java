@@ -0,0 +1,72 @@
+package org.gedcomx.common;
+
+import org.gedcomx.rt.JAXBContextRegistry;
+import org.gedcomx.rt.SerializationUtil;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+import static org.testng.AssertJUnit.*;
+
+/**
+ * @author Ryan Heaton
+ */
+@Test
+public class ResourceSetWriterTest {
+
+  /**
+   * tests streaming resources to a resource set document.
+   */
+  public void testWriteResourceSet() throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ResourceSetWriter writer = new ResourceSetWriter(out, Note.class, Collection.class);
+    writer.setId("set");
+    for (int i = 0; i < 10; i++) {
+      Note note = new Note();
+      note.setId("note" + i);
+      note.setText("text" + i);
+      writer.write(note);
+    }
+    Collection collection = new Collection();
+    collection.setId("collection");
+    writer.write(collection);
+    writer.close();
+
+    ResourceSet set = (ResourceSet) JAXBContextRegistry.getContext(ResourceSet.class, Note.class, Collection.class).createUnmarshaller().unmarshal(new ByteArrayInputStream(out.toByteArray()));
+    assertEquals("set", set.getId());
+    assertEquals(11, set.getExtensionElements().size());
+    assertEquals(10, set.findExtensionsOfType(Note.class).size());
+    assertEquals("text9", set.findExtensionsOfType(Note.class).get(9).getText());
+    assertEquals("collection", set.findExtensionOfType(Collection.class).getId());
+
+    ResourceSetReader reader = new ResourceSetReader(new ByteArrayInputStream(out.toByteArray()), Note.class, Collection.class);
+    assertEquals("set", reader.getId());
+    assertEquals("collection", reader.findExtensionOfType(Collection.class).getId());
+    reader.close();
+  }
+
+  /**
+   * tests writing an empty resource set.
+   */
+  public void testWriteEmptyResourceSet() throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    new ResourceSetWriter(out).close();
+    ResourceSet set = (ResourceSet) JAXBContextRegistry.getContext(ResourceSet.class).createUnmarshaller().unmarshal(new ByteArrayInputStream(out.toByteArray()));
+    assertNull(set.getExtensionElements());
+  }
+
+  /**
+   * tests that the marshaller used by a writer is handed back to the pool able to write whole documents.
+   */
+  public void testReleasedMarshallerWritesDocuments() throws Exception {
+    ResourceSetWriter writer = new ResourceSetWriter(new ByteArrayOutputStream(), Note.class);
+    writer.write(new Note());
+    writer.close();
+
+    Note note = new Note();
+    note.setId("note");
+    String xml = new String(SerializationUtil.toXmlStream(note, Note.class, JAXBContextRegistry.getContext(ResourceSet.class, Note.class)), "utf-8");
+    assertTrue(xml.startsWith("<?xml"));
+  }
+}
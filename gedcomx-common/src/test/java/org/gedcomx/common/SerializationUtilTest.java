@@ -0,0 +1,160 @@
+package org.gedcomx.common;
+
+import org.codehaus.jackson.map.ObjectMapper;
+import org.codehaus.jackson.node.ObjectNode;
+import org.gedcomx.rt.JAXBContextRegistry;
+import org.gedcomx.rt.SerializationBuffer;
+import org.gedcomx.rt.SerializationProcessListener;
+import org.gedcomx.rt.SerializationUtil;
+import org.gedcomx.rt.json.GedcomJsonMappers;
+import org.testng.annotations.Test;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.Marshaller;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+
+import static org.testng.AssertJUnit.*;
+
+/**
+ * @author Ryan Heaton
+ */
+@Test
+public class SerializationUtilTest {
+
+  /**
+   * tests writing compact json to a stream.
+   */
+  public void testWriteJson() throws Exception {
+    ResourceSet set = createTestResourceSet();
+    RecordingListener listener = new RecordingListener();
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    SerializationUtil.writeJson(set, out, listener);
+    //the stream is left open.
+    out.write(' ');
+    String json = new String(out.toByteArray(), "utf-8").trim();
+
+    assertFalse(json.contains("\n"));
+    assertFalse(json.contains("null"));
+    assertEquals(json, listener.json);
+    assertEquals(SerializationUtil.toJsonNode(set), GedcomJsonMappers.getReader(ObjectNode.class).readValue(json));
+
+    StringWriter writer = new StringWriter();
+    SerializationUtil.writeJson(set, ResourceSet.class, new ObjectMapper(), writer);
+    assertFalse(writer.toString().contains("\n"));
+    assertFalse(writer.toString().contains("null"));
+  }
+
+  /**
+   * tests writing compact xml to a stream.
+   */
+  public void testWriteXml() throws Exception {
+    ResourceSet set = createTestResourceSet();
+    JAXBContext context = JAXBContextRegistry.getContext(ResourceSet.class, Note.class);
+    RecordingListener listener = new RecordingListener();
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    SerializationUtil.writeXml(set, ResourceSet.class, context, out, listener);
+    String xml = new String(out.toByteArray(), "utf-8");
+
+    assertFalse(xml.contains("\n"));
+    assertEquals(xml, listener.xml);
+    ResourceSet read = (ResourceSet) context.createUnmarshaller().unmarshal(new ByteArrayInputStream(out.toByteArray()));
+    assertEquals(SerializationUtil.toJsonNode(set), SerializationUtil.toJsonNode(read));
+
+    //the compact output doesn't leave the pooled marshallers unformatted.
+    assertTrue(new String(SerializationUtil.toXmlStream(set, ResourceSet.class, context), "utf-8").contains("\n"));
+
+    StringWriter writer = new StringWriter();
+    SerializationUtil.writeXml(set, ResourceSet.class, context, writer);
+    assertEquals(xml, writer.toString());
+  }
+
+  /**
+   * tests writing to a channel and to a pooled buffer.
+   */
+  public void testWriteToSinks() throws Exception {
+    ResourceSet set = createTestResourceSet();
+    JAXBContext context = JAXBContextRegistry.getContext(ResourceSet.class, Note.class);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    SerializationUtil.writeXml(set, ResourceSet.class, context, out);
+
+    ByteArrayOutputStream channelOut = new ByteArrayOutputStream();
+    SerializationUtil.writeXml(set, ResourceSet.class, context, Channels.newChannel(channelOut));
+    assertEquals(new String(out.toByteArray(), "utf-8"), new String(channelOut.toByteArray(), "utf-8"));
+
+    SerializationBuffer buffer = SerializationBuffer.acquire();
+    SerializationUtil.writeXml(set, ResourceSet.class, context, buffer);
+    ByteBuffer bytes = buffer.toByteBuffer();
+    assertEquals(out.size(), bytes.remaining());
+    ResourceSet read = (ResourceSet) context.createUnmarshaller().unmarshal(buffer.toInputStream());
+    assertEquals("note2", read.findExtensionsOfType(Note.class).get(2).getId());
+
+    buffer.reset();
+    SerializationUtil.writeJson(set, buffer);
+    channelOut.reset();
+    buffer.writeTo(Channels.newChannel(channelOut));
+    assertEquals(SerializationUtil.toJsonNode(set), GedcomJsonMappers.getReader(ObjectNode.class).readValue(new String(channelOut.toByteArray(), "utf-8")));
+    buffer.release();
+
+    //released buffers are reused.
+    SerializationBuffer reused = SerializationBuffer.acquire();
+    assertSame(buffer, reused);
+    assertEquals(0, reused.size());
+    assertNotSame(reused, SerializationBuffer.acquire());
+    reused.release();
+  }
+
+  /**
+   * tests that a pooled marshaller is handed out with its default settings, whatever its last borrower set.
+   */
+  public void testPooledMarshallerIsReset() throws Exception {
+    JAXBContext context = JAXBContextRegistry.getContext(ResourceSet.class, Note.class);
+    Marshaller marshaller = JAXBContextRegistry.acquireMarshaller(context);
+    marshaller.setProperty(Marshaller.JAXB_FRAGMENT, Boolean.TRUE);
+    marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
+    marshaller.setListener(new Marshaller.Listener() {});
+    JAXBContextRegistry.releaseMarshaller(context, marshaller);
+
+    Marshaller reused = JAXBContextRegistry.acquireMarshaller(context);
+    try {
+      assertSame(marshaller, reused);
+      assertEquals(Boolean.FALSE, reused.getProperty(Marshaller.JAXB_FRAGMENT));
+      assertEquals(Boolean.FALSE, reused.getProperty(Marshaller.JAXB_FORMATTED_OUTPUT));
+      assertNull(reused.getListener());
+    }
+    finally {
+      JAXBContextRegistry.releaseMarshaller(context, reused);
+    }
+    String xml = new String(SerializationUtil.toXmlStream(createTestResourceSet(), ResourceSet.class, context), "utf-8");
+    assertTrue(xml.startsWith("<?xml"));
+  }
+
+  private static ResourceSet createTestResourceSet() {
+    ResourceSet set = new ResourceSet();
+    set.setId("set");
+    for (int i = 0; i < 3; i++) {
+      Note note = new Note();
+      note.setId("note" + i);
+      note.setText("text " + i);
+      set.addExtensionElement(note);
+    }
+    return set;
+  }
+
+  private static class RecordingListener implements SerializationProcessListener {
+
+    private String xml;
+    private String json;
+
+    public void xmlProcessed(Object reference, Class<?> instanceClass, JAXBContext context, String xml) {
+      this.xml = xml;
+    }
+
+    public void jsonProcessed(Object reference, Class<?> instanceClass, ObjectMapper mapper, String json) {
+      this.json = json;
+    }
+  }
+}
@@ -0,0 +1,84 @@
+package org.gedcomx.common;
+
+import org.gedcomx.rt.SerializationUtil;
+import org.gedcomx.rt.json.GedcomJsonMappers;
+import org.gedcomx.types.FactType;
+import org.gedcomx.types.TypeReference;
+import org.testng.annotations.Test;
+
+import java.lang.ref.WeakReference;
+
+import static org.testng.AssertJUnit.*;
+
+/**
+ * @author Ryan Heaton
+ */
+@Test
+public class URITest {
+
+  /**
+   * tests interning of type URIs.
+   */
+  public void testInterning() throws Exception {
+    assertFalse(URI.isInterning());
+    URI uri = URI.intern("urn:interned");
+    assertSame(uri, URI.intern(new String("urn:interned")));
+    assertSame(FactType.Birth.toQNameURI(), URI.intern("http://gedcomx.org/Birth"));
+    assertNotSame(uri, URI.create("urn:interned"));
+    assertEquals(uri, URI.create("urn:interned"));
+
+    //plain URIs aren't interned by default.
+    URIAdapter adapter = new URIAdapter();
+    assertNotSame(uri, adapter.unmarshal("urn:interned"));
+    ResourceReference resourceRef = GedcomJsonMappers.getReader(ResourceReference.class).readValue("\"urn:interned\"");
+    assertNotSame(uri, resourceRef.getResource());
+
+    //type URIs are.
+    assertSame(uri, new InternedURIAdapter().unmarshal("urn:interned"));
+    TypeReference ref = GedcomJsonMappers.getReader(TypeReference.class).readValue("\"http://gedcomx.org/Birth\"");
+    assertSame(FactType.Birth.toQNameURI(), ref.getType());
+    ref = GedcomJsonMappers.getReader(TypeReference.class).readValue("\"urn:interned\"");
+    assertSame(uri, ref.getType());
+    Identifier identifier = new Identifier();
+    identifier.setType(URI.create("urn:interned"));
+    identifier.setValue("id");
+    assertSame(uri, SerializationUtil.<Identifier>processThroughXml(identifier).getType());
+
+    URI.setInterning(true);
+    try {
+      assertSame(uri, URI.create("urn:interned"));
+      assertSame(uri, adapter.unmarshal("urn:interned"));
+    }
+    finally {
+      URI.setInterning(false);
+    }
+  }
+
+  /**
+   * tests that the pool expunges the entries of collected URIs.
+   */
+  public void testPoolExpungesClearedReferences() throws Exception {
+    URIPool pool = new URIPool();
+    URI uri = pool.intern("urn:weak");
+    assertSame(uri, pool.intern("urn:weak"));
+    assertEquals(1, pool.size());
+
+    //simulate the collection of the URI.
+    WeakReference<URI> reference = pool.getReference("urn:weak");
+    reference.clear();
+    reference.enqueue();
+    assertEquals(0, pool.size());
+    URI reinterned = pool.intern("urn:weak");
+    assertNotSame(uri, reinterned);
+    assertEquals(1, pool.size());
+
+    //a cleared entry is replaced, and expunging it later doesn't remove its replacement.
+    reference = pool.getReference("urn:weak");
+    reference.clear();
+    URI replacement = pool.intern("urn:weak");
+    assertNotSame(reinterned, replacement);
+    reference.enqueue();
+    assertEquals(1, pool.size());
+    assertSame(replacement, pool.intern("urn:weak"));
+  }
+}
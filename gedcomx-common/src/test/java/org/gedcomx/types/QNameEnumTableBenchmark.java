@@ -0,0 +1,108 @@
+package org.gedcomx.types;
+
+import org.codehaus.enunciate.XmlQNameEnumUtil;
+
+/**
+ * Compares the lookups of the precomputed tables against the enunciate runtime, which scans the constants of the
+ * enumeration (and their annotations) on every call. This isn't a test (the numbers depend on the machine), so it isn't
+ * run with the tests; run its main method to print the numbers.
+ *
+ * @author Ryan Heaton
+ */
+public class QNameEnumTableBenchmark {
+
+  private static final int LOOKUPS = 100000;
+  private static final int ROUNDS = 5;
+
+  public static void main(String[] args) throws Exception {
+    FactType[] constants = FactType.values();
+    QNameEnumTable<FactType> table = QNameEnumTable.forType(FactType.class);
+    String[] values = new String[constants.length - 1];
+    for (int i = 0, j = 0; i < constants.length; i++) {
+      if (constants[i] != table.getUnknownValue()) {
+        values[j++] = table.toURIValue(constants[i]);
+      }
+    }
+
+    //warm up before timing.
+    for (int i = 0; i < ROUNDS; i++) {
+      runtimeFromURIValue(values);
+      tableFromURIValue(table, values);
+      runtimeToURIValue(values, table);
+      tableToURIValue(values, table);
+    }
+
+    long runtimeFrom = Long.MAX_VALUE, tableFrom = Long.MAX_VALUE, runtimeTo = Long.MAX_VALUE, tableTo = Long.MAX_VALUE;
+    for (int i = 0; i < ROUNDS; i++) {
+      runtimeFrom = Math.min(runtimeFrom, runtimeFromURIValue(values));
+      tableFrom = Math.min(tableFrom, tableFromURIValue(table, values));
+      runtimeTo = Math.min(runtimeTo, runtimeToURIValue(values, table));
+      tableTo = Math.min(tableTo, tableToURIValue(values, table));
+    }
+
+    System.out.println(String.format("%d lookups of %d fact types: fromURIValue: runtime %d us, table %d us; toURIValue: runtime %d us, table %d us",
+                                     LOOKUPS, values.length, runtimeFrom / 1000, tableFrom / 1000, runtimeTo / 1000, tableTo / 1000));
+  }
+
+  private static long runtimeFromURIValue(String[] values) {
+    long start = System.nanoTime();
+    int hits = 0;
+    for (int i = 0; i < LOOKUPS; i++) {
+      if (XmlQNameEnumUtil.fromURIValue(values[i % values.length], FactType.class) != FactType.OTHER) {
+        hits++;
+      }
+    }
+    return check(hits, System.nanoTime() - start);
+  }
+
+  private static long tableFromURIValue(QNameEnumTable<FactType> table, String[] values) {
+    long start = System.nanoTime();
+    int hits = 0;
+    for (int i = 0; i < LOOKUPS; i++) {
+      if (table.fromURIValue(values[i % values.length]) != FactType.OTHER) {
+        hits++;
+      }
+    }
+    return check(hits, System.nanoTime() - start);
+  }
+
+  private static long runtimeToURIValue(String[] values, QNameEnumTable<FactType> table) {
+    FactType[] constants = constantsOf(values, table);
+    long start = System.nanoTime();
+    int hits = 0;
+    for (int i = 0; i < LOOKUPS; i++) {
+      if (XmlQNameEnumUtil.toURIValue(constants[i % constants.length]) != null) {
+        hits++;
+      }
+    }
+    return check(hits, System.nanoTime() - start);
+  }
+
+  private static long tableToURIValue(String[] values, QNameEnumTable<FactType> table) {
+    FactType[] constants = constantsOf(values, table);
+    long start = System.nanoTime();
+    int hits = 0;
+    for (int i = 0; i < LOOKUPS; i++) {
+      if (table.toURIValue(constants[i % constants.length]) != null) {
+        hits++;
+      }
+    }
+    return check(hits, System.nanoTime() - start);
+  }
+
+  private static FactType[] constantsOf(String[] values, QNameEnumTable<FactType> table) {
+    FactType[] constants = new FactType[values.length];
+    for (int i = 0; i < values.length; i++) {
+      constants[i] = table.fromURIValue(values[i]);
+    }
+    return constants;
+  }
+
+  private static long check(int hits, long time) {
+    //every lookup is a hit; checking it keeps the lookups from being optimized away.
+    if (hits != LOOKUPS) {
+      throw new IllegalStateException("Only " + hits + " of " + LOOKUPS + " lookups found a constant.");
+    }
+    return time;
+  }
+}
@@ -0,0 +1,65 @@
+package org.gedcomx.types;
+
+import org.codehaus.enunciate.XmlQNameEnumUtil;
+import org.gedcomx.common.URI;
+import org.testng.annotations.Test;
+
+import static org.testng.AssertJUnit.*;
+
+/**
+ * @author Ryan Heaton
+ */
+@Test
+public class QNameEnumTableTest {
+
+  /**
+   * tests that the lookup tables agree with the enunciate runtime.
+   */
+  @SuppressWarnings ( {"unchecked"} )
+  public void testTablesMatchRuntime() throws Exception {
+    Class[] types = {AgePartType.class, ConfidenceLevel.class, DateFormatType.class, DatePartType.class, EventRoleType.class,
+      EventType.class, FactType.class, GenderType.class, IdentifierType.class, MaritalStatusType.class, NamePartType.class,
+      NameType.class, PlacePartType.class, RecordType.class, RelationshipType.class, ResourceType.class};
+    for (Class type : types) {
+      QNameEnumTable table = QNameEnumTable.forType(type);
+      assertSame(table, QNameEnumTable.forType(type));
+      assertNotNull(table.getUnknownValue());
+      for (Object constant : type.getEnumConstants()) {
+        Enum e = (Enum) constant;
+        if (e == table.getUnknownValue()) {
+          try {
+            table.toURI(e);
+            fail();
+          }
+          catch (IllegalArgumentException ok) {
+            //fall through...
+          }
+        }
+        else {
+          String value = XmlQNameEnumUtil.toURIValue(e);
+          assertEquals(value, table.toURIValue(e));
+          assertEquals(value, table.toURI(e).toString());
+          assertSame(e, table.fromURIValue(value));
+          assertSame(e, XmlQNameEnumUtil.fromURIValue(value, type));
+        }
+      }
+      assertSame(XmlQNameEnumUtil.fromURIValue("urn:unknown", type), table.fromURIValue("urn:unknown"));
+      assertNull(table.fromURI(null));
+    }
+  }
+
+  /**
+   * tests the enum conversions.
+   */
+  public void testEnumConversions() throws Exception {
+    assertEquals("http://gedcomx.org/Birth", FactType.Birth.toQNameURI().toString());
+    assertSame(FactType.Birth.toQNameURI(), FactType.Birth.toQNameURI());
+    assertSame(FactType.Birth, FactType.fromQNameURI(URI.create("http://gedcomx.org/Birth")));
+    assertSame(FactType.OTHER, FactType.fromQNameURI(URI.create("urn:custom")));
+    assertSame(MaritalStatusType.other, MaritalStatusType.fromQNameURI(URI.create("urn:custom")));
+
+    TypeReference<FactType> ref = new TypeReference<FactType>();
+    ref.setKnownType(FactType.Death);
+    assertEquals("http://gedcomx.org/Death", ref.getType().toString());
+  }
+}
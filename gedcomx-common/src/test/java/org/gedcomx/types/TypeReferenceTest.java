@@ -0,0 +1,54 @@
+package org.gedcomx.types;
+
+import org.gedcomx.common.Attribution;
+import org.gedcomx.common.URI;
+import org.gedcomx.rt.json.GedcomJsonMappers;
+import org.testng.annotations.Test;
+
+import static org.testng.AssertJUnit.*;
+
+/**
+ * @author Ryan Heaton
+ */
+@Test
+public class TypeReferenceTest {
+
+  /**
+   * tests the shared instances of known types.
+   */
+  public void testSharedInstances() throws Exception {
+    TypeReference<FactType> birth = TypeReference.valueOf(FactType.Birth);
+    assertTrue(birth.isShared());
+    assertSame(birth, TypeReference.valueOf(FactType.Birth));
+    assertSame(birth, TypeReference.valueOf(URI.create("http://gedcomx.org/Birth")));
+    assertEquals("http://gedcomx.org/Birth", birth.getType().toString());
+    try {
+      birth.setType(URI.create("urn:other"));
+      fail();
+    }
+    catch (UnsupportedOperationException e) {
+      //fall through...
+    }
+
+    TypeReference<FactType> custom = TypeReference.valueOf(URI.create("urn:custom"));
+    assertFalse(custom.isShared());
+    assertNotSame(custom, TypeReference.valueOf(URI.create("urn:custom")));
+    custom.setType(URI.create("urn:other"));
+    assertFalse(new TypeReference<FactType>(FactType.Birth).isShared());
+
+    Attribution attribution = new Attribution();
+    attribution.setKnownConfidenceLevel(ConfidenceLevel.Certainly);
+    assertSame(TypeReference.valueOf(ConfidenceLevel.Certainly), attribution.getConfidence());
+  }
+
+  /**
+   * tests reading shared instances from JSON.
+   */
+  public void testReadSharedInstances() throws Exception {
+    TypeReference ref = GedcomJsonMappers.getReader(TypeReference.class).readValue("\"http://gedcomx.org/Birth\"");
+    assertSame(TypeReference.valueOf(FactType.Birth), ref);
+    ref = GedcomJsonMappers.getReader(TypeReference.class).readValue("\"urn:custom\"");
+    assertFalse(ref.isShared());
+    assertEquals("urn:custom", ref.getType().toString());
+  }
+}
@@ -99,7 +99,7 @@ public class Event extends GenealogicalResource implements ReferencesSources, Ha
    */
   @JsonIgnore
   public void setType(URI type) {
-    this.type = type == null ? null : new TypeReference<EventType>(type);
+    this.type = type == null ? null : TypeReference.<EventType>valueOf(type);
   }
 
   /**
@@ -120,7 +120,7 @@ public class Event extends GenealogicalResource implements ReferencesSources, Ha
    */
   @JsonIgnore
   public void setKnownType(org.gedcomx.types.EventType knownType) {
-    this.type = knownType == null ? null : new TypeReference<EventType>(knownType);
+    this.type = knownType == null ? null : TypeReference.<EventType>valueOf(knownType);
   }
 
   /**
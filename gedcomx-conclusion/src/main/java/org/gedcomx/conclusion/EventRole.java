@@ -80,7 +80,7 @@ public class EventRole extends GenealogicalResource {
    */
   @JsonIgnore
   public void setType(URI type) {
-    this.type = type == null ? null : new TypeReference<EventRoleType>(type);
+    this.type = type == null ? null : TypeReference.<EventRoleType>valueOf(type);
   }
 
   /**
@@ -101,7 +101,7 @@ public class EventRole extends GenealogicalResource {
    */
   @JsonIgnore
   public void setKnownType(EventRoleType knownType) {
-    this.type = knownType == null ? null : new TypeReference<EventRoleType>(knownType);
+    this.type = knownType == null ? null : TypeReference.<EventRoleType>valueOf(knownType);
   }
 
   /**
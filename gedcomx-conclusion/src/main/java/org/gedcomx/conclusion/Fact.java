@@ -96,7 +96,7 @@ public class Fact extends Conclusion implements Formalizeable, HasDateAndPlace {
    */
   @JsonIgnore
   public void setType(URI type) {
-    this.type = type == null ? null : new TypeReference<FactType>(type);
+    this.type = type == null ? null : TypeReference.<FactType>valueOf(type);
   }
 
   /**
@@ -117,7 +117,7 @@ public class Fact extends Conclusion implements Formalizeable, HasDateAndPlace {
    */
   @JsonIgnore
   public void setKnownType(org.gedcomx.types.FactType knownType) {
-    this.type = knownType == null ? null : new TypeReference<FactType>(knownType);
+    this.type = knownType == null ? null : TypeReference.<FactType>valueOf(knownType);
   }
 
   /**
@@ -75,7 +75,7 @@ public class Gender extends Conclusion {
    */
   @JsonIgnore
   public void setType(URI type) {
-    this.type = type == null ? null : new TypeReference<GenderType>(type);
+    this.type = type == null ? null : TypeReference.<GenderType>valueOf(type);
   }
 
   /**
@@ -96,7 +96,7 @@ public class Gender extends Conclusion {
    */
   @JsonIgnore
   public void setKnownType(GenderType type) {
-    this.type = type == null ? null : new TypeReference<GenderType>(type);
+    this.type = type == null ? null : TypeReference.<GenderType>valueOf(type);
   }
 
   @Override
@@ -65,7 +65,7 @@ public class Name extends Conclusion {
    */
   @JsonIgnore
   public void setType(URI type) {
-    this.type = type == null ? null : new TypeReference<NameType>(type);
+    this.type = type == null ? null : TypeReference.<NameType>valueOf(type);
   }
 
   /**
@@ -86,7 +86,7 @@ public class Name extends Conclusion {
    */
   @JsonIgnore
   public void setKnownType(NameType knownType) {
-    this.type = knownType == null ? null : new TypeReference<NameType>(knownType);
+    this.type = knownType == null ? null : TypeReference.<NameType>valueOf(knownType);
   }
 
   /**
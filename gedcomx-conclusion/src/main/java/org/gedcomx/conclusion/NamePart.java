@@ -57,7 +57,7 @@ public final class NamePart {
    */
   @JsonIgnore
   public void setType(URI type) {
-    this.type = type == null ? null : new TypeReference<NamePartType>(type);
+    this.type = type == null ? null : TypeReference.<NamePartType>valueOf(type);
   }
 
   /**
@@ -78,7 +78,7 @@ public final class NamePart {
    */
   @JsonIgnore
   public void setKnownType(NamePartType knownType) {
-    this.type = knownType == null ? null : new TypeReference<NamePartType>(knownType);
+    this.type = knownType == null ? null : TypeReference.<NamePartType>valueOf(knownType);
   }
 
   /**
@@ -0,0 +1,490 @@
+/**
+ * Copyright 2011-2012 Intellectual Reserve, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gedcomx.conclusion;
+
+import org.gedcomx.common.ResourceReference;
+import org.gedcomx.types.RelationshipType;
+
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * A compact graph of the parent-child and couple relationships between a set of persons, used to traverse pedigrees
+ * (ancestors, descendants, or any combination of relatives).<br/><br/>
+ *
+ * Each person is identified by its index in the list of persons from which the graph was built, and the relationships of
+ * the persons are held in primitive compressed-sparse-row arrays (an array of offsets per person into an array of related
+ * person indexes), so the graph takes a few ints per relationship regardless of the number of persons. A relationship is
+ * resolved to persons by the ids of its person references (e.g. "#id"); relationships that can't be resolved are ignored.
+ * For a {@link RelationshipType#ParentChild} relationship, person1 is the parent and person2 is the child.<br/><br/>
+ *
+ * Traversals are breadth-first, one generation at a time. If the graph has an executor, the generations that are
+ * larger than the {@link #getParallelThreshold() parallel threshold} are expanded in parallel on the executor. The results of a
+ * traversal are person indexes; the persons themselves are looked up only when the results are accessed as persons.<br/><br/>
+ *
+ * The graph is immutable and may be traversed concurrently.
+ *
+ * @author Ryan Heaton
+ */
+public class PedigreeGraph {
+
+  /**
+   * The default size of a generation above which the generation is expanded in parallel.
+   */
+  public static final int DEFAULT_PARALLEL_THRESHOLD = 4096;
+
+  /**
+   * The directions of a traversal.
+   */
+  public enum Direction {
+
+    /**
+     * From a person to its parents.
+     */
+    PARENTS,
+
+    /**
+     * From a person to its children.
+     */
+    CHILDREN,
+
+    /**
+     * From a person to its spouses.
+     */
+    SPOUSES
+  }
+
+  private final Person[] persons;
+  private final Map<String, Integer> indexesById;
+  private final int[][] offsets = new int[3][];
+  private final int[][] edges = new int[3][];
+  private final ExecutorService executor;
+  private final int parallelThreshold;
+
+  /**
+   * Build the graph of the specified persons and relationships. The graph is traversed in the calling thread.
+   *
+   * @param persons The persons.
+   * @param relationships The relationships between the persons.
+   */
+  public PedigreeGraph(List<Person> persons, Iterable<Relationship> relationships) {
+    this(persons, relationships, null, DEFAULT_PARALLEL_THRESHOLD);
+  }
+
+  /**
+   * Build the graph of the specified persons and relationships.
+   *
+   * @param persons The persons.
+   * @param relationships The relationships between the persons.
+   * @param executor The executor on which large generations are expanded in parallel, or null to traverse in the calling thread.
+   * @param parallelThreshold The size of a generation above which the generation is expanded in parallel.
+   */
+  public PedigreeGraph(List<Person> persons, Iterable<Relationship> relationships, ExecutorService executor, int parallelThreshold) {
+    this.persons = persons.toArray(new Person[persons.size()]);
+    this.executor = executor;
+    this.parallelThreshold = Math.max(1, parallelThreshold);
+    this.indexesById = new HashMap<String, Integer>(this.persons.length * 2);
+    for (int i = 0; i < this.persons.length; i++) {
+      String id = this.persons[i].getId();
+      if (id != null && !this.indexesById.containsKey(id)) {
+        this.indexesById.put(id, i);
+      }
+    }
+
+    //resolve the relationships to pairs of person indexes, and count the edges of each person.
+    IntList parents = new IntList();
+    IntList children = new IntList();
+    IntList couples1 = new IntList();
+    IntList couples2 = new IntList();
+    int[][] degrees = new int[3][this.persons.length + 1];
+    for (Relationship relationship : relationships) {
+      RelationshipType type = relationship.getKnownType();
+      if (type != RelationshipType.ParentChild && type != RelationshipType.Couple) {
+        continue;
+      }
+
+      int person1 = indexOf(relationship.getPerson1());
+      int person2 = indexOf(relationship.getPerson2());
+      if (person1 < 0 || person2 < 0 || person1 == person2) {
+        continue;
+      }
+
+      if (type == RelationshipType.ParentChild) {
+        parents.add(person1);
+        children.add(person2);
+        degrees[Direction.PARENTS.ordinal()][person2]++;
+        degrees[Direction.CHILDREN.ordinal()][person1]++;
+      }
+      else {
+        couples1.add(person1);
+        couples2.add(person2);
+        degrees[Direction.SPOUSES.ordinal()][person1]++;
+        degrees[Direction.SPOUSES.ordinal()][person2]++;
+      }
+    }
+
+    for (Direction direction : Direction.values()) {
+      int d = direction.ordinal();
+      this.offsets[d] = toOffsets(degrees[d]);
+      this.edges[d] = new int[this.offsets[d][this.persons.length]];
+    }
+
+    //fill the edges, using the degree arrays as the insertion cursors.
+    for (Direction direction : Direction.values()) {
+      System.arraycopy(this.offsets[direction.ordinal()], 0, degrees[direction.ordinal()], 0, this.persons.length + 1);
+    }
+    for (int i = 0; i < parents.size; i++) {
+      int parent = parents.data[i];
+      int child = children.data[i];
+      this.edges[Direction.PARENTS.ordinal()][degrees[Direction.PARENTS.ordinal()][child]++] = parent;
+      this.edges[Direction.CHILDREN.ordinal()][degrees[Direction.CHILDREN.ordinal()][parent]++] = child;
+    }
+    for (int i = 0; i < couples1.size; i++) {
+      int person1 = couples1.data[i];
+      int person2 = couples2.data[i];
+      this.edges[Direction.SPOUSES.ordinal()][degrees[Direction.SPOUSES.ordinal()][person1]++] = person2;
+      this.edges[Direction.SPOUSES.ordinal()][degrees[Direction.SPOUSES.ordinal()][person2]++] = person1;
+    }
+  }
+
+  private static int[] toOffsets(int[] degrees) {
+    int[] offsets = new int[degrees.length];
+    int offset = 0;
+    for (int i = 0; i < degrees.length; i++) {
+      offsets[i] = offset;
+      offset += degrees[i];
+    }
+    return offsets;
+  }
+
+  private int indexOf(ResourceReference reference) {
+    if (reference == null || reference.getResource() == null) {
+      return -1;
+    }
+
+    String id = reference.getResource().toString();
+    if (id.startsWith("#")) {
+      id = id.substring(1);
+    }
+    Integer index = this.indexesById.get(id);
+    return index == null ? -1 : index;
+  }
+
+  /**
+   * The number of persons in the graph.
+   *
+   * @return The number of persons in the graph.
+   */
+  public int size() {
+    return this.persons.length;
+  }
+
+  /**
+   * The size of a generation above which the generation is expanded in parallel.
+   *
+   * @return The size of a generation above which the generation is expanded in parallel.
+   */
+  public int getParallelThreshold() {
+    return parallelThreshold;
+  }
+
+  /**
+   * The person at the specified index.
+   *
+   * @param index The index.
+   * @return The person.
+   */
+  public Person getPerson(int index) {
+    return this.persons[index];
+  }
+
+  /**
+   * The index of the person with the specified id.
+   *
+   * @param id The id of the person.
+   * @return The index of the person, or -1 if the person isn't in the graph.
+   */
+  public int indexOf(String id) {
+    Integer index = id == null ? null : this.indexesById.get(id);
+    return index == null ? -1 : index;
+  }
+
+  /**
+   * The indexes of the persons related to the specified person in the specified direction.
+   *
+   * @param index The index of the person.
+   * @param direction The direction.
+   * @return The indexes of the related persons.
+   */
+  public int[] getRelated(int index, Direction direction) {
+    int[] offsets = this.offsets[direction.ordinal()];
+    int[] related = new int[offsets[index + 1] - offsets[index]];
+    System.arraycopy(this.edges[direction.ordinal()], offsets[index], related, 0, related.length);
+    return related;
+  }
+
+  /**
+   * Find the ancestors of a person.
+   *
+   * @param person The person.
+   * @param generations The number of generations to traverse, or a negative number for all generations.
+   * @return The ancestors.
+   */
+  public Traversal getAncestors(Person person, int generations) {
+    return traverse(person, generations, Direction.PARENTS);
+  }
+
+  /**
+   * Find the descendants of a person.
+   *
+   * @param person The person.
+   * @param generations The number of generations to traverse, or a negative number for all generations.
+   * @return The descendants.
+   */
+  public Traversal getDescendants(Person person, int generations) {
+    return traverse(person, generations, Direction.CHILDREN);
+  }
+
+  /**
+   * Traverse the graph breadth-first from a person.
+   *
+   * @param person The person from which to start.
+   * @param depth The maximum depth of the traversal, or a negative number for no limit.
+   * @param directions The directions in which to traverse.
+   * @return The persons found, excluding the start person.
+   * @throws IllegalArgumentException If the person isn't in the graph.
+   */
+  public Traversal traverse(Person person, int depth, Direction... directions) {
+    int start = indexOf(person.getId());
+    if (start < 0 || this.persons[start] != person) {
+      throw new IllegalArgumentException("Person " + person.getId() + " isn't in the graph.");
+    }
+    return traverse(new int[] {start}, depth, directions);
+  }
+
+  /**
+   * Traverse the graph breadth-first from a set of persons.
+   *
+   * @param starts The indexes of the persons from which to start.
+   * @param depth The maximum depth of the traversal, or a negative number for no limit.
+   * @param directions The directions in which to traverse.
+   * @return The persons found, excluding the start persons.
+   */
+  public Traversal traverse(int[] starts, int depth, Direction... directions) {
+    boolean[] visited = new boolean[this.persons.length];
+    IntList frontier = new IntList();
+    for (int start : starts) {
+      if (!visited[start]) {
+        visited[start] = true;
+        frontier.add(start);
+      }
+    }
+
+    IntList found = new IntList();
+    IntList depths = new IntList();
+    for (int level = 1; (depth < 0 || level <= depth) && frontier.size > 0; level++) {
+      frontier = expand(frontier, directions, visited);
+      for (int i = 0; i < frontier.size; i++) {
+        found.add(frontier.data[i]);
+        depths.add(level);
+      }
+    }
+    return new Traversal(found.toArray(), depths.toArray());
+  }
+
+  private IntList expand(IntList frontier, Direction[] directions, boolean[] visited) {
+    IntList next = new IntList();
+    if (this.executor == null || frontier.size <= this.parallelThreshold) {
+      for (int i = 0; i < frontier.size; i++) {
+        for (Direction direction : directions) {
+          int[] offsets = this.offsets[direction.ordinal()];
+          int[] edges = this.edges[direction.ordinal()];
+          int node = frontier.data[i];
+          for (int e = offsets[node]; e < offsets[node + 1]; e++) {
+            if (!visited[edges[e]]) {
+              visited[edges[e]] = true;
+              next.add(edges[e]);
+            }
+          }
+        }
+      }
+      return next;
+    }
+
+    //expand chunks of the frontier in parallel; the visited flags are only read by the workers, and updated
+    //(in frontier order, so the traversal is deterministic) when the chunks are merged.
+    List<Future<int[]>> chunks = new ArrayList<Future<int[]>>();
+    for (int from = 0; from < frontier.size; from += this.parallelThreshold) {
+      chunks.add(this.executor.submit(new Expansion(frontier.data, from, Math.min(frontier.size, from + this.parallelThreshold), directions, visited)));
+    }
+    for (Future<int[]> chunk : chunks) {
+      int[] candidates;
+      try {
+        candidates = chunk.get();
+      }
+      catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException(e);
+      }
+      catch (ExecutionException e) {
+        throw new IllegalStateException(e.getCause());
+      }
+      for (int candidate : candidates) {
+        if (!visited[candidate]) {
+          visited[candidate] = true;
+          next.add(candidate);
+        }
+      }
+    }
+    return next;
+  }
+
+  private class Expansion implements Callable<int[]> {
+
+    private final int[] frontier;
+    private final int from;
+    private final int to;
+    private final Direction[] directions;
+    private final boolean[] visited;
+
+    private Expansion(int[] frontier, int from, int to, Direction[] directions, boolean[] visited) {
+      this.frontier = frontier;
+      this.from = from;
+      this.to = to;
+      this.directions = directions;
+      this.visited = visited;
+    }
+
+    public int[] call() throws Exception {
+      IntList candidates = new IntList();
+      for (int i = this.from; i < this.to; i++) {
+        int node = this.frontier[i];
+        for (Direction direction : this.directions) {
+          int[] offsets = PedigreeGraph.this.offsets[direction.ordinal()];
+          int[] edges = PedigreeGraph.this.edges[direction.ordinal()];
+          for (int e = offsets[node]; e < offsets[node + 1]; e++) {
+            if (!this.visited[edges[e]]) {
+              candidates.add(edges[e]);
+            }
+          }
+        }
+      }
+      return candidates.toArray();
+    }
+  }
+
+  /**
+   * The result of a traversal: the indexes of the persons found, in the order they were found, and the depth (e.g. the
+   * generation) at which each was found.
+   */
+  public final class Traversal {
+
+    private final int[] indexes;
+    private final int[] depths;
+
+    private Traversal(int[] indexes, int[] depths) {
+      this.indexes = indexes;
+      this.depths = depths;
+    }
+
+    /**
+     * The number of persons found.
+     *
+     * @return The number of persons found.
+     */
+    public int size() {
+      return this.indexes.length;
+    }
+
+    /**
+     * The index of the i-th person found.
+     *
+     * @param i The position of the person in the results.
+     * @return The index of the person in the graph.
+     */
+    public int getIndex(int i) {
+      return this.indexes[i];
+    }
+
+    /**
+     * The depth at which the i-th person was found.
+     *
+     * @param i The position of the person in the results.
+     * @return The depth at which the person was found.
+     */
+    public int getDepth(int i) {
+      return this.depths[i];
+    }
+
+    /**
+     * The persons found. The list is a view of the results, so the persons are looked up as they are accessed.
+     *
+     * @return The persons found.
+     */
+    public List<Person> getPersons() {
+      return new AbstractList<Person>() {
+        @Override
+        public Person get(int i) {
+          return PedigreeGraph.this.persons[Traversal.this.indexes[i]];
+        }
+
+        @Override
+        public int size() {
+          return Traversal.this.indexes.length;
+        }
+      };
+    }
+
+    /**
+     * The persons found at the specified depth (e.g. generation).
+     *
+     * @param depth The depth.
+     * @return The persons found at the specified depth.
+     */
+    public List<Person> getPersons(int depth) {
+      //the results are ordered by depth.
+      int from = 0;
+      while (from < this.depths.length && this.depths[from] < depth) {
+        from++;
+      }
+      int to = from;
+      while (to < this.depths.length && this.depths[to] == depth) {
+        to++;
+      }
+      return getPersons().subList(from, to);
+    }
+  }
+
+  private static final class IntList {
+
+    private int[] data = new int[16];
+    private int size = 0;
+
+    private void add(int value) {
+      if (this.size == this.data.length) {
+        this.data = Arrays.copyOf(this.data, this.size * 2);
+      }
+      this.data[this.size++] = value;
+    }
+
+    private int[] toArray() {
+      return Arrays.copyOf(this.data, this.size);
+    }
+  }
+}
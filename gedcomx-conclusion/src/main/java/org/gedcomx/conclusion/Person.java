@@ -52,6 +52,8 @@ public class Person extends GenealogicalResource implements HasFacts, HasNotes,
   private List<Fact> facts;
   private List<SourceReference> sources;
   private List<Note> notes;
+  private TypeIndex<Name> nameIndex;
+  private TypeIndex<Fact> factIndex;
 
   /**
    * Find the long-term, persistent identifier for this person from the list of identifiers.
@@ -184,13 +186,10 @@ public class Person extends GenealogicalResource implements HasFacts, HasNotes,
       return null;
     }
 
-    for (Name name : this.names) {
-      if (type.equals(name.getKnownType())) {
-        return name;
-      }
+    if (this.nameIndex == null) {
+      this.nameIndex = TypeIndex.forNames();
     }
-
-    return null;
+    return this.nameIndex.getFirst(this.names, type);
   }
 
   /**
@@ -201,6 +200,9 @@ public class Person extends GenealogicalResource implements HasFacts, HasNotes,
   @JsonProperty("names")
   public void setNames(List<Name> names) {
     this.names = names;
+    if (this.nameIndex != null) {
+      this.nameIndex.invalidate();
+    }
   }
 
   /**
@@ -226,14 +228,8 @@ public class Person extends GenealogicalResource implements HasFacts, HasNotes,
     if (this.facts == null) {
       return null;
     }
-    
-    for (Fact fact : this.facts) {
-      if (type.equals(fact.getKnownType())) {
-        return fact;
-      }
-    }
-    
-    return null;
+
+    return getFactIndex().getFirst(this.facts, type);
   }
 
   /**
@@ -244,15 +240,11 @@ public class Person extends GenealogicalResource implements HasFacts, HasNotes,
    */
   @JsonIgnore
   public List<Fact> getFacts(FactType factType) {
-    ArrayList<Fact> factsToReturn = new ArrayList<Fact>();
-    if (facts != null && factType != null) {
-      for (Fact fact : facts) {
-        if (fact.getKnownType() != null && fact.getKnownType().equals(factType)) {
-          factsToReturn.add(fact);
-        }
-      }
+    if (facts == null || factType == null) {
+      return new ArrayList<Fact>();
     }
-    return factsToReturn;
+
+    return getFactIndex().get(facts, factType);
   }
 
   /**
@@ -263,6 +255,9 @@ public class Person extends GenealogicalResource implements HasFacts, HasNotes,
   @JsonProperty("facts")
   public void setFacts(List<Fact> facts) {
     this.facts = facts;
+    if (this.factIndex != null) {
+      this.factIndex.invalidate();
+    }
   }
 
   /**
@@ -276,7 +271,17 @@ public class Person extends GenealogicalResource implements HasFacts, HasNotes,
         facts = new ArrayList<Fact>();
       }
       facts.add(fact);
+      if (this.factIndex != null) {
+        this.factIndex.invalidate();
+      }
+    }
+  }
+
+  private TypeIndex<Fact> getFactIndex() {
+    if (this.factIndex == null) {
+      this.factIndex = TypeIndex.forFacts();
     }
+    return this.factIndex;
   }
 
   /**
@@ -0,0 +1,1255 @@
+/**
+ * Copyright 2011-2012 Intellectual Reserve, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gedcomx.conclusion;
+
+import org.gedcomx.common.Attribution;
+import org.gedcomx.common.FormalValue;
+import org.gedcomx.common.Identifier;
+import org.gedcomx.common.Note;
+import org.gedcomx.common.ResourceReference;
+import org.gedcomx.common.URI;
+import org.gedcomx.rt.binary.GedcomBinaryCodec;
+import org.gedcomx.types.*;
+
+import javax.xml.bind.annotation.XmlTransient;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * A read-only, columnar store of persons, used to hold large collections of persons in a fraction of the memory of the
+ * model objects. The persons are packed into primitive columns: the type URIs (and the URIs of formal values and resource
+ * references) are dictionary-encoded as int codes, the strings are kept in a shared character arena, and the identifiers,
+ * names, name forms, name parts, facts, source references and notes of a person are ranges of rows in their own columns.<br/><br/>
+ *
+ * The persons are read through flyweight {@link PersonView}s and can be turned back into the model with {@link #toPerson(int)},
+ * which always returns a new copy. The columns hold everything of a {@link PlainModel plain} person. A person that isn't
+ * plain (i.e. that has extension elements or uses subclasses of the model) isn't packed into the columns, but kept whole in
+ * a side table in the binary format of the model, from which it's read by the views and by {@link #toPerson(int)}.
+ *
+ * @author Ryan Heaton
+ */
+@XmlTransient
+public final class PersonStore {
+
+  private static final int NULL = -1;
+  //the code of a reference without a resource or type (as opposed to no reference).
+  private static final int EMPTY_REFERENCE = -2;
+  private static final byte NULL_BOOLEAN = -1;
+  private static final long NULL_TIME = Long.MIN_VALUE;
+
+  private final int size;
+  private final URI[] uris;
+  private final char[] chars;
+  private final int[] stringOffsets;
+
+  //persons
+  private final int[] personId;
+  private final byte[] personLiving;
+  private final int[] personGender;
+  private final int[] personIdentifiers;
+  private final int[] personNames;
+  private final int[] personFacts;
+  private final int[] personSources;
+  private final int[] personNotes;
+  private final int[] personAttribution;
+  private final int[] personLeftover;
+
+  //genders
+  private final int[] genderId;
+  private final int[] genderType;
+  private final int[] genderSources;
+  private final int[] genderAttribution;
+
+  //identifiers
+  private final int[] identifierValue;
+  private final int[] identifierType;
+
+  //names
+  private final int[] nameId;
+  private final int[] nameType;
+  private final byte[] namePreferred;
+  private final int[] namePrimaryForm;
+  private final int[] nameAlternateForms;
+  private final int[] nameSources;
+  private final int[] nameAttribution;
+
+  //name forms
+  private final int[] formFullText;
+  private final int[] formParts;
+
+  //name parts
+  private final int[] partType;
+  private final int[] partText;
+
+  //facts
+  private final int[] factId;
+  private final int[] factType;
+  private final int[] factOriginal;
+  private final int[] factDate;
+  private final int[] factPlace;
+  private final int[] factFormal;
+  private final int[] factSources;
+  private final int[] factAttribution;
+
+  //dates and places
+  private final int[] dateOriginal;
+  private final int[] dateFormal;
+  private final int[] placeOriginal;
+  private final int[] placeFormal;
+
+  //formal values
+  private final int[] formalDatatype;
+  private final int[] formalResource;
+  private final int[] formalText;
+
+  //source references
+  private final int[] sourceId;
+  private final int[] sourceType;
+  private final int[] sourceResource;
+  private final int[] sourceDescription;
+  private final int[] sourceAttribution;
+
+  //notes
+  private final int[] noteId;
+  private final int[] noteLang;
+  private final int[] noteText;
+  private final int[] noteAttribution;
+
+  //attributions
+  private final int[] attributionContributor;
+  private final int[] attributionConfidence;
+  private final long[] attributionModified;
+  private final int[] attributionProofStatement;
+
+  //the persons that aren't plain, in the binary format.
+  private final byte[][] leftovers;
+
+  private PersonStore(Builder builder) {
+    this.size = builder.personId.size;
+    this.uris = builder.uris.toArray(new URI[builder.uris.size()]);
+    this.chars = Arrays.copyOf(builder.chars, builder.charCount);
+    builder.stringOffsets.add(builder.charCount);
+    this.stringOffsets = builder.stringOffsets.toArray();
+    this.personId = builder.personId.toArray();
+    this.personLiving = builder.personLiving.toArray();
+    this.personGender = builder.personGender.toArray();
+    this.personIdentifiers = builder.personIdentifiers.toArray();
+    this.personNames = builder.personNames.toArray();
+    this.personFacts = builder.personFacts.toArray();
+    this.personSources = builder.personSources.toArray();
+    this.personNotes = builder.personNotes.toArray();
+    this.personAttribution = builder.personAttribution.toArray();
+    this.personLeftover = builder.personLeftover.toArray();
+    this.genderId = builder.genderId.toArray();
+    this.genderType = builder.genderType.toArray();
+    this.genderSources = builder.genderSources.toArray();
+    this.genderAttribution = builder.genderAttribution.toArray();
+    this.identifierValue = builder.identifierValue.toArray();
+    this.identifierType = builder.identifierType.toArray();
+    this.nameId = builder.nameId.toArray();
+    this.nameType = builder.nameType.toArray();
+    this.namePreferred = builder.namePreferred.toArray();
+    this.namePrimaryForm = builder.namePrimaryForm.toArray();
+    this.nameAlternateForms = builder.nameAlternateForms.toArray();
+    this.nameSources = builder.nameSources.toArray();
+    this.nameAttribution = builder.nameAttribution.toArray();
+    this.formFullText = builder.formFullText.toArray();
+    this.formParts = builder.formParts.toArray();
+    this.partType = builder.partType.toArray();
+    this.partText = builder.partText.toArray();
+    this.factId = builder.factId.toArray();
+    this.factType = builder.factType.toArray();
+    this.factOriginal = builder.factOriginal.toArray();
+    this.factDate = builder.factDate.toArray();
+    this.factPlace = builder.factPlace.toArray();
+    this.factFormal = builder.factFormal.toArray();
+    this.factSources = builder.factSources.toArray();
+    this.factAttribution = builder.factAttribution.toArray();
+    this.dateOriginal = builder.dateOriginal.toArray();
+    this.dateFormal = builder.dateFormal.toArray();
+    this.placeOriginal = builder.placeOriginal.toArray();
+    this.placeFormal = builder.placeFormal.toArray();
+    this.formalDatatype = builder.formalDatatype.toArray();
+    this.formalResource = builder.formalResource.toArray();
+    this.formalText = builder.formalText.toArray();
+    this.sourceId = builder.sourceId.toArray();
+    this.sourceType = builder.sourceType.toArray();
+    this.sourceResource = builder.sourceResource.toArray();
+    this.sourceDescription = builder.sourceDescription.toArray();
+    this.sourceAttribution = builder.sourceAttribution.toArray();
+    this.noteId = builder.noteId.toArray();
+    this.noteLang = builder.noteLang.toArray();
+    this.noteText = builder.noteText.toArray();
+    this.noteAttribution = builder.noteAttribution.toArray();
+    this.attributionContributor = builder.attributionContributor.toArray();
+    this.attributionConfidence = builder.attributionConfidence.toArray();
+    this.attributionModified = builder.attributionModified.toArray();
+    this.attributionProofStatement = builder.attributionProofStatement.toArray();
+    this.leftovers = builder.leftovers.toArray(new byte[builder.leftovers.size()][]);
+  }
+
+  /**
+   * Create a store of the specified persons.
+   *
+   * @param persons The persons.
+   * @return The store.
+   */
+  public static PersonStore of(Collection<Person> persons) {
+    Builder builder = new Builder();
+    for (Person person : persons) {
+      builder.add(person);
+    }
+    return builder.build();
+  }
+
+  /**
+   * The number of persons in the store.
+   *
+   * @return The number of persons in the store.
+   */
+  public int size() {
+    return this.size;
+  }
+
+  /**
+   * The number of persons in the store that aren't plain, and are kept whole instead of in the columns.
+   *
+   * @return The number of persons in the store that are kept whole.
+   */
+  public int getOverflowCount() {
+    return this.leftovers.length;
+  }
+
+  /**
+   * A view of the person at the specified index.
+   *
+   * @param index The index.
+   * @return A view of the person.
+   */
+  public PersonView getPerson(int index) {
+    checkIndex(index);
+    return new PersonView(index);
+  }
+
+  /**
+   * Turn the person at the specified index back into the model. Each call returns a new copy of the person.
+   *
+   * @param index The index.
+   * @return The person.
+   */
+  public Person toPerson(int index) {
+    checkIndex(index);
+    int leftover = this.personLeftover[index];
+    if (leftover != NULL) {
+      return leftover(leftover);
+    }
+
+    Person person = new Person();
+    person.setId(string(this.personId[index]));
+    person.setLiving(toBoolean(this.personLiving[index]));
+    person.setAttribution(toAttribution(this.personAttribution[index]));
+
+    int gender = this.personGender[index];
+    if (gender != NULL) {
+      Gender g = new Gender();
+      g.setId(string(this.genderId[gender]));
+      g.setType(uri(this.genderType[gender]));
+      g.setSources(toSources(this.genderSources, gender));
+      g.setAttribution(toAttribution(this.genderAttribution[gender]));
+      person.setGender(g);
+    }
+
+    int start = this.personIdentifiers[index * 2];
+    int count = this.personIdentifiers[index * 2 + 1];
+    if (count != NULL) {
+      List<Identifier> identifiers = new ArrayList<Identifier>(count);
+      for (int i = start; i < start + count; i++) {
+        Identifier identifier = new Identifier();
+        identifier.setValue(string(this.identifierValue[i]));
+        identifier.setType(uri(this.identifierType[i]));
+        identifiers.add(identifier);
+      }
+      person.setIdentifiers(identifiers);
+    }
+
+    start = this.personNames[index * 2];
+    count = this.personNames[index * 2 + 1];
+    if (count != NULL) {
+      List<Name> names = new ArrayList<Name>(count);
+      for (int i = start; i < start + count; i++) {
+        names.add(toName(i));
+      }
+      person.setNames(names);
+    }
+
+    start = this.personFacts[index * 2];
+    count = this.personFacts[index * 2 + 1];
+    if (count != NULL) {
+      List<Fact> facts = new ArrayList<Fact>(count);
+      for (int i = start; i < start + count; i++) {
+        facts.add(toFact(i));
+      }
+      person.setFacts(facts);
+    }
+
+    person.setSources(toSources(this.personSources, index));
+
+    start = this.personNotes[index * 2];
+    count = this.personNotes[index * 2 + 1];
+    if (count != NULL) {
+      List<Note> notes = new ArrayList<Note>(count);
+      for (int i = start; i < start + count; i++) {
+        Note note = new Note();
+        note.setId(string(this.noteId[i]));
+        note.setLang(string(this.noteLang[i]));
+        note.setText(string(this.noteText[i]));
+        note.setAttribution(toAttribution(this.noteAttribution[i]));
+        notes.add(note);
+      }
+      person.setNotes(notes);
+    }
+
+    return person;
+  }
+
+  /**
+   * Turn all the persons of the store back into the model.
+   *
+   * @return The persons.
+   */
+  public List<Person> toPersons() {
+    List<Person> persons = new ArrayList<Person>(this.size);
+    for (int i = 0; i < this.size; i++) {
+      persons.add(toPerson(i));
+    }
+    return persons;
+  }
+
+  private Name toName(int name) {
+    Name n = new Name();
+    n.setId(string(this.nameId[name]));
+    n.setType(uri(this.nameType[name]));
+    n.setPreferred(toBoolean(this.namePreferred[name]));
+    int primaryForm = this.namePrimaryForm[name];
+    if (primaryForm != NULL) {
+      n.setPrimaryForm(toNameForm(primaryForm));
+    }
+    int start = this.nameAlternateForms[name * 2];
+    int count = this.nameAlternateForms[name * 2 + 1];
+    if (count != NULL) {
+      List<NameForm> forms = new ArrayList<NameForm>(count);
+      for (int i = start; i < start + count; i++) {
+        forms.add(toNameForm(i));
+      }
+      n.setAlternateForms(forms);
+    }
+    n.setSources(toSources(this.nameSources, name));
+    n.setAttribution(toAttribution(this.nameAttribution[name]));
+    return n;
+  }
+
+  private NameForm toNameForm(int form) {
+    NameForm f = new NameForm();
+    f.setFullText(string(this.formFullText[form]));
+    int start = this.formParts[form * 2];
+    int count = this.formParts[form * 2 + 1];
+    if (count != NULL) {
+      List<NamePart> parts = new ArrayList<NamePart>(count);
+      for (int i = start; i < start + count; i++) {
+        NamePart part = new NamePart();
+        part.setType(uri(this.partType[i]));
+        part.setText(string(this.partText[i]));
+        parts.add(part);
+      }
+      f.setParts(parts);
+    }
+    return f;
+  }
+
+  private Fact toFact(int fact) {
+    Fact f = new Fact();
+    f.setId(string(this.factId[fact]));
+    f.setType(uri(this.factType[fact]));
+    f.setOriginal(string(this.factOriginal[fact]));
+    int date = this.factDate[fact];
+    if (date != NULL) {
+      Date d = new Date();
+      d.setOriginal(string(this.dateOriginal[date]));
+      d.setFormal(toFormalValue(this.dateFormal[date]));
+      f.setDate(d);
+    }
+    int place = this.factPlace[fact];
+    if (place != NULL) {
+      Place p = new Place();
+      p.setOriginal(string(this.placeOriginal[place]));
+      p.setFormal(toFormalValue(this.placeFormal[place]));
+      f.setPlace(p);
+    }
+    f.setFormal(toFormalValue(this.factFormal[fact]));
+    f.setSources(toSources(this.factSources, fact));
+    f.setAttribution(toAttribution(this.factAttribution[fact]));
+    return f;
+  }
+
+  private FormalValue toFormalValue(int formal) {
+    if (formal == NULL) {
+      return null;
+    }
+    FormalValue value = new FormalValue();
+    value.setDatatype(uri(this.formalDatatype[formal]));
+    value.setResource(uri(this.formalResource[formal]));
+    value.setText(string(this.formalText[formal]));
+    return value;
+  }
+
+  private List<SourceReference> toSources(int[] ranges, int owner) {
+    int start = ranges[owner * 2];
+    int count = ranges[owner * 2 + 1];
+    if (count == NULL) {
+      return null;
+    }
+    List<SourceReference> sources = new ArrayList<SourceReference>(count);
+    for (int i = start; i < start + count; i++) {
+      SourceReference source = new SourceReference();
+      source.setId(string(this.sourceId[i]));
+      source.setType(uri(this.sourceType[i]));
+      source.setResource(uri(this.sourceResource[i]));
+      source.setDescription(toReference(this.sourceDescription[i]));
+      source.setAttribution(toAttribution(this.sourceAttribution[i]));
+      sources.add(source);
+    }
+    return sources;
+  }
+
+  private Attribution toAttribution(int attribution) {
+    if (attribution == NULL) {
+      return null;
+    }
+    Attribution a = new Attribution();
+    a.setContributor(toReference(this.attributionContributor[attribution]));
+    int confidence = this.attributionConfidence[attribution];
+    if (confidence != NULL) {
+      a.setConfidence(new TypeReference<ConfidenceLevel>(confidence == EMPTY_REFERENCE ? null : this.uris[confidence]));
+    }
+    long modified = this.attributionModified[attribution];
+    a.setModified(modified == NULL_TIME ? null : new java.util.Date(modified));
+    a.setProofStatement(string(this.attributionProofStatement[attribution]));
+    return a;
+  }
+
+  private ResourceReference toReference(int code) {
+    if (code == NULL) {
+      return null;
+    }
+    return new ResourceReference(code == EMPTY_REFERENCE ? null : this.uris[code]);
+  }
+
+  private Person leftover(int leftover) {
+    try {
+      return GedcomBinaryCodec.fromBytes(this.leftovers[leftover], Person.class);
+    }
+    catch (IOException e) {
+      throw new IllegalStateException("Unable to read a stored person: " + e.getMessage());
+    }
+  }
+
+  private void checkIndex(int index) {
+    if (index < 0 || index >= this.size) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + this.size);
+    }
+  }
+
+  private String string(int handle) {
+    if (handle == NULL) {
+      return null;
+    }
+    int offset = this.stringOffsets[handle];
+    return new String(this.chars, offset, this.stringOffsets[handle + 1] - offset);
+  }
+
+  private URI uri(int code) {
+    return code == NULL ? null : this.uris[code];
+  }
+
+  private static Boolean toBoolean(byte value) {
+    return value == NULL_BOOLEAN ? null : Boolean.valueOf(value == 1);
+  }
+
+  private static <E extends Enum<E>> E known(Class<E> type, URI uri) {
+    return uri == null ? null : QNameEnumTable.forType(type).fromURI(uri);
+  }
+
+  /**
+   * A flyweight view of a person of the store. The view reads the columns of the store; nothing of the person is
+   * materialized but the values that are read. A view can be moved to another person to read many persons without
+   * allocating a view for each. A person that is kept whole is read once when the view is moved to it.
+   */
+  public final class PersonView {
+
+    private int index;
+    private int leftoverIndex = NULL;
+    private Person leftover;
+
+    private PersonView(int index) {
+      this.index = index;
+    }
+
+    /**
+     * The index of the person in the store.
+     *
+     * @return The index of the person in the store.
+     */
+    public int getIndex() {
+      return index;
+    }
+
+    /**
+     * Move this view to the person at the specified index.
+     *
+     * @param index The index.
+     * @return This view.
+     */
+    public PersonView moveTo(int index) {
+      checkIndex(index);
+      this.index = index;
+      return this;
+    }
+
+    /**
+     * The id of the person.
+     *
+     * @return The id of the person.
+     */
+    public String getId() {
+      Person leftover = leftover();
+      return leftover != null ? leftover.getId() : string(personId[index]);
+    }
+
+    /**
+     * Whether the person is living.
+     *
+     * @return Whether the person is living.
+     */
+    public Boolean getLiving() {
+      Person leftover = leftover();
+      return leftover != null ? leftover.getLiving() : toBoolean(personLiving[index]);
+    }
+
+    /**
+     * The gender type of the person.
+     *
+     * @return The gender type of the person.
+     */
+    public URI getGenderType() {
+      Person leftover = leftover();
+      if (leftover != null) {
+        return leftover.getGender() == null ? null : leftover.getGender().getType();
+      }
+      int gender = personGender[index];
+      return gender == NULL ? null : uri(genderType[gender]);
+    }
+
+    /**
+     * The known gender type of the person.
+     *
+     * @return The known gender type of the person.
+     */
+    public GenderType getKnownGenderType() {
+      return known(GenderType.class, getGenderType());
+    }
+
+    /**
+     * The long-term, persistent identifier for this person.
+     *
+     * @return The long-term, persistent identifier for this person.
+     * @see Person#getPersistentId()
+     */
+    public URI getPersistentId() {
+      Person leftover = leftover();
+      if (leftover != null) {
+        return leftover.getPersistentId();
+      }
+      int start = personIdentifiers[index * 2];
+      int count = personIdentifiers[index * 2 + 1];
+      URI primary = IdentifierType.Primary.toQNameURI();
+      for (int i = start; i < start + count; i++) {
+        if (primary.equals(uri(identifierType[i]))) {
+          String value = string(identifierValue[i]);
+          return value == null ? null : URI.create(value);
+        }
+      }
+      return null;
+    }
+
+    /**
+     * The number of names of the person.
+     *
+     * @return The number of names of the person.
+     */
+    public int getNameCount() {
+      Person leftover = leftover();
+      if (leftover != null) {
+        return leftover.getNames() == null ? 0 : leftover.getNames().size();
+      }
+      return Math.max(personNames[index * 2 + 1], 0);
+    }
+
+    /**
+     * The type of a name of the person.
+     *
+     * @param name The position of the name.
+     * @return The type of the name.
+     */
+    public URI getNameType(int name) {
+      Person leftover = leftover();
+      if (leftover != null) {
+        Name n = leftover.getNames().get(name(name));
+        return n == null ? null : n.getType();
+      }
+      return uri(nameType[name(name)]);
+    }
+
+    /**
+     * The known type of a name of the person.
+     *
+     * @param name The position of the name.
+     * @return The known type of the name.
+     */
+    public NameType getKnownNameType(int name) {
+      return known(NameType.class, getNameType(name));
+    }
+
+    /**
+     * Whether a name of the person is the preferred name.
+     *
+     * @param name The position of the name.
+     * @return Whether the name is the preferred name.
+     */
+    public Boolean getNamePreferred(int name) {
+      Person leftover = leftover();
+      if (leftover != null) {
+        Name n = leftover.getNames().get(name(name));
+        return n == null ? null : n.getPreferred();
+      }
+      return toBoolean(namePreferred[name(name)]);
+    }
+
+    /**
+     * The full text of the primary form of a name of the person.
+     *
+     * @param name The position of the name.
+     * @return The full text of the primary form of the name.
+     */
+    public String getNameFullText(int name) {
+      Person leftover = leftover();
+      if (leftover != null) {
+        Name n = leftover.getNames().get(name(name));
+        return n == null || n.getPrimaryForm() == null ? null : n.getPrimaryForm().getFullText();
+      }
+      int form = namePrimaryForm[name(name)];
+      return form == NULL ? null : string(formFullText[form]);
+    }
+
+    /**
+     * The number of facts of the person.
+     *
+     * @return The number of facts of the person.
+     */
+    public int getFactCount() {
+      Person leftover = leftover();
+      if (leftover != null) {
+        return leftover.getFacts() == null ? 0 : leftover.getFacts().size();
+      }
+      return Math.max(personFacts[index * 2 + 1], 0);
+    }
+
+    /**
+     * The type of a fact of the person.
+     *
+     * @param fact The position of the fact.
+     * @return The type of the fact.
+     */
+    public URI getFactType(int fact) {
+      Person leftover = leftover();
+      if (leftover != null) {
+        Fact f = leftover.getFacts().get(fact(fact));
+        return f == null ? null : f.getType();
+      }
+      return uri(factType[fact(fact)]);
+    }
+
+    /**
+     * The known type of a fact of the person.
+     *
+     * @param fact The position of the fact.
+     * @return The known type of the fact.
+     */
+    public FactType getKnownFactType(int fact) {
+      return known(FactType.class, getFactType(fact));
+    }
+
+    /**
+     * The original value of a fact of the person.
+     *
+     * @param fact The position of the fact.
+     * @return The original value of the fact.
+     */
+    public String getFactOriginal(int fact) {
+      Person leftover = leftover();
+      if (leftover != null) {
+        Fact f = leftover.getFacts().get(fact(fact));
+        return f == null ? null : f.getOriginal();
+      }
+      return string(factOriginal[fact(fact)]);
+    }
+
+    /**
+     * The original value of the date of a fact of the person.
+     *
+     * @param fact The position of the fact.
+     * @return The original value of the date of the fact.
+     */
+    public String getFactDateOriginal(int fact) {
+      Person leftover = leftover();
+      if (leftover != null) {
+        Fact f = leftover.getFacts().get(fact(fact));
+        return f == null || f.getDate() == null ? null : f.getDate().getOriginal();
+      }
+      int date = factDate[fact(fact)];
+      return date == NULL ? null : string(dateOriginal[date]);
+    }
+
+    /**
+     * The original value of the place of a fact of the person.
+     *
+     * @param fact The position of the fact.
+     * @return The original value of the place of the fact.
+     */
+    public String getFactPlaceOriginal(int fact) {
+      Person leftover = leftover();
+      if (leftover != null) {
+        Fact f = leftover.getFacts().get(fact(fact));
+        return f == null || f.getPlace() == null ? null : f.getPlace().getOriginal();
+      }
+      int place = factPlace[fact(fact)];
+      return place == NULL ? null : string(placeOriginal[place]);
+    }
+
+    /**
+     * The position of the first fact of the specified type.
+     *
+     * @param type The type.
+     * @return The position of the first fact of the specified type, or -1 if none.
+     */
+    public int indexOfFirstFactOfType(FactType type) {
+      if (type == null) {
+        return -1;
+      }
+
+      int count = getFactCount();
+      if (type == FactType.OTHER || leftover() != null) {
+        for (int i = 0; i < count; i++) {
+          if (getKnownFactType(i) == type) {
+            return i;
+          }
+        }
+        return -1;
+      }
+
+      URI uri = type.toQNameURI();
+      int start = personFacts[index * 2];
+      for (int i = 0; i < count; i++) {
+        if (uri.equals(uri(factType[start + i]))) {
+          return i;
+        }
+      }
+      return -1;
+    }
+
+    /**
+     * The number of source references of the person.
+     *
+     * @return The number of source references of the person.
+     */
+    public int getSourceCount() {
+      Person leftover = leftover();
+      if (leftover != null) {
+        return leftover.getSources() == null ? 0 : leftover.getSources().size();
+      }
+      return Math.max(personSources[index * 2 + 1], 0);
+    }
+
+    /**
+     * The resource of a source reference of the person.
+     *
+     * @param source The position of the source reference.
+     * @return The resource of the source reference.
+     */
+    public URI getSourceResource(int source) {
+      Person leftover = leftover();
+      if (leftover != null) {
+        SourceReference s = leftover.getSources().get(source(source));
+        return s == null ? null : s.getResource();
+      }
+      return uri(sourceResource[source(source)]);
+    }
+
+    /**
+     * The number of notes of the person.
+     *
+     * @return The number of notes of the person.
+     */
+    public int getNoteCount() {
+      Person leftover = leftover();
+      if (leftover != null) {
+        return leftover.getNotes() == null ? 0 : leftover.getNotes().size();
+      }
+      return Math.max(personNotes[index * 2 + 1], 0);
+    }
+
+    /**
+     * The text of a note of the person.
+     *
+     * @param note The position of the note.
+     * @return The text of the note.
+     */
+    public String getNoteText(int note) {
+      Person leftover = leftover();
+      if (leftover != null) {
+        Note n = leftover.getNotes().get(note(note));
+        return n == null ? null : n.getText();
+      }
+      return string(noteText[note(note)]);
+    }
+
+    /**
+     * Turn the person back into the model.
+     *
+     * @return A new copy of the person.
+     */
+    public Person toPerson() {
+      return PersonStore.this.toPerson(index);
+    }
+
+    /**
+     * The person kept whole (never handed out), or null if the person is in the columns.
+     */
+    private Person leftover() {
+      int leftover = personLeftover[index];
+      if (leftover == NULL) {
+        return null;
+      }
+      if (this.leftoverIndex != index) {
+        this.leftover = PersonStore.this.leftover(leftover);
+        this.leftoverIndex = index;
+      }
+      return this.leftover;
+    }
+
+    private int name(int name) {
+      if (name < 0 || name >= getNameCount()) {
+        throw new IndexOutOfBoundsException("Name: " + name + ", Count: " + getNameCount());
+      }
+      return leftover() != null ? name : personNames[index * 2] + name;
+    }
+
+    private int fact(int fact) {
+      if (fact < 0 || fact >= getFactCount()) {
+        throw new IndexOutOfBoundsException("Fact: " + fact + ", Count: " + getFactCount());
+      }
+      return leftover() != null ? fact : personFacts[index * 2] + fact;
+    }
+
+    private int source(int source) {
+      if (source < 0 || source >= getSourceCount()) {
+        throw new IndexOutOfBoundsException("Source: " + source + ", Count: " + getSourceCount());
+      }
+      return leftover() != null ? source : personSources[index * 2] + source;
+    }
+
+    private int note(int note) {
+      if (note < 0 || note >= getNoteCount()) {
+        throw new IndexOutOfBoundsException("Note: " + note + ", Count: " + getNoteCount());
+      }
+      return leftover() != null ? note : personNotes[index * 2] + note;
+    }
+  }
+
+  /**
+   * Builds a store of persons. The persons are packed as they are added; a builder is used for a single store.
+   */
+  public static final class Builder {
+
+    private final Map<URI, Integer> codes = new HashMap<URI, Integer>();
+    private final List<URI> uris = new ArrayList<URI>();
+    private char[] chars = new char[1024];
+    private int charCount = 0;
+    private final IntColumn stringOffsets = new IntColumn();
+
+    private final IntColumn personId = new IntColumn();
+    private final ByteColumn personLiving = new ByteColumn();
+    private final IntColumn personGender = new IntColumn();
+    private final IntColumn personIdentifiers = new IntColumn();
+    private final IntColumn personNames = new IntColumn();
+    private final IntColumn personFacts = new IntColumn();
+    private final IntColumn personSources = new IntColumn();
+    private final IntColumn personNotes = new IntColumn();
+    private final IntColumn personAttribution = new IntColumn();
+    private final IntColumn personLeftover = new IntColumn();
+    private final IntColumn genderId = new IntColumn();
+    private final IntColumn genderType = new IntColumn();
+    private final IntColumn genderSources = new IntColumn();
+    private final IntColumn genderAttribution = new IntColumn();
+    private final IntColumn identifierValue = new IntColumn();
+    private final IntColumn identifierType = new IntColumn();
+    private final IntColumn nameId = new IntColumn();
+    private final IntColumn nameType = new IntColumn();
+    private final ByteColumn namePreferred = new ByteColumn();
+    private final IntColumn namePrimaryForm = new IntColumn();
+    private final IntColumn nameAlternateForms = new IntColumn();
+    private final IntColumn nameSources = new IntColumn();
+    private final IntColumn nameAttribution = new IntColumn();
+    private final IntColumn formFullText = new IntColumn();
+    private final IntColumn formParts = new IntColumn();
+    private final IntColumn partType = new IntColumn();
+    private final IntColumn partText = new IntColumn();
+    private final IntColumn factId = new IntColumn();
+    private final IntColumn factType = new IntColumn();
+    private final IntColumn factOriginal = new IntColumn();
+    private final IntColumn factDate = new IntColumn();
+    private final IntColumn factPlace = new IntColumn();
+    private final IntColumn factFormal = new IntColumn();
+    private final IntColumn factSources = new IntColumn();
+    private final IntColumn factAttribution = new IntColumn();
+    private final IntColumn dateOriginal = new IntColumn();
+    private final IntColumn dateFormal = new IntColumn();
+    private final IntColumn placeOriginal = new IntColumn();
+    private final IntColumn placeFormal = new IntColumn();
+    private final IntColumn formalDatatype = new IntColumn();
+    private final IntColumn formalResource = new IntColumn();
+    private final IntColumn formalText = new IntColumn();
+    private final IntColumn sourceId = new IntColumn();
+    private final IntColumn sourceType = new IntColumn();
+    private final IntColumn sourceResource = new IntColumn();
+    private final IntColumn sourceDescription = new IntColumn();
+    private final IntColumn sourceAttribution = new IntColumn();
+    private final IntColumn noteId = new IntColumn();
+    private final IntColumn noteLang = new IntColumn();
+    private final IntColumn noteText = new IntColumn();
+    private final IntColumn noteAttribution = new IntColumn();
+    private final IntColumn attributionContributor = new IntColumn();
+    private final IntColumn attributionConfidence = new IntColumn();
+    private final LongColumn attributionModified = new LongColumn();
+    private final IntColumn attributionProofStatement = new IntColumn();
+    private final List<byte[]> leftovers = new ArrayList<byte[]>();
+    private boolean built = false;
+
+    /**
+     * Add a person to the store. A person that isn't {@link PlainModel plain} is encoded whole; if it can't be encoded
+     * (e.g. because it uses a subclass of the model that isn't bound to XML), it can't be added.
+     *
+     * @param person The person.
+     * @return The index of the person in the store.
+     * @throws IllegalArgumentException If the person can't be stored.
+     */
+    public int add(Person person) {
+      if (built) {
+        throw new IllegalStateException("The store has already been built.");
+      }
+      if (person == null) {
+        throw new IllegalArgumentException("A person must be provided.");
+      }
+
+      int index = this.personId.size;
+      if (!PlainModel.isPlain(person)) {
+        byte[] encoded;
+        try {
+          encoded = GedcomBinaryCodec.toBytes(person);
+        }
+        catch (IOException e) {
+          throw new IllegalArgumentException("Unable to store person " + person.getId() + ": " + e.getMessage());
+        }
+        this.personLeftover.add(this.leftovers.size());
+        this.leftovers.add(encoded);
+        this.personId.add(NULL);
+        this.personLiving.add(NULL_BOOLEAN);
+        this.personGender.add(NULL);
+        this.personAttribution.add(NULL);
+        range(this.personIdentifiers, 0, null);
+        range(this.personNames, 0, null);
+        range(this.personFacts, 0, null);
+        range(this.personSources, 0, null);
+        range(this.personNotes, 0, null);
+        return index;
+      }
+
+      this.personLeftover.add(NULL);
+      this.personId.add(string(person.getId()));
+      this.personLiving.add(fromBoolean(person.getLiving()));
+      this.personAttribution.add(attribution(person.getAttribution()));
+
+      Gender gender = person.getGender();
+      if (gender == null) {
+        this.personGender.add(NULL);
+      }
+      else {
+        this.personGender.add(this.genderId.size);
+        this.genderId.add(string(gender.getId()));
+        this.genderType.add(code(gender.getType()));
+        this.genderAttribution.add(attribution(gender.getAttribution()));
+        sources(this.genderSources, gender.getSources());
+      }
+
+      List<Identifier> identifiers = person.getIdentifiers();
+      range(this.personIdentifiers, this.identifierValue.size, identifiers);
+      if (identifiers != null) {
+        for (Identifier identifier : identifiers) {
+          this.identifierValue.add(string(identifier.getValue()));
+          this.identifierType.add(code(identifier.getType()));
+        }
+      }
+
+      List<Name> names = person.getNames();
+      range(this.personNames, this.nameId.size, names);
+      if (names != null) {
+        //add the rows of the names before the forms so the names of a person are contiguous.
+        for (Name name : names) {
+          this.nameId.add(string(name.getId()));
+          this.nameType.add(code(name.getType()));
+          this.namePreferred.add(fromBoolean(name.getPreferred()));
+          this.nameAttribution.add(attribution(name.getAttribution()));
+          sources(this.nameSources, name.getSources());
+        }
+        for (Name name : names) {
+          NameForm primaryForm = name.getPrimaryForm();
+          List<NameForm> alternateForms = name.getAlternateForms();
+          this.namePrimaryForm.add(primaryForm == null ? NULL : addNameForms(Collections.singletonList(primaryForm)));
+          range(this.nameAlternateForms, alternateForms == null ? 0 : addNameForms(alternateForms), alternateForms);
+        }
+      }
+
+      List<Fact> facts = person.getFacts();
+      range(this.personFacts, this.factId.size, facts);
+      if (facts != null) {
+        for (Fact fact : facts) {
+          this.factId.add(string(fact.getId()));
+          this.factType.add(code(fact.getType()));
+          this.factOriginal.add(string(fact.getOriginal()));
+          Date date = fact.getDate();
+          if (date == null) {
+            this.factDate.add(NULL);
+          }
+          else {
+            this.factDate.add(this.dateOriginal.size);
+            this.dateOriginal.add(string(date.getOriginal()));
+            this.dateFormal.add(formal(date.getFormal()));
+          }
+          Place place = fact.getPlace();
+          if (place == null) {
+            this.factPlace.add(NULL);
+          }
+          else {
+            this.factPlace.add(this.placeOriginal.size);
+            this.placeOriginal.add(string(place.getOriginal()));
+            this.placeFormal.add(formal(place.getFormal()));
+          }
+          this.factFormal.add(formal(fact.getFormal()));
+          this.factAttribution.add(attribution(fact.getAttribution()));
+          sources(this.factSources, fact.getSources());
+        }
+      }
+
+      sources(this.personSources, person.getSources());
+
+      List<Note> notes = person.getNotes();
+      range(this.personNotes, this.noteId.size, notes);
+      if (notes != null) {
+        for (Note note : notes) {
+          this.noteId.add(string(note.getId()));
+          this.noteLang.add(string(note.getLang()));
+          this.noteText.add(string(note.getText()));
+          this.noteAttribution.add(attribution(note.getAttribution()));
+        }
+      }
+
+      return index;
+    }
+
+    /**
+     * Build the store. The builder can't be used after the store is built.
+     *
+     * @return The store.
+     */
+    public PersonStore build() {
+      if (built) {
+        throw new IllegalStateException("The store has already been built.");
+      }
+      built = true;
+      return new PersonStore(this);
+    }
+
+    private int addNameForms(List<NameForm> forms) {
+      int first = this.formFullText.size;
+      //reserve the rows of the forms before adding the parts.
+      for (NameForm form : forms) {
+        this.formFullText.add(string(form.getFullText()));
+      }
+      for (NameForm form : forms) {
+        List<NamePart> parts = form.getParts();
+        range(this.formParts, this.partType.size, parts);
+        if (parts != null) {
+          for (NamePart part : parts) {
+            this.partType.add(code(part.getType()));
+            this.partText.add(string(part.getText()));
+          }
+        }
+      }
+      return first;
+    }
+
+    private void sources(IntColumn ranges, List<SourceReference> sources) {
+      range(ranges, this.sourceId.size, sources);
+      if (sources != null) {
+        for (SourceReference source : sources) {
+          this.sourceId.add(string(source.getId()));
+          this.sourceType.add(code(source.getType()));
+          this.sourceResource.add(code(source.getResource()));
+          this.sourceDescription.add(reference(source.getDescription()));
+          this.sourceAttribution.add(attribution(source.getAttribution()));
+        }
+      }
+    }
+
+    private int attribution(Attribution attribution) {
+      if (attribution == null) {
+        return NULL;
+      }
+      int index = this.attributionContributor.size;
+      this.attributionContributor.add(reference(attribution.getContributor()));
+      TypeReference<ConfidenceLevel> confidence = attribution.getConfidence();
+      this.attributionConfidence.add(confidence == null ? NULL : confidence.getType() == null ? EMPTY_REFERENCE : code(confidence.getType()));
+      this.attributionModified.add(attribution.getModified() == null ? NULL_TIME : attribution.getModified().getTime());
+      this.attributionProofStatement.add(string(attribution.getProofStatement()));
+      return index;
+    }
+
+    private int reference(ResourceReference reference) {
+      if (reference == null) {
+        return NULL;
+      }
+      return reference.getResource() == null ? EMPTY_REFERENCE : code(reference.getResource());
+    }
+
+    private int formal(FormalValue formal) {
+      if (formal == null) {
+        return NULL;
+      }
+      int index = this.formalText.size;
+      this.formalDatatype.add(code(formal.getDatatype()));
+      this.formalResource.add(code(formal.getResource()));
+      this.formalText.add(string(formal.getText()));
+      return index;
+    }
+
+    private static void range(IntColumn column, int start, List<?> items) {
+      column.add(start);
+      column.add(items == null ? NULL : items.size());
+    }
+
+    private int code(URI uri) {
+      if (uri == null) {
+        return NULL;
+      }
+      Integer code = this.codes.get(uri);
+      if (code == null) {
+        code = this.uris.size();
+        this.uris.add(uri);
+        this.codes.put(uri, code);
+      }
+      return code;
+    }
+
+    private int string(String value) {
+      if (value == null) {
+        return NULL;
+      }
+      int length = value.length();
+      if (this.charCount + length > this.chars.length) {
+        this.chars = Arrays.copyOf(this.chars, Math.max(this.chars.length * 2, this.charCount + length));
+      }
+      value.getChars(0, length, this.chars, this.charCount);
+      int handle = this.stringOffsets.size;
+      this.stringOffsets.add(this.charCount);
+      this.charCount += length;
+      return handle;
+    }
+
+    private static byte fromBoolean(Boolean value) {
+      return value == null ? NULL_BOOLEAN : (byte) (value ? 1 : 0);
+    }
+  }
+
+  private static final class IntColumn {
+
+    private int[] values = new int[16];
+    private int size = 0;
+
+    private void add(int value) {
+      if (this.size == this.values.length) {
+        this.values = Arrays.copyOf(this.values, this.size * 2);
+      }
+      this.values[this.size++] = value;
+    }
+
+    private int[] toArray() {
+      return Arrays.copyOf(this.values, this.size);
+    }
+  }
+
+  private static final class LongColumn {
+
+    private long[] values = new long[16];
+    private int size = 0;
+
+    private void add(long value) {
+      if (this.size == this.values.length) {
+        this.values = Arrays.copyOf(this.values, this.size * 2);
+      }
+      this.values[this.size++] = value;
+    }
+
+    private long[] toArray() {
+      return Arrays.copyOf(this.values, this.size);
+    }
+  }
+
+  private static final class ByteColumn {
+
+    private byte[] values = new byte[16];
+    private int size = 0;
+
+    private void add(byte value) {
+      if (this.size == this.values.length) {
+        this.values = Arrays.copyOf(this.values, this.size * 2);
+      }
+      this.values[this.size++] = value;
+    }
+
+    private byte[] toArray() {
+      return Arrays.copyOf(this.values, this.size);
+    }
+  }
+}
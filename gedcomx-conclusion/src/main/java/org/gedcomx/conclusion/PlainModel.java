@@ -0,0 +1,150 @@
+/**
+ * Copyright 2011-2012 Intellectual Reserve, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gedcomx.conclusion;
+
+import org.gedcomx.common.FormalValue;
+import org.gedcomx.common.GenealogicalResource;
+import org.gedcomx.common.Note;
+
+import javax.xml.bind.annotation.XmlTransient;
+import java.util.List;
+
+/**
+ * The rules for whether a person, relationship or source reference is "plain": made only of the classes of the model
+ * themselves (not of subclasses), without extension elements or extension attributes anywhere in it, and without nulls in
+ * its lists. Everything of a plain object is held by the fields of the model, so it can be stored field by field (e.g. by a
+ * {@link PersonStore}); anything else has to be stored whole.
+ *
+ * @author Ryan Heaton
+ */
+@XmlTransient
+public final class PlainModel {
+
+  private PlainModel() {
+  }
+
+  /**
+   * Whether the specified person is plain.
+   *
+   * @param person The person.
+   * @return Whether the person is plain.
+   */
+  public static boolean isPlain(Person person) {
+    if (person.getClass() != Person.class || !isPlainResource(person) || !hasNoNulls(person.getIdentifiers())
+      || !isPlainSources(person.getSources()) || !isPlainNotes(person.getNotes())) {
+      return false;
+    }
+
+    Gender gender = person.getGender();
+    if (gender != null && (gender.getClass() != Gender.class || !isPlainConclusion(gender))) {
+      return false;
+    }
+
+    List<Name> names = person.getNames();
+    if (names != null) {
+      for (Name name : names) {
+        if (name == null || name.getClass() != Name.class || !isPlainConclusion(name) || !hasNoNulls(name.getAlternateForms())) {
+          return false;
+        }
+        if (name.getPrimaryForm() != null && !hasNoNulls(name.getPrimaryForm().getParts())) {
+          return false;
+        }
+        if (name.getAlternateForms() != null) {
+          for (NameForm form : name.getAlternateForms()) {
+            if (!hasNoNulls(form.getParts())) {
+              return false;
+            }
+          }
+        }
+      }
+    }
+
+    return isPlainFacts(person.getFacts());
+  }
+
+  /**
+   * Whether the specified relationship is plain.
+   *
+   * @param relationship The relationship.
+   * @return Whether the relationship is plain.
+   */
+  public static boolean isPlain(Relationship relationship) {
+    return relationship.getClass() == Relationship.class && isPlainResource(relationship) && isPlainFacts(relationship.getFacts())
+      && isPlainSources(relationship.getSources()) && isPlainNotes(relationship.getNotes());
+  }
+
+  /**
+   * Whether the specified source reference is plain.
+   *
+   * @param sourceReference The source reference.
+   * @return Whether the source reference is plain.
+   */
+  public static boolean isPlain(SourceReference sourceReference) {
+    return sourceReference.getClass() == SourceReference.class && sourceReference.getExtensionElements() == null
+      && sourceReference.getExtensionAttributes() == null;
+  }
+
+  private static boolean isPlainFacts(List<Fact> facts) {
+    if (facts != null) {
+      for (Fact fact : facts) {
+        if (fact == null || fact.getClass() != Fact.class || !isPlainConclusion(fact) || !isPlain(fact.getFormal())
+          || (fact.getDate() != null && !isPlain(fact.getDate().getFormal()))
+          || (fact.getPlace() != null && !isPlain(fact.getPlace().getFormal()))) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  private static boolean isPlainSources(List<SourceReference> sources) {
+    if (sources != null) {
+      for (SourceReference source : sources) {
+        if (source == null || !isPlain(source)) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  private static boolean isPlainNotes(List<Note> notes) {
+    if (notes != null) {
+      for (Note note : notes) {
+        if (note == null || !isPlainResource(note)) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  private static boolean isPlainConclusion(Conclusion conclusion) {
+    return isPlainResource(conclusion) && isPlainSources(conclusion.getSources());
+  }
+
+  private static boolean isPlainResource(GenealogicalResource resource) {
+    return resource.getExtensionElements() == null;
+  }
+
+  private static boolean isPlain(FormalValue formal) {
+    return formal == null || formal.getClass() == FormalValue.class;
+  }
+
+  private static boolean hasNoNulls(List<?> items) {
+    return items == null || !items.contains(null);
+  }
+}
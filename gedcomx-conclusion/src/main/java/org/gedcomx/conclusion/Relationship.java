@@ -26,6 +26,7 @@ import org.gedcomx.rt.CommonModels;
 import org.gedcomx.rt.RDFRange;
 import org.gedcomx.rt.RDFSubPropertyOf;
 import org.gedcomx.rt.json.JsonElementWrapper;
+import org.gedcomx.types.FactType;
 import org.gedcomx.types.RelationshipType;
 import org.gedcomx.types.TypeReference;
 
@@ -52,6 +53,7 @@ public class Relationship extends GenealogicalResource implements HasFacts, HasN
   private ResourceReference person1;
   private ResourceReference person2;
   private List<Fact> facts;
+  private TypeIndex<Fact> factIndex;
   private List<SourceReference> sources;
   private List<Note> notes;
 
@@ -73,7 +75,7 @@ public class Relationship extends GenealogicalResource implements HasFacts, HasN
    */
   @JsonIgnore
   public void setType(URI type) {
-    this.type = type == null ? null : new TypeReference<RelationshipType>(type);
+    this.type = type == null ? null : TypeReference.<RelationshipType>valueOf(type);
   }
 
   /**
@@ -94,7 +96,7 @@ public class Relationship extends GenealogicalResource implements HasFacts, HasN
    */
   @JsonIgnore
   public void setKnownType(RelationshipType type) {
-    this.type = type == null ? null : new TypeReference<RelationshipType>(type);
+    this.type = type == null ? null : TypeReference.<RelationshipType>valueOf(type);
   }
 
   /**
@@ -165,6 +167,36 @@ public class Relationship extends GenealogicalResource implements HasFacts, HasN
     return facts;
   }
 
+  /**
+   * Get the first fact of the specified type.
+   *
+   * @param type The type.
+   * @return the first fact in the fact list of the specified type, or null if none.
+   */
+  @JsonIgnore
+  public Fact getFirstFactOfType(FactType type) {
+    if (this.facts == null) {
+      return null;
+    }
+
+    return getFactIndex().getFirst(this.facts, type);
+  }
+
+  /**
+   * Helper method for obtaining specific fact conclusions.
+   *
+   * @param factType The type of facts to return.
+   * @return The fact conclusions that match the factType. An empty list will be returned if no facts are found.
+   */
+  @JsonIgnore
+  public List<Fact> getFacts(FactType factType) {
+    if (facts == null || factType == null) {
+      return new ArrayList<Fact>();
+    }
+
+    return getFactIndex().get(facts, factType);
+  }
+
   /**
    * The fact conclusions for the relationship.
    *
@@ -173,6 +205,9 @@ public class Relationship extends GenealogicalResource implements HasFacts, HasN
   @JsonProperty("facts")
   public void setFacts(List<Fact> facts) {
     this.facts = facts;
+    if (this.factIndex != null) {
+      this.factIndex.invalidate();
+    }
   }
 
   /**
@@ -186,7 +221,17 @@ public class Relationship extends GenealogicalResource implements HasFacts, HasN
         facts = new ArrayList<Fact>();
       }
       facts.add(fact);
+      if (this.factIndex != null) {
+        this.factIndex.invalidate();
+      }
+    }
+  }
+
+  private TypeIndex<Fact> getFactIndex() {
+    if (this.factIndex == null) {
+      this.factIndex = TypeIndex.forFacts();
     }
+    return this.factIndex;
   }
 
   /**
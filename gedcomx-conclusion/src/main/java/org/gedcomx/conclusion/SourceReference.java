@@ -23,6 +23,8 @@ import org.gedcomx.common.Attribution;
 import org.gedcomx.common.ResourceReference;
 import org.gedcomx.common.URI;
 import org.gedcomx.rt.CommonModels;
+import org.gedcomx.rt.ExtensionElementHandler;
+import org.gedcomx.rt.ExtensionElementList;
 import org.gedcomx.rt.SupportsExtensionAttributes;
 import org.gedcomx.rt.SupportsExtensionElements;
 import org.gedcomx.rt.json.JsonElementWrapper;
@@ -56,7 +58,7 @@ public class SourceReference implements Attributable, SupportsExtensionAttribute
   private Attribution attribution;
   private ResourceReference description;
   private Map<QName, String> extensionAttributes;
-  private List<Object> extensionElements;
+  private ExtensionElementList extensionElements;
 
   /**
    * The id of this resource reference. Note the distinction between this id and the id of the
@@ -101,7 +103,7 @@ public class SourceReference implements Attributable, SupportsExtensionAttribute
    */
   @JsonIgnore
   public void setType(URI type) {
-    this.type = type == null ? null : new TypeReference<ResourceType>(type);
+    this.type = type == null ? null : TypeReference.<ResourceType>valueOf(type);
   }
 
   /**
@@ -122,7 +124,7 @@ public class SourceReference implements Attributable, SupportsExtensionAttribute
    */
   @JsonIgnore
   public void setKnownType(ResourceType knownType) {
-    this.type = knownType == null ? null : new TypeReference<ResourceType>(knownType);
+    this.type = knownType == null ? null : TypeReference.<ResourceType>valueOf(knownType);
   }
 
   /**
@@ -227,7 +229,7 @@ public class SourceReference implements Attributable, SupportsExtensionAttribute
    *
    * @return Custom attributes applicable to this resource reference.
    */
-  @XmlAnyElement ( lax = true )
+  @XmlAnyElement ( lax = true, value = ExtensionElementHandler.class )
   @JsonIgnore
   public List<Object> getExtensionElements() {
     return extensionElements;
@@ -240,7 +242,7 @@ public class SourceReference implements Attributable, SupportsExtensionAttribute
    */
   @JsonIgnore
   public void setExtensionElements(List<Object> extensionElements) {
-    this.extensionElements = extensionElements;
+    this.extensionElements = ExtensionElementList.wrap(extensionElements);
   }
 
   /**
@@ -250,7 +252,7 @@ public class SourceReference implements Attributable, SupportsExtensionAttribute
    */
   public void addExtensionElement(Object element) {
     if (this.extensionElements == null) {
-      this.extensionElements = new ArrayList<Object>();
+      this.extensionElements = new ExtensionElementList();
     }
 
     this.extensionElements.add(element);
@@ -264,15 +266,11 @@ public class SourceReference implements Attributable, SupportsExtensionAttribute
    */
   @SuppressWarnings ( {"unchecked"} )
   public <E> E findExtensionOfType(Class<E> clazz) {
-    if (this.extensionElements != null) {
-      for (Object extension : extensionElements) {
-        if (clazz.isInstance(extension)) {
-          return (E) extension;
-        }
-      }
+    if (this.extensionElements == null) {
+      return null;
     }
 
-    return null;
+    return this.extensionElements.findExtensionOfType(clazz);
   }
 
   /**
@@ -283,15 +281,10 @@ public class SourceReference implements Attributable, SupportsExtensionAttribute
    */
   @SuppressWarnings ( {"unchecked"} )
   public <E> List<E> findExtensionsOfType(Class<E> clazz) {
-    List<E> ext = new ArrayList<E>();
-    if (this.extensionElements != null) {
-      for (Object extension : extensionElements) {
-        if (clazz.isInstance(extension)) {
-          ext.add((E) extension);
-        }
-      }
+    if (this.extensionElements == null) {
+      return new ArrayList<E>();
     }
 
-    return ext;
+    return this.extensionElements.findExtensionsOfType(clazz);
   }
 }
@@ -0,0 +1,217 @@
+/**
+ * Copyright 2011-2012 Intellectual Reserve, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gedcomx.conclusion;
+
+import org.gedcomx.common.URI;
+import org.gedcomx.types.QNameEnumTable;
+
+import javax.xml.bind.annotation.XmlTransient;
+import java.util.*;
+
+/**
+ * A lazily-built index of a list of conclusions (e.g. the facts or names of a person) by type URI, used to look up the
+ * conclusions of a known type without scanning the list.<br/><br/>
+ *
+ * The index is built on the first lookup and rebuilt when the list it was built from is replaced or changes size. The owner
+ * invalidates it when the list is set or added to through the owner; a conclusion whose type is changed in place (or that
+ * replaces another conclusion of the list in place) isn't noticed until the index is invalidated.<br/><br/>
+ *
+ * Indexing can be disabled (e.g. for memory-sensitive use) with {@link #setEnabled(boolean)} or by setting the
+ * <code>org.gedcomx.conclusion.TypeIndex.enabled</code> system property to <code>false</code>, in which case lookups
+ * scan the list.
+ *
+ * @author Ryan Heaton
+ */
+@XmlTransient
+public abstract class TypeIndex<C> {
+
+  private static volatile boolean enabled = !"false".equalsIgnoreCase(System.getProperty("org.gedcomx.conclusion.TypeIndex.enabled"));
+
+  private volatile Snapshot<C> snapshot;
+
+  TypeIndex() {
+  }
+
+  /**
+   * Whether conclusions are indexed by type.
+   *
+   * @return Whether conclusions are indexed by type.
+   */
+  public static boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Whether conclusions are indexed by type.
+   *
+   * @param enabled Whether conclusions are indexed by type.
+   */
+  public static void setEnabled(boolean enabled) {
+    TypeIndex.enabled = enabled;
+  }
+
+  /**
+   * Create an index of facts.
+   *
+   * @return The index.
+   */
+  static TypeIndex<Fact> forFacts() {
+    return new TypeIndex<Fact>() {
+      @Override
+      protected URI getType(Fact fact) {
+        return fact.getType();
+      }
+
+      @Override
+      protected Enum getKnownType(Fact fact) {
+        return fact.getKnownType();
+      }
+    };
+  }
+
+  /**
+   * Create an index of names.
+   *
+   * @return The index.
+   */
+  static TypeIndex<Name> forNames() {
+    return new TypeIndex<Name>() {
+      @Override
+      protected URI getType(Name name) {
+        return name.getType();
+      }
+
+      @Override
+      protected Enum getKnownType(Name name) {
+        return name.getKnownType();
+      }
+    };
+  }
+
+  /**
+   * The type URI of a conclusion.
+   *
+   * @param conclusion The conclusion.
+   * @return The type URI.
+   */
+  protected abstract URI getType(C conclusion);
+
+  /**
+   * The known type of a conclusion.
+   *
+   * @param conclusion The conclusion.
+   * @return The known type.
+   */
+  protected abstract Enum getKnownType(C conclusion);
+
+  /**
+   * Get the first conclusion of the specified type.
+   *
+   * @param conclusions The conclusions.
+   * @param type The type.
+   * @return The first conclusion of the specified type, or null if none.
+   */
+  C getFirst(List<C> conclusions, Enum type) {
+    if (conclusions == null || type == null) {
+      return null;
+    }
+
+    if (!isIndexed(type)) {
+      for (C conclusion : conclusions) {
+        if (type.equals(getKnownType(conclusion))) {
+          return conclusion;
+        }
+      }
+      return null;
+    }
+
+    List<C> indexed = getSnapshot(conclusions).index.get(QNameEnumTable.uriOf(type));
+    return indexed == null ? null : indexed.get(0);
+  }
+
+  /**
+   * Get the conclusions of the specified type.
+   *
+   * @param conclusions The conclusions.
+   * @param type The type.
+   * @return A new list of the conclusions of the specified type.
+   */
+  List<C> get(List<C> conclusions, Enum type) {
+    if (conclusions == null || type == null) {
+      return new ArrayList<C>();
+    }
+
+    if (!isIndexed(type)) {
+      ArrayList<C> matches = new ArrayList<C>();
+      for (C conclusion : conclusions) {
+        if (type.equals(getKnownType(conclusion))) {
+          matches.add(conclusion);
+        }
+      }
+      return matches;
+    }
+
+    List<C> indexed = getSnapshot(conclusions).index.get(QNameEnumTable.uriOf(type));
+    return indexed == null ? new ArrayList<C>() : new ArrayList<C>(indexed);
+  }
+
+  /**
+   * Invalidate the index.
+   */
+  void invalidate() {
+    this.snapshot = null;
+  }
+
+  @SuppressWarnings ( {"unchecked"} )
+  private boolean isIndexed(Enum type) {
+    //the unknown value of an enumeration matches any type URI that isn't known, so it can't be looked up by URI.
+    return enabled && QNameEnumTable.forType(type.getDeclaringClass()).getUnknownValue() != type;
+  }
+
+  private Snapshot<C> getSnapshot(List<C> conclusions) {
+    Snapshot<C> snapshot = this.snapshot;
+    if (snapshot == null || snapshot.conclusions != conclusions || snapshot.size != conclusions.size()) {
+      Map<URI, List<C>> index = new HashMap<URI, List<C>>();
+      for (C conclusion : conclusions) {
+        URI type = conclusion == null ? null : getType(conclusion);
+        if (type != null) {
+          List<C> ofType = index.get(type);
+          if (ofType == null) {
+            ofType = new ArrayList<C>(2);
+            index.put(type, ofType);
+          }
+          ofType.add(conclusion);
+        }
+      }
+      snapshot = new Snapshot<C>(conclusions, conclusions.size(), index);
+      this.snapshot = snapshot;
+    }
+    return snapshot;
+  }
+
+  private static final class Snapshot<C> {
+
+    private final List<C> conclusions;
+    private final int size;
+    private final Map<URI, List<C>> index;
+
+    private Snapshot(List<C> conclusions, int size, Map<URI, List<C>> index) {
+      this.conclusions = conclusions;
+      this.size = size;
+      this.index = index;
+    }
+  }
+}
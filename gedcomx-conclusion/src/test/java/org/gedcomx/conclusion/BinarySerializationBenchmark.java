@@ -0,0 +1,61 @@
+package org.gedcomx.conclusion;
+
+import org.gedcomx.common.ResourceSet;
+import org.gedcomx.rt.SerializationUtil;
+import org.gedcomx.rt.binary.GedcomBinaryCodec;
+
+import javax.xml.bind.JAXBContext;
+
+/**
+ * Compares the size and the speed of the binary format against XML and JSON (the binary format and XML are timed through a
+ * round trip, JSON through writing only, as the JSON of a resource set can't be read back as one). This isn't a test (the numbers depend on the
+ * machine and the model), so it isn't run with the tests; run its main method to print the numbers.
+ *
+ * @author Ryan Heaton
+ */
+public class BinarySerializationBenchmark {
+
+  private static final int PERSONS = 1000;
+  private static final int ROUNDS = 10;
+
+  public static void main(String[] args) throws Exception {
+    ResourceSet resourceSet = new ResourceSet();
+    for (int i = 0; i < PERSONS; i++) {
+      Person person = PersonRecipesTest.create();
+      person.setId("p" + i);
+      resourceSet.addExtensionElement(person);
+    }
+    JAXBContext context = JAXBContext.newInstance(ResourceSet.class, Person.class);
+
+    int binarySize = GedcomBinaryCodec.toBytes(resourceSet).length;
+    int xmlSize = SerializationUtil.toXmlStream(resourceSet, ResourceSet.class, context).length;
+    int jsonSize = SerializationUtil.toJsonStream(resourceSet).length;
+
+    //warm up before timing.
+    for (int i = 0; i < ROUNDS; i++) {
+      GedcomBinaryCodec.fromBytes(GedcomBinaryCodec.toBytes(resourceSet), ResourceSet.class);
+      SerializationUtil.processThroughXml(resourceSet, ResourceSet.class, context);
+      SerializationUtil.toJsonNode(resourceSet);
+    }
+
+    long binaryTime = System.nanoTime();
+    for (int i = 0; i < ROUNDS; i++) {
+      GedcomBinaryCodec.fromBytes(GedcomBinaryCodec.toBytes(resourceSet), ResourceSet.class);
+    }
+    binaryTime = System.nanoTime() - binaryTime;
+    long xmlTime = System.nanoTime();
+    for (int i = 0; i < ROUNDS; i++) {
+      SerializationUtil.processThroughXml(resourceSet, ResourceSet.class, context);
+    }
+    xmlTime = System.nanoTime() - xmlTime;
+    long jsonTime = System.nanoTime();
+    for (int i = 0; i < ROUNDS; i++) {
+      SerializationUtil.toJsonNode(resourceSet);
+    }
+    jsonTime = System.nanoTime() - jsonTime;
+
+    System.out.println(String.format("%d persons: binary: %d bytes, %d ms; xml: %d bytes, %d ms; json: %d bytes, %d ms (write only)",
+                                     PERSONS, binarySize, binaryTime / ROUNDS / 1000000, xmlSize, xmlTime / ROUNDS / 1000000,
+                                     jsonSize, jsonTime / ROUNDS / 1000000));
+  }
+}
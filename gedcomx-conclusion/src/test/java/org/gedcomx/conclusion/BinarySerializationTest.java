@@ -0,0 +1,137 @@
+package org.gedcomx.conclusion;
+
+import org.gedcomx.common.ResourceSet;
+import org.gedcomx.common.URI;
+import org.gedcomx.metadata.dc.DublinCoreDescriptionDecorator;
+import org.gedcomx.metadata.dc.ObjectFactory;
+import org.gedcomx.metadata.foaf.Organization;
+import org.gedcomx.metadata.rdf.Description;
+import org.gedcomx.metadata.rdf.RDFLiteral;
+import org.gedcomx.metadata.rdf.RDFValue;
+import org.gedcomx.rt.SerializationUtil;
+import org.gedcomx.rt.binary.GedcomBinaryCodec;
+import org.testng.annotations.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.namespace.QName;
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+
+import static org.gedcomx.rt.SerializationUtil.processThroughBinary;
+import static org.testng.AssertJUnit.*;
+
+/**
+ * @author Ryan Heaton
+ */
+@Test
+public class BinarySerializationTest {
+
+  /**
+   * tests processing a person with extensions through the binary format.
+   */
+  public void testPersonRoundTrip() throws Exception {
+    Person person = PersonRecipesTest.create();
+    person.setId("p1");
+    person.setPersistentId(URI.create("urn:p1"));
+    person.addExtensionElement(new CustomEntity("custom"));
+    Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+    Element element = document.createElementNS("urn:custom", "custom:element");
+    element.setAttribute("name", "value");
+    element.appendChild(document.createTextNode("text"));
+    person.addExtensionElement(element);
+    SourceReference source = new SourceReference();
+    source.setResource(URI.create("urn:source"));
+    source.setExtensionAttributes(new HashMap<QName, String>());
+    source.getExtensionAttributes().put(new QName("urn:custom", "attribute", "custom"), "value");
+    person.addSource(source);
+
+    Person binary = processThroughBinary(person);
+    assertEquals(person.getFacts().get(0).getKnownType(), binary.getFacts().get(0).getKnownType());
+    assertEquals(URI.create("urn:p1"), binary.getPersistentId());
+    assertEquals("custom", binary.findExtensionOfType(CustomEntity.class).getId());
+    assertEquals("text", binary.findExtensionOfType(Element.class).getTextContent());
+    assertEquals("value", binary.getSources().get(binary.getSources().size() - 1).getExtensionAttributes().get(new QName("urn:custom", "attribute")));
+
+    JAXBContext context = JAXBContext.newInstance(Person.class, CustomEntity.class);
+    assertEquals(toXml(person, Person.class, context), toXml(binary, Person.class, context));
+  }
+
+  /**
+   * tests processing metadata through the binary format.
+   */
+  public void testMetadataRoundTrip() throws Exception {
+    RDFValue sourceOfSourceRef = new RDFValue();
+    sourceOfSourceRef.setResource(URI.create("#2"));
+    DublinCoreDescriptionDecorator source = DublinCoreDescriptionDecorator.newInstance()
+      .bibliographicCitation(new RDFLiteral("\"Texas Deaths, 1890-1976,\" index and images, FamilySearch"))
+      .title(new RDFLiteral("Texas Deaths, 1890-1976"))
+      .creator(new RDFValue("Lyndon Baines Johnson"))
+      .source(sourceOfSourceRef);
+    source.getDecoratedDescription().setId("1");
+    source.getDecoratedDescription().setAbout(URI.create("https://familysearch.org/pal:/MM9.1.1/J69H-GV1"));
+    Organization organization = new Organization();
+    organization.setId("org");
+    organization.setName(new RDFLiteral("FamilySearch"));
+
+    ResourceSet resourceSet = new ResourceSet();
+    resourceSet.addExtensionElement(source.getDecoratedDescription());
+    resourceSet.addExtensionElement(organization);
+
+    ResourceSet binary = processThroughBinary(resourceSet);
+    assertEquals("Texas Deaths, 1890-1976", DublinCoreDescriptionDecorator.newInstance(binary.findExtensionOfType(Description.class)).getTitle().get(0).getValue());
+    JAXBContext context = JAXBContext.newInstance(ResourceSet.class, Description.class, Organization.class, ObjectFactory.class);
+    assertEquals(toXml(resourceSet, ResourceSet.class, context), toXml(binary, ResourceSet.class, context));
+  }
+
+  /**
+   * tests that a DOM extension element of a binary document can't declare a DTD (or external entities).
+   */
+  public void testElementWithDoctype() throws Exception {
+    Person person = new Person();
+    person.setId("p1");
+    Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+    person.addExtensionElement(document.createElementNS("urn:custom", "custom:element"));
+    byte[] bytes = GedcomBinaryCodec.toBytes(person);
+    assertNotNull(GedcomBinaryCodec.fromBytes(bytes, Person.class).findExtensionOfType(Element.class));
+
+    byte[] xml = "<custom:element xmlns:custom=\"urn:custom\"/>".getBytes("utf-8");
+    byte[] xxe = "<!DOCTYPE element [<!ENTITY xxe SYSTEM \"file:///etc/passwd\">]><custom:element xmlns:custom=\"urn:custom\">&xxe;</custom:element>".getBytes("utf-8");
+    int index = indexOf(bytes, xml);
+    assertTrue(index > 0);
+    //the string is written as its length followed by its UTF-8 bytes.
+    assertEquals(xml.length, bytes[index - 1]);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    out.write(bytes, 0, index - 1);
+    out.write(xxe.length);
+    out.write(xxe);
+    out.write(bytes, index + xml.length, bytes.length - index - xml.length);
+    try {
+      GedcomBinaryCodec.fromBytes(out.toByteArray(), Person.class);
+      fail();
+    }
+    catch (IOException e) {
+      assertTrue(e.getMessage().contains("DOCTYPE"));
+    }
+  }
+
+  private static int indexOf(byte[] bytes, byte[] part) {
+    for (int i = 0; i <= bytes.length - part.length; i++) {
+      int j = 0;
+      while (j < part.length && bytes[i + j] == part[j]) {
+        j++;
+      }
+      if (j == part.length) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private static String toXml(Object value, Class<?> type, JAXBContext context) throws Exception {
+    return new String(SerializationUtil.toXmlStream(value, type, context), "utf-8");
+  }
+}
@@ -0,0 +1,122 @@
+package org.gedcomx.conclusion;
+
+import org.gedcomx.common.ResourceReference;
+import org.gedcomx.common.URI;
+import org.gedcomx.types.RelationshipType;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.testng.AssertJUnit.*;
+
+/**
+ * @author Ryan Heaton
+ */
+@Test
+public class PedigreeGraphTest {
+
+  /**
+   * tests finding ancestors and descendants.
+   */
+  public void testAncestorsAndDescendants() throws Exception {
+    List<Person> persons = new ArrayList<Person>();
+    List<Relationship> relationships = new ArrayList<Relationship>();
+    //a full binary pedigree of 5 generations: the parents of person i are persons 2i + 1 and 2i + 2.
+    for (int i = 0; i < 31; i++) {
+      persons.add(createPerson("p" + i));
+      if (i > 0) {
+        relationships.add(createRelationship(RelationshipType.ParentChild, "p" + i, "p" + ((i - 1) / 2)));
+      }
+      if (i > 0 && i % 2 == 1) {
+        relationships.add(createRelationship(RelationshipType.Couple, "p" + i, "p" + (i + 1)));
+      }
+    }
+    relationships.add(createRelationship(RelationshipType.ParentChild, "p0", "unknown"));
+
+    PedigreeGraph graph = new PedigreeGraph(persons, relationships);
+    assertEquals(31, graph.size());
+    assertEquals(2, graph.getRelated(0, PedigreeGraph.Direction.PARENTS).length);
+    assertEquals(1, graph.getRelated(1, PedigreeGraph.Direction.SPOUSES).length);
+
+    PedigreeGraph.Traversal ancestors = graph.getAncestors(persons.get(0), 2);
+    assertEquals(6, ancestors.size());
+    assertEquals(2, ancestors.getPersons(1).size());
+    assertEquals(4, ancestors.getPersons(2).size());
+    assertEquals("p1", ancestors.getPersons().get(0).getId());
+    assertEquals(1, ancestors.getDepth(0));
+    assertEquals(30, graph.getAncestors(persons.get(0), -1).size());
+
+    PedigreeGraph.Traversal descendants = graph.getDescendants(persons.get(30), -1);
+    assertEquals(4, descendants.size());
+    assertEquals("p14", descendants.getPersons().get(0).getId());
+    assertEquals("p0", descendants.getPersons().get(3).getId());
+
+    //the spouse, the children and the parents.
+    PedigreeGraph.Traversal relatives = graph.traverse(persons.get(1), 1, PedigreeGraph.Direction.SPOUSES, PedigreeGraph.Direction.CHILDREN, PedigreeGraph.Direction.PARENTS);
+    Set<String> ids = new HashSet<String>();
+    for (Person person : relatives.getPersons()) {
+      ids.add(person.getId());
+    }
+    assertEquals(4, ids.size());
+    assertTrue(ids.contains("p2"));
+    assertTrue(ids.contains("p0"));
+    assertTrue(ids.contains("p3"));
+    assertTrue(ids.contains("p4"));
+
+    try {
+      graph.getAncestors(createPerson("p0"), 1);
+      fail();
+    }
+    catch (IllegalArgumentException e) {
+      //fall through...
+    }
+  }
+
+  /**
+   * tests that a parallel traversal finds the same persons as a sequential one.
+   */
+  public void testParallelTraversal() throws Exception {
+    List<Person> persons = new ArrayList<Person>();
+    List<Relationship> relationships = new ArrayList<Relationship>();
+    for (int i = 0; i < 2047; i++) {
+      persons.add(createPerson("p" + i));
+      if (i > 0) {
+        relationships.add(createRelationship(RelationshipType.ParentChild, "p" + i, "p" + ((i - 1) / 2)));
+      }
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      PedigreeGraph parallel = new PedigreeGraph(persons, relationships, executor, 8);
+      PedigreeGraph sequential = new PedigreeGraph(persons, relationships);
+      PedigreeGraph.Traversal expected = sequential.getAncestors(persons.get(0), -1);
+      PedigreeGraph.Traversal actual = parallel.getAncestors(persons.get(0), -1);
+      assertEquals(2046, actual.size());
+      assertEquals(expected.getPersons(), actual.getPersons());
+      assertEquals(1024, actual.getPersons(10).size());
+      assertEquals(10, parallel.getDescendants(persons.get(2046), -1).size());
+    }
+    finally {
+      executor.shutdown();
+    }
+  }
+
+  private Person createPerson(String id) {
+    Person person = new Person();
+    person.setId(id);
+    return person;
+  }
+
+  private Relationship createRelationship(RelationshipType type, String person1, String person2) {
+    Relationship relationship = new Relationship();
+    relationship.setKnownType(type);
+    relationship.setPerson1(new ResourceReference(URI.create("#" + person1)));
+    relationship.setPerson2(new ResourceReference(URI.create("#" + person2)));
+    return relationship;
+  }
+}
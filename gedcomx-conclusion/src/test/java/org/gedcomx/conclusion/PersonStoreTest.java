@@ -0,0 +1,221 @@
+package org.gedcomx.conclusion;
+
+import org.gedcomx.common.Attribution;
+import org.gedcomx.common.FormalValue;
+import org.gedcomx.common.Note;
+import org.gedcomx.common.ResourceReference;
+import org.gedcomx.common.URI;
+import org.gedcomx.types.*;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.gedcomx.rt.SerializationUtil.toXmlStream;
+import static org.testng.AssertJUnit.*;
+
+/**
+ * @author Ryan Heaton
+ */
+@Test
+public class PersonStoreTest {
+
+  /**
+   * tests that persons round-trip through the store.
+   */
+  public void testRoundTrip() throws Exception {
+    List<Person> persons = new ArrayList<Person>();
+    for (int i = 0; i < 100; i++) {
+      persons.add(createPerson(i));
+    }
+    Person empty = new Person();
+    persons.add(empty);
+    persons.add(createSourcedPerson(101));
+    Person extended = createPerson(102);
+    extended.addExtensionElement(createNote("extension"));
+    persons.add(extended);
+
+    PersonStore store = PersonStore.of(persons);
+    assertEquals(103, store.size());
+    assertEquals(1, store.getOverflowCount());
+    for (int i = 0; i < persons.size(); i++) {
+      assertEquals(new String(toXmlStream(persons.get(i)), "utf-8"), new String(toXmlStream(store.toPerson(i)), "utf-8"));
+    }
+    assertNull(store.toPerson(100).getNames());
+    assertNull(store.toPerson(100).getGender());
+  }
+
+  /**
+   * tests that the persons handed out by the store are copies.
+   */
+  public void testCopies() throws Exception {
+    Person extended = createPerson(1);
+    extended.addExtensionElement(createNote("extension"));
+    PersonStore store = PersonStore.of(Arrays.asList(createSourcedPerson(0), extended));
+
+    for (int i = 0; i < store.size(); i++) {
+      Person person = store.toPerson(i);
+      assertNotSame(person, store.toPerson(i));
+      String xml = new String(toXmlStream(person), "utf-8");
+      person.setId("changed");
+      person.getNames().get(0).getPrimaryForm().setFullText("changed");
+      assertEquals(xml, new String(toXmlStream(store.toPerson(i)), "utf-8"));
+      assertEquals("p" + i, store.getPerson(i).getId());
+    }
+    assertNotSame(extended, store.toPerson(1));
+  }
+
+  /**
+   * tests reading persons through views.
+   */
+  public void testViews() throws Exception {
+    PersonStore store = PersonStore.of(Arrays.asList(createPerson(0), createPerson(1), new Person()));
+    PersonStore.PersonView view = store.getPerson(1);
+    assertEquals("p1", view.getId());
+    assertEquals(Boolean.FALSE, view.getLiving());
+    assertEquals(GenderType.Female, view.getKnownGenderType());
+    assertEquals(URI.create("urn:p1"), view.getPersistentId());
+    assertEquals(2, view.getNameCount());
+    assertEquals(NameType.BirthName, view.getKnownNameType(0));
+    assertEquals("Jane Doe 1", view.getNameFullText(0));
+    assertEquals(Boolean.TRUE, view.getNamePreferred(0));
+    assertNull(view.getNameFullText(1));
+    assertEquals(3, view.getFactCount());
+    assertEquals(FactType.Birth, view.getKnownFactType(0));
+    assertEquals("1 Jan 1801", view.getFactDateOriginal(0));
+    assertEquals("Boston", view.getFactPlaceOriginal(0));
+    assertEquals(1, view.indexOfFirstFactOfType(FactType.Death));
+    assertEquals(2, view.indexOfFirstFactOfType(FactType.OTHER));
+    assertEquals(-1, view.indexOfFirstFactOfType(FactType.Burial));
+    assertEquals("custom", view.getFactOriginal(2));
+    assertEquals(0, view.getSourceCount());
+    assertEquals(0, view.getNoteCount());
+
+    assertEquals("p0", view.moveTo(0).getId());
+    assertEquals(GenderType.Male, view.getKnownGenderType());
+    assertEquals(0, view.moveTo(2).getFactCount());
+    assertNull(view.getKnownGenderType());
+    assertNull(view.getPersistentId());
+
+    try {
+      view.moveTo(3);
+      fail();
+    }
+    catch (IndexOutOfBoundsException e) {
+      //fall through...
+    }
+  }
+
+  /**
+   * tests reading sources and notes, and persons kept whole, through views.
+   */
+  public void testViewsOfSourcesAndLeftovers() throws Exception {
+    Person extended = createSourcedPerson(1);
+    extended.addExtensionElement(createNote("extension"));
+    PersonStore store = PersonStore.of(Arrays.asList(createSourcedPerson(0), extended));
+    assertEquals(1, store.getOverflowCount());
+
+    PersonStore.PersonView view = store.getPerson(0);
+    for (int i = 0; i < store.size(); i++) {
+      view.moveTo(i);
+      assertEquals("p" + i, view.getId());
+      assertEquals(URI.create("urn:p" + i), view.getPersistentId());
+      assertEquals("Jane Doe " + i, view.getNameFullText(0));
+      assertEquals(1, view.indexOfFirstFactOfType(FactType.Death));
+      assertEquals(2, view.getSourceCount());
+      assertEquals(URI.create("urn:sources/" + i), view.getSourceResource(0));
+      assertNull(view.getSourceResource(1));
+      assertEquals(1, view.getNoteCount());
+      assertEquals("note " + i, view.getNoteText(0));
+    }
+
+    try {
+      view.getSourceResource(2);
+      fail();
+    }
+    catch (IndexOutOfBoundsException e) {
+      //fall through...
+    }
+  }
+
+  private Person createSourcedPerson(int i) {
+    Person person = createPerson(i);
+    Attribution attribution = new Attribution();
+    attribution.setContributor(new ResourceReference(URI.create("urn:contributors/" + i)));
+    attribution.setKnownConfidenceLevel(ConfidenceLevel.Certainly);
+    attribution.setModified(new java.util.Date(1000L * i));
+    attribution.setProofStatement("proof " + i);
+    person.setAttribution(attribution);
+
+    SourceReference source = new SourceReference();
+    source.setId("s" + i);
+    source.setResource(URI.create("urn:sources/" + i));
+    source.setDescription(new ResourceReference(URI.create("urn:descriptions/" + i)));
+    source.setAttribution(new Attribution());
+    SourceReference empty = new SourceReference();
+    empty.setDescription(new ResourceReference());
+    person.setSources(Arrays.asList(source, empty));
+    person.getNames().get(0).setSources(Arrays.asList(source));
+    person.getFacts().get(0).setAttribution(attribution);
+    person.getGender().setSources(Arrays.asList(empty));
+
+    Note note = createNote("note " + i);
+    note.setLang("en");
+    note.setAttribution(attribution);
+    person.addNote(note);
+    return person;
+  }
+
+  private Note createNote(String text) {
+    Note note = new Note();
+    note.setId(text.replace(' ', '-'));
+    note.setText(text);
+    return note;
+  }
+
+  private Person createPerson(int i) {
+    Person person = new Person();
+    person.setId("p" + i);
+    person.setLiving(i % 3 == 0 ? null : Boolean.valueOf(i % 3 == 2));
+    person.setGender(new Gender(i % 2 == 0 ? GenderType.Male : GenderType.Female));
+    person.setPersistentId(URI.create("urn:p" + i));
+
+    NameForm form = new NameForm();
+    form.setFullText("Jane Doe " + i);
+    NamePart given = new NamePart();
+    given.setKnownType(NamePartType.Given);
+    given.setText("Jane");
+    NamePart surname = new NamePart();
+    surname.setKnownType(NamePartType.Surname);
+    surname.setText("Doe");
+    form.setParts(Arrays.asList(given, surname));
+    Name name = new Name();
+    name.setId("n" + i);
+    name.setKnownType(NameType.BirthName);
+    name.setPreferred(true);
+    name.setPrimaryForm(form);
+    NameForm alternate = new NameForm();
+    alternate.setFullText("J. Doe");
+    name.setAlternateForms(Arrays.asList(alternate));
+    Name other = new Name();
+    other.setKnownType(NameType.AlsoKnownAs);
+    person.setNames(Arrays.asList(name, other));
+
+    Date date = new Date();
+    date.setOriginal("1 Jan " + (1800 + i));
+    FormalValue formalDate = new FormalValue();
+    formalDate.setText("+" + (1800 + i) + "-01-01");
+    date.setFormal(formalDate);
+    Place place = new Place();
+    place.setOriginal("Boston");
+    FormalValue formalPlace = new FormalValue();
+    formalPlace.setResource(URI.create("urn:places/boston"));
+    place.setFormal(formalPlace);
+    Fact custom = new Fact();
+    custom.setType(URI.create("urn:custom"));
+    custom.setOriginal("custom");
+    person.setFacts(Arrays.asList(new Fact(FactType.Birth, date, place, null), new Fact(FactType.Death, "unknown"), custom));
+    return person;
+  }
+}
@@ -10,6 +10,8 @@ import java.util.List;
 
 import static org.gedcomx.rt.SerializationUtil.processThroughJson;
 import static org.gedcomx.rt.SerializationUtil.processThroughXml;
+import static org.testng.AssertJUnit.assertNull;
+import static org.testng.AssertJUnit.assertSame;
 import static org.testng.AssertJUnit.assertTrue;
 
 /**
@@ -36,6 +38,60 @@ public class PersonTest {
     assertEquals(person);
   }
 
+  /**
+   * tests looking up facts and names by type.
+   */
+  public void testFactsAndNamesOfType() throws Exception {
+    Person person = new Person();
+    assertNull(person.getFirstFactOfType(FactType.Birth));
+    Fact birth = new Fact(FactType.Birth, "birth");
+    person.addFact(birth);
+    Fact occupation1 = new Fact(FactType.Occupation, "occupation1");
+    person.addFact(occupation1);
+    assertSame(birth, person.getFirstFactOfType(FactType.Birth));
+    AssertJUnit.assertEquals(1, person.getFacts(FactType.Occupation).size());
+
+    //the index is rebuilt when the facts are added to.
+    Fact occupation2 = new Fact(FactType.Occupation, "occupation2");
+    person.addFact(occupation2);
+    person.getFacts().add(new Fact(FactType.Occupation, "occupation3"));
+    AssertJUnit.assertEquals(3, person.getFacts(FactType.Occupation).size());
+    assertSame(occupation1, person.getFirstFactOfType(FactType.Occupation));
+    assertNull(person.getFirstFactOfType(FactType.Death));
+
+    Fact custom = new Fact();
+    custom.setType(URI.create("urn:custom"));
+    person.addFact(custom);
+    assertSame(custom, person.getFirstFactOfType(FactType.OTHER));
+
+    person.setFacts(null);
+    assertNull(person.getFirstFactOfType(FactType.Birth));
+    AssertJUnit.assertEquals(0, person.getFacts(FactType.Occupation).size());
+
+    ArrayList<Name> names = new ArrayList<Name>();
+    Name formal = new Name();
+    formal.setKnownType(NameType.Formal);
+    names.add(formal);
+    person.setNames(names);
+    assertSame(formal, person.getFirstNameOfType(NameType.Formal));
+    assertNull(person.getFirstNameOfType(NameType.BirthName));
+    Name birthName = new Name();
+    birthName.setKnownType(NameType.BirthName);
+    names = new ArrayList<Name>();
+    names.add(birthName);
+    person.setNames(names);
+    assertNull(person.getFirstNameOfType(NameType.Formal));
+    assertSame(birthName, person.getFirstNameOfType(NameType.BirthName));
+
+    TypeIndex.setEnabled(false);
+    try {
+      assertSame(birthName, person.getFirstNameOfType(NameType.BirthName));
+    }
+    finally {
+      TypeIndex.setEnabled(true);
+    }
+  }
+
   static Person create() {
     Person person = new Person();
     person.setGender(new Gender(GenderType.Male));
@@ -4,14 +4,18 @@ import org.gedcomx.common.Identifier;
 import org.gedcomx.common.Attribution;
 import org.gedcomx.common.ResourceReference;
 import org.gedcomx.common.URI;
+import org.gedcomx.types.FactType;
 import org.gedcomx.types.RelationshipType;
 import org.testng.annotations.Test;
 
 import java.util.List;
 
+import static org.gedcomx.rt.SerializationUtil.processThroughBinary;
 import static org.gedcomx.rt.SerializationUtil.processThroughJson;
 import static org.gedcomx.rt.SerializationUtil.processThroughXml;
 import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertNull;
+import static org.testng.AssertJUnit.assertSame;
 
 /**
  * @author Ryan Heaton
@@ -37,6 +41,31 @@ public class RelationshipTest {
     assertTestRelationship(relationship);
   }
 
+  /**
+   * tests processing a relationship through the binary format...
+   */
+  public void testRelationshipBinary() throws Exception {
+    Relationship relationship = createTestRelationship();
+    relationship = processThroughBinary(relationship);
+    assertTestRelationship(relationship);
+  }
+
+  /**
+   * tests looking up facts by type.
+   */
+  public void testFactsOfType() throws Exception {
+    Relationship relationship = new Relationship();
+    assertNull(relationship.getFirstFactOfType(FactType.Marriage));
+    Fact marriage = new Fact(FactType.Marriage, "marriage");
+    relationship.addFact(marriage);
+    assertSame(marriage, relationship.getFirstFactOfType(FactType.Marriage));
+    relationship.addFact(new Fact(FactType.Marriage, "second marriage"));
+    assertEquals(2, relationship.getFacts(FactType.Marriage).size());
+    assertEquals(0, relationship.getFacts(FactType.Divorce).size());
+    relationship.setFacts(null);
+    assertNull(relationship.getFirstFactOfType(FactType.Marriage));
+  }
+
   private Relationship createTestRelationship() {
     Relationship relationship = new Relationship();
     relationship.setKnownType(RelationshipType.Couple);
@@ -0,0 +1,138 @@
+/**
+ * Copyright 2011-2012 Intellectual Reserve, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gedcomx.file;
+
+import org.gedcomx.rt.JAXBContextRegistry;
+import org.gedcomx.rt.json.GedcomJsonMappers;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBElement;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.transform.stream.StreamSource;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Decodes the resource of an entry in a GEDCOM X file.
+ *
+ * @author Ryan Heaton
+ */
+final class GedcomxEntryDecoder {
+
+  private GedcomxEntryDecoder() {}
+
+  /**
+   * Decode the resource of the specified entry as XML.
+   *
+   * @param context The context to use to unmarshal the resource.
+   * @param entry The entry.
+   * @param in The content of the entry.
+   * @return The resource.
+   * @throws IOException If the resource couldn't be decoded.
+   */
+  static Object decode(JAXBContext context, GedcomxFileEntry entry, InputStream in) throws IOException {
+    Unmarshaller unmarshaller;
+    try {
+      unmarshaller = JAXBContextRegistry.acquireUnmarshaller(context);
+    }
+    catch (JAXBException e) {
+      throw (IOException) new IOException(e.getMessage()).initCause(e);
+    }
+
+    try {
+      Object resource = unmarshaller.unmarshal(new StreamSource(in));
+      if (resource instanceof JAXBElement) {
+        resource = ((JAXBElement) resource).getValue();
+      }
+      return resource;
+    }
+    catch (JAXBException e) {
+      throw (IOException) new IOException("Unable to read entry " + entry.getName() + ": " + e.getMessage()).initCause(e);
+    }
+    finally {
+      JAXBContextRegistry.releaseUnmarshaller(context, unmarshaller);
+    }
+  }
+
+  /**
+   * Decode the resource of the specified entry. If the content type of the entry is a JSON media type, the resource
+   * is decoded as JSON; otherwise it is decoded as XML. If the entry has no content type, the content is sniffed.
+   *
+   * @param context The context to use to unmarshal the resource.
+   * @param entry The entry.
+   * @param in The content of the entry.
+   * @param type The type of the resource.
+   * @return The resource.
+   * @throws IOException If the resource couldn't be decoded.
+   */
+  static <T> T decode(JAXBContext context, GedcomxFileEntry entry, InputStream in, Class<T> type) throws IOException {
+    boolean json;
+    if (entry.getContentType() == null) {
+      //no content type (e.g. the manifest hasn't been read yet); sniff it.
+      in = new BufferedInputStream(in);
+      json = startsWithJson(in);
+    }
+    else {
+      json = isJson(entry);
+    }
+
+    if (json) {
+      return GedcomJsonMappers.getReader(type).readValue(in);
+    }
+
+    Object resource = decode(context, entry, in);
+    if (!type.isInstance(resource)) {
+      throw new IOException("Entry " + entry.getName() + " is a " + (resource == null ? null : resource.getClass().getName()) + ", not a " + type.getName() + ".");
+    }
+    return type.cast(resource);
+  }
+
+  /**
+   * Whether the content of the specified (buffered) stream starts with a JSON object or array. The stream is reset.
+   *
+   * @param in The stream.
+   * @return Whether the content starts with a JSON object or array.
+   * @throws IOException If the stream couldn't be read.
+   */
+  static boolean startsWithJson(InputStream in) throws IOException {
+    in.mark(1024);
+    try {
+      for (int i = 0; i < 1024; i++) {
+        int b = in.read();
+        if (b != ' ' && b != '\t' && b != '\r' && b != '\n') {
+          return b == '{' || b == '[';
+        }
+      }
+      return false;
+    }
+    finally {
+      in.reset();
+    }
+  }
+
+  /**
+   * Whether the content type of the specified entry is a JSON media type.
+   *
+   * @param entry The entry.
+   * @return Whether the content type of the entry is a JSON media type.
+   */
+  static boolean isJson(GedcomxFileEntry entry) {
+    String contentType = entry.getContentType();
+    return contentType != null && contentType.toLowerCase().contains("json");
+  }
+}
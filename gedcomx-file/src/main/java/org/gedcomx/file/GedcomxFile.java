@@ -0,0 +1,537 @@
+/**
+ * Copyright 2011-2012 Intellectual Reserve, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gedcomx.file;
+
+import org.gedcomx.common.ResourceReference;
+import org.gedcomx.rt.JAXBContextRegistry;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import java.io.*;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.*;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+
+/**
+ * A random-access GEDCOM X file. When the file is opened, the central directory of the file is memory-mapped and indexed
+ * by entry name; the index refers to the records in the mapped directory, so only the names of the entries are held on
+ * the heap. Reading an entry seeks directly to its data and decodes only that entry.<br/><br/>
+ *
+ * Local resource references (relative URIs) are resolved to entries of the file per section 5 of the file format
+ * specification, i.e. per <a href="http://tools.ietf.org/html/rfc3986#section-5">RFC 3986 Section 5</a>.<br/><br/>
+ *
+ * A GEDCOM X file can be read by multiple threads at the same time.
+ *
+ * @author Ryan Heaton
+ */
+public class GedcomxFile implements Closeable {
+
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+  private static final int LOCAL_HEADER_LENGTH = 30;
+  private static final int CENTRAL_RECORD_SIGNATURE = 0x02014b50;
+  private static final int CENTRAL_RECORD_LENGTH = 46;
+  private static final int END_SIGNATURE = 0x06054b50;
+  private static final int END_LENGTH = 22;
+  private static final int ZIP64_END_LOCATOR_SIGNATURE = 0x07064b50;
+  private static final int ZIP64_END_LOCATOR_LENGTH = 20;
+  private static final int ZIP64_END_SIGNATURE = 0x06064b50;
+  private static final int ZIP64_EXTRA_ID = 0x0001;
+  private static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+
+  private final RandomAccessFile file;
+  private final FileChannel channel;
+  private final MappedByteBuffer directory;
+  private final Map<String, Integer> index;
+  private final Manifest manifest;
+  private final JAXBContext context;
+
+  /**
+   * Open the specified file, recognizing the {@link GedcomxFileReader#DEFAULT_RESOURCE_CLASSES default resource classes}.
+   *
+   * @param file The file.
+   * @throws IOException If the file couldn't be opened.
+   * @throws JAXBException If the JAXB context couldn't be created.
+   */
+  public GedcomxFile(File file) throws IOException, JAXBException {
+    this(file, GedcomxFileReader.DEFAULT_RESOURCE_CLASSES);
+  }
+
+  /**
+   * Open the specified file.
+   *
+   * @param file The file.
+   * @param resourceClasses The classes of the resources in the file.
+   * @throws IOException If the file couldn't be opened.
+   * @throws JAXBException If the JAXB context couldn't be created.
+   */
+  public GedcomxFile(File file, Class<?>... resourceClasses) throws IOException, JAXBException {
+    this.context = JAXBContextRegistry.getContext(resourceClasses);
+    this.file = new RandomAccessFile(file, "r");
+    try {
+      this.channel = this.file.getChannel();
+      this.directory = mapCentralDirectory();
+      this.index = indexCentralDirectory();
+      this.manifest = readManifest();
+    }
+    catch (IOException e) {
+      this.file.close();
+      throw e;
+    }
+  }
+
+  /**
+   * The manifest of the file.
+   *
+   * @return The manifest of the file.
+   */
+  public Manifest getManifest() {
+    return manifest;
+  }
+
+  /**
+   * The main attributes of the file.
+   *
+   * @return The main attributes of the file.
+   */
+  public Attributes getAttributes() {
+    return this.manifest.getMainAttributes();
+  }
+
+  /**
+   * Get the value of the main attribute of the specified name.
+   *
+   * @param name The name of the attribute.
+   * @return The value of the attribute, or null if none.
+   */
+  public String getAttribute(String name) {
+    return getAttributes().getValue(name);
+  }
+
+  /**
+   * The (non-directory) entries of the file, excluding the entries under "META-INF/", in the order of the central directory.
+   *
+   * @return The entries of the file.
+   */
+  public List<GedcomxFileEntry> getEntries() {
+    List<GedcomxFileEntry> entries = new ArrayList<GedcomxFileEntry>(this.index.size());
+    for (Map.Entry<String, Integer> record : this.index.entrySet()) {
+      String name = record.getKey();
+      if (!name.endsWith("/") && !name.startsWith("META-INF/")) {
+        entries.add(toEntry(name, record.getValue()));
+      }
+    }
+    return entries;
+  }
+
+  /**
+   * Get the entry of the specified name.
+   *
+   * @param name The name of the entry.
+   * @return The entry, or null if there is no entry of the specified name.
+   */
+  public GedcomxFileEntry getEntry(String name) {
+    Integer position = this.index.get(name);
+    return position == null ? null : toEntry(name, position);
+  }
+
+  /**
+   * Resolve the specified reference to an entry of the file. The reference is resolved against the root of the file.
+   *
+   * @param reference The reference.
+   * @return The entry, or null if the reference isn't a local reference or there is no entry for it.
+   */
+  public GedcomxFileEntry resolve(ResourceReference reference) {
+    return resolve(reference, null);
+  }
+
+  /**
+   * Resolve the specified reference to an entry of the file.
+   *
+   * @param reference The reference.
+   * @param base The entry that contains the reference, against which the reference is resolved (null for the root of the file).
+   * @return The entry, or null if the reference isn't a local reference or there is no entry for it.
+   */
+  public GedcomxFileEntry resolve(ResourceReference reference, GedcomxFileEntry base) {
+    if (reference == null || reference.getResource() == null) {
+      return null;
+    }
+
+    java.net.URI uri;
+    try {
+      uri = new java.net.URI(reference.getResource().toString());
+    }
+    catch (URISyntaxException e) {
+      return null;
+    }
+
+    if (uri.isAbsolute() || uri.getRawAuthority() != null) {
+      //not a local reference.
+      return null;
+    }
+
+    String path = uri.getPath();
+    if (path == null || path.length() == 0) {
+      //a same-document reference.
+      return base;
+    }
+
+    try {
+      java.net.URI root = new java.net.URI(null, null, "/" + (base == null ? "" : base.getName()), null);
+      path = root.resolve(new java.net.URI(null, null, path, null)).normalize().getPath();
+    }
+    catch (URISyntaxException e) {
+      return null;
+    }
+    return path.startsWith("/") ? getEntry(path.substring(1)) : null;
+  }
+
+  /**
+   * Read the resource of the specified entry as XML.
+   *
+   * @param entry The entry.
+   * @return The resource.
+   * @throws IOException If the resource couldn't be read.
+   */
+  public Object readResource(GedcomxFileEntry entry) throws IOException {
+    InputStream in = getResourceStream(entry);
+    try {
+      return GedcomxEntryDecoder.decode(this.context, entry, in);
+    }
+    finally {
+      in.close();
+    }
+  }
+
+  /**
+   * Read the resource of the specified entry. If the content type of the entry is a JSON media type, the resource is
+   * read as JSON; otherwise it is read as XML.
+   *
+   * @param entry The entry.
+   * @param type The type of the resource.
+   * @return The resource.
+   * @throws IOException If the resource couldn't be read.
+   */
+  public <T> T readResource(GedcomxFileEntry entry, Class<T> type) throws IOException {
+    InputStream in = getResourceStream(entry);
+    try {
+      return GedcomxEntryDecoder.decode(this.context, entry, in, type);
+    }
+    finally {
+      in.close();
+    }
+  }
+
+  /**
+   * Read the resource of the entry of the specified name.
+   *
+   * @param name The name of the entry.
+   * @param type The type of the resource.
+   * @return The resource, or null if there is no entry of the specified name.
+   * @throws IOException If the resource couldn't be read.
+   */
+  public <T> T readResource(String name, Class<T> type) throws IOException {
+    GedcomxFileEntry entry = getEntry(name);
+    return entry == null ? null : readResource(entry, type);
+  }
+
+  /**
+   * Read the resource of the entry to which the specified reference resolves.
+   *
+   * @param reference The reference.
+   * @param type The type of the resource.
+   * @return The resource, or null if the reference doesn't resolve to an entry of the file.
+   * @throws IOException If the resource couldn't be read.
+   */
+  public <T> T readResource(ResourceReference reference, Class<T> type) throws IOException {
+    GedcomxFileEntry entry = resolve(reference);
+    return entry == null ? null : readResource(entry, type);
+  }
+
+  /**
+   * Open a stream to the (decompressed) content of the specified entry.
+   *
+   * @param entry The entry.
+   * @return The stream.
+   * @throws IOException If the stream couldn't be opened.
+   */
+  public InputStream getResourceStream(GedcomxFileEntry entry) throws IOException {
+    JarEntry jarEntry = entry.getJarEntry();
+    Integer position = this.index.get(jarEntry.getName());
+    if (position == null) {
+      throw new ZipException("No entry " + jarEntry.getName() + " in the file.");
+    }
+
+    long offset = localHeaderOffset(position);
+    ByteBuffer header = ByteBuffer.allocate(LOCAL_HEADER_LENGTH).order(ByteOrder.LITTLE_ENDIAN);
+    readFully(header, offset);
+    if (header.getInt(0) != LOCAL_HEADER_SIGNATURE) {
+      throw new ZipException("Invalid local header for entry " + jarEntry.getName() + ".");
+    }
+    long dataOffset = offset + LOCAL_HEADER_LENGTH + (header.getShort(26) & 0xFFFF) + (header.getShort(28) & 0xFFFF);
+
+    int method = compressionMethod(position);
+    switch (method) {
+      case ZipEntry.STORED:
+        return new ChannelInputStream(dataOffset, jarEntry.getCompressedSize(), false);
+      case ZipEntry.DEFLATED:
+        final Inflater inflater = new Inflater(true);
+        //the inflater needs a dummy byte past the end of the compressed data.
+        return new InflaterInputStream(new ChannelInputStream(dataOffset, jarEntry.getCompressedSize(), true), inflater, 8192) {
+          private boolean closed = false;
+
+          @Override
+          public void close() throws IOException {
+            if (!this.closed) {
+              this.closed = true;
+              inflater.end();
+              super.close();
+            }
+          }
+        };
+      default:
+        throw new ZipException("Unsupported compression method " + method + " for entry " + jarEntry.getName() + ".");
+    }
+  }
+
+  public void close() throws IOException {
+    this.file.close();
+  }
+
+  private MappedByteBuffer mapCentralDirectory() throws IOException {
+    long length = this.channel.size();
+    int tailLength = (int) Math.min(length, END_LENGTH + 0xFFFF);
+    ByteBuffer tail = ByteBuffer.allocate(tailLength).order(ByteOrder.LITTLE_ENDIAN);
+    readFully(tail, length - tailLength);
+
+    int end = -1;
+    for (int i = tailLength - END_LENGTH; i >= 0; i--) {
+      if (tail.getInt(i) == END_SIGNATURE) {
+        end = i;
+        break;
+      }
+    }
+    if (end < 0) {
+      throw new ZipException("Not a GEDCOM X file: no end of central directory record.");
+    }
+
+    long directorySize = tail.getInt(end + 12) & ZIP64_MAGIC;
+    long directoryOffset = tail.getInt(end + 16) & ZIP64_MAGIC;
+    long endOffset = length - tailLength + end;
+    if ((directorySize == ZIP64_MAGIC || directoryOffset == ZIP64_MAGIC) && endOffset >= ZIP64_END_LOCATOR_LENGTH) {
+      ByteBuffer locator = ByteBuffer.allocate(ZIP64_END_LOCATOR_LENGTH).order(ByteOrder.LITTLE_ENDIAN);
+      readFully(locator, endOffset - ZIP64_END_LOCATOR_LENGTH);
+      if (locator.getInt(0) == ZIP64_END_LOCATOR_SIGNATURE) {
+        ByteBuffer zip64End = ByteBuffer.allocate(56).order(ByteOrder.LITTLE_ENDIAN);
+        readFully(zip64End, locator.getLong(8));
+        if (zip64End.getInt(0) != ZIP64_END_SIGNATURE) {
+          throw new ZipException("Invalid zip64 end of central directory record.");
+        }
+        directorySize = zip64End.getLong(40);
+        directoryOffset = zip64End.getLong(48);
+      }
+    }
+
+    if (directorySize > Integer.MAX_VALUE) {
+      throw new ZipException("Central directory too large: " + directorySize + " bytes.");
+    }
+
+    MappedByteBuffer directory = this.channel.map(FileChannel.MapMode.READ_ONLY, directoryOffset, directorySize);
+    directory.order(ByteOrder.LITTLE_ENDIAN);
+    return directory;
+  }
+
+  private Map<String, Integer> indexCentralDirectory() throws IOException {
+    Map<String, Integer> index = new LinkedHashMap<String, Integer>();
+    int limit = this.directory.limit();
+    int position = 0;
+    byte[] nameBuffer = new byte[256];
+    while (position + CENTRAL_RECORD_LENGTH <= limit && this.directory.getInt(position) == CENTRAL_RECORD_SIGNATURE) {
+      int nameLength = this.directory.getShort(position + 28) & 0xFFFF;
+      int extraLength = this.directory.getShort(position + 30) & 0xFFFF;
+      int commentLength = this.directory.getShort(position + 32) & 0xFFFF;
+      if (nameBuffer.length < nameLength) {
+        nameBuffer = new byte[nameLength];
+      }
+      for (int i = 0; i < nameLength; i++) {
+        nameBuffer[i] = this.directory.get(position + CENTRAL_RECORD_LENGTH + i);
+      }
+      index.put(new String(nameBuffer, 0, nameLength, UTF_8), position);
+      position += CENTRAL_RECORD_LENGTH + nameLength + extraLength + commentLength;
+    }
+    if (position != limit) {
+      throw new ZipException("Invalid central directory record at offset " + position + ".");
+    }
+    return index;
+  }
+
+  private Manifest readManifest() throws IOException {
+    GedcomxFileEntry entry = getEntry(JarFile.MANIFEST_NAME);
+    if (entry == null) {
+      return new Manifest();
+    }
+
+    InputStream in = getResourceStream(entry);
+    try {
+      return new Manifest(new BufferedInputStream(in));
+    }
+    finally {
+      in.close();
+    }
+  }
+
+  private GedcomxFileEntry toEntry(String name, int position) {
+    JarEntry jarEntry = new JarEntry(name);
+    int method = compressionMethod(position);
+    if (method == ZipEntry.STORED || method == ZipEntry.DEFLATED) {
+      //a zip entry won't take any other method; the method is read from the directory if the entry is decoded.
+      jarEntry.setMethod(method);
+    }
+    jarEntry.setTime(dosToJavaTime(this.directory.getInt(position + 12) & ZIP64_MAGIC));
+    jarEntry.setCrc(this.directory.getInt(position + 16) & ZIP64_MAGIC);
+    long[] sizes = readSizes(position);
+    jarEntry.setCompressedSize(sizes[0]);
+    jarEntry.setSize(sizes[1]);
+    return new GedcomxFileEntry(jarEntry, this.manifest == null ? null : this.manifest.getAttributes(name));
+  }
+
+  private int compressionMethod(int position) {
+    return this.directory.getShort(position + 10) & 0xFFFF;
+  }
+
+  /**
+   * Reads the compressed size, uncompressed size and local header offset of a central directory record, consulting the
+   * zip64 extended information if needed.
+   */
+  private long[] readSizes(int position) {
+    long uncompressed = this.directory.getInt(position + 24) & ZIP64_MAGIC;
+    long compressed = this.directory.getInt(position + 20) & ZIP64_MAGIC;
+    long offset = this.directory.getInt(position + 42) & ZIP64_MAGIC;
+    if (uncompressed == ZIP64_MAGIC || compressed == ZIP64_MAGIC || offset == ZIP64_MAGIC) {
+      int nameLength = this.directory.getShort(position + 28) & 0xFFFF;
+      int extraLength = this.directory.getShort(position + 30) & 0xFFFF;
+      int extra = position + CENTRAL_RECORD_LENGTH + nameLength;
+      int extraEnd = extra + extraLength;
+      while (extra + 4 <= extraEnd) {
+        int id = this.directory.getShort(extra) & 0xFFFF;
+        int size = this.directory.getShort(extra + 2) & 0xFFFF;
+        if (id == ZIP64_EXTRA_ID) {
+          int field = extra + 4;
+          if (uncompressed == ZIP64_MAGIC) {
+            uncompressed = this.directory.getLong(field);
+            field += 8;
+          }
+          if (compressed == ZIP64_MAGIC) {
+            compressed = this.directory.getLong(field);
+            field += 8;
+          }
+          if (offset == ZIP64_MAGIC) {
+            offset = this.directory.getLong(field);
+          }
+          break;
+        }
+        extra += 4 + size;
+      }
+    }
+    return new long[] {compressed, uncompressed, offset};
+  }
+
+  private long localHeaderOffset(int position) {
+    return readSizes(position)[2];
+  }
+
+  private void readFully(ByteBuffer buffer, long position) throws IOException {
+    while (buffer.hasRemaining()) {
+      int read = this.channel.read(buffer, position + buffer.position());
+      if (read < 0) {
+        throw new EOFException();
+      }
+    }
+  }
+
+  private static long dosToJavaTime(long dosTime) {
+    Calendar calendar = Calendar.getInstance();
+    calendar.clear();
+    calendar.set((int) (((dosTime >> 25) & 0x7f) + 1980), (int) (((dosTime >> 21) & 0x0f) - 1), (int) ((dosTime >> 16) & 0x1f),
+                 (int) ((dosTime >> 11) & 0x1f), (int) ((dosTime >> 5) & 0x3f), (int) ((dosTime << 1) & 0x3e));
+    return calendar.getTimeInMillis();
+  }
+
+  /**
+   * A stream of a region of the file, read with positional reads so that multiple streams can be open at the same time.
+   */
+  private class ChannelInputStream extends InputStream {
+
+    private long position;
+    private long remaining;
+    private boolean dummy;
+
+    private ChannelInputStream(long position, long length, boolean dummy) {
+      this.position = position;
+      this.remaining = length;
+      this.dummy = dummy;
+    }
+
+    @Override
+    public int read() throws IOException {
+      byte[] b = new byte[1];
+      return read(b, 0, 1) < 0 ? -1 : b[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      if (len == 0) {
+        return 0;
+      }
+
+      if (this.remaining <= 0) {
+        if (this.dummy) {
+          this.dummy = false;
+          b[off] = 0;
+          return 1;
+        }
+        return -1;
+      }
+
+      ByteBuffer buffer = ByteBuffer.wrap(b, off, (int) Math.min(len, this.remaining));
+      int read = channel.read(buffer, this.position);
+      if (read < 0) {
+        throw new EOFException();
+      }
+      this.position += read;
+      this.remaining -= read;
+      return read;
+    }
+
+    @Override
+    public int available() throws IOException {
+      return (int) Math.min(Integer.MAX_VALUE, this.remaining);
+    }
+  }
+}
@@ -0,0 +1,118 @@
+/**
+ * Copyright 2011-2012 Intellectual Reserve, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gedcomx.file;
+
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+
+/**
+ * An entry in a GEDCOM X file, along with the per-entry attributes supplied by the manifest.
+ *
+ * @author Ryan Heaton
+ */
+public class GedcomxFileEntry {
+
+  public static final String CONTENT_TYPE = "Content-Type";
+  public static final String ETAG = "ETag";
+  public static final String MODIFIED = "X-DC-modified";
+  public static final String ROOT = "GX-Root";
+
+  private final JarEntry jarEntry;
+  private final Attributes attributes;
+
+  public GedcomxFileEntry(JarEntry jarEntry, Attributes attributes) {
+    this.jarEntry = jarEntry;
+    this.attributes = attributes == null ? new Attributes() : attributes;
+  }
+
+  /**
+   * The underlying jar entry.
+   *
+   * @return The underlying jar entry.
+   */
+  public JarEntry getJarEntry() {
+    return jarEntry;
+  }
+
+  /**
+   * The name of the entry (i.e. the relative path of the entry in the file).
+   *
+   * @return The name of the entry.
+   */
+  public String getName() {
+    return this.jarEntry.getName();
+  }
+
+  /**
+   * The per-entry attributes.
+   *
+   * @return The per-entry attributes.
+   */
+  public Attributes getAttributes() {
+    return attributes;
+  }
+
+  /**
+   * Get the value of the per-entry attribute of the specified name.
+   *
+   * @param name The name of the attribute.
+   * @return The value of the attribute, or null if none.
+   */
+  public String getAttribute(String name) {
+    return this.attributes.getValue(name);
+  }
+
+  /**
+   * The media type of the resource in the entry.
+   *
+   * @return The media type of the resource in the entry, or null if none was supplied.
+   */
+  public String getContentType() {
+    return getAttribute(CONTENT_TYPE);
+  }
+
+  /**
+   * The version of the resource in the entry.
+   *
+   * @return The version of the resource in the entry.
+   */
+  public String getETag() {
+    return getAttribute(ETAG);
+  }
+
+  /**
+   * The timestamp of when the resource in the entry was last modified.
+   *
+   * @return The timestamp of when the resource was last modified.
+   */
+  public String getModified() {
+    return getAttribute(MODIFIED);
+  }
+
+  /**
+   * Whether the entry is hinted to be the root of an object graph in the file.
+   *
+   * @return Whether the entry is hinted to be the root of an object graph.
+   */
+  public boolean isRoot() {
+    return Boolean.parseBoolean(getAttribute(ROOT));
+  }
+
+  @Override
+  public String toString() {
+    return getName();
+  }
+}
@@ -0,0 +1,252 @@
+/**
+ * Copyright 2011-2012 Intellectual Reserve, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gedcomx.file;
+
+import org.gedcomx.common.Collection;
+import org.gedcomx.common.Note;
+import org.gedcomx.common.ResourceSet;
+import org.gedcomx.conclusion.Person;
+import org.gedcomx.conclusion.Relationship;
+import org.gedcomx.metadata.foaf.Organization;
+import org.gedcomx.metadata.rdf.Description;
+import org.gedcomx.rt.JAXBContextRegistry;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import java.io.*;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.JarInputStream;
+import java.util.jar.Manifest;
+
+/**
+ * A streaming reader for a GEDCOM X file. Only the manifest is read up front; the entries are read in order as the
+ * reader is iterated, and the resource of an entry is only decoded when it's asked for, so the memory needed to read
+ * a file is proportional to the size of one entry, not to the size of the file.<br/><br/>
+ *
+ * The reader can be iterated only once, and the resource of an entry can only be read while the entry is the current
+ * entry of the iteration (i.e. until the next call to {@link java.util.Iterator#next()}). If the manifest isn't the first
+ * entry of the file (see {@link GedcomxFileWriter}), it is read when the iteration reaches it. The reader isn't thread-safe.
+ *
+ * @author Ryan Heaton
+ */
+public class GedcomxFileReader implements Iterable<GedcomxFileEntry>, Closeable {
+
+  /**
+   * The classes of the resources that are recognized by default.
+   */
+  public static final Class<?>[] DEFAULT_RESOURCE_CLASSES = {
+    Person.class,
+    Relationship.class,
+    Description.class,
+    org.gedcomx.metadata.foaf.Person.class,
+    Organization.class,
+    ResourceSet.class,
+    Collection.class,
+    Note.class
+  };
+
+  private final JarInputStream in;
+  private final Manifest manifest;
+  private final JAXBContext context;
+  private GedcomxFileEntry current;
+  private boolean iterated = false;
+
+  /**
+   * Create a reader for the specified stream that recognizes the {@link #DEFAULT_RESOURCE_CLASSES default resource classes}.
+   *
+   * @param in The stream.
+   * @throws IOException If the manifest couldn't be read.
+   * @throws JAXBException If the JAXB context couldn't be created.
+   */
+  public GedcomxFileReader(InputStream in) throws IOException, JAXBException {
+    this(in, DEFAULT_RESOURCE_CLASSES);
+  }
+
+  /**
+   * Create a reader for the specified stream.
+   *
+   * @param in The stream.
+   * @param resourceClasses The classes of the resources in the file.
+   * @throws IOException If the manifest couldn't be read.
+   * @throws JAXBException If the JAXB context couldn't be created.
+   */
+  public GedcomxFileReader(InputStream in, Class<?>... resourceClasses) throws IOException, JAXBException {
+    this.context = JAXBContextRegistry.getContext(resourceClasses);
+    this.in = new JarInputStream(in instanceof BufferedInputStream ? in : new BufferedInputStream(in));
+    Manifest manifest = this.in.getManifest();
+    this.manifest = manifest == null ? new Manifest() : manifest;
+  }
+
+  /**
+   * The manifest of the file.
+   *
+   * @return The manifest of the file.
+   */
+  public Manifest getManifest() {
+    return manifest;
+  }
+
+  /**
+   * The main attributes of the file.
+   *
+   * @return The main attributes of the file.
+   */
+  public Attributes getAttributes() {
+    return this.manifest.getMainAttributes();
+  }
+
+  /**
+   * Get the value of the main attribute of the specified name.
+   *
+   * @param name The name of the attribute.
+   * @return The value of the attribute, or null if none.
+   */
+  public String getAttribute(String name) {
+    return getAttributes().getValue(name);
+  }
+
+  /**
+   * Iterate through the (non-directory) entries of the file, excluding the entries under "META-INF/". The reader can
+   * only be iterated once.
+   *
+   * @return The iterator.
+   */
+  public Iterator<GedcomxFileEntry> iterator() {
+    if (this.iterated) {
+      throw new IllegalStateException("A GEDCOM X file reader can only be iterated once.");
+    }
+    this.iterated = true;
+    return new EntryIterator();
+  }
+
+  /**
+   * Read the resource of the specified entry, which must be the current entry of the iteration. The resource is
+   * assumed to be XML.
+   *
+   * @param entry The entry.
+   * @return The resource.
+   * @throws IOException If the resource couldn't be read.
+   */
+  public Object readResource(GedcomxFileEntry entry) throws IOException {
+    assertCurrent(entry);
+    return GedcomxEntryDecoder.decode(this.context, entry, new EntryInputStream(this.in));
+  }
+
+  /**
+   * Read the resource of the specified entry, which must be the current entry of the iteration. If the content type
+   * of the entry is a JSON media type, the resource is read as JSON; otherwise it is read as XML.
+   *
+   * @param entry The entry.
+   * @param type The type of the resource.
+   * @return The resource.
+   * @throws IOException If the resource couldn't be read.
+   */
+  public <T> T readResource(GedcomxFileEntry entry, Class<T> type) throws IOException {
+    assertCurrent(entry);
+    return GedcomxEntryDecoder.decode(this.context, entry, new EntryInputStream(this.in), type);
+  }
+
+  /**
+   * Open a stream to the raw content of the specified entry, which must be the current entry of the iteration.
+   * Closing the stream doesn't close the reader.
+   *
+   * @param entry The entry.
+   * @return The stream.
+   */
+  public InputStream getResourceStream(GedcomxFileEntry entry) {
+    assertCurrent(entry);
+    return new EntryInputStream(this.in);
+  }
+
+  private void assertCurrent(GedcomxFileEntry entry) {
+    if (entry == null || entry != this.current) {
+      throw new IllegalStateException("Entry " + entry + " is not the current entry of the reader.");
+    }
+  }
+
+  public void close() throws IOException {
+    this.current = null;
+    this.in.close();
+  }
+
+  private class EntryIterator implements Iterator<GedcomxFileEntry> {
+
+    private JarEntry next;
+    private boolean advanced = false;
+
+    public boolean hasNext() {
+      advance();
+      return this.next != null;
+    }
+
+    public GedcomxFileEntry next() {
+      advance();
+      if (this.next == null) {
+        throw new NoSuchElementException();
+      }
+
+      JarEntry jarEntry = this.next;
+      this.next = null;
+      this.advanced = false;
+      current = new GedcomxFileEntry(jarEntry, manifest.getAttributes(jarEntry.getName()));
+      return current;
+    }
+
+    private void advance() {
+      if (!this.advanced) {
+        current = null;
+        try {
+          JarEntry jarEntry = in.getNextJarEntry();
+          while (jarEntry != null && (jarEntry.isDirectory() || jarEntry.getName().startsWith("META-INF/"))) {
+            if (JarFile.MANIFEST_NAME.equalsIgnoreCase(jarEntry.getName())) {
+              //the manifest isn't the first entry (e.g. it was written last); read it now.
+              manifest.read(new EntryInputStream(in));
+            }
+            jarEntry = in.getNextJarEntry();
+          }
+          this.next = jarEntry;
+        }
+        catch (IOException e) {
+          throw new RuntimeException(e);
+        }
+        this.advanced = true;
+      }
+    }
+
+    public void remove() {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  /**
+   * A view of the current entry of the jar stream that doesn't close the jar stream.
+   */
+  private static class EntryInputStream extends FilterInputStream {
+
+    private EntryInputStream(InputStream in) {
+      super(in);
+    }
+
+    @Override
+    public void close() throws IOException {
+      //no-op; closing would close the whole file.
+    }
+  }
+}
@@ -0,0 +1,704 @@
+/**
+ * Copyright 2011-2012 Intellectual Reserve, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gedcomx.file;
+
+import org.gedcomx.common.GenealogicalResource;
+import org.gedcomx.rt.CommonModels;
+import org.gedcomx.rt.GedcomNamespaceManager;
+import org.gedcomx.rt.Model;
+import org.gedcomx.rt.Models;
+import org.gedcomx.rt.SerializationBuffer;
+import org.gedcomx.rt.SerializationUtil;
+
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.annotation.XmlSchema;
+import java.io.*;
+import java.net.URLEncoder;
+import java.nio.charset.Charset;
+import java.text.SimpleDateFormat;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.jar.Attributes;
+import java.util.jar.JarFile;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.ZipEntry;
+
+/**
+ * A writer for a GEDCOM X file that serializes and deflates the entries in parallel on a pool of workers. The entries
+ * are written to the file in the order in which they were added, and at most a bounded number of entries are held in
+ * memory at a time, so the writer never buffers the whole archive.<br/><br/>
+ *
+ * The manifest sections of the entries (Name, Content-Type, ETag, X-DC-modified and GX-Root) are spooled to a temporary file
+ * as the entries are written, and the manifest is written as the last entry of the file, followed by the central directory.
+ * Because the manifest isn't the first entry, the per-entry attributes are only visible to a {@link GedcomxFileReader}
+ * after it has iterated through the entries; use {@link GedcomxFile} to read the entries together with their attributes.<br/><br/>
+ *
+ * The writer isn't thread-safe; the resources must be added by one thread.
+ *
+ * @author Ryan Heaton
+ */
+public class GedcomxFileWriter implements Closeable {
+
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+  private static final byte[] CRLF = {'\r', '\n'};
+  private static final int MAX_LINE_LENGTH = 72;
+
+  private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+  private static final int DATA_DESCRIPTOR_SIGNATURE = 0x08074b50;
+  private static final int CENTRAL_RECORD_SIGNATURE = 0x02014b50;
+  private static final int END_SIGNATURE = 0x06054b50;
+  private static final int ZIP64_END_SIGNATURE = 0x06064b50;
+  private static final int ZIP64_END_LOCATOR_SIGNATURE = 0x07064b50;
+  private static final int ZIP64_EXTRA_ID = 0x0001;
+  private static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+  private static final int UTF8_NAMES_FLAG = 0x0800;
+  private static final int DATA_DESCRIPTOR_FLAG = 0x0008;
+  private static final int VERSION = 20;
+  private static final int ZIP64_VERSION = 45;
+
+  private static final ConcurrentMap<Class<?>, String[]> MEDIA_TYPES = new ConcurrentHashMap<Class<?>, String[]>();
+
+  private final ZipOutput out;
+  private final ExecutorService executor;
+  private final boolean ownExecutor;
+  private final int maxPending;
+  private final Queue<Future<CompressedEntry>> pending = new LinkedList<Future<CompressedEntry>>();
+  private final Attributes mainAttributes = new Attributes();
+  private final Set<String> names = new HashSet<String>();
+  private final SimpleDateFormat timestampFormat;
+  private final File manifestSpool;
+  private final OutputStream manifestSections;
+  private final File directorySpool;
+  private final ZipOutput directory;
+  private long entryCount = 0;
+  private boolean json = false;
+  private int level = Deflater.DEFAULT_COMPRESSION;
+  private boolean closed = false;
+
+  /**
+   * Create a writer that compresses the entries on a pool of as many workers as there are available processors.
+   *
+   * @param out The stream to which to write the file.
+   * @throws IOException If the temporary files used by the writer couldn't be created.
+   */
+  public GedcomxFileWriter(OutputStream out) throws IOException {
+    this(out, Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * Create a writer that compresses the entries on a pool of the specified number of workers.
+   *
+   * @param out The stream to which to write the file.
+   * @param threads The number of workers.
+   * @throws IOException If the temporary files used by the writer couldn't be created.
+   */
+  public GedcomxFileWriter(OutputStream out, int threads) throws IOException {
+    this(out, Executors.newFixedThreadPool(Math.max(1, threads), new WorkerThreadFactory()), Math.max(1, threads), true);
+  }
+
+  /**
+   * Create a writer that compresses the entries on the specified executor. The executor isn't shut down when the writer is closed.
+   *
+   * @param out The stream to which to write the file.
+   * @param executor The executor.
+   * @param parallelism The number of entries to compress at the same time.
+   * @throws IOException If the temporary files used by the writer couldn't be created.
+   */
+  public GedcomxFileWriter(OutputStream out, ExecutorService executor, int parallelism) throws IOException {
+    this(out, executor, Math.max(1, parallelism), false);
+  }
+
+  private GedcomxFileWriter(OutputStream out, ExecutorService executor, int parallelism, boolean ownExecutor) throws IOException {
+    this.out = new ZipOutput(out instanceof BufferedOutputStream ? out : new BufferedOutputStream(out, 64 * 1024));
+    this.executor = executor;
+    this.ownExecutor = ownExecutor;
+    this.maxPending = parallelism * 4;
+    this.timestampFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'");
+    this.timestampFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+    this.mainAttributes.put(Attributes.Name.MANIFEST_VERSION, "1.0");
+    this.manifestSpool = File.createTempFile("gedcomx-manifest", ".tmp");
+    this.manifestSections = new BufferedOutputStream(new FileOutputStream(this.manifestSpool), 64 * 1024);
+    this.directorySpool = File.createTempFile("gedcomx-directory", ".tmp");
+    this.directory = new ZipOutput(new BufferedOutputStream(new FileOutputStream(this.directorySpool), 64 * 1024));
+  }
+
+  /**
+   * Whether the resources are serialized as JSON (as opposed to XML).
+   *
+   * @return Whether the resources are serialized as JSON.
+   */
+  public boolean isJson() {
+    return json;
+  }
+
+  /**
+   * Whether the resources are serialized as JSON (as opposed to XML).
+   *
+   * @param json Whether the resources are serialized as JSON.
+   */
+  public void setJson(boolean json) {
+    this.json = json;
+  }
+
+  /**
+   * The deflate compression level of the entries.
+   *
+   * @param level The deflate compression level of the entries.
+   */
+  public void setLevel(int level) {
+    this.level = level;
+  }
+
+  /**
+   * Set a main attribute of the file. Main attributes can be set any time before the writer is closed.
+   *
+   * @param name The name of the attribute.
+   * @param value The value of the attribute.
+   */
+  public void setAttribute(String name, String value) {
+    this.mainAttributes.putValue(name, value);
+  }
+
+  /**
+   * Add the specified resources to the file, each as an entry named by {@link #getEntryName(org.gedcomx.common.GenealogicalResource)}.
+   *
+   * @param resources The resources.
+   * @throws IOException If the resources couldn't be added.
+   */
+  public void addResources(Iterable<? extends GenealogicalResource> resources) throws IOException {
+    for (GenealogicalResource resource : resources) {
+      addResource(getEntryName(resource), resource);
+    }
+  }
+
+  /**
+   * Add a resource to the file.
+   *
+   * @param name The name of the entry.
+   * @param resource The resource.
+   * @throws IOException If the resource couldn't be added.
+   */
+  public void addResource(String name, GenealogicalResource resource) throws IOException {
+    addResource(name, resource, false, null);
+  }
+
+  /**
+   * Add a resource to the file.
+   *
+   * @param name The name of the entry.
+   * @param resource The resource.
+   * @param root Whether the entry is to be hinted as the root of an object graph in the file.
+   * @param attributes Additional per-entry attributes (e.g. the ETag or X-DC-modified), or null.
+   * @throws IOException If the resource couldn't be added.
+   */
+  public void addResource(String name, GenealogicalResource resource, boolean root, Attributes attributes) throws IOException {
+    assertOpen();
+    if (name == null || name.length() == 0 || name.startsWith("/")) {
+      throw new IllegalArgumentException("Illegal entry name: " + name);
+    }
+    if (!this.names.add(name)) {
+      throw new IllegalArgumentException("Duplicate entry: " + name);
+    }
+
+    Attributes entryAttributes = new Attributes();
+    entryAttributes.putValue(GedcomxFileEntry.CONTENT_TYPE, getMediaType(resource.getClass(), this.json));
+    if (root) {
+      entryAttributes.putValue(GedcomxFileEntry.ROOT, "true");
+    }
+    if (attributes != null) {
+      entryAttributes.putAll(attributes);
+    }
+
+    this.pending.add(this.executor.submit(new EntryTask(name, resource, entryAttributes, this.json, this.level)));
+    while (this.pending.size() > this.maxPending) {
+      writeEntry(await(this.pending.poll()));
+    }
+  }
+
+  /**
+   * The name of the entry for the specified resource, i.e. a path made of the package of the resource type, the lower-cased
+   * name of the resource type, pluralized, and the URL-encoded id of the resource (e.g. "org/gedcomx/conclusion/persons/12345").
+   * A resource without an id is named by its position in the file, prefixed by a '~' (which is always encoded in an id), e.g.
+   * "org/gedcomx/conclusion/persons/~3", so the names never collide.
+   *
+   * @param resource The resource.
+   * @return The name of the entry.
+   * @throws IOException If the id couldn't be encoded.
+   */
+  protected String getEntryName(GenealogicalResource resource) throws IOException {
+    String type = resource.getClass().getName();
+    int packageEnd = type.lastIndexOf('.') + 1;
+    String folder = type.substring(0, packageEnd).replace('.', '/') + type.substring(packageEnd).toLowerCase() + "s/";
+    if (resource.getId() == null) {
+      return folder + "~" + (this.entryCount + this.pending.size() + 1);
+    }
+    return folder + URLEncoder.encode(resource.getId(), "UTF-8");
+  }
+
+  /**
+   * Write the pending entries, the manifest and the central directory, and close the stream.
+   *
+   * @throws IOException If the file couldn't be finished.
+   */
+  public void close() throws IOException {
+    if (this.closed) {
+      return;
+    }
+
+    try {
+      while (!this.pending.isEmpty()) {
+        writeEntry(await(this.pending.poll()));
+      }
+      this.manifestSections.close();
+      writeManifest();
+      this.directory.close();
+      writeCentralDirectory();
+      this.out.close();
+    }
+    finally {
+      this.closed = true;
+      for (Future<CompressedEntry> future : this.pending) {
+        future.cancel(true);
+      }
+      if (this.ownExecutor) {
+        this.executor.shutdownNow();
+      }
+      this.manifestSections.close();
+      this.directory.close();
+      this.manifestSpool.delete();
+      this.directorySpool.delete();
+    }
+  }
+
+  private void assertOpen() {
+    if (this.closed) {
+      throw new IllegalStateException("Writer is closed.");
+    }
+  }
+
+  private CompressedEntry await(Future<CompressedEntry> future) throws IOException {
+    try {
+      return future.get();
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException();
+    }
+    catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      }
+      throw (IOException) new IOException(cause.getMessage()).initCause(cause);
+    }
+  }
+
+  private void writeEntry(CompressedEntry entry) throws IOException {
+    Attributes attributes = entry.attributes;
+    if (attributes.getValue(GedcomxFileEntry.ETAG) == null) {
+      attributes.putValue(GedcomxFileEntry.ETAG, Long.toHexString(entry.crc));
+    }
+    long now = System.currentTimeMillis();
+    if (attributes.getValue(GedcomxFileEntry.MODIFIED) == null) {
+      attributes.putValue(GedcomxFileEntry.MODIFIED, this.timestampFormat.format(new Date(now)));
+    }
+
+    byte[] name = entry.name.getBytes(UTF_8);
+    long offset = this.out.count;
+    long dosTime = javaToDosTime(now);
+    writeLocalHeader(name, entry.method, dosTime, 0, entry.crc, entry.compressedSize, entry.size);
+    this.out.write(entry.data, 0, (int) entry.compressedSize);
+    writeCentralRecord(name, entry.method, dosTime, 0, entry.crc, entry.compressedSize, entry.size, offset);
+    writeSection(this.manifestSections, entry.name, attributes);
+    this.entryCount++;
+  }
+
+  private void writeManifest() throws IOException {
+    byte[] name = JarFile.MANIFEST_NAME.getBytes(UTF_8);
+    long offset = this.out.count;
+    long dosTime = javaToDosTime(System.currentTimeMillis());
+    writeLocalHeader(name, ZipEntry.DEFLATED, dosTime, DATA_DESCRIPTOR_FLAG, 0, 0, 0);
+
+    CRC32 crc = new CRC32();
+    long start = this.out.count;
+    Deflater deflater = new Deflater(this.level, true);
+    long size;
+    try {
+      CountingCrcOutputStream manifest = new CountingCrcOutputStream(new DeflaterOutputStream(new NonClosingOutputStream(this.out), deflater, 8192), crc);
+      for (Object attributeName : this.mainAttributes.keySet()) {
+        writeAttribute(manifest, attributeName.toString(), this.mainAttributes.get(attributeName).toString());
+      }
+      manifest.write(CRLF);
+      InputStream sections = new FileInputStream(this.manifestSpool);
+      try {
+        byte[] buffer = new byte[8192];
+        int len;
+        while ((len = sections.read(buffer)) > 0) {
+          manifest.write(buffer, 0, len);
+        }
+      }
+      finally {
+        sections.close();
+      }
+      manifest.close();
+      size = manifest.count;
+    }
+    finally {
+      deflater.end();
+    }
+    long compressedSize = this.out.count - start;
+    if (size >= ZIP64_MAGIC || compressedSize >= ZIP64_MAGIC) {
+      throw new IOException("Manifest too large.");
+    }
+
+    this.out.writeInt(DATA_DESCRIPTOR_SIGNATURE);
+    this.out.writeInt(crc.getValue());
+    this.out.writeInt(compressedSize);
+    this.out.writeInt(size);
+    writeCentralRecord(name, ZipEntry.DEFLATED, dosTime, DATA_DESCRIPTOR_FLAG, crc.getValue(), compressedSize, size, offset);
+    this.entryCount++;
+  }
+
+  private void writeLocalHeader(byte[] name, int method, long dosTime, int flags, long crc, long compressedSize, long size) throws IOException {
+    this.out.writeInt(LOCAL_HEADER_SIGNATURE);
+    this.out.writeShort(VERSION);
+    this.out.writeShort(UTF8_NAMES_FLAG | flags);
+    this.out.writeShort(method);
+    this.out.writeInt(dosTime);
+    this.out.writeInt(crc);
+    this.out.writeInt(compressedSize);
+    this.out.writeInt(size);
+    this.out.writeShort(name.length);
+    this.out.writeShort(0);
+    this.out.write(name);
+  }
+
+  private void writeCentralRecord(byte[] name, int method, long dosTime, int flags, long crc, long compressedSize, long size, long offset) throws IOException {
+    boolean zip64 = offset >= ZIP64_MAGIC;
+    this.directory.writeInt(CENTRAL_RECORD_SIGNATURE);
+    this.directory.writeShort(zip64 ? ZIP64_VERSION : VERSION);
+    this.directory.writeShort(zip64 ? ZIP64_VERSION : VERSION);
+    this.directory.writeShort(UTF8_NAMES_FLAG | flags);
+    this.directory.writeShort(method);
+    this.directory.writeInt(dosTime);
+    this.directory.writeInt(crc);
+    this.directory.writeInt(compressedSize);
+    this.directory.writeInt(size);
+    this.directory.writeShort(name.length);
+    this.directory.writeShort(zip64 ? 12 : 0);
+    this.directory.writeShort(0); //comment length
+    this.directory.writeShort(0); //disk number
+    this.directory.writeShort(0); //internal attributes
+    this.directory.writeInt(0); //external attributes
+    this.directory.writeInt(zip64 ? ZIP64_MAGIC : offset);
+    this.directory.write(name);
+    if (zip64) {
+      this.directory.writeShort(ZIP64_EXTRA_ID);
+      this.directory.writeShort(8);
+      this.directory.writeLong(offset);
+    }
+  }
+
+  private void writeCentralDirectory() throws IOException {
+    long directoryOffset = this.out.count;
+    InputStream records = new FileInputStream(this.directorySpool);
+    try {
+      byte[] buffer = new byte[8192];
+      int len;
+      while ((len = records.read(buffer)) > 0) {
+        this.out.write(buffer, 0, len);
+      }
+    }
+    finally {
+      records.close();
+    }
+    long directorySize = this.out.count - directoryOffset;
+
+    boolean zip64 = this.entryCount >= 0xFFFF || directoryOffset >= ZIP64_MAGIC || directorySize >= ZIP64_MAGIC;
+    if (zip64) {
+      long zip64EndOffset = this.out.count;
+      this.out.writeInt(ZIP64_END_SIGNATURE);
+      this.out.writeLong(44);
+      this.out.writeShort(ZIP64_VERSION);
+      this.out.writeShort(ZIP64_VERSION);
+      this.out.writeInt(0);
+      this.out.writeInt(0);
+      this.out.writeLong(this.entryCount);
+      this.out.writeLong(this.entryCount);
+      this.out.writeLong(directorySize);
+      this.out.writeLong(directoryOffset);
+
+      this.out.writeInt(ZIP64_END_LOCATOR_SIGNATURE);
+      this.out.writeInt(0);
+      this.out.writeLong(zip64EndOffset);
+      this.out.writeInt(1);
+    }
+
+    this.out.writeInt(END_SIGNATURE);
+    this.out.writeShort(0);
+    this.out.writeShort(0);
+    this.out.writeShort(zip64 ? 0xFFFF : (int) this.entryCount);
+    this.out.writeShort(zip64 ? 0xFFFF : (int) this.entryCount);
+    this.out.writeInt(zip64 ? ZIP64_MAGIC : directorySize);
+    this.out.writeInt(zip64 ? ZIP64_MAGIC : directoryOffset);
+    this.out.writeShort(0);
+  }
+
+  /**
+   * Writes a manifest section, wrapping the lines at 72 bytes per the JAR specification.
+   */
+  private static void writeSection(OutputStream out, String name, Attributes attributes) throws IOException {
+    writeAttribute(out, "Name", name);
+    for (Map.Entry<Object, Object> attribute : attributes.entrySet()) {
+      writeAttribute(out, attribute.getKey().toString(), String.valueOf(attribute.getValue()));
+    }
+    out.write(CRLF);
+  }
+
+  private static void writeAttribute(OutputStream out, String name, String value) throws IOException {
+    byte[] line = (name + ": " + value).getBytes(UTF_8);
+    int len = Math.min(line.length, MAX_LINE_LENGTH);
+    out.write(line, 0, len);
+    for (int i = len; i < line.length; i += MAX_LINE_LENGTH - 1) {
+      out.write(CRLF);
+      out.write(' ');
+      out.write(line, i, Math.min(MAX_LINE_LENGTH - 1, line.length - i));
+    }
+    out.write(CRLF);
+  }
+
+  /**
+   * The media type for the specified resource class, per the model that defines the namespace of the class.
+   */
+  static String getMediaType(Class<?> resourceClass, boolean json) {
+    String[] mediaTypes = MEDIA_TYPES.get(resourceClass);
+    if (mediaTypes == null) {
+      mediaTypes = new String[] {CommonModels.GEDCOMX_COMMON_XML_MEDIA_TYPE, CommonModels.GEDCOMX_COMMON_JSON_MEDIA_TYPE};
+      String namespace = null;
+      for (Class<?> clazz = resourceClass; clazz != null && namespace == null; clazz = clazz.getSuperclass()) {
+        if (clazz.getPackage() != null && clazz.getPackage().isAnnotationPresent(XmlSchema.class)) {
+          namespace = clazz.getPackage().getAnnotation(XmlSchema.class).namespace();
+        }
+      }
+
+      if (namespace != null) {
+        for (Class<?> modelClass : GedcomNamespaceManager.getKnownModelClasses()) {
+          List<Model> models = new ArrayList<Model>();
+          if (modelClass.isAnnotationPresent(Model.class)) {
+            models.add(modelClass.getAnnotation(Model.class));
+          }
+          if (modelClass.isAnnotationPresent(Models.class)) {
+            models.addAll(Arrays.asList(modelClass.getAnnotation(Models.class).value()));
+          }
+          for (Model model : models) {
+            if (namespace.equals(model.namespace()) && model.xmlMediaType().length() > 0 && model.jsonMediaType().length() > 0) {
+              mediaTypes = new String[] {model.xmlMediaType(), model.jsonMediaType()};
+            }
+          }
+        }
+      }
+      MEDIA_TYPES.putIfAbsent(resourceClass, mediaTypes);
+    }
+    return json ? mediaTypes[1] : mediaTypes[0];
+  }
+
+  private static long javaToDosTime(long time) {
+    Calendar calendar = Calendar.getInstance();
+    calendar.setTimeInMillis(time);
+    int year = calendar.get(Calendar.YEAR);
+    if (year < 1980) {
+      return (1 << 21) | (1 << 16);
+    }
+    return (year - 1980) << 25 | (calendar.get(Calendar.MONTH) + 1) << 21 | calendar.get(Calendar.DAY_OF_MONTH) << 16
+      | calendar.get(Calendar.HOUR_OF_DAY) << 11 | calendar.get(Calendar.MINUTE) << 5 | calendar.get(Calendar.SECOND) >> 1;
+  }
+
+  /**
+   * Serializes and compresses an entry on a worker.
+   */
+  private static class EntryTask implements Callable<CompressedEntry> {
+
+    private final String name;
+    private final GenealogicalResource resource;
+    private final Attributes attributes;
+    private final boolean json;
+    private final int level;
+
+    private EntryTask(String name, GenealogicalResource resource, Attributes attributes, boolean json, int level) {
+      this.name = name;
+      this.resource = resource;
+      this.attributes = attributes;
+      this.json = json;
+      this.level = level;
+    }
+
+    public CompressedEntry call() throws IOException, JAXBException {
+      byte[] data;
+      SerializationBuffer serialized = SerializationBuffer.acquire();
+      try {
+        //the entries are written compact, not formatted.
+        if (this.json) {
+          SerializationUtil.writeJson(this.resource, serialized);
+        }
+        else {
+          SerializationUtil.writeXml(this.resource, serialized);
+        }
+        data = serialized.toByteArray();
+      }
+      finally {
+        serialized.release();
+      }
+      CRC32 crc = new CRC32();
+      crc.update(data);
+
+      Deflater deflater = new Deflater(this.level, true);
+      try {
+        deflater.setInput(data);
+        deflater.finish();
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(Math.max(64, data.length / 2));
+        byte[] buffer = new byte[8192];
+        while (!deflater.finished()) {
+          int len = deflater.deflate(buffer);
+          compressed.write(buffer, 0, len);
+          if (compressed.size() >= data.length) {
+            //not worth compressing.
+            return new CompressedEntry(this.name, this.attributes, ZipEntry.STORED, data, data.length, crc.getValue(), data.length);
+          }
+        }
+        return new CompressedEntry(this.name, this.attributes, ZipEntry.DEFLATED, compressed.toByteArray(), compressed.size(), crc.getValue(), data.length);
+      }
+      finally {
+        deflater.end();
+      }
+    }
+  }
+
+  private static class CompressedEntry {
+
+    private final String name;
+    private final Attributes attributes;
+    private final int method;
+    private final byte[] data;
+    private final long compressedSize;
+    private final long crc;
+    private final long size;
+
+    private CompressedEntry(String name, Attributes attributes, int method, byte[] data, long compressedSize, long crc, long size) {
+      this.name = name;
+      this.attributes = attributes;
+      this.method = method;
+      this.data = data;
+      this.compressedSize = compressedSize;
+      this.crc = crc;
+      this.size = size;
+    }
+  }
+
+  /**
+   * Writes little-endian ZIP structures and keeps track of the number of bytes written.
+   */
+  private static class ZipOutput extends FilterOutputStream {
+
+    private long count = 0;
+
+    private ZipOutput(OutputStream out) {
+      super(out);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      this.out.write(b);
+      this.count++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      this.out.write(b, off, len);
+      this.count += len;
+    }
+
+    private void writeShort(int v) throws IOException {
+      write(v & 0xFF);
+      write((v >>> 8) & 0xFF);
+    }
+
+    private void writeInt(long v) throws IOException {
+      writeShort((int) (v & 0xFFFF));
+      writeShort((int) ((v >>> 16) & 0xFFFF));
+    }
+
+    private void writeLong(long v) throws IOException {
+      writeInt(v & ZIP64_MAGIC);
+      writeInt(v >>> 32);
+    }
+  }
+
+  private static class CountingCrcOutputStream extends FilterOutputStream {
+
+    private final CRC32 crc;
+    private long count = 0;
+
+    private CountingCrcOutputStream(OutputStream out, CRC32 crc) {
+      super(out);
+      this.crc = crc;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      this.out.write(b);
+      this.crc.update(b);
+      this.count++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      this.out.write(b, off, len);
+      this.crc.update(b, off, len);
+      this.count += len;
+    }
+  }
+
+  private static class NonClosingOutputStream extends FilterOutputStream {
+
+    private NonClosingOutputStream(OutputStream out) {
+      super(out);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      this.out.write(b, off, len);
+    }
+
+    @Override
+    public void close() throws IOException {
+      flush();
+    }
+  }
+
+  private static class WorkerThreadFactory implements ThreadFactory {
+
+    private final ThreadFactory delegate = Executors.defaultThreadFactory();
+
+    public Thread newThread(Runnable r) {
+      Thread thread = this.delegate.newThread(r);
+      thread.setName("gedcomx-file-writer-" + thread.getName());
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
+}
@@ -0,0 +1,634 @@
+/**
+ * Copyright 2011-2012 Intellectual Reserve, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gedcomx.file;
+
+import org.gedcomx.common.*;
+import org.gedcomx.conclusion.*;
+import org.gedcomx.rt.JAXBContextRegistry;
+import org.gedcomx.rt.binary.BinaryInput;
+import org.gedcomx.rt.binary.BinaryOutput;
+import org.gedcomx.types.ConfidenceLevel;
+import org.gedcomx.types.TypeReference;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBElement;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The binary encoding of the records of a segment of a {@link SegmentStore}.<br/><br/>
+ *
+ * A record is laid out as its kind (one byte), its form (one byte), the length of the rest of the record (a varint), the id
+ * of the record and the persistent id of the record (null for anything but a person), followed by the body of the record.
+ * The record is written with a {@link BinaryOutput} to memory, so integers are encoded as varints and strings in full, as
+ * in the binary format of the model, and type URIs are encoded as codes into the dictionary of the segment.<br/><br/>
+ *
+ * The binary form holds every field of a {@link PlainModel plain} record: the identifiers, living flag, gender, names and
+ * facts of a person, the type, persons and facts of a relationship, the type, resource and description of a source
+ * reference, and the source references, notes and attribution of each of them. A record that isn't plain (i.e. that has
+ * extension elements or extension attributes, or that uses subclasses of the model) is stored as XML.
+ *
+ * @author Ryan Heaton
+ */
+final class RecordCodec {
+
+  static final byte PERSON = 1;
+  static final byte RELATIONSHIP = 2;
+  static final byte SOURCE_REFERENCE = 3;
+
+  static final byte FORM_BINARY = 0;
+  static final byte FORM_XML = 1;
+
+  private RecordCodec() {
+  }
+
+  /**
+   * The kind of the specified record.
+   *
+   * @param record The record.
+   * @return The kind of the record.
+   * @throws IllegalArgumentException If the record isn't a person, relationship or source reference.
+   */
+  static byte kindOf(Object record) {
+    if (record instanceof Person) {
+      return PERSON;
+    }
+    else if (record instanceof Relationship) {
+      return RELATIONSHIP;
+    }
+    else if (record instanceof SourceReference) {
+      return SOURCE_REFERENCE;
+    }
+    throw new IllegalArgumentException("Unsupported record: " + record);
+  }
+
+  /**
+   * The id of the specified record.
+   *
+   * @param record The record.
+   * @return The id of the record.
+   */
+  static String idOf(Object record) {
+    return record instanceof SourceReference ? ((SourceReference) record).getId() : ((GenealogicalResource) record).getId();
+  }
+
+  /**
+   * The persistent id of the specified record.
+   *
+   * @param record The record.
+   * @return The persistent id of the record, or null if none.
+   */
+  static String persistentIdOf(Object record) {
+    URI persistentId = record instanceof Person ? ((Person) record).getPersistentId() : null;
+    return persistentId == null ? null : persistentId.toString();
+  }
+
+  /**
+   * Encode the specified record.
+   *
+   * @param record The record.
+   * @param out The output.
+   * @param context The context used to encode records as XML.
+   * @throws IOException If the record couldn't be encoded.
+   */
+  static void encode(Object record, Output out, JAXBContext context) throws IOException {
+    byte kind = kindOf(record);
+    boolean binary = isPlain(record);
+    out.writeByte(kind);
+    out.writeByte(binary ? FORM_BINARY : FORM_XML);
+    int lengthAt = out.reserveLength();
+    out.writeString(idOf(record));
+    out.writeString(persistentIdOf(record));
+    if (!binary) {
+      out.writeBytes(toXml(record, context));
+    }
+    else if (kind == PERSON) {
+      writePerson((Person) record, out);
+    }
+    else if (kind == RELATIONSHIP) {
+      writeRelationship((Relationship) record, out);
+    }
+    else {
+      writeSourceReference((SourceReference) record, out);
+    }
+    out.writeLength(lengthAt);
+  }
+
+  /**
+   * Decode the record at the current position of the specified input.
+   *
+   * @param in The input.
+   * @param context The context used to decode records stored as XML.
+   * @return The record.
+   * @throws IOException If the record couldn't be decoded.
+   */
+  static Object decode(Input in, JAXBContext context) throws IOException {
+    int kind = in.readByte();
+    int form = in.readByte();
+    int length = in.readVarInt();
+    int end = in.position() + length;
+    String id = in.readString();
+    in.readString(); //the persistent id is derived from the identifiers.
+    if (form == FORM_XML) {
+      return fromXml(in.readBytes(end - in.position()), context);
+    }
+
+    switch (kind) {
+      case PERSON:
+        Person person = readPerson(in);
+        person.setId(id);
+        return person;
+      case RELATIONSHIP:
+        Relationship relationship = readRelationship(in);
+        relationship.setId(id);
+        return relationship;
+      case SOURCE_REFERENCE:
+        SourceReference sourceReference = readSourceReference(in);
+        sourceReference.setId(id);
+        return sourceReference;
+      default:
+        throw new IOException("Unknown record kind: " + kind);
+    }
+  }
+
+  private static void writePerson(Person person, Output out) throws IOException {
+    out.writeBoolean(person.getLiving());
+    writeAttribution(person.getAttribution(), out);
+    Gender gender = person.getGender();
+    out.writeBoolean(gender != null);
+    if (gender != null) {
+      out.writeString(gender.getId());
+      out.writeType(gender.getType());
+      writeConclusion(gender, out);
+    }
+    List<Identifier> identifiers = person.getIdentifiers();
+    out.writeCount(identifiers);
+    if (identifiers != null) {
+      for (Identifier identifier : identifiers) {
+        out.writeString(identifier.getValue());
+        out.writeType(identifier.getType());
+      }
+    }
+    List<Name> names = person.getNames();
+    out.writeCount(names);
+    if (names != null) {
+      for (Name name : names) {
+        out.writeString(name.getId());
+        out.writeType(name.getType());
+        out.writeBoolean(name.getPreferred());
+        writeConclusion(name, out);
+        out.writeBoolean(name.getPrimaryForm() != null);
+        if (name.getPrimaryForm() != null) {
+          writeNameForm(name.getPrimaryForm(), out);
+        }
+        out.writeCount(name.getAlternateForms());
+        if (name.getAlternateForms() != null) {
+          for (NameForm form : name.getAlternateForms()) {
+            writeNameForm(form, out);
+          }
+        }
+      }
+    }
+    writeFacts(person.getFacts(), out);
+    writeSources(person.getSources(), out);
+    writeNotes(person.getNotes(), out);
+  }
+
+  private static Person readPerson(Input in) throws IOException {
+    Person person = new Person();
+    person.setLiving(in.readBoolean());
+    person.setAttribution(readAttribution(in));
+    if (in.readBoolean()) {
+      Gender gender = new Gender();
+      gender.setId(in.readString());
+      gender.setType(in.readType());
+      readConclusion(gender, in);
+      person.setGender(gender);
+    }
+    int count = in.readCount();
+    if (count >= 0) {
+      List<Identifier> identifiers = new ArrayList<Identifier>(count);
+      for (int i = 0; i < count; i++) {
+        Identifier identifier = new Identifier();
+        identifier.setValue(in.readString());
+        identifier.setType(in.readType());
+        identifiers.add(identifier);
+      }
+      person.setIdentifiers(identifiers);
+    }
+    count = in.readCount();
+    if (count >= 0) {
+      List<Name> names = new ArrayList<Name>(count);
+      for (int i = 0; i < count; i++) {
+        Name name = new Name();
+        name.setId(in.readString());
+        name.setType(in.readType());
+        name.setPreferred(in.readBoolean());
+        readConclusion(name, in);
+        if (in.readBoolean()) {
+          name.setPrimaryForm(readNameForm(in));
+        }
+        int forms = in.readCount();
+        if (forms >= 0) {
+          List<NameForm> alternateForms = new ArrayList<NameForm>(forms);
+          for (int j = 0; j < forms; j++) {
+            alternateForms.add(readNameForm(in));
+          }
+          name.setAlternateForms(alternateForms);
+        }
+        names.add(name);
+      }
+      person.setNames(names);
+    }
+    person.setFacts(readFacts(in));
+    person.setSources(readSources(in));
+    person.setNotes(readNotes(in));
+    return person;
+  }
+
+  private static void writeNameForm(NameForm form, Output out) throws IOException {
+    out.writeString(form.getFullText());
+    out.writeCount(form.getParts());
+    if (form.getParts() != null) {
+      for (NamePart part : form.getParts()) {
+        out.writeType(part.getType());
+        out.writeString(part.getText());
+      }
+    }
+  }
+
+  private static NameForm readNameForm(Input in) throws IOException {
+    NameForm form = new NameForm();
+    form.setFullText(in.readString());
+    int count = in.readCount();
+    if (count >= 0) {
+      List<NamePart> parts = new ArrayList<NamePart>(count);
+      for (int i = 0; i < count; i++) {
+        NamePart part = new NamePart();
+        part.setType(in.readType());
+        part.setText(in.readString());
+        parts.add(part);
+      }
+      form.setParts(parts);
+    }
+    return form;
+  }
+
+  private static void writeFacts(List<Fact> facts, Output out) throws IOException {
+    out.writeCount(facts);
+    if (facts != null) {
+      for (Fact fact : facts) {
+        out.writeString(fact.getId());
+        out.writeType(fact.getType());
+        out.writeString(fact.getOriginal());
+        Date date = fact.getDate();
+        out.writeBoolean(date != null);
+        if (date != null) {
+          out.writeString(date.getOriginal());
+          writeFormalValue(date.getFormal(), out);
+        }
+        Place place = fact.getPlace();
+        out.writeBoolean(place != null);
+        if (place != null) {
+          out.writeString(place.getOriginal());
+          writeFormalValue(place.getFormal(), out);
+        }
+        writeFormalValue(fact.getFormal(), out);
+        writeConclusion(fact, out);
+      }
+    }
+  }
+
+  private static List<Fact> readFacts(Input in) throws IOException {
+    int count = in.readCount();
+    if (count < 0) {
+      return null;
+    }
+    List<Fact> facts = new ArrayList<Fact>(count);
+    for (int i = 0; i < count; i++) {
+      Fact fact = new Fact();
+      fact.setId(in.readString());
+      fact.setType(in.readType());
+      fact.setOriginal(in.readString());
+      if (in.readBoolean()) {
+        Date date = new Date();
+        date.setOriginal(in.readString());
+        date.setFormal(readFormalValue(in));
+        fact.setDate(date);
+      }
+      if (in.readBoolean()) {
+        Place place = new Place();
+        place.setOriginal(in.readString());
+        place.setFormal(readFormalValue(in));
+        fact.setPlace(place);
+      }
+      fact.setFormal(readFormalValue(in));
+      readConclusion(fact, in);
+      facts.add(fact);
+    }
+    return facts;
+  }
+
+  private static void writeFormalValue(FormalValue formal, Output out) throws IOException {
+    out.writeBoolean(formal != null);
+    if (formal != null) {
+      out.writeType(formal.getDatatype());
+      out.writeURI(formal.getResource());
+      out.writeString(formal.getText());
+    }
+  }
+
+  private static FormalValue readFormalValue(Input in) throws IOException {
+    if (!in.readBoolean()) {
+      return null;
+    }
+    FormalValue formal = new FormalValue();
+    formal.setDatatype(in.readType());
+    formal.setResource(in.readURI());
+    formal.setText(in.readString());
+    return formal;
+  }
+
+  private static void writeConclusion(Conclusion conclusion, Output out) throws IOException {
+    writeAttribution(conclusion.getAttribution(), out);
+    writeSources(conclusion.getSources(), out);
+  }
+
+  private static void readConclusion(Conclusion conclusion, Input in) throws IOException {
+    conclusion.setAttribution(readAttribution(in));
+    conclusion.setSources(readSources(in));
+  }
+
+  private static void writeRelationship(Relationship relationship, Output out) throws IOException {
+    out.writeType(relationship.getType());
+    writeAttribution(relationship.getAttribution(), out);
+    writeReference(relationship.getPerson1(), out);
+    writeReference(relationship.getPerson2(), out);
+    writeFacts(relationship.getFacts(), out);
+    writeSources(relationship.getSources(), out);
+    writeNotes(relationship.getNotes(), out);
+  }
+
+  private static Relationship readRelationship(Input in) throws IOException {
+    Relationship relationship = new Relationship();
+    relationship.setType(in.readType());
+    relationship.setAttribution(readAttribution(in));
+    relationship.setPerson1(readReference(in));
+    relationship.setPerson2(readReference(in));
+    relationship.setFacts(readFacts(in));
+    relationship.setSources(readSources(in));
+    relationship.setNotes(readNotes(in));
+    return relationship;
+  }
+
+  private static void writeSources(List<SourceReference> sources, Output out) throws IOException {
+    out.writeCount(sources);
+    if (sources != null) {
+      for (SourceReference source : sources) {
+        out.writeString(source.getId());
+        writeSourceReference(source, out);
+      }
+    }
+  }
+
+  private static List<SourceReference> readSources(Input in) throws IOException {
+    int count = in.readCount();
+    if (count < 0) {
+      return null;
+    }
+    List<SourceReference> sources = new ArrayList<SourceReference>(count);
+    for (int i = 0; i < count; i++) {
+      String id = in.readString();
+      SourceReference source = readSourceReference(in);
+      source.setId(id);
+      sources.add(source);
+    }
+    return sources;
+  }
+
+  private static void writeSourceReference(SourceReference sourceReference, Output out) throws IOException {
+    out.writeType(sourceReference.getType());
+    out.writeURI(sourceReference.getResource());
+    writeReference(sourceReference.getDescription(), out);
+    writeAttribution(sourceReference.getAttribution(), out);
+  }
+
+  private static SourceReference readSourceReference(Input in) throws IOException {
+    SourceReference sourceReference = new SourceReference();
+    sourceReference.setType(in.readType());
+    sourceReference.setResource(in.readURI());
+    sourceReference.setDescription(readReference(in));
+    sourceReference.setAttribution(readAttribution(in));
+    return sourceReference;
+  }
+
+  private static void writeNotes(List<Note> notes, Output out) throws IOException {
+    out.writeCount(notes);
+    if (notes != null) {
+      for (Note note : notes) {
+        out.writeString(note.getId());
+        out.writeString(note.getLang());
+        out.writeString(note.getText());
+        writeAttribution(note.getAttribution(), out);
+      }
+    }
+  }
+
+  private static List<Note> readNotes(Input in) throws IOException {
+    int count = in.readCount();
+    if (count < 0) {
+      return null;
+    }
+    List<Note> notes = new ArrayList<Note>(count);
+    for (int i = 0; i < count; i++) {
+      Note note = new Note();
+      note.setId(in.readString());
+      note.setLang(in.readString());
+      note.setText(in.readString());
+      note.setAttribution(readAttribution(in));
+      notes.add(note);
+    }
+    return notes;
+  }
+
+  private static void writeAttribution(Attribution attribution, Output out) throws IOException {
+    out.writeBoolean(attribution != null);
+    if (attribution != null) {
+      writeReference(attribution.getContributor(), out);
+      TypeReference<ConfidenceLevel> confidence = attribution.getConfidence();
+      out.writeBoolean(confidence != null);
+      if (confidence != null) {
+        out.writeType(confidence.getType());
+      }
+      java.util.Date modified = attribution.getModified();
+      out.writeBoolean(modified != null);
+      if (modified != null) {
+        out.writeSignedVarLong(modified.getTime());
+      }
+      out.writeString(attribution.getProofStatement());
+    }
+  }
+
+  private static Attribution readAttribution(Input in) throws IOException {
+    if (!in.readBoolean()) {
+      return null;
+    }
+    Attribution attribution = new Attribution();
+    attribution.setContributor(readReference(in));
+    if (in.readBoolean()) {
+      attribution.setConfidence(new TypeReference<ConfidenceLevel>(in.readType()));
+    }
+    if (in.readBoolean()) {
+      attribution.setModified(new java.util.Date(in.readSignedVarLong()));
+    }
+    attribution.setProofStatement(in.readString());
+    return attribution;
+  }
+
+  private static void writeReference(ResourceReference reference, Output out) throws IOException {
+    out.writeBoolean(reference != null);
+    if (reference != null) {
+      out.writeURI(reference.getResource());
+    }
+  }
+
+  private static ResourceReference readReference(Input in) throws IOException {
+    return in.readBoolean() ? new ResourceReference(in.readURI()) : null;
+  }
+
+  private static byte[] toXml(Object record, JAXBContext context) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try {
+      Marshaller marshaller = JAXBContextRegistry.acquireMarshaller(context);
+      try {
+        marshaller.marshal(record, out);
+      }
+      finally {
+        JAXBContextRegistry.releaseMarshaller(context, marshaller);
+      }
+    }
+    catch (JAXBException e) {
+      throw new IOException("Unable to encode " + record + ": " + e.getMessage());
+    }
+    return out.toByteArray();
+  }
+
+  private static Object fromXml(byte[] xml, JAXBContext context) throws IOException {
+    try {
+      Unmarshaller unmarshaller = JAXBContextRegistry.acquireUnmarshaller(context);
+      try {
+        Object record = unmarshaller.unmarshal(new ByteArrayInputStream(xml));
+        return record instanceof JAXBElement ? ((JAXBElement) record).getValue() : record;
+      }
+      finally {
+        JAXBContextRegistry.releaseUnmarshaller(context, unmarshaller);
+      }
+    }
+    catch (JAXBException e) {
+      throw new IOException("Unable to decode a record: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Whether the binary form holds everything of a record.
+   */
+  private static boolean isPlain(Object record) {
+    if (record instanceof Person) {
+      return PlainModel.isPlain((Person) record);
+    }
+    else if (record instanceof Relationship) {
+      return PlainModel.isPlain((Relationship) record);
+    }
+    return PlainModel.isPlain((SourceReference) record);
+  }
+
+  /**
+   * The output to which records are encoded: an output of the binary format to memory, with the dictionary of the type URIs
+   * of the records.
+   */
+  static final class Output extends BinaryOutput {
+
+    private final Map<URI, Integer> codes = new HashMap<URI, Integer>();
+    private final List<URI> dictionary = new ArrayList<URI>();
+
+    /**
+     * The type URIs of the dictionary of the output, in the order of their codes.
+     *
+     * @return The type URIs.
+     */
+    List<URI> getDictionary() {
+      return dictionary;
+    }
+
+    void writeCount(List<?> items) throws IOException {
+      writeCount(items == null ? -1 : items.size());
+    }
+
+    void writeURI(URI value) throws IOException {
+      writeString(value == null ? null : value.toString());
+    }
+
+    void writeType(URI type) throws IOException {
+      if (type == null) {
+        writeVarLong(0);
+        return;
+      }
+      Integer code = this.codes.get(type);
+      if (code == null) {
+        code = this.dictionary.size();
+        this.dictionary.add(type);
+        this.codes.put(type, code);
+      }
+      writeVarLong(code + 1L);
+    }
+  }
+
+  /**
+   * The input from which records are decoded: an input of the binary format from a buffer, with the dictionary of the type
+   * URIs of the records.
+   */
+  static final class Input extends BinaryInput {
+
+    private final URI[] dictionary;
+
+    Input(ByteBuffer buffer, URI[] dictionary) {
+      super(buffer);
+      this.dictionary = dictionary;
+    }
+
+    URI readURI() throws IOException {
+      String value = readString();
+      return value == null ? null : URI.create(value);
+    }
+
+    URI readType() throws IOException {
+      int code = readVarInt();
+      if (code > this.dictionary.length) {
+        throw new IOException("Unknown type code: " + code);
+      }
+      return code == 0 ? null : this.dictionary[code - 1];
+    }
+  }
+}
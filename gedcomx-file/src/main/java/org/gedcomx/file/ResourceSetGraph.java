@@ -0,0 +1,317 @@
+/**
+ * Copyright 2011-2012 Intellectual Reserve, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gedcomx.file;
+
+import org.gedcomx.common.GenealogicalResource;
+import org.gedcomx.common.ResourceReference;
+import org.gedcomx.common.ResourceSet;
+import org.gedcomx.common.URI;
+import org.gedcomx.conclusion.Event;
+import org.gedcomx.conclusion.Person;
+import org.gedcomx.conclusion.ReferencesSources;
+import org.gedcomx.conclusion.Relationship;
+import org.gedcomx.conclusion.SourceReference;
+import org.gedcomx.metadata.rdf.Description;
+
+import java.net.URISyntaxException;
+import java.util.*;
+
+/**
+ * A graph view of a {@link ResourceSet}, used to resolve the references between the resources of the set and to traverse
+ * them. The ids of the resources of the set (and of the conclusions of its persons and relationships) and the
+ * {@link Description#getAbout() subjects} of its descriptions are indexed once, when the graph is created, so that a
+ * reference (e.g. "#id", or a URI relative to the base URI of the set) is resolved with a hash lookup. The relationships of
+ * each person are indexed too.<br/><br/>
+ *
+ * A graph of a resource set read from a GEDCOM X file is usually created with the URI of its entry as the base URI, so that
+ * references relative to the entry are resolved. The graph is a snapshot: changes to the resource set after the graph is
+ * created aren't reflected by the graph.
+ *
+ * @author Ryan Heaton
+ */
+public class ResourceSetGraph {
+
+  private final java.net.URI base;
+  private final String baseDocument;
+  private final Map<String, Object> resourcesById = new HashMap<String, Object>();
+  private final Map<String, Object> resourcesByAbout = new HashMap<String, Object>();
+  private final List<Person> persons = new ArrayList<Person>();
+  private final List<Relationship> relationships = new ArrayList<Relationship>();
+  private final Map<Object, List<Relationship>> relationshipsByPerson = new IdentityHashMap<Object, List<Relationship>>();
+
+  /**
+   * Create a graph of the specified resource set.
+   *
+   * @param resourceSet The resource set.
+   */
+  public ResourceSetGraph(ResourceSet resourceSet) {
+    this(resourceSet, null);
+  }
+
+  /**
+   * Create a graph of the specified resource set.
+   *
+   * @param resourceSet The resource set.
+   * @param base The base URI of the resource set (i.e. the URI of the document), against which relative references are
+   *             resolved, or null if references are resolved only by fragment id or by subject.
+   */
+  public ResourceSetGraph(ResourceSet resourceSet, URI base) {
+    this.base = base == null ? null : base.toURI();
+    this.baseDocument = this.base == null ? null : stripFragment(this.base.toString());
+    index(resourceSet);
+
+    for (Relationship relationship : this.relationships) {
+      Object person1 = resolve(relationship.getPerson1());
+      Object person2 = resolve(relationship.getPerson2());
+      addRelationship(person1, relationship);
+      if (person2 != person1) {
+        addRelationship(person2, relationship);
+      }
+    }
+  }
+
+  private void index(ResourceSet resourceSet) {
+    if (resourceSet.getId() != null && !this.resourcesById.containsKey(resourceSet.getId())) {
+      this.resourcesById.put(resourceSet.getId(), resourceSet);
+    }
+
+    List<Object> elements = resourceSet.getExtensionElements();
+    if (elements == null) {
+      return;
+    }
+
+    for (Object element : elements) {
+      if (element instanceof ResourceSet) {
+        index((ResourceSet) element);
+      }
+      else if (element instanceof Description) {
+        Description description = (Description) element;
+        indexId(description.getId(), description);
+        if (description.getAbout() != null) {
+          String about = description.getAbout().toString();
+          if (!this.resourcesByAbout.containsKey(about)) {
+            this.resourcesByAbout.put(about, description);
+          }
+          String absolute = toAbsolute(about);
+          if (absolute != null && !this.resourcesByAbout.containsKey(absolute)) {
+            this.resourcesByAbout.put(absolute, description);
+          }
+        }
+      }
+      else if (element instanceof GenealogicalResource) {
+        indexResource((GenealogicalResource) element);
+        if (element instanceof Person) {
+          Person person = (Person) element;
+          this.persons.add(person);
+          indexResource(person.getGender());
+          indexResources(person.getNames());
+          indexResources(person.getFacts());
+        }
+        else if (element instanceof Relationship) {
+          Relationship relationship = (Relationship) element;
+          this.relationships.add(relationship);
+          indexResources(relationship.getFacts());
+        }
+        else if (element instanceof Event) {
+          indexResources(((Event) element).getRoles());
+        }
+      }
+    }
+  }
+
+  private void indexResources(List<? extends GenealogicalResource> resources) {
+    if (resources != null) {
+      for (GenealogicalResource resource : resources) {
+        indexResource(resource);
+      }
+    }
+  }
+
+  private void indexResource(GenealogicalResource resource) {
+    if (resource != null) {
+      indexId(resource.getId(), resource);
+    }
+  }
+
+  private void indexId(String id, Object resource) {
+    if (id != null && !this.resourcesById.containsKey(id)) {
+      this.resourcesById.put(id, resource);
+    }
+  }
+
+  private void addRelationship(Object person, Relationship relationship) {
+    if (person != null) {
+      List<Relationship> relationships = this.relationshipsByPerson.get(person);
+      if (relationships == null) {
+        relationships = new ArrayList<Relationship>(2);
+        this.relationshipsByPerson.put(person, relationships);
+      }
+      relationships.add(relationship);
+    }
+  }
+
+  /**
+   * The resource with the specified id.
+   *
+   * @param id The id.
+   * @return The resource, or null if none.
+   */
+  public Object getResource(String id) {
+    return this.resourcesById.get(id);
+  }
+
+  /**
+   * The persons of the resource set.
+   *
+   * @return The persons of the resource set.
+   */
+  public List<Person> getPersons() {
+    return Collections.unmodifiableList(this.persons);
+  }
+
+  /**
+   * The relationships of the resource set.
+   *
+   * @return The relationships of the resource set.
+   */
+  public List<Relationship> getRelationships() {
+    return Collections.unmodifiableList(this.relationships);
+  }
+
+  /**
+   * The relationships of the resource set that reference the specified person.
+   *
+   * @param person The person.
+   * @return The relationships that reference the person, possibly empty but not null.
+   */
+  public List<Relationship> getRelationships(Person person) {
+    List<Relationship> relationships = this.relationshipsByPerson.get(person);
+    return relationships == null ? Collections.<Relationship>emptyList() : Collections.unmodifiableList(relationships);
+  }
+
+  /**
+   * The persons related to the specified person (i.e. the other persons of the relationships that reference the person).
+   *
+   * @param person The person.
+   * @return The related persons, possibly empty but not null.
+   */
+  public List<Person> getRelatedPersons(Person person) {
+    List<Person> related = new ArrayList<Person>();
+    for (Relationship relationship : getRelationships(person)) {
+      Person person1 = resolve(relationship.getPerson1(), Person.class);
+      Person other = person1 == person ? resolve(relationship.getPerson2(), Person.class) : person1;
+      if (other != null && other != person) {
+        related.add(other);
+      }
+    }
+    return related;
+  }
+
+  /**
+   * The resources (usually descriptions) referenced as sources of the specified conclusion. A source reference is resolved
+   * by its resource, or by its description if its resource isn't in the resource set. Source references that can't be
+   * resolved are skipped.
+   *
+   * @param conclusion The conclusion.
+   * @return The sources, possibly empty but not null.
+   */
+  public List<Object> getSources(ReferencesSources conclusion) {
+    List<Object> sources = new ArrayList<Object>();
+    if (conclusion.getSources() != null) {
+      for (SourceReference reference : conclusion.getSources()) {
+        Object source = resolve(reference.getResource());
+        if (source == null) {
+          source = resolve(reference.getDescription());
+        }
+        if (source != null) {
+          sources.add(source);
+        }
+      }
+    }
+    return sources;
+  }
+
+  /**
+   * Resolve a reference to a resource of the resource set.
+   *
+   * @param reference The reference.
+   * @return The resource, or null if the reference can't be resolved.
+   */
+  public Object resolve(ResourceReference reference) {
+    return reference == null ? null : resolve(reference.getResource());
+  }
+
+  /**
+   * Resolve a reference to a resource of the resource set.
+   *
+   * @param reference The reference.
+   * @param type The type of the resource.
+   * @return The resource, or null if the reference can't be resolved to a resource of the specified type.
+   */
+  public <T> T resolve(ResourceReference reference, Class<T> type) {
+    Object resource = resolve(reference);
+    return type.isInstance(resource) ? type.cast(resource) : null;
+  }
+
+  /**
+   * Resolve a URI to a resource of the resource set.
+   *
+   * @param uri The URI.
+   * @return The resource, or null if the URI can't be resolved.
+   */
+  public Object resolve(URI uri) {
+    if (uri == null) {
+      return null;
+    }
+
+    String value = uri.toString();
+    Object resource = this.resourcesByAbout.get(value);
+    if (resource == null) {
+      if (value.startsWith("#")) {
+        resource = this.resourcesById.get(value.substring(1));
+      }
+      else {
+        String absolute = toAbsolute(value);
+        if (absolute != null) {
+          resource = this.resourcesByAbout.get(absolute);
+          int hash = absolute.indexOf('#');
+          if (resource == null && hash >= 0 && absolute.substring(0, hash).equals(this.baseDocument)) {
+            resource = this.resourcesById.get(absolute.substring(hash + 1));
+          }
+        }
+      }
+    }
+    return resource;
+  }
+
+  private String toAbsolute(String value) {
+    if (this.base == null) {
+      return null;
+    }
+
+    try {
+      return this.base.resolve(new java.net.URI(value)).toString();
+    }
+    catch (URISyntaxException e) {
+      return null;
+    }
+  }
+
+  private static String stripFragment(String uri) {
+    int hash = uri.indexOf('#');
+    return hash < 0 ? uri : uri.substring(0, hash);
+  }
+}
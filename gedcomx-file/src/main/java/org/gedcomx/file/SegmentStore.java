@@ -0,0 +1,441 @@
+/**
+ * Copyright 2011-2012 Intellectual Reserve, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gedcomx.file;
+
+import org.gedcomx.common.URI;
+import org.gedcomx.conclusion.Person;
+import org.gedcomx.conclusion.Relationship;
+import org.gedcomx.conclusion.SourceReference;
+import org.gedcomx.rt.JAXBContextRegistry;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A persistent, append-only store of persons, relationships and source references, kept in a directory of memory-mapped
+ * segments. Opening a store only maps its segments; records are decoded when they are looked up, and the primary indexes
+ * on the id of the records and on the {@link Person#getPersistentId() persistent id} of the persons are hash tables that are
+ * probed in place.<br/><br/>
+ *
+ * Records are appended with a {@link SegmentWriter}, which writes new segments that are added to the store when they are
+ * sealed; segments are never modified once written. A record shadows the records of the same id (or persistent id) in
+ * older segments, so a record is updated by appending it again.<br/><br/>
+ *
+ * Each segment is a data file (<code>nnnnnnnn.seg</code>) of the records encoded as described by {@link RecordCodec},
+ * followed by the dictionary of the type URIs of the segment, and an index file (<code>nnnnnnnn.idx</code>) holding the
+ * open-addressed hash tables of the record offsets by id and by persistent id. A segment is written to temporary files that
+ * are renamed when it is sealed, the index last, so a segment without an index file is ignored.<br/><br/>
+ *
+ * Lookups are thread-safe. The mapped segments are released by the garbage collector, not by {@link #close()}.
+ *
+ * @author Ryan Heaton
+ */
+public class SegmentStore implements Closeable {
+
+  static final int DATA_MAGIC = 0x47585344; //"GXSD"
+  static final int INDEX_MAGIC = 0x47585349; //"GXSI"
+  static final int VERSION = 3;
+  static final int DATA_HEADER_LENGTH = 16;
+  static final int INDEX_HEADER_LENGTH = 16;
+  static final int SLOT_LENGTH = 8;
+  static final String DATA_SUFFIX = ".seg";
+  static final String INDEX_SUFFIX = ".idx";
+
+  private static final Pattern SEGMENT_NAME = Pattern.compile("(\\d{8})\\" + DATA_SUFFIX);
+
+  private final File directory;
+  private final JAXBContext context;
+  private volatile Segment[] segments;
+  private SegmentWriter writer;
+  private boolean closed = false;
+
+  /**
+   * Open (or create) the store in the specified directory.
+   *
+   * @param directory The directory.
+   * @throws IOException If the store couldn't be opened.
+   * @throws JAXBException If the JAXB context couldn't be created.
+   */
+  public SegmentStore(File directory) throws IOException, JAXBException {
+    if (!directory.isDirectory() && !directory.mkdirs()) {
+      throw new IOException("Unable to create directory " + directory + ".");
+    }
+    this.directory = directory;
+    this.context = JAXBContextRegistry.getContext(Person.class, Relationship.class, SourceReference.class);
+
+    List<Integer> numbers = new ArrayList<Integer>();
+    File[] files = directory.listFiles();
+    if (files != null) {
+      for (File file : files) {
+        Matcher matcher = SEGMENT_NAME.matcher(file.getName());
+        if (matcher.matches() && indexFile(directory, Integer.parseInt(matcher.group(1))).isFile()) {
+          numbers.add(Integer.parseInt(matcher.group(1)));
+        }
+      }
+    }
+    int[] sorted = new int[numbers.size()];
+    for (int i = 0; i < sorted.length; i++) {
+      sorted[i] = numbers.get(i);
+    }
+    Arrays.sort(sorted);
+
+    Segment[] segments = new Segment[sorted.length];
+    try {
+      for (int i = 0; i < sorted.length; i++) {
+        segments[i] = new Segment(sorted[i], dataFile(directory, sorted[i]), indexFile(directory, sorted[i]));
+      }
+    }
+    catch (IOException e) {
+      for (Segment segment : segments) {
+        if (segment != null) {
+          segment.close();
+        }
+      }
+      throw e;
+    }
+    this.segments = segments;
+  }
+
+  /**
+   * The directory of the store.
+   *
+   * @return The directory of the store.
+   */
+  public File getDirectory() {
+    return directory;
+  }
+
+  /**
+   * The number of segments of the store.
+   *
+   * @return The number of segments of the store.
+   */
+  public int getSegmentCount() {
+    return this.segments.length;
+  }
+
+  /**
+   * The number of records in the store, including the records that are shadowed by newer records.
+   *
+   * @return The number of records in the store.
+   */
+  public long size() {
+    long size = 0;
+    for (Segment segment : this.segments) {
+      size += segment.recordCount;
+    }
+    return size;
+  }
+
+  /**
+   * Get the record of the specified id.
+   *
+   * @param id The id.
+   * @return The person, relationship or source reference, or null if none.
+   * @throws IOException If the record couldn't be read.
+   */
+  public Object get(String id) throws IOException {
+    return find(id, false, (byte) 0);
+  }
+
+  /**
+   * Get the person of the specified id.
+   *
+   * @param id The id.
+   * @return The person, or null if none.
+   * @throws IOException If the person couldn't be read.
+   */
+  public Person getPerson(String id) throws IOException {
+    return (Person) find(id, false, RecordCodec.PERSON);
+  }
+
+  /**
+   * Get the person of the specified persistent id.
+   *
+   * @param persistentId The persistent id.
+   * @return The person, or null if none.
+   * @throws IOException If the person couldn't be read.
+   */
+  public Person getPersonByPersistentId(URI persistentId) throws IOException {
+    return persistentId == null ? null : (Person) find(persistentId.toString(), true, RecordCodec.PERSON);
+  }
+
+  /**
+   * Get the relationship of the specified id.
+   *
+   * @param id The id.
+   * @return The relationship, or null if none.
+   * @throws IOException If the relationship couldn't be read.
+   */
+  public Relationship getRelationship(String id) throws IOException {
+    return (Relationship) find(id, false, RecordCodec.RELATIONSHIP);
+  }
+
+  /**
+   * Get the source reference of the specified id.
+   *
+   * @param id The id.
+   * @return The source reference, or null if none.
+   * @throws IOException If the source reference couldn't be read.
+   */
+  public SourceReference getSourceReference(String id) throws IOException {
+    return (SourceReference) find(id, false, RecordCodec.SOURCE_REFERENCE);
+  }
+
+  /**
+   * Open a writer that appends segments to the store. Only one writer can be open at a time.
+   *
+   * @return The writer.
+   * @throws IllegalStateException If a writer is already open.
+   */
+  public SegmentWriter openWriter() {
+    return openWriter(SegmentWriter.DEFAULT_MAX_SEGMENT_SIZE);
+  }
+
+  /**
+   * Open a writer that appends segments to the store. Only one writer can be open at a time.
+   *
+   * @param maxSegmentSize The size at which the writer starts a new segment.
+   * @return The writer.
+   * @throws IllegalStateException If a writer is already open.
+   */
+  public synchronized SegmentWriter openWriter(long maxSegmentSize) {
+    if (this.closed) {
+      throw new IllegalStateException("The store is closed.");
+    }
+    if (this.writer != null) {
+      throw new IllegalStateException("A writer is already open.");
+    }
+    Segment[] segments = this.segments;
+    int next = segments.length == 0 ? 0 : segments[segments.length - 1].number + 1;
+    this.writer = new SegmentWriter(this, next, maxSegmentSize);
+    return this.writer;
+  }
+
+  public synchronized void close() throws IOException {
+    this.closed = true;
+    for (Segment segment : this.segments) {
+      segment.close();
+    }
+  }
+
+  JAXBContext getContext() {
+    return context;
+  }
+
+  synchronized void addSegment(int number) throws IOException {
+    Segment segment = new Segment(number, dataFile(this.directory, number), indexFile(this.directory, number));
+    Segment[] segments = Arrays.copyOf(this.segments, this.segments.length + 1);
+    segments[segments.length - 1] = segment;
+    this.segments = segments;
+  }
+
+  synchronized void writerClosed(SegmentWriter writer) {
+    if (this.writer == writer) {
+      this.writer = null;
+    }
+  }
+
+  static File dataFile(File directory, int number) {
+    return new File(directory, String.format("%08d", number) + DATA_SUFFIX);
+  }
+
+  static File indexFile(File directory, int number) {
+    return new File(directory, String.format("%08d", number) + INDEX_SUFFIX);
+  }
+
+  /**
+   * The hash of a key in the index tables.
+   *
+   * @param key The key.
+   * @return The hash.
+   */
+  static int hash(String key) {
+    int h = key.hashCode();
+    return h ^ (h >>> 16);
+  }
+
+  private Object find(String key, boolean persistent, byte kind) throws IOException {
+    if (key == null) {
+      return null;
+    }
+
+    Segment[] segments = this.segments;
+    int hash = hash(key);
+    for (int i = segments.length - 1; i >= 0; i--) {
+      for (int skip = 0; ; skip++) {
+        int offset = segments[i].find(key, hash, persistent, kind, skip);
+        if (offset <= 0) {
+          break;
+        }
+        //a person found by its persistent id may have been updated since (with another persistent id).
+        if (!persistent || isCurrent(segments, i, offset)) {
+          return segments[i].read(offset, this.context);
+        }
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Whether the record at the specified offset of a segment is the current record of its id, i.e. it isn't shadowed by a
+   * newer record of the same id.
+   *
+   * @param segments The segments.
+   * @param segment The index of the segment of the record.
+   * @param offset The offset of the record.
+   * @return Whether the record is current.
+   */
+  private boolean isCurrent(Segment[] segments, int segment, int offset) throws IOException {
+    String id = segments[segment].idAt(offset);
+    if (id == null) {
+      return true;
+    }
+
+    int hash = hash(id);
+    for (int i = segments.length - 1; i >= segment; i--) {
+      int found = segments[i].find(id, hash, false, (byte) 0, 0);
+      if (found > 0) {
+        return i == segment && found == offset;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * A mapped segment.
+   */
+  private static final class Segment {
+
+    private final int number;
+    private final RandomAccessFile dataFile;
+    private final RandomAccessFile indexFile;
+    private final MappedByteBuffer data;
+    private final MappedByteBuffer index;
+    private final int recordCount;
+    private final int dictionaryOffset;
+    private final int idCapacity;
+    private final int persistentIdCapacity;
+    private volatile URI[] dictionary;
+
+    private Segment(int number, File dataFile, File indexFile) throws IOException {
+      this.number = number;
+      this.dataFile = new RandomAccessFile(dataFile, "r");
+      try {
+        this.indexFile = new RandomAccessFile(indexFile, "r");
+        try {
+          this.data = this.dataFile.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, this.dataFile.length());
+          this.index = this.indexFile.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, this.indexFile.length());
+          if (this.data.limit() < DATA_HEADER_LENGTH || this.data.getInt(0) != DATA_MAGIC || this.data.getInt(4) != VERSION) {
+            throw new IOException("Invalid segment " + dataFile + ".");
+          }
+          if (this.index.limit() < INDEX_HEADER_LENGTH || this.index.getInt(0) != INDEX_MAGIC || this.index.getInt(4) != VERSION) {
+            throw new IOException("Invalid segment index " + indexFile + ".");
+          }
+          this.recordCount = this.data.getInt(8);
+          this.dictionaryOffset = this.data.getInt(12);
+          this.idCapacity = this.index.getInt(8);
+          this.persistentIdCapacity = this.index.getInt(12);
+        }
+        catch (IOException e) {
+          this.indexFile.close();
+          throw e;
+        }
+      }
+      catch (IOException e) {
+        this.dataFile.close();
+        throw e;
+      }
+    }
+
+    private int find(String key, int hash, boolean persistent, byte kind, int skip) throws IOException {
+      int capacity = persistent ? this.persistentIdCapacity : this.idCapacity;
+      int tableOffset = INDEX_HEADER_LENGTH + (persistent ? this.idCapacity * SLOT_LENGTH : 0);
+      int mask = capacity - 1;
+      for (int slot = hash & mask, probes = 0; probes < capacity; slot = (slot + 1) & mask, probes++) {
+        int position = tableOffset + slot * SLOT_LENGTH;
+        int offset = this.index.getInt(position + 4);
+        if (offset == 0) {
+          return -1;
+        }
+        if (this.index.getInt(position) == hash) {
+          RecordCodec.Input in = new RecordCodec.Input(at(offset), null);
+          int recordKind = in.readByte();
+          in.readByte();
+          in.readVarInt();
+          String id = in.readString();
+          String persistentId = in.readString();
+          if (key.equals(persistent ? persistentId : id) && (kind == 0 || kind == recordKind) && skip-- == 0) {
+            return offset;
+          }
+        }
+      }
+      return -1;
+    }
+
+    private String idAt(int offset) throws IOException {
+      RecordCodec.Input in = new RecordCodec.Input(at(offset), null);
+      in.readByte();
+      in.readByte();
+      in.readVarInt();
+      return in.readString();
+    }
+
+    private Object read(int offset, JAXBContext context) throws IOException {
+      return RecordCodec.decode(new RecordCodec.Input(at(offset), getDictionary()), context);
+    }
+
+    private URI[] getDictionary() throws IOException {
+      URI[] dictionary = this.dictionary;
+      if (dictionary == null) {
+        RecordCodec.Input in = new RecordCodec.Input(at(this.dictionaryOffset), null);
+        dictionary = new URI[in.readVarInt()];
+        for (int i = 0; i < dictionary.length; i++) {
+          dictionary[i] = URI.create(in.readString());
+        }
+        this.dictionary = dictionary;
+      }
+      return dictionary;
+    }
+
+    private ByteBuffer at(int offset) {
+      ByteBuffer buffer = this.data.duplicate();
+      buffer.position(offset);
+      return buffer;
+    }
+
+    private void close() throws IOException {
+      try {
+        this.dataFile.close();
+      }
+      finally {
+        this.indexFile.close();
+      }
+    }
+  }
+}
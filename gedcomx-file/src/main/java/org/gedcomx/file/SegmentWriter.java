@@ -0,0 +1,276 @@
+/**
+ * Copyright 2011-2012 Intellectual Reserve, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gedcomx.file;
+
+import org.gedcomx.common.URI;
+import org.gedcomx.conclusion.Person;
+import org.gedcomx.conclusion.Relationship;
+import org.gedcomx.conclusion.SourceReference;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A writer that appends segments to a {@link SegmentStore}. The records are written to a new segment that is sealed (and
+ * added to the store) when the writer is flushed or closed, or when the segment reaches the maximum segment size, in which
+ * case the writer goes on with another segment. The records of a segment aren't visible to the store until the segment is
+ * sealed.<br/><br/>
+ *
+ * The writer isn't thread-safe; the records must be added by one thread.
+ *
+ * @author Ryan Heaton
+ */
+public class SegmentWriter implements Closeable {
+
+  /**
+   * The default size at which a writer starts a new segment.
+   */
+  public static final long DEFAULT_MAX_SEGMENT_SIZE = 1L << 30;
+
+  private final SegmentStore store;
+  private final int maxSegmentSize;
+  private int number;
+  private OpenSegment segment;
+  private boolean closed = false;
+
+  SegmentWriter(SegmentStore store, int number, long maxSegmentSize) {
+    this.store = store;
+    this.number = number;
+    this.maxSegmentSize = (int) Math.min(Math.max(maxSegmentSize, SegmentStore.DATA_HEADER_LENGTH), Integer.MAX_VALUE);
+  }
+
+  /**
+   * Add a person.
+   *
+   * @param person The person.
+   * @throws IOException If the person couldn't be written.
+   */
+  public void add(Person person) throws IOException {
+    addRecord(person);
+  }
+
+  /**
+   * Add a relationship.
+   *
+   * @param relationship The relationship.
+   * @throws IOException If the relationship couldn't be written.
+   */
+  public void add(Relationship relationship) throws IOException {
+    addRecord(relationship);
+  }
+
+  /**
+   * Add a source reference.
+   *
+   * @param sourceReference The source reference.
+   * @throws IOException If the source reference couldn't be written.
+   */
+  public void add(SourceReference sourceReference) throws IOException {
+    addRecord(sourceReference);
+  }
+
+  /**
+   * Seal the segment being written, making its records visible to the store.
+   *
+   * @throws IOException If the segment couldn't be sealed.
+   */
+  public void flush() throws IOException {
+    if (this.segment != null) {
+      OpenSegment segment = this.segment;
+      this.segment = null;
+      segment.seal();
+      this.store.addSegment(segment.number);
+    }
+  }
+
+  /**
+   * Seal the segment being written and close the writer.
+   *
+   * @throws IOException If the segment couldn't be sealed.
+   */
+  public void close() throws IOException {
+    if (!this.closed) {
+      this.closed = true;
+      try {
+        flush();
+      }
+      finally {
+        this.store.writerClosed(this);
+      }
+    }
+  }
+
+  private void addRecord(Object record) throws IOException {
+    if (this.closed) {
+      throw new IllegalStateException("The writer is closed.");
+    }
+    if (record == null) {
+      throw new IllegalArgumentException("A record must be provided.");
+    }
+
+    if (this.segment == null) {
+      this.segment = new OpenSegment(this.number++);
+    }
+    RecordCodec.Output out = this.segment.output;
+    out.reset();
+    RecordCodec.encode(record, out, this.store.getContext());
+    if (this.segment.recordCount > 0 && (long) this.segment.position + out.size() > this.maxSegmentSize) {
+      flush();
+      this.segment = new OpenSegment(this.number++);
+      out = this.segment.output;
+      RecordCodec.encode(record, out, this.store.getContext());
+    }
+    else if ((long) this.segment.position + out.size() > Integer.MAX_VALUE) {
+      throw new IOException("Record too large for a segment.");
+    }
+    this.segment.write(record);
+  }
+
+  /**
+   * A segment being written.
+   */
+  private final class OpenSegment {
+
+    private final int number;
+    private final File dataFile;
+    private final File indexFile;
+    private final RandomAccessFile file;
+    private final OutputStream stream;
+    private final RecordCodec.Output output = new RecordCodec.Output();
+    private final IntList idHashes = new IntList();
+    private final IntList idOffsets = new IntList();
+    private final IntList persistentIdHashes = new IntList();
+    private final IntList persistentIdOffsets = new IntList();
+    private int position = SegmentStore.DATA_HEADER_LENGTH;
+    private int recordCount = 0;
+
+    private OpenSegment(int number) throws IOException {
+      this.number = number;
+      this.dataFile = SegmentStore.dataFile(store.getDirectory(), number);
+      this.indexFile = SegmentStore.indexFile(store.getDirectory(), number);
+      this.file = new RandomAccessFile(temporary(this.dataFile), "rw");
+      this.file.setLength(0);
+      this.stream = new BufferedOutputStream(new FileOutputStream(this.file.getFD()), 64 * 1024);
+      //the header is written when the segment is sealed.
+      this.stream.write(new byte[SegmentStore.DATA_HEADER_LENGTH]);
+    }
+
+    private void write(Object record) throws IOException {
+      String id = RecordCodec.idOf(record);
+      if (id != null) {
+        this.idHashes.add(SegmentStore.hash(id));
+        this.idOffsets.add(this.position);
+      }
+      String persistentId = RecordCodec.persistentIdOf(record);
+      if (persistentId != null) {
+        this.persistentIdHashes.add(SegmentStore.hash(persistentId));
+        this.persistentIdOffsets.add(this.position);
+      }
+      this.stream.write(this.output.bytes(), 0, this.output.size());
+      this.position += this.output.size();
+      this.recordCount++;
+    }
+
+    private void seal() throws IOException {
+      try {
+        //the dictionary of the type URIs follows the records.
+        List<URI> dictionary = this.output.getDictionary();
+        this.output.reset();
+        this.output.writeVarLong(dictionary.size());
+        for (URI uri : dictionary) {
+          this.output.writeString(uri.toString());
+        }
+        this.stream.write(this.output.bytes(), 0, this.output.size());
+        this.stream.flush();
+
+        ByteBuffer header = ByteBuffer.allocate(SegmentStore.DATA_HEADER_LENGTH);
+        header.putInt(SegmentStore.DATA_MAGIC).putInt(SegmentStore.VERSION).putInt(this.recordCount).putInt(this.position);
+        header.flip();
+        while (header.hasRemaining()) {
+          this.file.getChannel().write(header, header.position());
+        }
+        this.file.getFD().sync();
+      }
+      finally {
+        this.file.close();
+      }
+      rename(temporary(this.dataFile), this.dataFile);
+
+      int idCapacity = capacity(this.idOffsets.size);
+      int persistentIdCapacity = capacity(this.persistentIdOffsets.size);
+      ByteBuffer index = ByteBuffer.allocate(SegmentStore.INDEX_HEADER_LENGTH + (idCapacity + persistentIdCapacity) * SegmentStore.SLOT_LENGTH);
+      index.putInt(SegmentStore.INDEX_MAGIC).putInt(SegmentStore.VERSION).putInt(idCapacity).putInt(persistentIdCapacity);
+      fill(index, SegmentStore.INDEX_HEADER_LENGTH, idCapacity, this.idHashes, this.idOffsets);
+      fill(index, SegmentStore.INDEX_HEADER_LENGTH + idCapacity * SegmentStore.SLOT_LENGTH, persistentIdCapacity, this.persistentIdHashes, this.persistentIdOffsets);
+      FileOutputStream out = new FileOutputStream(temporary(this.indexFile));
+      try {
+        out.write(index.array());
+        out.getFD().sync();
+      }
+      finally {
+        out.close();
+      }
+      rename(temporary(this.indexFile), this.indexFile);
+    }
+
+    private int capacity(int count) {
+      //keep the tables at most half full.
+      int capacity = 16;
+      while (capacity < count * 2) {
+        capacity <<= 1;
+      }
+      return capacity;
+    }
+
+    private void fill(ByteBuffer index, int tableOffset, int capacity, IntList hashes, IntList offsets) {
+      int mask = capacity - 1;
+      //a later record of the same key is found first, shadowing the earlier ones in the same segment.
+      for (int i = offsets.size - 1; i >= 0; i--) {
+        int slot = hashes.values[i] & mask;
+        while (index.getInt(tableOffset + slot * SegmentStore.SLOT_LENGTH + 4) != 0) {
+          slot = (slot + 1) & mask;
+        }
+        index.putInt(tableOffset + slot * SegmentStore.SLOT_LENGTH, hashes.values[i]);
+        index.putInt(tableOffset + slot * SegmentStore.SLOT_LENGTH + 4, offsets.values[i]);
+      }
+    }
+
+    private File temporary(File file) {
+      return new File(file.getParentFile(), file.getName() + ".tmp");
+    }
+
+    private void rename(File from, File to) throws IOException {
+      if (!from.renameTo(to)) {
+        throw new IOException("Unable to rename " + from + " to " + to + ".");
+      }
+    }
+  }
+
+  private static final class IntList {
+
+    private int[] values = new int[64];
+    private int size = 0;
+
+    private void add(int value) {
+      if (this.size == this.values.length) {
+        this.values = Arrays.copyOf(this.values, this.size * 2);
+      }
+      this.values[this.size++] = value;
+    }
+  }
+}
@@ -0,0 +1,122 @@
+package org.gedcomx.file;
+
+import org.gedcomx.common.ResourceReference;
+import org.gedcomx.common.URI;
+import org.gedcomx.conclusion.Person;
+import org.gedcomx.conclusion.Relationship;
+import org.gedcomx.rt.json.GedcomJsonMappers;
+import org.testng.annotations.Test;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.Marshaller;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+import static org.testng.AssertJUnit.*;
+
+/**
+ * @author Ryan Heaton
+ */
+@Test
+public class GedcomxFileReaderTest {
+
+  /**
+   * tests reading the manifest and the entries of a file.
+   */
+  public void testReadFile() throws Exception {
+    GedcomxFileReader reader = new GedcomxFileReader(new ByteArrayInputStream(createTestFile()));
+    assertEquals("urn:creator", reader.getAttribute("X-DC-creator"));
+
+    List<String> names = new ArrayList<String>();
+    for (GedcomxFileEntry entry : reader) {
+      names.add(entry.getName());
+      if ("persons/1".equals(entry.getName())) {
+        assertTrue(entry.isRoot());
+        assertEquals("1", entry.getETag());
+        Person person = reader.readResource(entry, Person.class);
+        assertEquals("person1", person.getId());
+      }
+      else if ("relationships/1".equals(entry.getName())) {
+        assertFalse(entry.isRoot());
+        Relationship relationship = reader.readResource(entry, Relationship.class);
+        assertEquals("relationship1", relationship.getId());
+        assertEquals("persons/1", relationship.getPerson1().getResource().toString());
+      }
+    }
+    reader.close();
+
+    assertEquals(2, names.size());
+    assertEquals("persons/1", names.get(0));
+    assertEquals("relationships/1", names.get(1));
+  }
+
+  /**
+   * tests that only the current entry can be read.
+   */
+  public void testReadOnlyCurrentEntry() throws Exception {
+    GedcomxFileReader reader = new GedcomxFileReader(new ByteArrayInputStream(createTestFile()));
+    Iterator<GedcomxFileEntry> it = reader.iterator();
+    GedcomxFileEntry first = it.next();
+    assertTrue(reader.readResource(first) instanceof Person);
+    it.next();
+    try {
+      reader.readResource(first);
+      fail();
+    }
+    catch (IllegalStateException e) {
+      //fall through.
+    }
+
+    try {
+      reader.iterator();
+      fail();
+    }
+    catch (IllegalStateException e) {
+      //fall through.
+    }
+    reader.close();
+  }
+
+  private byte[] createTestFile() throws Exception {
+    Manifest manifest = new Manifest();
+    manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+    manifest.getMainAttributes().putValue("X-DC-creator", "urn:creator");
+    Attributes personAttributes = new Attributes();
+    personAttributes.putValue(GedcomxFileEntry.CONTENT_TYPE, "application/x-gedcomx-conclusion-v1+xml");
+    personAttributes.putValue(GedcomxFileEntry.ETAG, "1");
+    personAttributes.putValue(GedcomxFileEntry.ROOT, "true");
+    manifest.getEntries().put("persons/1", personAttributes);
+    Attributes relationshipAttributes = new Attributes();
+    relationshipAttributes.putValue(GedcomxFileEntry.CONTENT_TYPE, "application/x-gedcomx-conclusion-v1+json");
+    manifest.getEntries().put("relationships/1", relationshipAttributes);
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    JarOutputStream out = new JarOutputStream(bytes, manifest);
+
+    Person person = new Person();
+    person.setId("person1");
+    out.putNextEntry(new JarEntry("persons/1"));
+    Marshaller marshaller = JAXBContext.newInstance(Person.class).createMarshaller();
+    marshaller.setProperty(Marshaller.JAXB_FRAGMENT, true);
+    marshaller.marshal(person, out);
+    out.closeEntry();
+
+    Relationship relationship = new Relationship();
+    relationship.setId("relationship1");
+    relationship.setPerson1(new ResourceReference());
+    relationship.getPerson1().setResource(URI.create("persons/1"));
+    out.putNextEntry(new JarEntry("relationships/1"));
+    out.write(GedcomJsonMappers.getCompactWriter().writeValueAsBytes(relationship));
+    out.closeEntry();
+
+    out.close();
+    return bytes.toByteArray();
+  }
+}
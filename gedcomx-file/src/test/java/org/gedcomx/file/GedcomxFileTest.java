@@ -0,0 +1,164 @@
+package org.gedcomx.file;
+
+import org.gedcomx.common.ResourceReference;
+import org.gedcomx.common.URI;
+import org.gedcomx.conclusion.Person;
+import org.gedcomx.conclusion.Relationship;
+import org.gedcomx.rt.json.GedcomJsonMappers;
+import org.testng.annotations.Test;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.Marshaller;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
+import java.util.List;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+
+import static org.testng.AssertJUnit.*;
+
+/**
+ * @author Ryan Heaton
+ */
+@Test
+public class GedcomxFileTest {
+
+  /**
+   * tests random access to the entries of a file.
+   */
+  public void testRandomAccess() throws Exception {
+    GedcomxFile file = new GedcomxFile(createTestFile());
+    try {
+      assertEquals("urn:creator", file.getAttribute("X-DC-creator"));
+
+      List<GedcomxFileEntry> entries = file.getEntries();
+      assertEquals(3, entries.size());
+      assertEquals("persons/12345-ABCDE", entries.get(0).getName());
+      assertEquals("persons/stored", entries.get(1).getName());
+      assertEquals("relationships/1", entries.get(2).getName());
+
+      assertNull(file.getEntry("persons/unknown"));
+      GedcomxFileEntry relationshipEntry = file.getEntry("relationships/1");
+      assertEquals("1", relationshipEntry.getETag());
+      assertTrue(relationshipEntry.isRoot());
+      Relationship relationship = file.readResource(relationshipEntry, Relationship.class);
+      assertEquals("relationship1", relationship.getId());
+
+      Person person = file.readResource(relationship.getPerson1(), Person.class);
+      assertEquals("12345-ABCDE", person.getId());
+      assertEquals("persons/12345-ABCDE", file.resolve(relationship.getPerson1()).getName());
+      assertEquals("persons/12345-ABCDE", file.resolve(new ResourceReference(URI.create("../persons/12345-ABCDE#name")), relationshipEntry).getName());
+      assertNull(file.resolve(relationship.getPerson2()));
+
+      person = file.readResource("persons/stored", Person.class);
+      assertEquals("stored", person.getId());
+    }
+    finally {
+      file.close();
+    }
+  }
+
+  /**
+   * tests that an entry with an unsupported compression method only fails when it's read.
+   */
+  public void testUnsupportedCompressionMethod() throws Exception {
+    File testFile = createTestFile();
+    RandomAccessFile raw = new RandomAccessFile(testFile, "rw");
+    byte[] bytes = new byte[(int) raw.length()];
+    raw.readFully(bytes);
+    byte[] name = "persons/stored".getBytes("utf-8");
+    boolean patched = false;
+    for (int i = 0; i + 46 + name.length <= bytes.length && !patched; i++) {
+      //a central directory record: the method is at offset 10, the name at offset 46.
+      if (bytes[i] == 'P' && bytes[i + 1] == 'K' && bytes[i + 2] == 1 && bytes[i + 3] == 2 && regionMatches(bytes, i + 46, name)) {
+        raw.seek(i + 10);
+        raw.write(12); //bzip2
+        raw.write(0);
+        patched = true;
+      }
+    }
+    raw.close();
+    assertTrue(patched);
+
+    GedcomxFile file = new GedcomxFile(testFile);
+    try {
+      assertEquals(3, file.getEntries().size());
+      assertEquals("relationship1", file.readResource("relationships/1", Relationship.class).getId());
+      try {
+        file.getResourceStream(file.getEntry("persons/stored"));
+        fail();
+      }
+      catch (ZipException e) {
+        //fall through.
+      }
+    }
+    finally {
+      file.close();
+    }
+  }
+
+  private static boolean regionMatches(byte[] bytes, int offset, byte[] region) {
+    for (int i = 0; i < region.length; i++) {
+      if (bytes[offset + i] != region[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private File createTestFile() throws Exception {
+    Manifest manifest = new Manifest();
+    manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+    manifest.getMainAttributes().putValue("X-DC-creator", "urn:creator");
+    Attributes relationshipAttributes = new Attributes();
+    relationshipAttributes.putValue(GedcomxFileEntry.CONTENT_TYPE, "application/x-gedcomx-conclusion-v1+json");
+    relationshipAttributes.putValue(GedcomxFileEntry.ETAG, "1");
+    relationshipAttributes.putValue(GedcomxFileEntry.ROOT, "true");
+    manifest.getEntries().put("relationships/1", relationshipAttributes);
+
+    File file = File.createTempFile("gedcomx", ".gedx");
+    file.deleteOnExit();
+    JarOutputStream out = new JarOutputStream(new FileOutputStream(file), manifest);
+    Marshaller marshaller = JAXBContext.newInstance(Person.class).createMarshaller();
+    marshaller.setProperty(Marshaller.JAXB_FRAGMENT, true);
+
+    Person person = new Person();
+    person.setId("12345-ABCDE");
+    out.putNextEntry(new JarEntry("persons/12345-ABCDE"));
+    marshaller.marshal(person, out);
+    out.closeEntry();
+
+    person = new Person();
+    person.setId("stored");
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    marshaller.marshal(person, bytes);
+    CRC32 crc = new CRC32();
+    crc.update(bytes.toByteArray());
+    JarEntry stored = new JarEntry("persons/stored");
+    stored.setMethod(ZipEntry.STORED);
+    stored.setSize(bytes.size());
+    stored.setCompressedSize(bytes.size());
+    stored.setCrc(crc.getValue());
+    out.putNextEntry(stored);
+    bytes.writeTo(out);
+    out.closeEntry();
+
+    Relationship relationship = new Relationship();
+    relationship.setId("relationship1");
+    relationship.setPerson1(new ResourceReference(URI.create("/persons/12345-ABCDE")));
+    relationship.setPerson2(new ResourceReference(URI.create("https://example.com/persons/98765-ZYXWV")));
+    out.putNextEntry(new JarEntry("relationships/1"));
+    out.write(GedcomJsonMappers.getCompactWriter().writeValueAsBytes(relationship));
+    out.closeEntry();
+
+    out.close();
+    return file;
+  }
+}
@@ -0,0 +1,176 @@
+package org.gedcomx.file;
+
+import org.gedcomx.common.GenealogicalResource;
+import org.gedcomx.common.ResourceReference;
+import org.gedcomx.common.URI;
+import org.gedcomx.conclusion.ConclusionModel;
+import org.gedcomx.conclusion.Person;
+import org.gedcomx.conclusion.Relationship;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.jar.Attributes;
+import java.util.jar.JarFile;
+import java.util.jar.JarInputStream;
+
+import static org.testng.AssertJUnit.*;
+
+/**
+ * @author Ryan Heaton
+ */
+@Test
+public class GedcomxFileWriterTest {
+
+  /**
+   * tests writing a file and reading it back with random access.
+   */
+  public void testWriteAndReadRandomAccess() throws Exception {
+    File file = File.createTempFile("gedcomx", ".gedx");
+    file.deleteOnExit();
+    GedcomxFileWriter writer = new GedcomxFileWriter(new FileOutputStream(file), 3);
+    writer.setAttribute("X-DC-creator", "urn:creator");
+    writer.addResources(createTestResources(50));
+    Attributes attributes = new Attributes();
+    attributes.putValue(GedcomxFileEntry.ETAG, "custom");
+    Person root = new Person();
+    root.setId("root");
+    writer.addResource("root", root, true, attributes);
+    writer.close();
+
+    GedcomxFile gedx = new GedcomxFile(file);
+    try {
+      assertEquals("urn:creator", gedx.getAttribute("X-DC-creator"));
+      List<GedcomxFileEntry> entries = gedx.getEntries();
+      assertEquals(101, entries.size());
+      for (int i = 0; i < 50; i++) {
+        GedcomxFileEntry personEntry = entries.get(i * 2);
+        assertEquals("org/gedcomx/conclusion/persons/p" + i, personEntry.getName());
+        assertEquals(ConclusionModel.GEDCOMX_CONCLUSION_V1_XML_MEDIA_TYPE, personEntry.getContentType());
+        assertNotNull(personEntry.getETag());
+        assertNotNull(personEntry.getModified());
+        assertFalse(personEntry.isRoot());
+        assertEquals("p" + i, gedx.readResource(personEntry, Person.class).getId());
+
+        GedcomxFileEntry relationshipEntry = entries.get(i * 2 + 1);
+        assertEquals("org/gedcomx/conclusion/relationships/r" + i, relationshipEntry.getName());
+        Relationship relationship = gedx.readResource(relationshipEntry, Relationship.class);
+        assertEquals("p" + i, gedx.readResource(relationship.getPerson1(), Person.class).getId());
+      }
+
+      //the entries are compact.
+      assertFalse(read(gedx.getResourceStream(entries.get(0))).contains("\n"));
+
+      GedcomxFileEntry rootEntry = entries.get(100);
+      assertTrue(rootEntry.isRoot());
+      assertEquals("custom", rootEntry.getETag());
+    }
+    finally {
+      gedx.close();
+    }
+
+    JarFile jar = new JarFile(file);
+    try {
+      assertEquals("urn:creator", jar.getManifest().getMainAttributes().getValue("X-DC-creator"));
+      assertEquals("true", jar.getManifest().getAttributes("root").getValue(GedcomxFileEntry.ROOT));
+      assertNotNull(jar.getEntry("org/gedcomx/conclusion/relationships/r49"));
+    }
+    finally {
+      jar.close();
+    }
+  }
+
+  /**
+   * tests writing a JSON file and streaming it back.
+   */
+  public void testWriteAndStreamJson() throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    GedcomxFileWriter writer = new GedcomxFileWriter(out, 2);
+    writer.setJson(true);
+    writer.addResources(createTestResources(10));
+    writer.close();
+
+    JarInputStream jar = new JarInputStream(new ByteArrayInputStream(out.toByteArray()));
+    jar.getNextJarEntry();
+    assertFalse(read(jar).contains("\n"));
+    jar.close();
+
+    GedcomxFileReader reader = new GedcomxFileReader(new ByteArrayInputStream(out.toByteArray()));
+    List<String> ids = new ArrayList<String>();
+    for (GedcomxFileEntry entry : reader) {
+      Class<? extends GenealogicalResource> type = entry.getName().startsWith("org/gedcomx/conclusion/persons/") ? Person.class : Relationship.class;
+      ids.add(reader.readResource(entry, type).getId());
+    }
+    reader.close();
+    assertEquals(20, ids.size());
+    assertEquals("p0", ids.get(0));
+    assertEquals("r9", ids.get(19));
+
+    //the manifest was read at the end of the iteration.
+    assertEquals(ConclusionModel.GEDCOMX_CONCLUSION_V1_JSON_MEDIA_TYPE, reader.getManifest().getAttributes("org/gedcomx/conclusion/persons/p0").getValue(GedcomxFileEntry.CONTENT_TYPE));
+  }
+
+  /**
+   * tests that the names of the entries of resources of the same type name, or without an id, don't collide.
+   */
+  public void testEntryNames() throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    GedcomxFileWriter writer = new GedcomxFileWriter(out, 1);
+    Person person = new Person();
+    person.setId("1");
+    writer.addResources(Arrays.asList(new Person(), person, new Person()));
+    Note note = new Note();
+    note.setId("1");
+    org.gedcomx.common.Note commonNote = new org.gedcomx.common.Note();
+    commonNote.setId("1");
+    writer.addResources(Arrays.asList(note, commonNote));
+    person = new Person();
+    person.setId("~3/a b");
+    writer.addResources(Arrays.asList(person));
+    writer.close();
+
+    GedcomxFileReader reader = new GedcomxFileReader(new ByteArrayInputStream(out.toByteArray()));
+    List<String> names = new ArrayList<String>();
+    for (GedcomxFileEntry entry : reader) {
+      names.add(entry.getName());
+    }
+    reader.close();
+    assertEquals(Arrays.asList("org/gedcomx/conclusion/persons/~1", "org/gedcomx/conclusion/persons/1",
+                               "org/gedcomx/conclusion/persons/~3", "org/gedcomx/file/gedcomxfilewritertest$notes/1", "org/gedcomx/common/notes/1",
+                               "org/gedcomx/conclusion/persons/%7E3%2Fa+b"), names);
+  }
+
+  private static String read(InputStream in) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    byte[] buffer = new byte[1024];
+    int len;
+    while ((len = in.read(buffer)) > 0) {
+      out.write(buffer, 0, len);
+    }
+    return new String(out.toByteArray(), "utf-8");
+  }
+
+  private List<GenealogicalResource> createTestResources(int count) {
+    List<GenealogicalResource> resources = new ArrayList<GenealogicalResource>();
+    for (int i = 0; i < count; i++) {
+      Person person = new Person();
+      person.setId("p" + i);
+      resources.add(person);
+      Relationship relationship = new Relationship();
+      relationship.setId("r" + i);
+      relationship.setPerson1(new ResourceReference(URI.create("/org/gedcomx/conclusion/persons/p" + i)));
+      resources.add(relationship);
+    }
+    return resources;
+  }
+
+  public static class Note extends GenealogicalResource {
+  }
+}
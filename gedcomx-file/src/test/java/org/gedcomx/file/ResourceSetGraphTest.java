@@ -0,0 +1,114 @@
+package org.gedcomx.file;
+
+import org.gedcomx.common.ResourceReference;
+import org.gedcomx.common.ResourceSet;
+import org.gedcomx.common.URI;
+import org.gedcomx.conclusion.Fact;
+import org.gedcomx.conclusion.Person;
+import org.gedcomx.conclusion.Relationship;
+import org.gedcomx.conclusion.SourceReference;
+import org.gedcomx.metadata.rdf.Description;
+import org.gedcomx.types.FactType;
+import org.gedcomx.types.RelationshipType;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.testng.AssertJUnit.*;
+
+/**
+ * @author Ryan Heaton
+ */
+@Test
+public class ResourceSetGraphTest {
+
+  /**
+   * tests resolving references between the resources of a resource set.
+   */
+  public void testResolve() throws Exception {
+    ResourceSet set = createTestResourceSet();
+    ResourceSetGraph graph = new ResourceSetGraph(set, URI.create("http://example.org/tree"));
+
+    Person father = graph.resolve(new ResourceReference(URI.create("#father")), Person.class);
+    assertNotNull(father);
+    assertEquals("father", father.getId());
+    assertSame(father, graph.resolve(URI.create("http://example.org/tree#father")));
+    assertSame(father, graph.resolve(URI.create("tree#father")));
+    assertNull(graph.resolve(new ResourceReference(URI.create("#father")), Relationship.class));
+    assertNull(graph.resolve(URI.create("#nobody")));
+    assertNull(graph.resolve(URI.create("http://example.org/other#father")));
+    assertEquals("father-birth", ((Fact) graph.getResource("father-birth")).getId());
+
+    Description description = (Description) graph.resolve(URI.create("http://example.org/sources/1"));
+    assertNotNull(description);
+    assertSame(description, graph.resolve(URI.create("sources/1")));
+    assertSame(description, graph.resolve(URI.create("#source1")));
+
+    //without a base, only fragments and subjects are resolved.
+    graph = new ResourceSetGraph(set);
+    assertNotNull(graph.resolve(URI.create("#father")));
+    assertNull(graph.resolve(URI.create("tree#father")));
+  }
+
+  /**
+   * tests traversing the relationships and sources of a resource set.
+   */
+  public void testTraverse() throws Exception {
+    ResourceSetGraph graph = new ResourceSetGraph(createTestResourceSet(), URI.create("http://example.org/tree"));
+    assertEquals(3, graph.getPersons().size());
+    assertEquals(2, graph.getRelationships().size());
+
+    Person father = (Person) graph.getResource("father");
+    Person mother = (Person) graph.getResource("mother");
+    Person child = (Person) graph.getResource("child");
+    assertEquals(2, graph.getRelationships(father).size());
+    assertEquals(1, graph.getRelationships(mother).size());
+    assertEquals(1, graph.getRelationships(child).size());
+
+    List<Person> related = graph.getRelatedPersons(father);
+    assertEquals(2, related.size());
+    assertTrue(related.contains(mother));
+    assertTrue(related.contains(child));
+
+    List<Object> sources = graph.getSources(father);
+    assertEquals(1, sources.size());
+    assertEquals("source1", ((Description) sources.get(0)).getId());
+    assertEquals(0, graph.getSources(mother).size());
+  }
+
+  private ResourceSet createTestResourceSet() {
+    ResourceSet set = new ResourceSet();
+    Person father = createPerson("father");
+    father.addFact(new Fact(FactType.Birth, "father birth"));
+    father.getFacts().get(0).setId("father-birth");
+    SourceReference source = new SourceReference();
+    source.setResource(URI.create("sources/1"));
+    father.setSources(new ArrayList<SourceReference>());
+    father.getSources().add(source);
+    set.addExtensionElement(father);
+    set.addExtensionElement(createPerson("mother"));
+    set.addExtensionElement(createPerson("child"));
+    set.addExtensionElement(createRelationship(RelationshipType.Couple, "#father", "#mother"));
+    set.addExtensionElement(createRelationship(RelationshipType.ParentChild, "http://example.org/tree#father", "#child"));
+    Description description = new Description();
+    description.setId("source1");
+    description.setAbout(URI.create("http://example.org/sources/1"));
+    set.addExtensionElement(description);
+    return set;
+  }
+
+  private Person createPerson(String id) {
+    Person person = new Person();
+    person.setId(id);
+    return person;
+  }
+
+  private Relationship createRelationship(RelationshipType type, String person1, String person2) {
+    Relationship relationship = new Relationship();
+    relationship.setKnownType(type);
+    relationship.setPerson1(new ResourceReference(URI.create(person1)));
+    relationship.setPerson2(new ResourceReference(URI.create(person2)));
+    return relationship;
+  }
+}
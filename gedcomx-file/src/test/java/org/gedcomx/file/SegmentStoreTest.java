@@ -0,0 +1,256 @@
+package org.gedcomx.file;
+
+import org.gedcomx.common.Attribution;
+import org.gedcomx.common.Note;
+import org.gedcomx.common.ResourceReference;
+import org.gedcomx.common.URI;
+import org.gedcomx.conclusion.*;
+import org.gedcomx.rt.JAXBContextRegistry;
+import org.gedcomx.types.ConfidenceLevel;
+import org.gedcomx.types.FactType;
+import org.gedcomx.types.GenderType;
+import org.gedcomx.types.NameType;
+import org.gedcomx.types.RelationshipType;
+import org.gedcomx.types.ResourceType;
+import org.testng.annotations.Test;
+
+import javax.xml.bind.JAXBContext;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.gedcomx.rt.SerializationUtil.toXmlStream;
+import static org.testng.AssertJUnit.*;
+
+/**
+ * @author Ryan Heaton
+ */
+@Test
+public class SegmentStoreTest {
+
+  /**
+   * tests writing records to a store and reading them back after the store is reopened.
+   */
+  public void testReadWrite() throws Exception {
+    File directory = createTempDirectory();
+    SegmentStore store = new SegmentStore(directory);
+    SegmentWriter writer = store.openWriter();
+    for (int i = 0; i < 100; i++) {
+      writer.add(createPerson(i));
+    }
+    Relationship relationship = new Relationship();
+    relationship.setId("r1");
+    relationship.setKnownType(RelationshipType.Couple);
+    relationship.setPerson1(new ResourceReference(URI.create("#p1")));
+    relationship.setPerson2(new ResourceReference(URI.create("#p2")));
+    relationship.setFacts(Arrays.asList(new Fact(FactType.Marriage, "married")));
+    writer.add(relationship);
+    SourceReference sourceReference = new SourceReference();
+    sourceReference.setId("s1");
+    sourceReference.setKnownType(ResourceType.PhysicalObject);
+    sourceReference.setResource(URI.create("urn:source"));
+    writer.add(sourceReference);
+    Person noted = createPerson(100);
+    noted.addNote(new Note());
+    writer.add(noted);
+    assertNull(store.getPerson("p1"));
+    writer.close();
+
+    assertEquals(1, store.getSegmentCount());
+    assertEquals(103, store.size());
+    assertEquals("Jane Doe 1", store.getPerson("p1").getNames().get(0).getPrimaryForm().getFullText());
+    store.close();
+
+    store = new SegmentStore(directory);
+    try {
+      assertEquals(103, store.size());
+      Person person = store.getPerson("p42");
+      assertEquals("p42", person.getId());
+      assertEquals(GenderType.Male, person.getGender().getKnownType());
+      assertEquals(NameType.BirthName, person.getNames().get(0).getKnownType());
+      assertEquals("Jane Doe 42", person.getNames().get(0).getPrimaryForm().getFullText());
+      assertEquals(FactType.Birth, person.getFacts().get(0).getKnownType());
+      assertEquals("1 Jan 1842", person.getFacts().get(0).getDate().getOriginal());
+      assertEquals("Boston", person.getFacts().get(0).getPlace().getOriginal());
+      assertNull(person.getSources());
+
+      assertEquals("p7", store.getPersonByPersistentId(URI.create("urn:p7")).getId());
+      assertNull(store.getPersonByPersistentId(URI.create("urn:unknown")));
+      assertNull(store.getPerson("unknown"));
+      assertNull(store.getPerson("r1"));
+
+      relationship = store.getRelationship("r1");
+      assertEquals(RelationshipType.Couple, relationship.getKnownType());
+      assertEquals(URI.create("#p2"), relationship.getPerson2().getResource());
+      assertEquals(FactType.Marriage, relationship.getFacts().get(0).getKnownType());
+
+      sourceReference = (SourceReference) store.get("s1");
+      assertEquals(ResourceType.PhysicalObject, sourceReference.getKnownType());
+      assertEquals(URI.create("urn:source"), sourceReference.getResource());
+
+      assertEquals(1, store.getPerson("p100").getNotes().size());
+    }
+    finally {
+      store.close();
+    }
+  }
+
+  /**
+   * tests that newer records shadow older ones and that writers roll over to new segments.
+   */
+  public void testAppend() throws Exception {
+    File directory = createTempDirectory();
+    SegmentStore store = new SegmentStore(directory);
+    try {
+      SegmentWriter writer = store.openWriter(1024);
+      for (int i = 0; i < 50; i++) {
+        writer.add(createPerson(i));
+      }
+      writer.close();
+      int segmentCount = store.getSegmentCount();
+      assertTrue(segmentCount > 1);
+
+      try {
+        store.openWriter();
+        store.openWriter();
+        fail();
+      }
+      catch (IllegalStateException e) {
+        //fall through...
+      }
+    }
+    finally {
+      store.close();
+    }
+
+    store = new SegmentStore(directory);
+    try {
+      SegmentWriter writer = store.openWriter();
+      Person person = createPerson(3);
+      person.setLiving(true);
+      writer.add(person);
+      writer.close();
+
+      assertEquals(51, store.size());
+      assertEquals(Boolean.TRUE, store.getPerson("p3").getLiving());
+      assertEquals(Boolean.TRUE, store.getPersonByPersistentId(URI.create("urn:p3")).getLiving());
+      assertEquals(Boolean.FALSE, store.getPerson("p4").getLiving());
+    }
+    finally {
+      store.close();
+    }
+  }
+
+  /**
+   * tests that a person updated with another persistent id isn't found by its old persistent id.
+   */
+  public void testUpdatePersistentId() throws Exception {
+    SegmentStore store = new SegmentStore(createTempDirectory());
+    try {
+      SegmentWriter writer = store.openWriter();
+      writer.add(createPerson(1));
+      writer.add(createPerson(2));
+      writer.flush();
+      Person person = createPerson(1);
+      person.setPersistentId(URI.create("urn:b"));
+      person.setLiving(true);
+      writer.add(person);
+      //updated twice in the same segment.
+      person = createPerson(2);
+      person.setPersistentId(URI.create("urn:c"));
+      writer.add(person);
+      person = createPerson(2);
+      person.setLiving(true);
+      writer.add(person);
+      writer.close();
+      assertEquals(2, store.getSegmentCount());
+
+      assertEquals(Boolean.TRUE, store.getPerson("p1").getLiving());
+      assertNull(store.getPersonByPersistentId(URI.create("urn:p1")));
+      assertEquals(Boolean.TRUE, store.getPersonByPersistentId(URI.create("urn:b")).getLiving());
+      assertNull(store.getPersonByPersistentId(URI.create("urn:c")));
+      assertEquals(Boolean.TRUE, store.getPersonByPersistentId(URI.create("urn:p2")).getLiving());
+    }
+    finally {
+      store.close();
+    }
+  }
+
+  /**
+   * tests that records with sources, notes and attribution are encoded in binary, and anything else as XML.
+   */
+  public void testRecordForms() throws Exception {
+    JAXBContext context = JAXBContextRegistry.getContext(Person.class, Relationship.class, SourceReference.class, Note.class);
+    Attribution attribution = new Attribution();
+    attribution.setContributor(new ResourceReference(URI.create("urn:contributor")));
+    attribution.setKnownConfidenceLevel(ConfidenceLevel.Possibly);
+    attribution.setModified(new java.util.Date(-1000L));
+    attribution.setProofStatement("proof");
+    SourceReference source = new SourceReference();
+    source.setId("s1");
+    source.setResource(URI.create("urn:source"));
+    source.setDescription(new ResourceReference(URI.create("urn:description")));
+    source.setAttribution(attribution);
+    Note note = new Note();
+    note.setId("n1");
+    note.setLang("en");
+    note.setText("note");
+    note.setAttribution(attribution);
+
+    Person person = createPerson(1);
+    person.setAttribution(attribution);
+    person.setSources(Arrays.asList(source));
+    person.addNote(note);
+    person.getGender().setSources(Arrays.asList(source));
+    person.getNames().get(0).setAttribution(attribution);
+    person.getFacts().get(0).setSources(Arrays.asList(source, new SourceReference()));
+    Relationship relationship = new Relationship();
+    relationship.setId("r1");
+    relationship.setKnownType(RelationshipType.Couple);
+    relationship.setAttribution(attribution);
+    relationship.setSources(Arrays.asList(source));
+    relationship.setNotes(Arrays.asList(note));
+    relationship.setFacts(Arrays.asList(new Fact(FactType.Marriage, "married")));
+    relationship.getFacts().get(0).setAttribution(attribution);
+    Person extended = createPerson(2);
+    extended.addExtensionElement(note);
+
+    for (Object record : Arrays.asList(person, relationship, source, extended)) {
+      RecordCodec.Output out = new RecordCodec.Output();
+      RecordCodec.encode(record, out, context);
+      assertEquals(record == extended ? RecordCodec.FORM_XML : RecordCodec.FORM_BINARY, out.bytes()[1]);
+
+      URI[] dictionary = out.getDictionary().toArray(new URI[out.getDictionary().size()]);
+      Object decoded = RecordCodec.decode(new RecordCodec.Input(ByteBuffer.wrap(out.bytes(), 0, out.size()), dictionary), context);
+      assertEquals(new String(toXmlStream(record), "utf-8"), new String(toXmlStream(decoded), "utf-8"));
+    }
+  }
+
+  private Person createPerson(int i) {
+    Person person = new Person();
+    person.setId("p" + i);
+    person.setLiving(false);
+    person.setGender(new Gender(i % 2 == 0 ? GenderType.Male : GenderType.Female));
+    person.setPersistentId(URI.create("urn:p" + i));
+    NameForm form = new NameForm();
+    form.setFullText("Jane Doe " + i);
+    Name name = new Name();
+    name.setKnownType(NameType.BirthName);
+    name.setPrimaryForm(form);
+    person.setNames(Arrays.asList(name));
+    Date date = new Date();
+    date.setOriginal("1 Jan " + (1800 + i));
+    Place place = new Place();
+    place.setOriginal("Boston");
+    person.setFacts(Arrays.asList(new Fact(FactType.Birth, date, place, null)));
+    return person;
+  }
+
+  private File createTempDirectory() throws Exception {
+    File directory = File.createTempFile("segments", "");
+    assertTrue(directory.delete());
+    assertTrue(directory.mkdirs());
+    directory.deleteOnExit();
+    return directory;
+  }
+}
@@ -18,6 +18,8 @@ package org.gedcomx.metadata.rdf;
 import org.codehaus.jackson.annotate.JsonIgnore;
 import org.gedcomx.common.URI;
 import org.gedcomx.rt.CommonModels;
+import org.gedcomx.rt.ExtensionElementHandler;
+import org.gedcomx.rt.ExtensionElementList;
 import org.gedcomx.rt.json.JsonElementWrapper;
 import org.gedcomx.rt.SupportsExtensionAttributes;
 import org.gedcomx.rt.SupportsExtensionElements;
@@ -47,7 +49,7 @@ public class Description implements SupportsExtensionAttributes, SupportsExtensi
   private URI about;
   private TypeReference<ResourceType> type;
   private Map<QName, String> extensionAttributes;
-  private List<Object> extensionElements;
+  private ExtensionElementList extensionElements;
 
   /**
    * The id of this piece of metadata.
@@ -90,7 +92,9 @@ public class Description implements SupportsExtensionAttributes, SupportsExtensi
   }
 
   /**
-   * The type of the resource being described.
+   * The type of the resource being described. A known type (set with {@link #setKnownType(ResourceType)} or read from JSON)
+   * is a shared instance, which throws an {@link UnsupportedOperationException} if its type is set; set a new reference
+   * instead.
    *
    * @return The type of the resource being described.
    */
@@ -126,7 +130,7 @@ public class Description implements SupportsExtensionAttributes, SupportsExtensi
    */
   @JsonIgnore
   public void setKnownType(ResourceType knownType) {
-    setType(knownType == null ? null : new TypeReference<ResourceType>(knownType));
+    setType(knownType == null ? null : TypeReference.<ResourceType>valueOf(knownType));
   }
 
   /**
@@ -157,7 +161,7 @@ public class Description implements SupportsExtensionAttributes, SupportsExtensi
    */
   public void addExtensionElement(Object element) {
     if (this.extensionElements == null) {
-      this.extensionElements = new ArrayList<Object>();
+      this.extensionElements = new ExtensionElementList();
     }
 
     this.extensionElements.add(element);
@@ -171,15 +175,11 @@ public class Description implements SupportsExtensionAttributes, SupportsExtensi
    */
   @SuppressWarnings ( {"unchecked"} )
   public <E> E findExtensionOfType(Class<E> clazz) {
-    if (this.extensionElements != null) {
-      for (Object extension : extensionElements) {
-        if (clazz.isInstance(extension)) {
-          return (E) extension;
-        }
-      }
+    if (this.extensionElements == null) {
+      return null;
     }
 
-    return null;
+    return this.extensionElements.findExtensionOfType(clazz);
   }
 
   /**
@@ -190,16 +190,11 @@ public class Description implements SupportsExtensionAttributes, SupportsExtensi
    */
   @SuppressWarnings ( {"unchecked"} )
   public <E> List<E> findExtensionsOfType(Class<E> clazz) {
-    List<E> ext = new ArrayList<E>();
-    if (this.extensionElements != null) {
-      for (Object extension : extensionElements) {
-        if (clazz.isInstance(extension)) {
-          ext.add((E) extension);
-        }
-      }
+    if (this.extensionElements == null) {
+      return new ArrayList<E>();
     }
 
-    return ext;
+    return this.extensionElements.findExtensionsOfType(clazz);
   }
 
   /**
@@ -207,7 +202,7 @@ public class Description implements SupportsExtensionAttributes, SupportsExtensi
    *
    * @return Custom elements applicable as part of this metadata.
    */
-  @XmlAnyElement ( lax = true )
+  @XmlAnyElement ( lax = true, value = ExtensionElementHandler.class )
   @JsonIgnore
   public List<Object> getExtensionElements() {
     return extensionElements;
@@ -220,7 +215,7 @@ public class Description implements SupportsExtensionAttributes, SupportsExtensi
    */
   @JsonIgnore
   public void setExtensionElements(List<Object> extensionElements) {
-    this.extensionElements = extensionElements;
+    this.extensionElements = ExtensionElementList.wrap(extensionElements);
   }
 
   /**
@@ -20,6 +20,8 @@ import org.codehaus.jackson.annotate.JsonIgnore;
 import org.codehaus.jackson.annotate.JsonProperty;
 import org.gedcomx.common.URI;
 import org.gedcomx.rt.CommonModels;
+import org.gedcomx.rt.ExtensionElementHandler;
+import org.gedcomx.rt.ExtensionElementList;
 import org.gedcomx.rt.SupportsExtensionAttributes;
 import org.gedcomx.rt.SupportsExtensionElements;
 import org.gedcomx.types.ResourceType;
@@ -53,7 +55,7 @@ public final class RDFValue implements SupportsExtensionAttributes, SupportsExte
   private TypeReference<ResourceType> type;
   private URI resource;
   private Map<QName, String> extensionAttributes;
-  private List<Object> extensionElements;
+  private ExtensionElementList extensionElements;
 
   public RDFValue() {
   }
@@ -143,7 +145,7 @@ public final class RDFValue implements SupportsExtensionAttributes, SupportsExte
    */
   @JsonIgnore
   public void setType(URI type) {
-    this.type = type == null ? null : new TypeReference<ResourceType>(type);
+    this.type = type == null ? null : TypeReference.<ResourceType>valueOf(type);
   }
 
   /**
@@ -164,7 +166,7 @@ public final class RDFValue implements SupportsExtensionAttributes, SupportsExte
    */
   @JsonIgnore
   public void setKnownType(ResourceType knownType) {
-    this.type = knownType == null ? null : new TypeReference<ResourceType>(knownType);
+    this.type = knownType == null ? null : TypeReference.<ResourceType>valueOf(knownType);
   }
 
   /**
@@ -231,7 +233,7 @@ public final class RDFValue implements SupportsExtensionAttributes, SupportsExte
    *
    * @return Custom attributes applicable to this resource reference.
    */
-  @XmlAnyElement ( lax = true )
+  @XmlAnyElement ( lax = true, value = ExtensionElementHandler.class )
   @JsonIgnore
   public List<Object> getExtensionElements() {
     return extensionElements;
@@ -244,7 +246,7 @@ public final class RDFValue implements SupportsExtensionAttributes, SupportsExte
    */
   @JsonIgnore
   public void setExtensionElements(List<Object> extensionElements) {
-    this.extensionElements = extensionElements;
+    this.extensionElements = ExtensionElementList.wrap(extensionElements);
   }
 
   /**
@@ -254,7 +256,7 @@ public final class RDFValue implements SupportsExtensionAttributes, SupportsExte
    */
   public void addExtensionElement(Object element) {
     if (this.extensionElements == null) {
-      this.extensionElements = new ArrayList<Object>();
+      this.extensionElements = new ExtensionElementList();
     }
 
     this.extensionElements.add(element);
@@ -268,15 +270,11 @@ public final class RDFValue implements SupportsExtensionAttributes, SupportsExte
    */
   @SuppressWarnings ( {"unchecked"} )
   public <E> E findExtensionOfType(Class<E> clazz) {
-    if (this.extensionElements != null) {
-      for (Object extension : extensionElements) {
-        if (clazz.isInstance(extension)) {
-          return (E) extension;
-        }
-      }
+    if (this.extensionElements == null) {
+      return null;
     }
 
-    return null;
+    return this.extensionElements.findExtensionOfType(clazz);
   }
 
   /**
@@ -287,15 +285,10 @@ public final class RDFValue implements SupportsExtensionAttributes, SupportsExte
    */
   @SuppressWarnings ( {"unchecked"} )
   public <E> List<E> findExtensionsOfType(Class<E> clazz) {
-    List<E> ext = new ArrayList<E>();
-    if (this.extensionElements != null) {
-      for (Object extension : extensionElements) {
-        if (clazz.isInstance(extension)) {
-          ext.add((E) extension);
-        }
-      }
+    if (this.extensionElements == null) {
+      return new ArrayList<E>();
     }
 
-    return ext;
+    return this.extensionElements.findExtensionsOfType(clazz);
   }
 }
@@ -0,0 +1,64 @@
+package org.gedcomx.metadata.foaf;
+
+import org.gedcomx.common.ResourceReference;
+import org.gedcomx.common.URI;
+import org.gedcomx.metadata.rdf.RDFLiteral;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+
+import static org.gedcomx.rt.SerializationUtil.processThroughBinary;
+import static org.gedcomx.rt.SerializationUtil.processThroughXml;
+import static org.testng.AssertJUnit.assertEquals;
+
+/**
+ * @author Ryan Heaton
+ */
+@Test
+public class OrganizationTest {
+
+  /**
+   * tests processing an organization through xml.
+   */
+  public void testOrganizationXml() throws Exception {
+    Organization organization = createOrganization();
+    organization = processThroughXml(organization);
+    assertOrganization(organization);
+  }
+
+  /**
+   * tests processing an organization through the binary format.
+   */
+  public void testOrganizationBinary() throws Exception {
+    Organization organization = createOrganization();
+    organization = processThroughBinary(organization);
+    assertOrganization(organization);
+  }
+
+  private Organization createOrganization() {
+    Organization organization = new Organization();
+    organization.setId("org");
+    organization.setName(new RDFLiteral("FamilySearch"));
+    organization.setHomepage(new RDFLiteral("http://familysearch.org"));
+    organization.setAddresses(new ArrayList<Address>());
+    Address address = new Address();
+    address.setCity("Salt Lake City");
+    address.setStateOrProvince("UT");
+    organization.getAddresses().add(address);
+    organization.setPhones(new ArrayList<ResourceReference>());
+    organization.getPhones().add(new ResourceReference(URI.create("tel:+18012401000")));
+    return organization;
+  }
+
+  private void assertOrganization(Organization organization) {
+    assertEquals("org", organization.getId());
+    assertEquals("FamilySearch", organization.getName().getValue());
+    assertEquals("http://familysearch.org", organization.getHomepage().getValue());
+    assertEquals(1, organization.getAddresses().size());
+    assertEquals("Salt Lake City", organization.getAddresses().get(0).getCity());
+    assertEquals("UT", organization.getAddresses().get(0).getStateOrProvince());
+    assertEquals(1, organization.getPhones().size());
+    assertEquals("tel:+18012401000", organization.getPhones().get(0).getResource().toString());
+  }
+
+}
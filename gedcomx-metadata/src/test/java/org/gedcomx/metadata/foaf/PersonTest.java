@@ -7,6 +7,7 @@ import org.testng.annotations.Test;
 import org.gedcomx.common.URI;
 import java.util.ArrayList;
 
+import static org.gedcomx.rt.SerializationUtil.processThroughBinary;
 import static org.gedcomx.rt.SerializationUtil.processThroughJson;
 import static org.gedcomx.rt.SerializationUtil.processThroughXml;
 import static org.testng.AssertJUnit.assertEquals;
@@ -32,6 +33,15 @@ public class PersonTest {
     assertPerson(person);
   }
 
+  /**
+   * tests processing a person through the binary format.
+   */
+  public void testPersonBinary() throws Exception {
+    Person person = createPerson();
+    person = processThroughBinary(person);
+    assertPerson(person);
+  }
+
   private Person createPerson() {
     Person person = new Person();
     person.setFamilyName(new RDFLiteral("family name"));
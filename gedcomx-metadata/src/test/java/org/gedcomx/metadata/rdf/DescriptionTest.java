@@ -2,6 +2,7 @@ package org.gedcomx.metadata.rdf;
 
 import org.gedcomx.common.ResourceSet;
 import org.gedcomx.rt.CommonModels;
+import org.gedcomx.types.ResourceType;
 import org.testng.annotations.Test;
 
 import javax.xml.bind.JAXBContext;
@@ -10,9 +11,11 @@ import org.gedcomx.common.URI;
 import java.util.ArrayList;
 import java.util.HashMap;
 
+import static org.gedcomx.rt.SerializationUtil.processThroughBinary;
 import static org.gedcomx.rt.SerializationUtil.processThroughJson;
 import static org.gedcomx.rt.SerializationUtil.processThroughXml;
 import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertTrue;
 
 /**
  * @author Ryan Heaton
@@ -56,4 +59,25 @@ public class DescriptionTest {
     assertEquals(1, meta.getExtensionElements().size());
   }
 
+  /**
+   * tests processing a description through the binary format.
+   */
+  public void testRDFMetadataBinary() throws Exception {
+    Description meta = new Description();
+    meta.setId("id");
+    meta.setAbout(URI.create("urn:dataref"));
+    meta.setKnownType(ResourceType.Dataset);
+    meta.setExtensionAttributes(new HashMap<QName, String>());
+    meta.getExtensionAttributes().put(new QName(CommonModels.GEDCOMX_COMMON_NAMESPACE, "data"), "custom");
+    meta.setExtensionElements(new ArrayList<Object>());
+    meta.getExtensionElements().add(new ResourceSet());
+    meta = processThroughBinary(meta);
+    assertEquals("id", meta.getId());
+    assertEquals(URI.create("urn:dataref"), meta.getAbout());
+    assertEquals(ResourceType.Dataset, meta.getKnownType());
+    assertEquals("custom", meta.getExtensionAttributes().get(new QName(CommonModels.GEDCOMX_COMMON_NAMESPACE, "data")));
+    assertEquals(1, meta.getExtensionElements().size());
+    assertTrue(meta.getExtensionElements().get(0) instanceof ResourceSet);
+  }
+
 }
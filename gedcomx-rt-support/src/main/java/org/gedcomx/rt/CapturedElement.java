@@ -0,0 +1,1028 @@
+/**
+ * Copyright 2011-2012 Intellectual Reserve, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gedcomx.rt;
+
+import org.w3c.dom.*;
+import org.xml.sax.*;
+import org.xml.sax.helpers.AttributesImpl;
+import org.xml.sax.helpers.DefaultHandler;
+
+import javax.xml.XMLConstants;
+import javax.xml.namespace.QName;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import javax.xml.transform.Source;
+import javax.xml.transform.sax.SAXSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An extension element whose content isn't known to the model, captured as a compact list of events (the start and end of
+ * each element, its namespace declarations and attributes, and its text) instead of as a DOM tree. The events can be
+ * replayed to a {@link Handler}, an {@link XMLStreamWriter}, a SAX {@link ContentHandler} or, for JAXB, a {@link Source},
+ * so a captured element can be written as XML or JSON without building a DOM.<br/><br/>
+ *
+ * Comments and processing instructions aren't captured. A captured element is immutable.<br/><br/>
+ *
+ * A captured element is also a read-only DOM {@link Element}, since JAXB only hands DOM elements to the handler of an
+ * <code>@XmlAnyElement</code> property, and so that code that expects unknown extension elements to be DOM elements can
+ * still read them. Its names, attributes and text are read from the events. Navigating to its children or attribute nodes
+ * builds a DOM copy of the element (once, on first use) and returns the nodes of the copy, so the captured element keeps
+ * no more than its events until its DOM nodes are asked for. The element is detached (it has no parent or owner document),
+ * and methods that would modify it fail.
+ *
+ * @author Ryan Heaton
+ * @see ExtensionElementHandler
+ */
+public final class CapturedElement implements Element {
+
+  private static final int START = 1;
+  private static final int NAMESPACE = 2;
+  private static final int ATTRIBUTE = 3;
+  private static final int TEXT = 4;
+  private static final int END = 5;
+
+  private static final DocumentBuilderFactory DOCUMENT_BUILDER_FACTORY;
+  static {
+    DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+    factory.setNamespaceAware(true);
+    DOCUMENT_BUILDER_FACTORY = factory;
+  }
+
+  private final int[] tokens;
+  private final String[] strings;
+  private volatile Element dom;
+
+  private CapturedElement(int[] tokens, String[] strings) {
+    this.tokens = tokens;
+    this.strings = strings;
+  }
+
+  /**
+   * Capture a DOM element.
+   *
+   * @param element The element.
+   * @return The captured element.
+   */
+  public static CapturedElement from(Element element) {
+    if (element instanceof CapturedElement) {
+      return (CapturedElement) element;
+    }
+    Builder builder = new Builder();
+    capture(element, builder);
+    return builder.build();
+  }
+
+  private static void capture(Element element, Builder builder) {
+    builder.startElement(element.getNamespaceURI(), localName(element), element.getPrefix());
+    NamedNodeMap attributes = element.getAttributes();
+    for (int i = 0; i < attributes.getLength(); i++) {
+      Attr attribute = (Attr) attributes.item(i);
+      if (XMLConstants.XMLNS_ATTRIBUTE_NS_URI.equals(attribute.getNamespaceURI())) {
+        builder.namespace(XMLConstants.XMLNS_ATTRIBUTE.equals(attribute.getName()) ? null : attribute.getLocalName(), attribute.getValue());
+      }
+      else {
+        builder.attribute(attribute.getNamespaceURI(), localName(attribute), attribute.getPrefix(), attribute.getValue());
+      }
+    }
+    for (Node child = element.getFirstChild(); child != null; child = child.getNextSibling()) {
+      switch (child.getNodeType()) {
+        case Node.TEXT_NODE:
+        case Node.CDATA_SECTION_NODE:
+          builder.text(child.getNodeValue());
+          break;
+        case Node.ELEMENT_NODE:
+          capture((Element) child, builder);
+          break;
+      }
+    }
+    builder.endElement();
+  }
+
+  private static String localName(Node node) {
+    return node.getLocalName() == null ? node.getNodeName() : node.getLocalName();
+  }
+
+  /**
+   * The namespace of the element.
+   *
+   * @return The namespace of the element, or null if none.
+   */
+  public String getNamespaceURI() {
+    return string(this.tokens[1]);
+  }
+
+  /**
+   * The local name of the element.
+   *
+   * @return The local name of the element.
+   */
+  public String getLocalName() {
+    return string(this.tokens[2]);
+  }
+
+  /**
+   * The prefix of the element.
+   *
+   * @return The prefix of the element, or null if none.
+   */
+  public String getPrefix() {
+    return string(this.tokens[3]);
+  }
+
+  /**
+   * The name of the element.
+   *
+   * @return The name of the element.
+   */
+  public QName getName() {
+    String namespaceURI = getNamespaceURI();
+    String prefix = getPrefix();
+    return new QName(namespaceURI == null ? XMLConstants.NULL_NS_URI : namespaceURI, getLocalName(), prefix == null ? XMLConstants.DEFAULT_NS_PREFIX : prefix);
+  }
+
+  /**
+   * The text of the element and its descendants, with the semantics of {@link Node#getTextContent()}.
+   *
+   * @return The text of the element and its descendants.
+   */
+  public String getTextContent() {
+    StringBuilder text = new StringBuilder();
+    for (int i = 0; i < this.tokens.length; i += width(this.tokens[i])) {
+      if (this.tokens[i] == TEXT) {
+        text.append(string(this.tokens[i + 1]));
+      }
+    }
+    return text.toString();
+  }
+
+  /**
+   * Replay the events of the element. The namespaces used by each element and its attributes are declared on the element
+   * unless the element or one of its ancestors declares them, so the events are self-contained.
+   *
+   * @param handler The handler.
+   */
+  public <X extends Exception> void replay(Handler<X> handler) throws X {
+    List<String> scope = new ArrayList<String>();
+    int[] marks = new int[8];
+    int depth = 0;
+    for (int i = 0; i < this.tokens.length; i += width(this.tokens[i])) {
+      switch (this.tokens[i]) {
+        case START:
+          if (depth == marks.length) {
+            int[] grown = new int[depth * 2];
+            System.arraycopy(marks, 0, grown, 0, depth);
+            marks = grown;
+          }
+          marks[depth++] = scope.size();
+          String namespaceURI = string(this.tokens[i + 1]);
+          String prefix = string(this.tokens[i + 3]);
+          handler.startElement(namespaceURI, string(this.tokens[i + 2]), prefix);
+
+          //the declarations and attributes of the element follow its start.
+          int end = i + width(START);
+          while (end < this.tokens.length && (this.tokens[end] == NAMESPACE || this.tokens[end] == ATTRIBUTE)) {
+            end += width(this.tokens[end]);
+          }
+          for (int j = i + width(START); j < end; j += width(this.tokens[j])) {
+            if (this.tokens[j] == NAMESPACE) {
+              declare(scope, string(this.tokens[j + 1]), string(this.tokens[j + 2]));
+            }
+          }
+          if (!isDeclared(scope, prefix, namespaceURI)) {
+            declare(scope, prefix, namespaceURI);
+            handler.namespace(prefix, namespaceURI);
+          }
+          for (int j = i + width(START); j < end; j += width(this.tokens[j])) {
+            if (this.tokens[j] == ATTRIBUTE) {
+              String attributeNamespace = string(this.tokens[j + 1]);
+              String attributePrefix = string(this.tokens[j + 3]);
+              if (attributeNamespace != null && attributePrefix != null && !isDeclared(scope, attributePrefix, attributeNamespace)) {
+                declare(scope, attributePrefix, attributeNamespace);
+                handler.namespace(attributePrefix, attributeNamespace);
+              }
+            }
+          }
+          break;
+        case NAMESPACE:
+          handler.namespace(string(this.tokens[i + 1]), string(this.tokens[i + 2]));
+          break;
+        case ATTRIBUTE:
+          handler.attribute(string(this.tokens[i + 1]), string(this.tokens[i + 2]), string(this.tokens[i + 3]), string(this.tokens[i + 4]));
+          break;
+        case TEXT:
+          handler.text(string(this.tokens[i + 1]));
+          break;
+        case END:
+          handler.endElement();
+          int mark = marks[--depth];
+          while (scope.size() > mark) {
+            scope.remove(scope.size() - 1);
+          }
+          break;
+      }
+    }
+  }
+
+  private static void declare(List<String> scope, String prefix, String namespaceURI) {
+    scope.add(prefix == null ? "" : prefix);
+    scope.add(namespaceURI == null ? "" : namespaceURI);
+  }
+
+  private static boolean isDeclared(List<String> scope, String prefix, String namespaceURI) {
+    prefix = prefix == null ? "" : prefix;
+    namespaceURI = namespaceURI == null ? "" : namespaceURI;
+    for (int i = scope.size() - 2; i >= 0; i -= 2) {
+      if (prefix.equals(scope.get(i))) {
+        return namespaceURI.equals(scope.get(i + 1));
+      }
+    }
+    //an unprefixed name in no namespace needs no declaration unless a default namespace is in scope.
+    return prefix.length() == 0 && namespaceURI.length() == 0;
+  }
+
+  /**
+   * Write the element to a stream writer.
+   *
+   * @param writer The writer.
+   * @throws XMLStreamException If the element couldn't be written.
+   */
+  public void writeTo(final XMLStreamWriter writer) throws XMLStreamException {
+    replay(new Handler<XMLStreamException>() {
+      public void startElement(String namespaceURI, String localName, String prefix) throws XMLStreamException {
+        writer.writeStartElement(prefix == null ? XMLConstants.DEFAULT_NS_PREFIX : prefix, localName, namespaceURI == null ? XMLConstants.NULL_NS_URI : namespaceURI);
+      }
+
+      public void namespace(String prefix, String namespaceURI) throws XMLStreamException {
+        if (prefix == null || prefix.length() == 0) {
+          writer.writeDefaultNamespace(namespaceURI == null ? XMLConstants.NULL_NS_URI : namespaceURI);
+        }
+        else {
+          writer.writeNamespace(prefix, namespaceURI);
+        }
+      }
+
+      public void attribute(String namespaceURI, String localName, String prefix, String value) throws XMLStreamException {
+        if (namespaceURI == null) {
+          writer.writeAttribute(localName, value);
+        }
+        else {
+          writer.writeAttribute(prefix == null ? XMLConstants.DEFAULT_NS_PREFIX : prefix, namespaceURI, localName, value);
+        }
+      }
+
+      public void text(String text) throws XMLStreamException {
+        writer.writeCharacters(text);
+      }
+
+      public void endElement() throws XMLStreamException {
+        writer.writeEndElement();
+      }
+    });
+  }
+
+  /**
+   * Write the element to a SAX content handler, as a fragment (without the start and end of a document).
+   *
+   * @param contentHandler The content handler.
+   * @throws SAXException If the content handler fails.
+   */
+  public void writeTo(ContentHandler contentHandler) throws SAXException {
+    replay(new SaxWriter(contentHandler));
+  }
+
+  /**
+   * The element as a source, e.g. for a transformer or for JAXB.
+   *
+   * @return The element as a source.
+   */
+  public Source toSource() {
+    return new SAXSource(new Reader(), new InputSource());
+  }
+
+  /**
+   * Build the element as a DOM element.
+   *
+   * @param document The document that is to own the element.
+   * @return The DOM element.
+   */
+  public Element toElement(final Document document) {
+    final Element[] root = new Element[1];
+    replay(new Handler<RuntimeException>() {
+      Node current = null;
+
+      public void startElement(String namespaceURI, String localName, String prefix) {
+        Element element = document.createElementNS(namespaceURI, prefix == null || prefix.length() == 0 ? localName : prefix + ':' + localName);
+        if (this.current == null) {
+          root[0] = element;
+        }
+        else {
+          this.current.appendChild(element);
+        }
+        this.current = element;
+      }
+
+      public void namespace(String prefix, String namespaceURI) {
+        ((Element) this.current).setAttributeNS(XMLConstants.XMLNS_ATTRIBUTE_NS_URI, prefix == null || prefix.length() == 0 ? XMLConstants.XMLNS_ATTRIBUTE : XMLConstants.XMLNS_ATTRIBUTE + ':' + prefix, namespaceURI == null ? "" : namespaceURI);
+      }
+
+      public void attribute(String namespaceURI, String localName, String prefix, String value) {
+        ((Element) this.current).setAttributeNS(namespaceURI, prefix == null || prefix.length() == 0 ? localName : prefix + ':' + localName, value);
+      }
+
+      public void text(String text) {
+        this.current.appendChild(document.createTextNode(text));
+      }
+
+      public void endElement() {
+        this.current = this.current.getParentNode();
+      }
+    });
+    return root[0];
+  }
+
+  @Override
+  public String toString() {
+    return "CapturedElement{" + getName() + "}";
+  }
+
+  //read-only DOM; the child and attribute nodes are those of the DOM copy.
+
+  public String getTagName() {
+    return getNodeName();
+  }
+
+  public String getNodeName() {
+    String prefix = getPrefix();
+    return prefix == null ? getLocalName() : prefix + ':' + getLocalName();
+  }
+
+  public short getNodeType() {
+    return ELEMENT_NODE;
+  }
+
+  public String getNodeValue() {
+    return null;
+  }
+
+  public void setNodeValue(String nodeValue) {
+    //the value of an element is null, so setting it has no effect.
+  }
+
+  public String getAttribute(String name) {
+    int attribute = findAttribute(null, name, false);
+    return attribute < 0 ? "" : string(this.tokens[attribute + 4]);
+  }
+
+  public String getAttributeNS(String namespaceURI, String localName) {
+    int attribute = findAttribute(namespaceURI, localName, true);
+    return attribute < 0 ? "" : string(this.tokens[attribute + 4]);
+  }
+
+  public boolean hasAttribute(String name) {
+    return findAttribute(null, name, false) >= 0;
+  }
+
+  public boolean hasAttributeNS(String namespaceURI, String localName) {
+    return findAttribute(namespaceURI, localName, true) >= 0;
+  }
+
+  public boolean hasAttributes() {
+    for (int i = width(START); i < this.tokens.length && (this.tokens[i] == NAMESPACE || this.tokens[i] == ATTRIBUTE); i += width(this.tokens[i])) {
+      if (this.tokens[i] == ATTRIBUTE) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  public boolean hasChildNodes() {
+    int i = width(START);
+    while (this.tokens[i] == NAMESPACE || this.tokens[i] == ATTRIBUTE) {
+      i += width(this.tokens[i]);
+    }
+    return this.tokens[i] != END;
+  }
+
+  private int findAttribute(String namespaceURI, String name, boolean namespaceAware) {
+    if (namespaceAware && namespaceURI != null && namespaceURI.length() == 0) {
+      namespaceURI = null;
+    }
+    for (int i = width(START); i < this.tokens.length && (this.tokens[i] == NAMESPACE || this.tokens[i] == ATTRIBUTE); i += width(this.tokens[i])) {
+      if (this.tokens[i] == ATTRIBUTE) {
+        String localName = string(this.tokens[i + 2]);
+        if (namespaceAware) {
+          String attributeNamespace = string(this.tokens[i + 1]);
+          if (localName.equals(name) && (namespaceURI == null ? attributeNamespace == null : namespaceURI.equals(attributeNamespace))) {
+            return i;
+          }
+        }
+        else {
+          String prefix = string(this.tokens[i + 3]);
+          if (name.equals(prefix == null ? localName : prefix + ':' + localName)) {
+            return i;
+          }
+        }
+      }
+    }
+    return -1;
+  }
+
+  public String lookupNamespaceURI(String prefix) {
+    prefix = prefix == null || prefix.length() == 0 ? null : prefix;
+    for (int i = width(START); i < this.tokens.length && (this.tokens[i] == NAMESPACE || this.tokens[i] == ATTRIBUTE); i += width(this.tokens[i])) {
+      if (this.tokens[i] == NAMESPACE && (prefix == null ? this.tokens[i + 1] < 0 : prefix.equals(string(this.tokens[i + 1])))) {
+        String namespaceURI = string(this.tokens[i + 2]);
+        return namespaceURI.length() == 0 ? null : namespaceURI;
+      }
+    }
+    String elementPrefix = getPrefix();
+    return (prefix == null ? elementPrefix == null : prefix.equals(elementPrefix)) ? getNamespaceURI() : null;
+  }
+
+  public String lookupPrefix(String namespaceURI) {
+    if (namespaceURI == null || namespaceURI.length() == 0) {
+      return null;
+    }
+    for (int i = width(START); i < this.tokens.length && (this.tokens[i] == NAMESPACE || this.tokens[i] == ATTRIBUTE); i += width(this.tokens[i])) {
+      if (this.tokens[i] == NAMESPACE && this.tokens[i + 1] >= 0 && namespaceURI.equals(string(this.tokens[i + 2]))) {
+        return string(this.tokens[i + 1]);
+      }
+    }
+    return namespaceURI.equals(getNamespaceURI()) ? getPrefix() : null;
+  }
+
+  public boolean isDefaultNamespace(String namespaceURI) {
+    String defaultNamespace = lookupNamespaceURI(null);
+    return namespaceURI == null || namespaceURI.length() == 0 ? defaultNamespace == null : namespaceURI.equals(defaultNamespace);
+  }
+
+  public boolean isSameNode(Node other) {
+    return this == other;
+  }
+
+  public boolean isEqualNode(Node other) {
+    if (!(other instanceof CapturedElement)) {
+      return false;
+    }
+    CapturedElement that = (CapturedElement) other;
+    if (this.tokens.length != that.tokens.length) {
+      return false;
+    }
+    for (int i = 0; i < this.tokens.length; i += width(this.tokens[i])) {
+      if (this.tokens[i] != that.tokens[i]) {
+        return false;
+      }
+      for (int j = i + 1; j < i + width(this.tokens[i]); j++) {
+        String value = string(this.tokens[j]);
+        if (value == null ? that.tokens[j] >= 0 : !value.equals(that.string(that.tokens[j]))) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  public Node getParentNode() {
+    return null;
+  }
+
+  public Node getPreviousSibling() {
+    return null;
+  }
+
+  public Node getNextSibling() {
+    return null;
+  }
+
+  public Document getOwnerDocument() {
+    return null;
+  }
+
+  public String getBaseURI() {
+    return null;
+  }
+
+  public void normalize() {
+    //adjacent text is already coalesced.
+  }
+
+  public boolean isSupported(String feature, String version) {
+    return false;
+  }
+
+  public Object getFeature(String feature, String version) {
+    return null;
+  }
+
+  public Object getUserData(String key) {
+    return null;
+  }
+
+  public TypeInfo getSchemaTypeInfo() {
+    return dom().getSchemaTypeInfo();
+  }
+
+  public NodeList getChildNodes() {
+    return dom().getChildNodes();
+  }
+
+  public Node getFirstChild() {
+    return dom().getFirstChild();
+  }
+
+  public Node getLastChild() {
+    return dom().getLastChild();
+  }
+
+  public NamedNodeMap getAttributes() {
+    return dom().getAttributes();
+  }
+
+  public Attr getAttributeNode(String name) {
+    return dom().getAttributeNode(name);
+  }
+
+  public Attr getAttributeNodeNS(String namespaceURI, String localName) {
+    return dom().getAttributeNodeNS(namespaceURI, localName);
+  }
+
+  public NodeList getElementsByTagName(String name) {
+    return dom().getElementsByTagName(name);
+  }
+
+  public NodeList getElementsByTagNameNS(String namespaceURI, String localName) {
+    return dom().getElementsByTagNameNS(namespaceURI, localName);
+  }
+
+  public Node cloneNode(boolean deep) {
+    return dom().cloneNode(deep);
+  }
+
+  public short compareDocumentPosition(Node other) {
+    return other == this ? 0 : DOCUMENT_POSITION_DISCONNECTED;
+  }
+
+  public Object setUserData(String key, Object data, UserDataHandler handler) {
+    throw readOnly();
+  }
+
+  public void setAttribute(String name, String value) {
+    throw readOnly();
+  }
+
+  public void removeAttribute(String name) {
+    throw readOnly();
+  }
+
+  public Attr setAttributeNode(Attr attribute) {
+    throw readOnly();
+  }
+
+  public Attr removeAttributeNode(Attr attribute) {
+    throw readOnly();
+  }
+
+  public void setAttributeNS(String namespaceURI, String qualifiedName, String value) {
+    throw readOnly();
+  }
+
+  public void removeAttributeNS(String namespaceURI, String localName) {
+    throw readOnly();
+  }
+
+  public Attr setAttributeNodeNS(Attr attribute) {
+    throw readOnly();
+  }
+
+  public void setIdAttribute(String name, boolean isId) {
+    throw readOnly();
+  }
+
+  public void setIdAttributeNS(String namespaceURI, String localName, boolean isId) {
+    throw readOnly();
+  }
+
+  public void setIdAttributeNode(Attr attribute, boolean isId) {
+    throw readOnly();
+  }
+
+  public Node insertBefore(Node newChild, Node refChild) {
+    throw readOnly();
+  }
+
+  public Node replaceChild(Node newChild, Node oldChild) {
+    throw readOnly();
+  }
+
+  public Node removeChild(Node oldChild) {
+    throw readOnly();
+  }
+
+  public Node appendChild(Node newChild) {
+    throw readOnly();
+  }
+
+  public void setPrefix(String prefix) {
+    throw readOnly();
+  }
+
+  public void setTextContent(String textContent) {
+    throw readOnly();
+  }
+
+  /**
+   * The DOM copy of the element, whose nodes are handed out for navigation.
+   */
+  private Element dom() {
+    Element dom = this.dom;
+    if (dom == null) {
+      try {
+        DocumentBuilder builder;
+        synchronized (DOCUMENT_BUILDER_FACTORY) {
+          builder = DOCUMENT_BUILDER_FACTORY.newDocumentBuilder();
+        }
+        dom = toElement(builder.newDocument());
+      }
+      catch (ParserConfigurationException e) {
+        throw new DOMException(DOMException.NOT_SUPPORTED_ERR, "Unable to build the DOM of a captured element: " + e.getMessage());
+      }
+      this.dom = dom;
+    }
+    return dom;
+  }
+
+  private static DOMException readOnly() {
+    return new DOMException(DOMException.NO_MODIFICATION_ALLOWED_ERR, "A captured element is read-only.");
+  }
+
+  private String string(int index) {
+    return index < 0 ? null : this.strings[index];
+  }
+
+  private static int width(int token) {
+    switch (token) {
+      case START:
+        return 4;
+      case NAMESPACE:
+        return 3;
+      case ATTRIBUTE:
+        return 5;
+      case TEXT:
+        return 2;
+      default:
+        return 1;
+    }
+  }
+
+  /**
+   * A handler of the events of a captured element. The namespace declarations and the attributes of an element follow the
+   * start of the element, in no particular order; the text and children of the element follow them.
+   */
+  public interface Handler<X extends Exception> {
+
+    void startElement(String namespaceURI, String localName, String prefix) throws X;
+
+    void namespace(String prefix, String namespaceURI) throws X;
+
+    void attribute(String namespaceURI, String localName, String prefix, String value) throws X;
+
+    void text(String text) throws X;
+
+    void endElement() throws X;
+  }
+
+  /**
+   * Builds a captured element from its events. Adjacent text is coalesced.
+   */
+  public static final class Builder implements Handler<RuntimeException> {
+
+    private int[] tokens = new int[32];
+    private int tokenCount = 0;
+    private String[] strings = new String[16];
+    private int stringCount = 0;
+    private StringBuilder text = null;
+    private int depth = 0;
+    private boolean done = false;
+
+    public void startElement(String namespaceURI, String localName, String prefix) {
+      if (this.done) {
+        throw new IllegalStateException("The element has already ended.");
+      }
+      flushText();
+      add(START, string(emptyToNull(namespaceURI)), string(localName), string(emptyToNull(prefix)));
+      this.depth++;
+    }
+
+    public void namespace(String prefix, String namespaceURI) {
+      assertInElement();
+      add(NAMESPACE, string(emptyToNull(prefix)), string(namespaceURI == null ? "" : namespaceURI));
+    }
+
+    public void attribute(String namespaceURI, String localName, String prefix, String value) {
+      assertInElement();
+      add(ATTRIBUTE, string(emptyToNull(namespaceURI)), string(localName), string(emptyToNull(prefix)), string(value));
+    }
+
+    public void text(String text) {
+      assertInElement();
+      if (this.text == null) {
+        this.text = new StringBuilder();
+      }
+      this.text.append(text);
+    }
+
+    public void endElement() {
+      assertInElement();
+      flushText();
+      add(END);
+      if (--this.depth == 0) {
+        this.done = true;
+      }
+    }
+
+    /**
+     * Build the captured element.
+     *
+     * @return The captured element.
+     */
+    public CapturedElement build() {
+      if (!this.done) {
+        throw new IllegalStateException("The element hasn't ended.");
+      }
+      int[] tokens = new int[this.tokenCount];
+      System.arraycopy(this.tokens, 0, tokens, 0, this.tokenCount);
+      String[] strings = new String[this.stringCount];
+      System.arraycopy(this.strings, 0, strings, 0, this.stringCount);
+      return new CapturedElement(tokens, strings);
+    }
+
+    private void assertInElement() {
+      if (this.depth == 0) {
+        throw new IllegalStateException("Not in an element.");
+      }
+    }
+
+    private void flushText() {
+      if (this.text != null && this.text.length() > 0) {
+        add(TEXT, string(this.text.toString()));
+        this.text.setLength(0);
+      }
+    }
+
+    private int string(String value) {
+      if (value == null) {
+        return -1;
+      }
+      //names recur through an element, so they're looked up among the strings so far.
+      for (int i = this.stringCount - 1; i >= 0 && i >= this.stringCount - 16; i--) {
+        if (value.equals(this.strings[i])) {
+          return i;
+        }
+      }
+      if (this.stringCount == this.strings.length) {
+        String[] strings = new String[this.stringCount * 2];
+        System.arraycopy(this.strings, 0, strings, 0, this.stringCount);
+        this.strings = strings;
+      }
+      this.strings[this.stringCount] = value;
+      return this.stringCount++;
+    }
+
+    private void add(int... tokens) {
+      if (this.tokenCount + tokens.length > this.tokens.length) {
+        int[] grown = new int[Math.max(this.tokens.length * 2, this.tokenCount + tokens.length)];
+        System.arraycopy(this.tokens, 0, grown, 0, this.tokenCount);
+        this.tokens = grown;
+      }
+      System.arraycopy(tokens, 0, this.tokens, this.tokenCount, tokens.length);
+      this.tokenCount += tokens.length;
+    }
+
+    private static String emptyToNull(String value) {
+      return value == null || value.length() == 0 ? null : value;
+    }
+  }
+
+  /**
+   * A SAX content handler that captures the (first) element it receives.
+   */
+  public static final class Recorder extends DefaultHandler {
+
+    private final Builder builder = new Builder();
+    private final List<String> mappings = new ArrayList<String>();
+
+    @Override
+    public void startPrefixMapping(String prefix, String uri) {
+      this.mappings.add(prefix);
+      this.mappings.add(uri);
+    }
+
+    @Override
+    public void startElement(String uri, String localName, String qName, Attributes attributes) {
+      this.builder.startElement(uri, localName.length() == 0 ? qName : localName, prefix(qName));
+      for (int i = 0; i < this.mappings.size(); i += 2) {
+        this.builder.namespace(this.mappings.get(i), this.mappings.get(i + 1));
+      }
+      this.mappings.clear();
+      for (int i = 0; i < attributes.getLength(); i++) {
+        String attributeName = attributes.getQName(i);
+        if (XMLConstants.XMLNS_ATTRIBUTE.equals(attributeName) || attributeName.startsWith(XMLConstants.XMLNS_ATTRIBUTE + ':')) {
+          continue;
+        }
+        String attributeLocalName = attributes.getLocalName(i);
+        this.builder.attribute(attributes.getURI(i), attributeLocalName == null || attributeLocalName.length() == 0 ? attributeName : attributeLocalName, prefix(attributeName), attributes.getValue(i));
+      }
+    }
+
+    @Override
+    public void characters(char[] ch, int start, int length) {
+      this.builder.text(new String(ch, start, length));
+    }
+
+    @Override
+    public void ignorableWhitespace(char[] ch, int start, int length) {
+      characters(ch, start, length);
+    }
+
+    @Override
+    public void endElement(String uri, String localName, String qName) {
+      this.builder.endElement();
+    }
+
+    /**
+     * The captured element.
+     *
+     * @return The captured element.
+     */
+    public CapturedElement getCapturedElement() {
+      return this.builder.build();
+    }
+
+    private static String prefix(String qName) {
+      int colon = qName.indexOf(':');
+      return colon < 0 ? null : qName.substring(0, colon);
+    }
+  }
+
+  /**
+   * Replays the events to a SAX content handler.
+   */
+  private static final class SaxWriter implements Handler<SAXException> {
+
+    private final ContentHandler contentHandler;
+    private final List<List<String>> declaredPrefixes = new ArrayList<List<String>>();
+    private String namespaceURI;
+    private String localName;
+    private String qName;
+    private List<String> prefixes;
+    private AttributesImpl attributes;
+    private final List<String> names = new ArrayList<String>();
+
+    private SaxWriter(ContentHandler contentHandler) {
+      this.contentHandler = contentHandler;
+    }
+
+    public void startElement(String namespaceURI, String localName, String prefix) throws SAXException {
+      flushStart();
+      this.namespaceURI = namespaceURI == null ? XMLConstants.NULL_NS_URI : namespaceURI;
+      this.localName = localName;
+      this.qName = prefix == null ? localName : prefix + ':' + localName;
+      this.prefixes = new ArrayList<String>(2);
+      this.attributes = new AttributesImpl();
+    }
+
+    public void namespace(String prefix, String namespaceURI) throws SAXException {
+      prefix = prefix == null ? XMLConstants.DEFAULT_NS_PREFIX : prefix;
+      this.contentHandler.startPrefixMapping(prefix, namespaceURI == null ? XMLConstants.NULL_NS_URI : namespaceURI);
+      this.prefixes.add(prefix);
+    }
+
+    public void attribute(String namespaceURI, String localName, String prefix, String value) {
+      this.attributes.addAttribute(namespaceURI == null ? XMLConstants.NULL_NS_URI : namespaceURI, localName, prefix == null ? localName : prefix + ':' + localName, "CDATA", value);
+    }
+
+    public void text(String text) throws SAXException {
+      flushStart();
+      this.contentHandler.characters(text.toCharArray(), 0, text.length());
+    }
+
+    public void endElement() throws SAXException {
+      flushStart();
+      int last = this.names.size() - 3;
+      this.contentHandler.endElement(this.names.get(last), this.names.get(last + 1), this.names.get(last + 2));
+      this.names.remove(last + 2);
+      this.names.remove(last + 1);
+      this.names.remove(last);
+      for (String prefix : this.declaredPrefixes.remove(this.declaredPrefixes.size() - 1)) {
+        this.contentHandler.endPrefixMapping(prefix);
+      }
+    }
+
+    private void flushStart() throws SAXException {
+      if (this.localName != null) {
+        this.contentHandler.startElement(this.namespaceURI, this.localName, this.qName, this.attributes);
+        this.names.add(this.namespaceURI);
+        this.names.add(this.localName);
+        this.names.add(this.qName);
+        this.declaredPrefixes.add(this.prefixes);
+        this.localName = null;
+      }
+    }
+  }
+
+  /**
+   * A SAX reader whose document is the element.
+   */
+  private final class Reader implements XMLReader {
+
+    private ContentHandler contentHandler;
+    private DTDHandler dtdHandler;
+    private EntityResolver entityResolver;
+    private ErrorHandler errorHandler;
+
+    public boolean getFeature(String name) throws SAXNotRecognizedException {
+      if ("http://xml.org/sax/features/namespaces".equals(name)) {
+        return true;
+      }
+      else if ("http://xml.org/sax/features/namespace-prefixes".equals(name)) {
+        return false;
+      }
+      throw new SAXNotRecognizedException(name);
+    }
+
+    public void setFeature(String name, boolean value) throws SAXNotRecognizedException, SAXNotSupportedException {
+      if (getFeature(name) != value) {
+        throw new SAXNotSupportedException(name);
+      }
+    }
+
+    public Object getProperty(String name) throws SAXNotRecognizedException {
+      throw new SAXNotRecognizedException(name);
+    }
+
+    public void setProperty(String name, Object value) throws SAXNotRecognizedException {
+      throw new SAXNotRecognizedException(name);
+    }
+
+    public void setEntityResolver(EntityResolver resolver) {
+      this.entityResolver = resolver;
+    }
+
+    public EntityResolver getEntityResolver() {
+      return this.entityResolver;
+    }
+
+    public void setDTDHandler(DTDHandler handler) {
+      this.dtdHandler = handler;
+    }
+
+    public DTDHandler getDTDHandler() {
+      return this.dtdHandler;
+    }
+
+    public void setContentHandler(ContentHandler handler) {
+      this.contentHandler = handler;
+    }
+
+    public ContentHandler getContentHandler() {
+      return this.contentHandler;
+    }
+
+    public void setErrorHandler(ErrorHandler handler) {
+      this.errorHandler = handler;
+    }
+
+    public ErrorHandler getErrorHandler() {
+      return this.errorHandler;
+    }
+
+    public void parse(InputSource input) throws SAXException {
+      if (this.contentHandler != null) {
+        this.contentHandler.startDocument();
+        writeTo(this.contentHandler);
+        this.contentHandler.endDocument();
+      }
+    }
+
+    public void parse(String systemId) throws SAXException {
+      parse(new InputSource(systemId));
+    }
+  }
+}
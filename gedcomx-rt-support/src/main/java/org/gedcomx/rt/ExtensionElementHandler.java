@@ -0,0 +1,110 @@
+/**
+ * Copyright 2011-2012 Intellectual Reserve, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gedcomx.rt;
+
+import com.sun.xml.bind.v2.runtime.unmarshaller.UnmarshallingContext;
+import org.w3c.dom.Element;
+
+import javax.xml.bind.Unmarshaller;
+import javax.xml.bind.ValidationEventHandler;
+import javax.xml.bind.annotation.DomHandler;
+import javax.xml.bind.annotation.W3CDomHandler;
+import javax.xml.bind.annotation.adapters.XmlAdapter;
+import javax.xml.transform.Result;
+import javax.xml.transform.Source;
+import javax.xml.transform.dom.DOMResult;
+import javax.xml.transform.sax.SAXResult;
+
+/**
+ * The handler of extension elements that aren't known to the JAXB context (i.e. the <code>@XmlAnyElement</code> properties
+ * of the model). By default unknown elements are unmarshalled as DOM elements, as with the {@link W3CDomHandler}. If
+ * capturing is enabled on the unmarshaller, they are unmarshalled as {@link CapturedElement}s instead, which need a
+ * fraction of the memory of a DOM tree and can be written as XML or JSON without building one. Either kind of element can
+ * be marshalled.<br/><br/>
+ *
+ * Capturing is enabled per unmarshaller with {@link #setCaptureEnabled(Unmarshaller, boolean)}, so only the code that
+ * unmarshals with that unmarshaller gets {@link CapturedElement}s. (The setting is kept with the adapters of the
+ * unmarshaller, and found through the unmarshalling context of the JAXB reference implementation; with another
+ * implementation, unknown elements are always unmarshalled as DOM elements.)
+ *
+ * @author Ryan Heaton
+ */
+public class ExtensionElementHandler implements DomHandler<Element, Result> {
+
+  private final W3CDomHandler dom = new W3CDomHandler();
+
+  /**
+   * Whether the specified unmarshaller captures unknown extension elements as {@link CapturedElement}s instead of DOM elements.
+   *
+   * @param unmarshaller The unmarshaller.
+   * @return Whether unknown extension elements are captured.
+   */
+  public static boolean isCaptureEnabled(Unmarshaller unmarshaller) {
+    return unmarshaller.getAdapter(CaptureEnabled.class) != null;
+  }
+
+  /**
+   * Whether the specified unmarshaller is to capture unknown extension elements as {@link CapturedElement}s instead of DOM
+   * elements.
+   *
+   * @param unmarshaller The unmarshaller.
+   * @param captureEnabled Whether unknown extension elements are to be captured.
+   */
+  public static void setCaptureEnabled(Unmarshaller unmarshaller, boolean captureEnabled) {
+    unmarshaller.setAdapter(CaptureEnabled.class, captureEnabled ? CaptureEnabled.INSTANCE : null);
+  }
+
+  public Result createUnmarshaller(ValidationEventHandler errorHandler) {
+    return isCapturing(errorHandler) ? new SAXResult(new CapturedElement.Recorder()) : this.dom.createUnmarshaller(errorHandler);
+  }
+
+  private static boolean isCapturing(ValidationEventHandler errorHandler) {
+    //the reference implementation hands the handler the context of the unmarshaller at work.
+    return errorHandler instanceof UnmarshallingContext && isCaptureEnabled((Unmarshaller) ((UnmarshallingContext) errorHandler).parent);
+  }
+
+  public Element getElement(Result result) {
+    if (result instanceof SAXResult && ((SAXResult) result).getHandler() instanceof CapturedElement.Recorder) {
+      return ((CapturedElement.Recorder) ((SAXResult) result).getHandler()).getCapturedElement();
+    }
+    return this.dom.getElement((DOMResult) result);
+  }
+
+  public Source marshal(Element element, ValidationEventHandler errorHandler) {
+    if (element instanceof CapturedElement) {
+      return ((CapturedElement) element).toSource();
+    }
+    return this.dom.marshal(element, errorHandler);
+  }
+
+  /**
+   * The marker, kept with the adapters of an unmarshaller, that capturing is enabled. It never adapts anything.
+   */
+  private static final class CaptureEnabled extends XmlAdapter<Object, Object> {
+
+    private static final CaptureEnabled INSTANCE = new CaptureEnabled();
+
+    @Override
+    public Object unmarshal(Object value) {
+      return value;
+    }
+
+    @Override
+    public Object marshal(Object value) {
+      return value;
+    }
+  }
+}
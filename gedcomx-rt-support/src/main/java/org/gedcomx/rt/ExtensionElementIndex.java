@@ -0,0 +1,209 @@
+/**
+ * Copyright 2011-2012 Intellectual Reserve, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gedcomx.rt;
+
+import javax.xml.bind.annotation.XmlTransient;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A lazily-built index of the extension elements of a {@link SupportsExtensionElements} by runtime class, used to find the
+ * extensions of a type without scanning all the extension elements. The index groups the positions of the elements by their
+ * runtime class, so finding the extensions of a type costs (roughly) the number of matches rather than the number of
+ * extension elements. The extensions are found in the order of the extension elements.<br/><br/>
+ *
+ * The index is built on the first lookup and must be {@link #invalidate() invalidated} whenever the extension elements
+ * change; an {@link ExtensionElementList} does so on every change. Short lists aren't indexed, but scanned.
+ *
+ * @author Ryan Heaton
+ */
+@XmlTransient
+public final class ExtensionElementIndex {
+
+  /**
+   * The number of extension elements under which the elements are scanned instead of indexed.
+   */
+  public static final int MIN_INDEXED_SIZE = 16;
+
+  private volatile Snapshot snapshot;
+
+  /**
+   * Finds the first extension of a specified type.
+   *
+   * @param elements The extension elements.
+   * @param clazz The type.
+   * @return The extension, or null if none found.
+   */
+  @SuppressWarnings ( {"unchecked"} )
+  public <E> E findExtensionOfType(List<Object> elements, Class<E> clazz) {
+    if (elements == null) {
+      return null;
+    }
+
+    if (elements.size() < MIN_INDEXED_SIZE) {
+      for (Object extension : elements) {
+        if (clazz.isInstance(extension)) {
+          return (E) extension;
+        }
+      }
+      return null;
+    }
+
+    Snapshot snapshot = getSnapshot(elements);
+    int first = -1;
+    for (Group group : snapshot.getGroups(clazz)) {
+      if (first < 0 || group.positions[0] < first) {
+        first = group.positions[0];
+      }
+    }
+    return first < 0 ? null : (E) snapshot.elements[first];
+  }
+
+  /**
+   * Find the extensions of a specified type.
+   *
+   * @param elements The extension elements.
+   * @param clazz The type.
+   * @return The extensions, possibly empty but not null.
+   */
+  @SuppressWarnings ( {"unchecked"} )
+  public <E> List<E> findExtensionsOfType(List<Object> elements, Class<E> clazz) {
+    if (elements == null) {
+      return new ArrayList<E>();
+    }
+
+    if (elements.size() < MIN_INDEXED_SIZE) {
+      List<E> ext = new ArrayList<E>();
+      for (Object extension : elements) {
+        if (clazz.isInstance(extension)) {
+          ext.add((E) extension);
+        }
+      }
+      return ext;
+    }
+
+    Snapshot snapshot = getSnapshot(elements);
+    Group[] groups = snapshot.getGroups(clazz);
+    if (groups.length == 0) {
+      return new ArrayList<E>();
+    }
+    else if (groups.length == 1) {
+      int[] positions = groups[0].positions;
+      List<E> ext = new ArrayList<E>(positions.length);
+      for (int position : positions) {
+        ext.add((E) snapshot.elements[position]);
+      }
+      return ext;
+    }
+    else {
+      //merge the groups to keep the extensions in order.
+      int count = 0;
+      for (Group group : groups) {
+        count += group.positions.length;
+      }
+      int[] next = new int[groups.length];
+      List<E> ext = new ArrayList<E>(count);
+      for (int i = 0; i < count; i++) {
+        int min = -1;
+        for (int g = 0; g < groups.length; g++) {
+          if (next[g] < groups[g].positions.length && (min < 0 || groups[g].positions[next[g]] < groups[min].positions[next[min]])) {
+            min = g;
+          }
+        }
+        ext.add((E) snapshot.elements[groups[min].positions[next[min]++]]);
+      }
+      return ext;
+    }
+  }
+
+  /**
+   * Invalidate the index.
+   */
+  public void invalidate() {
+    this.snapshot = null;
+  }
+
+  private Snapshot getSnapshot(List<Object> elements) {
+    Snapshot snapshot = this.snapshot;
+    if (snapshot == null) {
+      snapshot = new Snapshot(elements);
+      this.snapshot = snapshot;
+    }
+    return snapshot;
+  }
+
+  private static final class Group {
+
+    private final Class<?> type;
+    private int[] positions = new int[4];
+    private int size = 0;
+
+    private Group(Class<?> type) {
+      this.type = type;
+    }
+
+    private void add(int position) {
+      if (this.size == this.positions.length) {
+        this.positions = Arrays.copyOf(this.positions, this.size * 2);
+      }
+      this.positions[this.size++] = position;
+    }
+  }
+
+  private static final class Snapshot {
+
+    private static final Group[] NO_GROUPS = new Group[0];
+
+    private final Object[] elements;
+    private final Group[] groups;
+    private final Map<Class<?>, Group[]> groupsByType = new ConcurrentHashMap<Class<?>, Group[]>();
+
+    private Snapshot(List<Object> source) {
+      this.elements = source.toArray();
+      Map<Class<?>, Group> groups = new LinkedHashMap<Class<?>, Group>();
+      for (int i = 0; i < this.elements.length; i++) {
+        Object element = this.elements[i];
+        if (element != null) {
+          Group group = groups.get(element.getClass());
+          if (group == null) {
+            group = new Group(element.getClass());
+            groups.put(element.getClass(), group);
+          }
+          group.add(i);
+        }
+      }
+      for (Group group : groups.values()) {
+        group.positions = Arrays.copyOf(group.positions, group.size);
+      }
+      this.groups = groups.values().toArray(new Group[groups.size()]);
+    }
+
+    private Group[] getGroups(Class<?> type) {
+      Group[] matches = this.groupsByType.get(type);
+      if (matches == null) {
+        List<Group> found = new ArrayList<Group>();
+        for (Group group : this.groups) {
+          if (type.isAssignableFrom(group.type)) {
+            found.add(group);
+          }
+        }
+        matches = found.isEmpty() ? NO_GROUPS : found.toArray(new Group[found.size()]);
+        this.groupsByType.put(type, matches);
+      }
+      return matches;
+    }
+  }
+}
@@ -0,0 +1,139 @@
+/**
+ * Copyright 2011-2012 Intellectual Reserve, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gedcomx.rt;
+
+import javax.xml.bind.annotation.XmlTransient;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * The list of extension elements of a {@link SupportsExtensionElements}, which keeps an {@link ExtensionElementIndex} of its
+ * elements. Every change to the list (including changes through its iterators and sub lists) invalidates the index, so the
+ * extensions found by type are always those of the current elements.<br/><br/>
+ *
+ * A list wraps the list it's {@link #wrap(java.util.List) created from} (e.g. the list created by JAXB when the extension
+ * elements are unmarshalled) instead of copying it, so the wrapped list must only be changed through this list.
+ *
+ * @author Ryan Heaton
+ */
+@XmlTransient
+public final class ExtensionElementList extends AbstractList<Object> implements RandomAccess {
+
+  private final List<Object> elements;
+  private ExtensionElementIndex index;
+
+  public ExtensionElementList() {
+    this(new ArrayList<Object>());
+  }
+
+  private ExtensionElementList(List<Object> elements) {
+    this.elements = elements;
+  }
+
+  /**
+   * The list of extension elements for the specified list.
+   *
+   * @param elements The list, or null.
+   * @return The specified list if it's already a list of extension elements, a list that wraps it otherwise, or null if it's null.
+   */
+  public static ExtensionElementList wrap(List<Object> elements) {
+    if (elements == null || elements instanceof ExtensionElementList) {
+      return (ExtensionElementList) elements;
+    }
+    return new ExtensionElementList(elements);
+  }
+
+  @Override
+  public Object get(int index) {
+    return this.elements.get(index);
+  }
+
+  @Override
+  public int size() {
+    return this.elements.size();
+  }
+
+  @Override
+  public Object set(int index, Object element) {
+    Object previous = this.elements.set(index, element);
+    invalidate();
+    return previous;
+  }
+
+  @Override
+  public void add(int index, Object element) {
+    this.elements.add(index, element);
+    this.modCount++;
+    invalidate();
+  }
+
+  @Override
+  public Object remove(int index) {
+    Object removed = this.elements.remove(index);
+    this.modCount++;
+    invalidate();
+    return removed;
+  }
+
+  @Override
+  public void clear() {
+    this.elements.clear();
+    this.modCount++;
+    invalidate();
+  }
+
+  @Override
+  protected void removeRange(int fromIndex, int toIndex) {
+    this.elements.subList(fromIndex, toIndex).clear();
+    this.modCount++;
+    invalidate();
+  }
+
+  /**
+   * Finds the first extension of a specified type.
+   *
+   * @param clazz The type.
+   * @return The extension, or null if none found.
+   */
+  public <E> E findExtensionOfType(Class<E> clazz) {
+    return getIndex().findExtensionOfType(this.elements, clazz);
+  }
+
+  /**
+   * Find the extensions of a specified type.
+   *
+   * @param clazz The type.
+   * @return The extensions, possibly empty but not null.
+   */
+  public <E> List<E> findExtensionsOfType(Class<E> clazz) {
+    return getIndex().findExtensionsOfType(this.elements, clazz);
+  }
+
+  private ExtensionElementIndex getIndex() {
+    if (this.index == null) {
+      this.index = new ExtensionElementIndex();
+    }
+    return this.index;
+  }
+
+  private void invalidate() {
+    if (this.index != null) {
+      this.index.invalidate();
+    }
+  }
+}
@@ -32,6 +32,8 @@ import java.io.InputStreamReader;
 import java.lang.reflect.Method;
 import java.net.URL;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * A nice namespace prefix mapper that can be used to make XML output as pretty as it can be.
@@ -43,13 +45,12 @@ public class GedcomNamespaceManager extends NamespacePrefixMapper {
   private final String defaultns;
   private final Map<String, String> ns2prefix;
 
-  private static boolean INITIALIZED = false;
-  private static final Map<String, String> KNOWN_PREFIXES = new HashMap<String, String>();
-  private static final Map<String, String> RUNTIME_VERSIONS = new HashMap<String, String>();
-  private static final Map<String, Class<?>> WRAPPED_JSON_TYPES_BY_NAME = new HashMap<String, Class<?>>();
-  private static final Map<QName, String> QNAME_WRAPPER_JSON_NAMES = new HashMap<QName, String>();
-  private static final Map<String, Class<?>> KNOWN_JSON_TYPES_BY_NAME = new HashMap<String, Class<?>>();
-  private static final Map<String, Class<?>> KNOWN_JSON_TYPES_BY_TYPE_ID = new HashMap<String, Class<?>>();
+  //the model metadata is built once by init() and then published as an immutable snapshot; reads don't lock.
+  private static volatile ModelMetadata MODEL_METADATA = null;
+  private static final ConcurrentMap<String, String> RUNTIME_VERSIONS = new ConcurrentHashMap<String, String>();
+  private static final ConcurrentMap<Class<?>, Boolean> REGISTERED_JSON_TYPES = new ConcurrentHashMap<Class<?>, Boolean>();
+  private static final ConcurrentMap<String, Class<?>> KNOWN_JSON_TYPES_BY_NAME = new ConcurrentHashMap<String, Class<?>>();
+  private static final ConcurrentMap<String, Class<?>> KNOWN_JSON_TYPES_BY_TYPE_ID = new ConcurrentHashMap<String, Class<?>>();
 
   public GedcomNamespaceManager(Class<?> rootClass) {
     this(getDefaultNamespace(rootClass));
@@ -86,7 +87,7 @@ public class GedcomNamespaceManager extends NamespacePrefixMapper {
   }
 
   public GedcomNamespaceManager(Map<String, String> overrides, String defaultns) {
-    Map<String, String> ns2prefix = getKnownPrefixes();
+    Map<String, String> ns2prefix = new HashMap<String, String>(getKnownPrefixes());
     if (overrides != null) {
       ns2prefix.putAll(overrides);
     }
@@ -112,15 +113,41 @@ public class GedcomNamespaceManager extends NamespacePrefixMapper {
   /**
    * The known set of namespace-to-prefix mappings.
    *
-   * @return The known set of namespace-to-prefix mappings.
+   * @return The known set of namespace-to-prefix mappings (unmodifiable).
    */
   public static Map<String, String> getKnownPrefixes() {
-    init(Thread.currentThread().getContextClassLoader());
-    return KNOWN_PREFIXES;
+    return getModelMetadata().knownPrefixes;
+  }
+
+  /**
+   * The known model classes, i.e. the classes annotated with {@link Models} that are listed in a "META-INF/gedcomx.models" resource.
+   *
+   * @return The known model classes.
+   */
+  public static Set<Class<?>> getKnownModelClasses() {
+    return getModelMetadata().modelClasses;
+  }
+
+  /**
+   * The object factories declared by the known models.
+   *
+   * @return The object factories declared by the known models.
+   */
+  public static Set<Class<?>> getKnownObjectFactories() {
+    return getModelMetadata().objectFactories;
+  }
+
+  private static ModelMetadata getModelMetadata() {
+    ModelMetadata metadata = MODEL_METADATA;
+    if (metadata == null) {
+      init(Thread.currentThread().getContextClassLoader());
+      metadata = MODEL_METADATA;
+    }
+    return metadata;
   }
 
   protected static synchronized void init(ClassLoader loader) {
-    if (INITIALIZED) {
+    if (MODEL_METADATA != null) {
       return;
     }
 
@@ -134,6 +161,7 @@ public class GedcomNamespaceManager extends NamespacePrefixMapper {
 
     Set<Class<?>> modelClasses = new HashSet<Class<?>>();
     modelClasses.add(CommonModels.class);
+    Set<Class<?>> objectFactories = new HashSet<Class<?>>();
 
     try {
       Enumeration<URL> resources = loader.getResources("META-INF/gedcomx.models");
@@ -162,6 +190,7 @@ public class GedcomNamespaceManager extends NamespacePrefixMapper {
         namespacePrefixes.put(model.namespace(), model.id());
 
         for (Class objectFactory : model.objectFactory()) {
+          objectFactories.add(objectFactory);
           for (Method method : objectFactory.getDeclaredMethods()) {
             JsonElementWrapper jsonElementWrapper = method.getAnnotation(JsonElementWrapper.class);
             if (jsonElementWrapper != null) {
@@ -188,10 +217,7 @@ public class GedcomNamespaceManager extends NamespacePrefixMapper {
       }
     }
 
-    KNOWN_PREFIXES.putAll(namespacePrefixes);
-    QNAME_WRAPPER_JSON_NAMES.putAll(wrapperJsonNames);
-    WRAPPED_JSON_TYPES_BY_NAME.putAll(wrappedJsonTypes);
-    INITIALIZED = true;
+    MODEL_METADATA = new ModelMetadata(namespacePrefixes, wrapperJsonNames, wrappedJsonTypes, modelClasses, objectFactories);
   }
 
   public static String nameFromQName(String namespaceUri, String localPart) {
@@ -226,8 +252,7 @@ public class GedcomNamespaceManager extends NamespacePrefixMapper {
    * @return The json wrapper name, or null if none.
    */
   public static String getJsonNameForWrapperName(QName wrapperName) {
-    init(Thread.currentThread().getContextClassLoader());
-    return QNAME_WRAPPER_JSON_NAMES.get(wrapperName);
+    return getModelMetadata().wrapperJsonNames.get(wrapperName);
   }
 
   /**
@@ -237,14 +262,7 @@ public class GedcomNamespaceManager extends NamespacePrefixMapper {
    * @return The wrapper qname.
    */
   public static QName findWrapperNameForJsonName(String jsonName) {
-    init(Thread.currentThread().getContextClassLoader());
-    for (Map.Entry<QName, String> entry : QNAME_WRAPPER_JSON_NAMES.entrySet()) {
-      if (entry.getValue().equals(jsonName)) {
-        return entry.getKey();
-      }
-    }
-
-    return null;
+    return jsonName == null ? null : getModelMetadata().jsonWrapperNames.get(jsonName);
   }
 
   /**
@@ -254,21 +272,26 @@ public class GedcomNamespaceManager extends NamespacePrefixMapper {
    * @return The wrapped type.
    */
   public static Class<?> getWrappedTypeForJsonName(String jsonName) {
-    init(Thread.currentThread().getContextClassLoader());
-    return WRAPPED_JSON_TYPES_BY_NAME.get(jsonName);
+    return jsonName == null ? null : getModelMetadata().wrappedJsonTypes.get(jsonName);
   }
 
   /**
    * Register a known JSON type. It must be annotated with either @JsonElementWrapper or @XmlRootElement.
+   * Registering a type that is already registered is a no-op.
    *
    * @param type the type to register.
    */
   public static void registerKnownJsonType(Class<?> type) {
+    if (REGISTERED_JSON_TYPES.containsKey(type)) {
+      return;
+    }
+
     String jsonName = getJsonName(type);
     if (jsonName != null) {
       KNOWN_JSON_TYPES_BY_NAME.put(jsonName, type);
     }
     KNOWN_JSON_TYPES_BY_TYPE_ID.put(getTypeIdName(type), type);
+    REGISTERED_JSON_TYPES.put(type, Boolean.TRUE);
   }
 
   /**
@@ -342,7 +365,7 @@ public class GedcomNamespaceManager extends NamespacePrefixMapper {
    * @return The known type, or null if not known.
    */
   public static Class<?> getKnownJsonType(String jsonName) {
-    return KNOWN_JSON_TYPES_BY_NAME.get(jsonName);
+    return jsonName == null ? null : KNOWN_JSON_TYPES_BY_NAME.get(jsonName);
   }
 
   /**
@@ -352,7 +375,7 @@ public class GedcomNamespaceManager extends NamespacePrefixMapper {
    * @return The known type, or null if not known.
    */
   public static Class<?> getKnownTypeById(String typeId) {
-    return KNOWN_JSON_TYPES_BY_TYPE_ID.get(typeId);
+    return typeId == null ? null : KNOWN_JSON_TYPES_BY_TYPE_ID.get(typeId);
   }
 
   /**
@@ -361,9 +384,9 @@ public class GedcomNamespaceManager extends NamespacePrefixMapper {
    * @param namespace The model namespace.
    * @return The runtime version.
    */
-  public synchronized static String getRuntimeVersion(String namespace) {
+  public static String getRuntimeVersion(String namespace) {
     String prefix = getKnownPrefixes().get(namespace);
-    String version = RUNTIME_VERSIONS.get(prefix);
+    String version = prefix == null ? null : RUNTIME_VERSIONS.get(prefix);
     if (version == null) {
       InputStream in = GedcomNamespaceManager.class.getClassLoader().getResourceAsStream("META-INF/" + prefix + ".rt.properties");
       if (in != null) {
@@ -381,9 +404,37 @@ public class GedcomNamespaceManager extends NamespacePrefixMapper {
         version = "(unknown)";
       }
 
-      RUNTIME_VERSIONS.put(prefix, version);
+      if (prefix != null) {
+        RUNTIME_VERSIONS.putIfAbsent(prefix, version);
+      }
     }
     return version;
   }
 
+  /**
+   * Immutable snapshot of the metadata about the known models.
+   */
+  private static final class ModelMetadata {
+
+    private final Map<String, String> knownPrefixes;
+    private final Map<QName, String> wrapperJsonNames;
+    private final Map<String, QName> jsonWrapperNames;
+    private final Map<String, Class<?>> wrappedJsonTypes;
+    private final Set<Class<?>> modelClasses;
+    private final Set<Class<?>> objectFactories;
+
+    private ModelMetadata(Map<String, String> knownPrefixes, Map<QName, String> wrapperJsonNames, Map<String, Class<?>> wrappedJsonTypes, Set<Class<?>> modelClasses, Set<Class<?>> objectFactories) {
+      this.knownPrefixes = Collections.unmodifiableMap(new HashMap<String, String>(knownPrefixes));
+      this.wrapperJsonNames = Collections.unmodifiableMap(new HashMap<QName, String>(wrapperJsonNames));
+      Map<String, QName> jsonWrapperNames = new HashMap<String, QName>();
+      for (Map.Entry<QName, String> entry : wrapperJsonNames.entrySet()) {
+        jsonWrapperNames.put(entry.getValue(), entry.getKey());
+      }
+      this.jsonWrapperNames = Collections.unmodifiableMap(jsonWrapperNames);
+      this.wrappedJsonTypes = Collections.unmodifiableMap(new HashMap<String, Class<?>>(wrappedJsonTypes));
+      this.modelClasses = Collections.unmodifiableSet(new HashSet<Class<?>>(modelClasses));
+      this.objectFactories = Collections.unmodifiableSet(new HashSet<Class<?>>(objectFactories));
+    }
+  }
+
 }
@@ -0,0 +1,189 @@
+/**
+ * Copyright 2011-2012 Intellectual Reserve, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gedcomx.rt;
+
+import com.sun.xml.bind.marshaller.NamespacePrefixMapper;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A shared registry of JAXB contexts. Creating a JAXB context is expensive, so the registry creates one context per set of
+ * classes and hands it out to anybody who asks for the same set. Each context is created with the object factories of the
+ * models that are known to the {@link GedcomNamespaceManager} (i.e. listed in "META-INF/gedcomx.models"), so that the
+ * elements declared by the known models are recognized wherever they appear.<br/><br/>
+ *
+ * Marshallers and unmarshallers aren't thread-safe, so the registry also pools them per context. A pooled marshaller or
+ * unmarshaller is handed out with its default settings: releasing one resets whatever its borrower may have set (for a
+ * marshaller the fragment and formatting properties, the encoding, the namespace prefix mapper, the schema, the event
+ * handler and the listener), so callers may set any properties they need without affecting the next borrower. Callers must
+ * release what they acquire when they're done.
+ *
+ * @author Ryan Heaton
+ */
+public class JAXBContextRegistry {
+
+  private static final int MAX_POOL_SIZE = 32;
+  private static final String PREFIX_MAPPER_PROPERTY = "com.sun.xml.bind.namespacePrefixMapper";
+  private static final NamespacePrefixMapper DEFAULT_PREFIX_MAPPER = new NamespacePrefixMapper() {
+    @Override
+    public String getPreferredPrefix(String namespaceUri, String suggestion, boolean requirePrefix) {
+      //the RI won't unset the mapper, so the default behavior is restored with one that takes the suggestion.
+      return suggestion;
+    }
+  };
+  private static final ConcurrentMap<Set<Class<?>>, JAXBContext> CONTEXTS = new ConcurrentHashMap<Set<Class<?>>, JAXBContext>();
+  private static final ConcurrentMap<JAXBContext, Pool> POOLS = new ConcurrentHashMap<JAXBContext, Pool>();
+
+  private JAXBContextRegistry() {}
+
+  /**
+   * Get the shared JAXB context for the specified classes, creating it if needed.
+   *
+   * @param classes The classes to be bound to the context.
+   * @return The shared context.
+   * @throws JAXBException If the context couldn't be created.
+   */
+  public static JAXBContext getContext(Class<?>... classes) throws JAXBException {
+    Set<Class<?>> key = classes.length == 1 ? Collections.<Class<?>>singleton(classes[0]) : new HashSet<Class<?>>(Arrays.asList(classes));
+    JAXBContext context = CONTEXTS.get(key);
+    if (context == null) {
+      Set<Class<?>> contextClasses = new LinkedHashSet<Class<?>>(key);
+      contextClasses.addAll(GedcomNamespaceManager.getKnownObjectFactories());
+      context = JAXBContext.newInstance(contextClasses.toArray(new Class[contextClasses.size()]));
+      POOLS.put(context, new Pool());
+      JAXBContext existing = CONTEXTS.putIfAbsent(key, context);
+      if (existing != null) {
+        POOLS.remove(context);
+        context = existing;
+      }
+    }
+    return context;
+  }
+
+  /**
+   * Acquire a marshaller for the specified context. If the context is managed by this registry, the marshaller
+   * is taken from the pool and should be given back with {@link #releaseMarshaller(JAXBContext, Marshaller)}.
+   *
+   * @param context The context.
+   * @return The marshaller.
+   * @throws JAXBException If a marshaller couldn't be created.
+   */
+  public static Marshaller acquireMarshaller(JAXBContext context) throws JAXBException {
+    Pool pool = POOLS.get(context);
+    Marshaller marshaller = pool == null ? null : pool.marshallers.poll();
+    if (marshaller == null) {
+      marshaller = context.createMarshaller();
+    }
+    else {
+      pool.marshallerCount.decrementAndGet();
+    }
+    return marshaller;
+  }
+
+  /**
+   * Give a marshaller back to the pool of the specified context.
+   *
+   * @param context The context from which the marshaller was acquired.
+   * @param marshaller The marshaller.
+   */
+  public static void releaseMarshaller(JAXBContext context, Marshaller marshaller) {
+    Pool pool = POOLS.get(context);
+    if (pool != null && marshaller != null && pool.marshallerCount.incrementAndGet() <= MAX_POOL_SIZE) {
+      try {
+        reset(marshaller);
+      }
+      catch (JAXBException e) {
+        //a marshaller that can't be reset isn't pooled.
+        pool.marshallerCount.decrementAndGet();
+        return;
+      }
+      pool.marshallers.offer(marshaller);
+    }
+    else if (pool != null && marshaller != null) {
+      pool.marshallerCount.decrementAndGet();
+    }
+  }
+
+  /**
+   * Acquire an unmarshaller for the specified context. If the context is managed by this registry, the unmarshaller
+   * is taken from the pool and should be given back with {@link #releaseUnmarshaller(JAXBContext, Unmarshaller)}.
+   *
+   * @param context The context.
+   * @return The unmarshaller.
+   * @throws JAXBException If an unmarshaller couldn't be created.
+   */
+  public static Unmarshaller acquireUnmarshaller(JAXBContext context) throws JAXBException {
+    Pool pool = POOLS.get(context);
+    Unmarshaller unmarshaller = pool == null ? null : pool.unmarshallers.poll();
+    if (unmarshaller == null) {
+      unmarshaller = context.createUnmarshaller();
+    }
+    else {
+      pool.unmarshallerCount.decrementAndGet();
+    }
+    return unmarshaller;
+  }
+
+  /**
+   * Give an unmarshaller back to the pool of the specified context.
+   *
+   * @param context The context from which the unmarshaller was acquired.
+   * @param unmarshaller The unmarshaller.
+   */
+  public static void releaseUnmarshaller(JAXBContext context, Unmarshaller unmarshaller) {
+    Pool pool = POOLS.get(context);
+    if (pool != null && unmarshaller != null && pool.unmarshallerCount.incrementAndGet() <= MAX_POOL_SIZE) {
+      unmarshaller.setSchema(null);
+      try {
+        unmarshaller.setEventHandler(null);
+      }
+      catch (JAXBException e) {
+        //fall through; it's just the default handler.
+      }
+      unmarshaller.setListener(null);
+      ExtensionElementHandler.setCaptureEnabled(unmarshaller, false);
+      pool.unmarshallers.offer(unmarshaller);
+    }
+    else if (pool != null && unmarshaller != null) {
+      pool.unmarshallerCount.decrementAndGet();
+    }
+  }
+
+  private static void reset(Marshaller marshaller) throws JAXBException {
+    marshaller.setProperty(Marshaller.JAXB_FRAGMENT, Boolean.FALSE);
+    marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.FALSE);
+    marshaller.setProperty(Marshaller.JAXB_ENCODING, "UTF-8");
+    marshaller.setProperty(PREFIX_MAPPER_PROPERTY, DEFAULT_PREFIX_MAPPER);
+    marshaller.setSchema(null);
+    marshaller.setEventHandler(null);
+    marshaller.setListener(null);
+  }
+
+  private static class Pool {
+    private final Queue<Marshaller> marshallers = new ConcurrentLinkedQueue<Marshaller>();
+    private final AtomicInteger marshallerCount = new AtomicInteger(0);
+    private final Queue<Unmarshaller> unmarshallers = new ConcurrentLinkedQueue<Unmarshaller>();
+    private final AtomicInteger unmarshallerCount = new AtomicInteger(0);
+  }
+}
@@ -0,0 +1,187 @@
+/**
+ * Copyright 2011-2012 Intellectual Reserve, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gedcomx.rt;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+
+/**
+ * A growable, reusable buffer of serialized data. Unlike a <code>ByteArrayOutputStream</code>, the buffer hands out views
+ * of its content (as a {@link ByteBuffer} or an {@link InputStream}) instead of copies, so a document that's written to it
+ * can be read back, sent or decoded without copying it. The views are only valid until the buffer is reset or released.<br/><br/>
+ *
+ * Buffers are pooled per thread: {@link #acquire()} one and {@link #release()} it when its content is no longer needed.
+ * A buffer isn't thread-safe.
+ *
+ * @author Ryan Heaton
+ */
+public final class SerializationBuffer extends OutputStream {
+
+  private static final int MAX_POOLED_CAPACITY = 1 << 20;
+  private static final ThreadLocal<SerializationBuffer> POOL = new ThreadLocal<SerializationBuffer>();
+
+  private byte[] bytes;
+  private int size = 0;
+
+  public SerializationBuffer() {
+    this(8192);
+  }
+
+  public SerializationBuffer(int capacity) {
+    this.bytes = new byte[capacity];
+  }
+
+  /**
+   * Acquire an empty buffer, which should be released when its content is no longer needed. Acquiring is reentrant: a
+   * buffer that's acquired while another is in use is simply a new one.
+   *
+   * @return An empty buffer.
+   */
+  public static SerializationBuffer acquire() {
+    SerializationBuffer buffer = POOL.get();
+    if (buffer == null) {
+      return new SerializationBuffer();
+    }
+    POOL.set(null);
+    return buffer;
+  }
+
+  /**
+   * Release this buffer back to the pool of the current thread. Buffers that have grown very large aren't kept.
+   */
+  public void release() {
+    this.size = 0;
+    if (this.bytes.length <= MAX_POOLED_CAPACITY) {
+      POOL.set(this);
+    }
+  }
+
+  @Override
+  public void write(int b) {
+    ensureCapacity(this.size + 1);
+    this.bytes[this.size++] = (byte) b;
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) {
+    ensureCapacity(this.size + len);
+    System.arraycopy(b, off, this.bytes, this.size, len);
+    this.size += len;
+  }
+
+  /**
+   * Write the content of a byte buffer (from its position to its limit) to this buffer.
+   *
+   * @param buffer The byte buffer.
+   */
+  public void write(ByteBuffer buffer) {
+    int len = buffer.remaining();
+    ensureCapacity(this.size + len);
+    buffer.get(this.bytes, this.size, len);
+    this.size += len;
+  }
+
+  private void ensureCapacity(int capacity) {
+    if (capacity > this.bytes.length) {
+      byte[] grown = new byte[Math.max(this.bytes.length * 2, capacity)];
+      System.arraycopy(this.bytes, 0, grown, 0, this.size);
+      this.bytes = grown;
+    }
+  }
+
+  /**
+   * The number of bytes in the buffer.
+   *
+   * @return The number of bytes in the buffer.
+   */
+  public int size() {
+    return this.size;
+  }
+
+  /**
+   * Empty the buffer, keeping its capacity.
+   */
+  public void reset() {
+    this.size = 0;
+  }
+
+  /**
+   * The content of the buffer as a (read-only) byte buffer.
+   *
+   * @return A view of the content of the buffer.
+   */
+  public ByteBuffer toByteBuffer() {
+    return ByteBuffer.wrap(this.bytes, 0, this.size).asReadOnlyBuffer();
+  }
+
+  /**
+   * The content of the buffer as an input stream.
+   *
+   * @return A stream over the content of the buffer.
+   */
+  public InputStream toInputStream() {
+    return new ByteArrayInputStream(this.bytes, 0, this.size);
+  }
+
+  /**
+   * A copy of the content of the buffer.
+   *
+   * @return A copy of the content of the buffer.
+   */
+  public byte[] toByteArray() {
+    byte[] copy = new byte[this.size];
+    System.arraycopy(this.bytes, 0, copy, 0, this.size);
+    return copy;
+  }
+
+  /**
+   * Decode the content of the buffer.
+   *
+   * @param charset The charset of the content.
+   * @return The decoded content.
+   */
+  public String toString(Charset charset) {
+    return new String(this.bytes, 0, this.size, charset);
+  }
+
+  /**
+   * Write the content of the buffer to a stream.
+   *
+   * @param out The stream.
+   * @throws IOException If the content couldn't be written.
+   */
+  public void writeTo(OutputStream out) throws IOException {
+    out.write(this.bytes, 0, this.size);
+  }
+
+  /**
+   * Write the content of the buffer to a channel.
+   *
+   * @param channel The channel.
+   * @throws IOException If the content couldn't be written.
+   */
+  public void writeTo(WritableByteChannel channel) throws IOException {
+    ByteBuffer content = ByteBuffer.wrap(this.bytes, 0, this.size);
+    while (content.hasRemaining()) {
+      channel.write(content);
+    }
+  }
+}
@@ -39,7 +39,7 @@ public interface SerializationProcessListener {
    *
    * @param reference The object that was being processed.
    * @param instanceClass The class.
-   * @param mapper The mapper.
+   * @param mapper The mapper, or null if the json was written with the shared {@link org.gedcomx.rt.json.GedcomJsonMappers} writers.
    * @param json The json.
    */
   void jsonProcessed(Object reference, Class<?> instanceClass, ObjectMapper mapper, String json);
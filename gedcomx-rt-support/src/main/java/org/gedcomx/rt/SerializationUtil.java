@@ -15,33 +15,55 @@
  */
 package org.gedcomx.rt;
 
+import org.codehaus.jackson.JsonEncoding;
+import org.codehaus.jackson.JsonFactory;
+import org.codehaus.jackson.JsonGenerator;
 import org.codehaus.jackson.map.ObjectMapper;
-import org.codehaus.jackson.map.SerializationConfig;
+import org.codehaus.jackson.map.ObjectWriter;
 import org.codehaus.jackson.map.annotate.JsonSerialize;
 import org.codehaus.jackson.node.ObjectNode;
-import org.gedcomx.rt.json.GedcomJsonProvider;
+import org.gedcomx.rt.binary.GedcomBinaryCodec;
+import org.gedcomx.rt.json.GedcomJsonMappers;
 import org.w3c.dom.Document;
 
 import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBElement;
 import javax.xml.bind.JAXBException;
 import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
 import javax.xml.bind.annotation.XmlRootElement;
 import javax.xml.bind.annotation.XmlSchema;
 import javax.xml.namespace.QName;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.transform.stream.StreamSource;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
 
 /**
+ * Utilities for serializing GEDCOM X data. The <code>processThrough</code> and <code>to</code> methods produce formatted
+ * output in memory, as is suited to tests and recipes; the round trips write to a pooled {@link SerializationBuffer} and
+ * read back from it, so a document isn't copied on the way. The <code>write</code> methods are for production payloads:
+ * they write compact output straight to a caller-supplied sink (a stream, a writer, a channel or a
+ * {@link SerializationBuffer}), which they flush but don't close.
+ *
  * @author Ryan Heaton
  */
 public class SerializationUtil {
 
+  private static final Charset UTF_8 = Charset.forName("utf-8");
+
+  /**
+   * The factory of the generators for JSON written with the shared writers (which don't expose the factory of their mapper).
+   */
+  private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
   @SuppressWarnings ( {"unchecked"} )
   public static <C> C processThroughXml(Object reference, SerializationProcessListener... listeners) throws JAXBException, UnsupportedEncodingException {
     return (C) processThroughXml(reference, reference.getClass(), listeners);
@@ -49,14 +71,26 @@ public class SerializationUtil {
 
   @SuppressWarnings ( {"unchecked"} )
   public static <C> C processThroughXml(Object reference, Class<? extends C> instanceClass, SerializationProcessListener... listeners) throws JAXBException, UnsupportedEncodingException {
-    return processThroughXml(reference, instanceClass, JAXBContext.newInstance(instanceClass), listeners);
+    return processThroughXml(reference, instanceClass, JAXBContextRegistry.getContext(instanceClass), listeners);
   }
 
   @SuppressWarnings ( {"unchecked"} )
   public static <C> C processThroughXml(Object reference, Class<? extends C> instanceClass, JAXBContext context, SerializationProcessListener... listeners) throws JAXBException, UnsupportedEncodingException {
-    byte[] out = toXmlStream(reference, instanceClass, context, listeners);
-    JAXBElement<? extends C> element = context.createUnmarshaller().unmarshal(new StreamSource(new ByteArrayInputStream(out)), instanceClass);
-    reference = element.getValue();
+    SerializationBuffer buffer = SerializationBuffer.acquire();
+    try {
+      bufferXml(reference, instanceClass, context, buffer, listeners);
+      Unmarshaller unmarshaller = JAXBContextRegistry.acquireUnmarshaller(context);
+      try {
+        JAXBElement<? extends C> element = unmarshaller.unmarshal(new StreamSource(buffer.toInputStream()), instanceClass);
+        reference = element.getValue();
+      }
+      finally {
+        JAXBContextRegistry.releaseUnmarshaller(context, unmarshaller);
+      }
+    }
+    finally {
+      buffer.release();
+    }
     return (C) reference;
   }
 
@@ -67,14 +101,139 @@ public class SerializationUtil {
 
   @SuppressWarnings ( {"unchecked"} )
   public static <C> byte[] toXmlStream(Object reference, Class<? extends C> instanceClass, SerializationProcessListener... listeners) throws JAXBException, UnsupportedEncodingException {
-    return toXmlStream(reference, instanceClass, JAXBContext.newInstance(instanceClass), listeners);
+    return toXmlStream(reference, instanceClass, JAXBContextRegistry.getContext(instanceClass), listeners);
   }
 
   @SuppressWarnings ( {"unchecked"} )
   public static <C> byte[] toXmlStream(Object reference, Class<? extends C> instanceClass, JAXBContext context, SerializationProcessListener... listeners) throws JAXBException, UnsupportedEncodingException {
-    ByteArrayOutputStream out = new ByteArrayOutputStream();
-    Marshaller marshaller = context.createMarshaller();
-    marshaller.setProperty("jaxb.formatted.output", Boolean.TRUE);
+    SerializationBuffer buffer = SerializationBuffer.acquire();
+    try {
+      bufferXml(reference, instanceClass, context, buffer, listeners);
+      return buffer.toByteArray();
+    }
+    finally {
+      buffer.release();
+    }
+  }
+
+  /**
+   * Write formatted XML to a buffer, printing it (with show.output) and notifying the listeners.
+   */
+  private static void bufferXml(Object reference, Class<?> instanceClass, JAXBContext context, SerializationBuffer buffer, SerializationProcessListener... listeners) throws JAXBException {
+    marshal(reference, instanceClass, context, true, buffer);
+    String xml = null;
+    if ("true".equals(System.getProperty("show.output"))) {
+      xml = buffer.toString(UTF_8);
+      System.out.println(xml);
+    }
+    
+    if (listeners != null && listeners.length > 0) {
+      if (xml == null) {
+        xml = buffer.toString(UTF_8);
+      }
+      for (SerializationProcessListener listener : listeners) {
+        listener.xmlProcessed(reference, instanceClass, context, xml);
+      }
+    }
+  }
+
+  /**
+   * Write compact (unformatted) XML to a stream.
+   *
+   * @param reference The object to write.
+   * @param out The stream.
+   * @param listeners The listeners to be notified of the XML.
+   */
+  public static void writeXml(Object reference, OutputStream out, SerializationProcessListener... listeners) throws JAXBException, IOException {
+    writeXml(reference, reference.getClass(), JAXBContextRegistry.getContext(reference.getClass()), out, listeners);
+  }
+
+  /**
+   * Write compact (unformatted) XML to a stream.
+   *
+   * @param reference The object to write.
+   * @param instanceClass The class as which to write the object.
+   * @param context The JAXB context.
+   * @param out The stream.
+   * @param listeners The listeners to be notified of the XML.
+   */
+  public static <C> void writeXml(Object reference, Class<? extends C> instanceClass, JAXBContext context, OutputStream out, SerializationProcessListener... listeners) throws JAXBException, IOException {
+    if (listeners != null && listeners.length > 0) {
+      Writer writer = new OutputStreamWriter(out, UTF_8);
+      writeXml(reference, instanceClass, context, writer, listeners);
+      writer.flush();
+    }
+    else {
+      marshal(reference, instanceClass, context, false, out);
+      out.flush();
+    }
+  }
+
+  /**
+   * Write compact (unformatted) XML to a channel.
+   *
+   * @param reference The object to write.
+   * @param channel The channel.
+   * @param listeners The listeners to be notified of the XML.
+   */
+  public static void writeXml(Object reference, WritableByteChannel channel, SerializationProcessListener... listeners) throws JAXBException, IOException {
+    writeXml(reference, Channels.newOutputStream(channel), listeners);
+  }
+
+  /**
+   * Write compact (unformatted) XML to a channel.
+   *
+   * @param reference The object to write.
+   * @param instanceClass The class as which to write the object.
+   * @param context The JAXB context.
+   * @param channel The channel.
+   * @param listeners The listeners to be notified of the XML.
+   */
+  public static <C> void writeXml(Object reference, Class<? extends C> instanceClass, JAXBContext context, WritableByteChannel channel, SerializationProcessListener... listeners) throws JAXBException, IOException {
+    writeXml(reference, instanceClass, context, Channels.newOutputStream(channel), listeners);
+  }
+
+  /**
+   * Write compact (unformatted) XML to a writer.
+   *
+   * @param reference The object to write.
+   * @param out The writer.
+   * @param listeners The listeners to be notified of the XML.
+   */
+  public static void writeXml(Object reference, Writer out, SerializationProcessListener... listeners) throws JAXBException, IOException {
+    writeXml(reference, reference.getClass(), JAXBContextRegistry.getContext(reference.getClass()), out, listeners);
+  }
+
+  /**
+   * Write compact (unformatted) XML to a writer.
+   *
+   * @param reference The object to write.
+   * @param instanceClass The class as which to write the object.
+   * @param context The JAXB context.
+   * @param out The writer.
+   * @param listeners The listeners to be notified of the XML.
+   */
+  public static <C> void writeXml(Object reference, Class<? extends C> instanceClass, JAXBContext context, Writer out, SerializationProcessListener... listeners) throws JAXBException, IOException {
+    if (listeners != null && listeners.length > 0) {
+      RecordingWriter recording = new RecordingWriter(out);
+      marshal(reference, instanceClass, context, false, recording);
+      out.flush();
+      String xml = recording.getRecording();
+      for (SerializationProcessListener listener : listeners) {
+        listener.xmlProcessed(reference, instanceClass, context, xml);
+      }
+    }
+    else {
+      marshal(reference, instanceClass, context, false, out);
+      out.flush();
+    }
+  }
+
+  /**
+   * Marshal an object to an output stream or a writer.
+   */
+  @SuppressWarnings ( {"unchecked"} )
+  private static void marshal(Object reference, Class<?> instanceClass, JAXBContext context, boolean formatted, Object out) throws JAXBException {
     Object el = isRootElement(instanceClass) ? reference : null;
     if (el == null) {
       String ns = "";
@@ -83,20 +242,22 @@ public class SerializationUtil {
       }
       el = new JAXBElement(new QName(ns, instanceClass.getSimpleName()), instanceClass, reference);
     }
-    marshaller.setProperty("com.sun.xml.bind.namespacePrefixMapper", new GedcomNamespaceManager(instanceClass));
-    marshaller.marshal(el, out);
-    if ("true".equals(System.getProperty("show.output"))) {
-      System.out.println(new String(out.toByteArray(), "utf-8"));
-    }
-    
-    if (listeners != null && listeners.length > 0) {
-      String xml = new String(out.toByteArray(), "utf-8");
-      for (SerializationProcessListener listener : listeners) {
-        listener.xmlProcessed(reference, instanceClass, context, xml);
+    Marshaller marshaller = JAXBContextRegistry.acquireMarshaller(context);
+    try {
+      if (formatted) {
+        marshaller.setProperty("jaxb.formatted.output", Boolean.TRUE);
+      }
+      marshaller.setProperty("com.sun.xml.bind.namespacePrefixMapper", new GedcomNamespaceManager(instanceClass));
+      if (out instanceof Writer) {
+        marshaller.marshal(el, (Writer) out);
+      }
+      else {
+        marshaller.marshal(el, (OutputStream) out);
       }
     }
-    
-    return out.toByteArray();
+    finally {
+      JAXBContextRegistry.releaseMarshaller(context, marshaller);
+    }
   }
 
   private static <C> boolean isRootElement(Class<? extends C> instanceClass) {
@@ -108,26 +269,40 @@ public class SerializationUtil {
   }
 
   public static Document toXmlDom(Object reference, Class<?> instanceClass) throws JAXBException, UnsupportedEncodingException {
-    byte[] out = toXmlStream(reference, instanceClass);
+    SerializationBuffer buffer = SerializationBuffer.acquire();
     try {
+      bufferXml(reference, instanceClass, JAXBContextRegistry.getContext(instanceClass), buffer);
       DocumentBuilderFactory builderFactory = DocumentBuilderFactory.newInstance();
       builderFactory.setNamespaceAware(true);
       DocumentBuilder builder = builderFactory.newDocumentBuilder();
-      return builder.parse(new ByteArrayInputStream(out));
+      return builder.parse(buffer.toInputStream());
+    }
+    catch (JAXBException e) {
+      throw e;
     }
     catch (Exception e) {
       throw new RuntimeException(e);
     }
+    finally {
+      buffer.release();
+    }
   }
 
   public static Document toXmlDom(Object reference, Class<?> instanceClass, JAXBContext context) throws JAXBException, UnsupportedEncodingException {
-    byte[] out = toXmlStream(reference, instanceClass, context);
+    SerializationBuffer buffer = SerializationBuffer.acquire();
     try {
-      return DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(new ByteArrayInputStream(out));
+      bufferXml(reference, instanceClass, context, buffer);
+      return DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(buffer.toInputStream());
+    }
+    catch (JAXBException e) {
+      throw e;
     }
     catch (Exception e) {
       throw new RuntimeException(e);
     }
+    finally {
+      buffer.release();
+    }
   }
 
   @SuppressWarnings ( {"unchecked"} )
@@ -137,13 +312,19 @@ public class SerializationUtil {
 
   @SuppressWarnings ( {"unchecked"} )
   public static <C> C processThroughJson(Object reference, Class<? extends C> instanceClass, SerializationProcessListener... listeners) throws IOException {
-    return processThroughJson(reference, instanceClass, new GedcomJsonProvider().locateMapper(instanceClass, null), listeners);
+    return processThroughJson(reference, instanceClass, null, listeners);
   }
 
   @SuppressWarnings ( {"unchecked"} )
   public static <C> C processThroughJson(Object reference, Class<? extends C> instanceClass, ObjectMapper mapper, SerializationProcessListener... listeners) throws IOException {
-    byte[] buffer = toJsonStream(reference, instanceClass, mapper, listeners);
-    reference = mapper.readValue(new ByteArrayInputStream(buffer), instanceClass);
+    SerializationBuffer buffer = SerializationBuffer.acquire();
+    try {
+      bufferJson(reference, instanceClass, mapper, buffer, listeners);
+      reference = mapper == null ? GedcomJsonMappers.getReader(instanceClass).readValue(buffer.toInputStream()) : mapper.readValue(buffer.toInputStream(), instanceClass);
+    }
+    finally {
+      buffer.release();
+    }
     return (C) reference;
   }
 
@@ -152,27 +333,162 @@ public class SerializationUtil {
   }
 
   public static <C> byte[] toJsonStream(Object reference, Class<? extends C> instanceClass, SerializationProcessListener... listeners) throws IOException {
-    return toJsonStream(reference, instanceClass, new GedcomJsonProvider().locateMapper(instanceClass, null), listeners);
+    return toJsonStream(reference, instanceClass, null, listeners);
   }
 
   protected static <C> byte[] toJsonStream(Object reference, Class<? extends C> instanceClass, ObjectMapper mapper, SerializationProcessListener... listeners) throws IOException {
+    SerializationBuffer buffer = SerializationBuffer.acquire();
+    try {
+      bufferJson(reference, instanceClass, mapper, buffer, listeners);
+      return buffer.toByteArray();
+    }
+    finally {
+      buffer.release();
+    }
+  }
+
+  /**
+   * Write pretty JSON to a buffer, printing it (with show.output) and notifying the listeners.
+   */
+  private static void bufferJson(Object reference, Class<?> instanceClass, ObjectMapper mapper, SerializationBuffer buffer, SerializationProcessListener... listeners) throws IOException {
     GedcomNamespaceManager.registerKnownJsonType(instanceClass);
-    ByteArrayOutputStream out = new ByteArrayOutputStream();
-    mapper.getSerializationConfig().enable(SerializationConfig.Feature.INDENT_OUTPUT);
-    mapper.getSerializationConfig().setSerializationInclusion(JsonSerialize.Inclusion.NON_NULL);
-    mapper.writeValue(out, reference);
+    ObjectWriter writer;
+    if (mapper == null) {
+      writer = GedcomJsonMappers.getPrettyWriter();
+    }
+    else {
+      if (mapper.getSerializationConfig().getSerializationInclusion() != JsonSerialize.Inclusion.NON_NULL) {
+        mapper.getSerializationConfig().setSerializationInclusion(JsonSerialize.Inclusion.NON_NULL);
+      }
+      writer = mapper.defaultPrettyPrintingWriter();
+    }
+    writer.writeValue(buffer, reference);
+    String json = null;
     if ("true".equals(System.getProperty("show.output"))) {
-      System.out.println(new String(out.toByteArray(), "utf-8"));
+      json = buffer.toString(UTF_8);
+      System.out.println(json);
     }
 
     if (listeners != null && listeners.length > 0) {
-      String json = new String(out.toByteArray(), "utf-8");
+      if (json == null) {
+        json = buffer.toString(UTF_8);
+      }
       for (SerializationProcessListener listener : listeners) {
         listener.jsonProcessed(reference, instanceClass, mapper, json);
       }
     }
+  }
+
+  /**
+   * Write compact (non-indented, non-null) JSON to a stream.
+   *
+   * @param reference The object to write.
+   * @param out The stream.
+   * @param listeners The listeners to be notified of the JSON.
+   */
+  public static void writeJson(Object reference, OutputStream out, SerializationProcessListener... listeners) throws IOException {
+    writeJson(reference, reference.getClass(), null, out, listeners);
+  }
+
+  /**
+   * Write compact (non-indented, non-null) JSON to a stream.
+   *
+   * @param reference The object to write.
+   * @param instanceClass The class as which to write the object.
+   * @param mapper The mapper, or null for the shared {@link GedcomJsonMappers} writers.
+   * @param out The stream.
+   * @param listeners The listeners to be notified of the JSON.
+   */
+  public static <C> void writeJson(Object reference, Class<? extends C> instanceClass, ObjectMapper mapper, OutputStream out, SerializationProcessListener... listeners) throws IOException {
+    if (listeners != null && listeners.length > 0) {
+      Writer writer = new OutputStreamWriter(out, UTF_8);
+      writeJson(reference, instanceClass, mapper, writer, listeners);
+      writer.flush();
+    }
+    else {
+      GedcomNamespaceManager.registerKnownJsonType(instanceClass);
+      writeCompactJson(reference, mapper, jsonFactory(mapper).createJsonGenerator(out, JsonEncoding.UTF8));
+    }
+  }
+
+  /**
+   * Write compact (non-indented, non-null) JSON to a channel.
+   *
+   * @param reference The object to write.
+   * @param channel The channel.
+   * @param listeners The listeners to be notified of the JSON.
+   */
+  public static void writeJson(Object reference, WritableByteChannel channel, SerializationProcessListener... listeners) throws IOException {
+    writeJson(reference, Channels.newOutputStream(channel), listeners);
+  }
 
-    return out.toByteArray();
+  /**
+   * Write compact (non-indented, non-null) JSON to a channel.
+   *
+   * @param reference The object to write.
+   * @param instanceClass The class as which to write the object.
+   * @param mapper The mapper, or null for the shared {@link GedcomJsonMappers} writers.
+   * @param channel The channel.
+   * @param listeners The listeners to be notified of the JSON.
+   */
+  public static <C> void writeJson(Object reference, Class<? extends C> instanceClass, ObjectMapper mapper, WritableByteChannel channel, SerializationProcessListener... listeners) throws IOException {
+    writeJson(reference, instanceClass, mapper, Channels.newOutputStream(channel), listeners);
+  }
+
+  /**
+   * Write compact (non-indented, non-null) JSON to a writer.
+   *
+   * @param reference The object to write.
+   * @param out The writer.
+   * @param listeners The listeners to be notified of the JSON.
+   */
+  public static void writeJson(Object reference, Writer out, SerializationProcessListener... listeners) throws IOException {
+    writeJson(reference, reference.getClass(), null, out, listeners);
+  }
+
+  /**
+   * Write compact (non-indented, non-null) JSON to a writer.
+   *
+   * @param reference The object to write.
+   * @param instanceClass The class as which to write the object.
+   * @param mapper The mapper, or null for the shared {@link GedcomJsonMappers} writers.
+   * @param out The writer.
+   * @param listeners The listeners to be notified of the JSON.
+   */
+  public static <C> void writeJson(Object reference, Class<? extends C> instanceClass, ObjectMapper mapper, Writer out, SerializationProcessListener... listeners) throws IOException {
+    GedcomNamespaceManager.registerKnownJsonType(instanceClass);
+    if (listeners != null && listeners.length > 0) {
+      RecordingWriter recording = new RecordingWriter(out);
+      writeCompactJson(reference, mapper, jsonFactory(mapper).createJsonGenerator(recording));
+      String json = recording.getRecording();
+      for (SerializationProcessListener listener : listeners) {
+        listener.jsonProcessed(reference, instanceClass, mapper, json);
+      }
+    }
+    else {
+      writeCompactJson(reference, mapper, jsonFactory(mapper).createJsonGenerator(out));
+    }
+  }
+
+  private static void writeCompactJson(Object reference, ObjectMapper mapper, JsonGenerator generator) throws IOException {
+    ObjectWriter writer;
+    if (mapper == null) {
+      writer = GedcomJsonMappers.getCompactWriter();
+    }
+    else {
+      if (mapper.getSerializationConfig().getSerializationInclusion() != JsonSerialize.Inclusion.NON_NULL) {
+        mapper.getSerializationConfig().setSerializationInclusion(JsonSerialize.Inclusion.NON_NULL);
+      }
+      writer = mapper.writer();
+    }
+    //the target is the caller's, so closing the generator only flushes it.
+    generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    writer.writeValue(generator, reference);
+    generator.close();
+  }
+
+  private static JsonFactory jsonFactory(ObjectMapper mapper) {
+    return mapper == null ? JSON_FACTORY : mapper.getJsonFactory();
   }
 
   public static ObjectNode toJsonNode(Object reference) throws IOException {
@@ -180,12 +496,83 @@ public class SerializationUtil {
   }
 
   public static ObjectNode toJsonNode(Object reference, Class<?> instanceClass) throws IOException {
-    return toJsonNode(reference, instanceClass, new GedcomJsonProvider().locateMapper(instanceClass, null));
+    return toJsonNode(reference, instanceClass, null);
   }
 
   public static ObjectNode toJsonNode(Object reference, Class<?> instanceClass, ObjectMapper mapper) throws IOException {
-    byte[] out = toJsonStream(reference, instanceClass, mapper);
-    return mapper.readValue(new ByteArrayInputStream(out), ObjectNode.class);
+    SerializationBuffer buffer = SerializationBuffer.acquire();
+    try {
+      bufferJson(reference, instanceClass, mapper, buffer);
+      return mapper == null ? GedcomJsonMappers.getReader(ObjectNode.class).<ObjectNode>readValue(buffer.toInputStream()) : mapper.readValue(buffer.toInputStream(), ObjectNode.class);
+    }
+    finally {
+      buffer.release();
+    }
+  }
+
+  @SuppressWarnings ( {"unchecked"} )
+  public static <C> C processThroughBinary(Object reference) throws IOException {
+    return (C) processThroughBinary(reference, reference.getClass());
+  }
+
+  public static <C> C processThroughBinary(Object reference, Class<? extends C> instanceClass) throws IOException {
+    SerializationBuffer buffer = SerializationBuffer.acquire();
+    try {
+      GedcomBinaryCodec.write(reference, buffer);
+      return GedcomBinaryCodec.read(buffer.toInputStream(), instanceClass);
+    }
+    finally {
+      buffer.release();
+    }
+  }
+
+  public static byte[] toBinaryStream(Object reference) throws IOException {
+    return GedcomBinaryCodec.toBytes(reference);
+  }
+
+  /**
+   * A writer that records what's written through it, so listeners can be given the output without buffering it separately.
+   */
+  private static final class RecordingWriter extends Writer {
+
+    private final Writer delegate;
+    private final StringBuilder recording = new StringBuilder();
+
+    private RecordingWriter(Writer delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public void write(int c) throws IOException {
+      this.delegate.write(c);
+      this.recording.append((char) c);
+    }
+
+    @Override
+    public void write(char[] chars, int offset, int length) throws IOException {
+      this.delegate.write(chars, offset, length);
+      this.recording.append(chars, offset, length);
+    }
+
+    @Override
+    public void write(String str, int offset, int length) throws IOException {
+      this.delegate.write(str, offset, length);
+      this.recording.append(str, offset, offset + length);
+    }
+
+    @Override
+    public void flush() throws IOException {
+      this.delegate.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+      flush();
+    }
+
+    String getRecording() {
+      return this.recording.toString();
+    }
   }
 
 }
@@ -0,0 +1,206 @@
+/**
+ * Copyright 2011-2012 Intellectual Reserve, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gedcomx.rt.binary;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The input of the binary format. An input either reads a document from a stream, or reads in place from a buffer that was
+ * written by an output to memory (which has no string table).
+ *
+ * @author Ryan Heaton
+ * @see BinaryOutput
+ */
+public class BinaryInput {
+
+  private final InputStream in;
+  private final ByteBuffer buffer;
+  private final List<String> strings;
+  private final List<Class<?>> classes = new ArrayList<Class<?>>();
+
+  /**
+   * An input from a stream.
+   *
+   * @param in The stream.
+   */
+  public BinaryInput(InputStream in) {
+    this.in = in;
+    this.buffer = ByteBuffer.allocate(8192);
+    this.buffer.limit(0);
+    this.strings = new ArrayList<String>();
+  }
+
+  /**
+   * An input from a buffer, starting at the position of the buffer.
+   *
+   * @param buffer The buffer.
+   */
+  public BinaryInput(ByteBuffer buffer) {
+    this.in = null;
+    this.buffer = buffer;
+    this.strings = null;
+  }
+
+  /**
+   * The position of an input from a buffer in its buffer.
+   *
+   * @return The position.
+   */
+  public int position() {
+    if (this.in != null) {
+      throw new IllegalStateException("Not an input from a buffer.");
+    }
+    return this.buffer.position();
+  }
+
+  public int readByte() throws IOException {
+    if (!this.buffer.hasRemaining()) {
+      fill();
+    }
+    return this.buffer.get() & 0xFF;
+  }
+
+  public byte[] readBytes(int length) throws IOException {
+    byte[] bytes = new byte[length];
+    int read = 0;
+    while (read < length) {
+      if (!this.buffer.hasRemaining()) {
+        fill();
+      }
+      int count = Math.min(length - read, this.buffer.remaining());
+      this.buffer.get(bytes, read, count);
+      read += count;
+    }
+    return bytes;
+  }
+
+  public long readVarLong() throws IOException {
+    long value = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      int b = readByte();
+      value |= (long) (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return value;
+      }
+    }
+    throw new IOException("Malformed varint.");
+  }
+
+  public int readVarInt() throws IOException {
+    long value = readVarLong();
+    if (value < 0 || value > Integer.MAX_VALUE) {
+      throw new IOException("Value out of range: " + value);
+    }
+    return (int) value;
+  }
+
+  public long readSignedVarLong() throws IOException {
+    long value = readVarLong();
+    return (value >>> 1) ^ -(value & 1);
+  }
+
+  /**
+   * Read a boolean.
+   *
+   * @return The boolean.
+   * @see BinaryOutput#writeBoolean(Boolean)
+   */
+  public Boolean readBoolean() throws IOException {
+    int value = readByte();
+    return value == 0 ? null : Boolean.valueOf(value == 2);
+  }
+
+  /**
+   * Read the number of items of a collection.
+   *
+   * @return The number of items, or -1 for a null collection.
+   * @see BinaryOutput#writeCount(int)
+   */
+  public int readCount() throws IOException {
+    return readVarInt() - 1;
+  }
+
+  /**
+   * Read a string.
+   *
+   * @return The string.
+   * @see BinaryOutput#writeString(String)
+   */
+  public String readString() throws IOException {
+    int code = readVarInt();
+    if (code == 0) {
+      return null;
+    }
+    else if (code == 1) {
+      int length = readVarInt();
+      String value;
+      if (this.buffer.hasArray() && this.buffer.remaining() >= length) {
+        //decode in place.
+        value = new String(this.buffer.array(), this.buffer.arrayOffset() + this.buffer.position(), length, BinaryOutput.UTF_8);
+        this.buffer.position(this.buffer.position() + length);
+      }
+      else {
+        value = new String(readBytes(length), BinaryOutput.UTF_8);
+      }
+      if (this.strings != null) {
+        this.strings.add(value);
+      }
+      return value;
+    }
+    else if (this.strings != null && code - 2 < this.strings.size()) {
+      return this.strings.get(code - 2);
+    }
+    throw new IOException("Unknown string reference: " + code);
+  }
+
+  Class<?> readClass() throws IOException {
+    int code = readVarInt();
+    if (code == 0) {
+      String name = readString();
+      Class<?> clazz;
+      try {
+        ClassLoader loader = Thread.currentThread().getContextClassLoader();
+        clazz = Class.forName(name, false, loader == null ? BinaryInput.class.getClassLoader() : loader);
+      }
+      catch (ClassNotFoundException e) {
+        throw new IOException("Unknown class: " + name);
+      }
+      this.classes.add(clazz);
+      return clazz;
+    }
+    else if (code - 1 < this.classes.size()) {
+      return this.classes.get(code - 1);
+    }
+    throw new IOException("Unknown class reference: " + code);
+  }
+
+  private void fill() throws IOException {
+    if (this.in == null) {
+      throw new EOFException();
+    }
+    int read = this.in.read(this.buffer.array(), 0, this.buffer.capacity());
+    if (read <= 0) {
+      throw new EOFException();
+    }
+    this.buffer.clear();
+    this.buffer.limit(read);
+  }
+}
@@ -0,0 +1,251 @@
+/**
+ * Copyright 2011-2012 Intellectual Reserve, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gedcomx.rt.binary;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The output of the binary format: varints, booleans, counts and strings.<br/><br/>
+ *
+ * An output either writes a document to a stream, in which case a string is written once and then referenced through the
+ * string table of the document, or writes to a growable buffer in memory, in which case each string is written in full so
+ * that every part of the buffer can be read on its own (see {@link BinaryInput#BinaryInput(java.nio.ByteBuffer)}).
+ *
+ * @author Ryan Heaton
+ */
+public class BinaryOutput {
+
+  static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  //the fixed length of a reserved length.
+  private static final int LENGTH_SIZE = 5;
+
+  private final OutputStream out;
+  private byte[] buffer;
+  private int count = 0;
+  private final Map<String, Integer> strings;
+  private final Map<Class<?>, Integer> classes = new HashMap<Class<?>, Integer>();
+
+  /**
+   * An output to a stream.
+   *
+   * @param out The stream.
+   */
+  public BinaryOutput(OutputStream out) {
+    this.out = out;
+    this.buffer = new byte[8192];
+    this.strings = new HashMap<String, Integer>();
+  }
+
+  /**
+   * An output to a buffer in memory.
+   */
+  public BinaryOutput() {
+    this.out = null;
+    this.buffer = new byte[256];
+    this.strings = null;
+  }
+
+  public void writeByte(int value) throws IOException {
+    if (this.count == this.buffer.length) {
+      makeRoom(1);
+    }
+    this.buffer[this.count++] = (byte) value;
+  }
+
+  public void writeBytes(byte[] bytes) throws IOException {
+    if (bytes.length > this.buffer.length - this.count) {
+      if (this.out != null) {
+        flushBuffer();
+        if (bytes.length > this.buffer.length) {
+          this.out.write(bytes);
+          return;
+        }
+      }
+      else {
+        makeRoom(bytes.length);
+      }
+    }
+    System.arraycopy(bytes, 0, this.buffer, this.count, bytes.length);
+    this.count += bytes.length;
+  }
+
+  public void writeVarLong(long value) throws IOException {
+    while ((value & ~0x7FL) != 0) {
+      writeByte((int) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    writeByte((int) value);
+  }
+
+  public void writeSignedVarLong(long value) throws IOException {
+    writeVarLong((value << 1) ^ (value >> 63));
+  }
+
+  /**
+   * Write a boolean: 0 for null, 1 for false and 2 for true.
+   *
+   * @param value The boolean.
+   */
+  public void writeBoolean(Boolean value) throws IOException {
+    writeByte(value == null ? 0 : value ? 2 : 1);
+  }
+
+  /**
+   * Write the number of items of a collection: 0 for a null collection, or the number of items plus 1.
+   *
+   * @param count The number of items, or -1 for a null collection.
+   */
+  public void writeCount(int count) throws IOException {
+    writeVarLong(count + 1L);
+  }
+
+  /**
+   * Write a string: 0 for null, 1 followed by the length and the bytes of the string for a string that isn't in the string
+   * table yet (after which it is), or 2 plus the index of the string in the string table. An output to memory has no string
+   * table.
+   *
+   * @param value The string.
+   */
+  public void writeString(String value) throws IOException {
+    if (value == null) {
+      writeVarLong(0);
+      return;
+    }
+
+    Integer index = this.strings == null ? null : this.strings.get(value);
+    if (index != null) {
+      writeVarLong(index + 2L);
+    }
+    else {
+      if (this.strings != null) {
+        this.strings.put(value, this.strings.size());
+      }
+      writeVarLong(1);
+      byte[] utf8 = value.getBytes(UTF_8);
+      writeVarLong(utf8.length);
+      writeBytes(utf8);
+    }
+  }
+
+  /**
+   * Write a class: 0 followed by the name of the class for a class that isn't in the class table yet (after which it is), or
+   * 1 plus the index of the class in the class table.
+   *
+   * @param clazz The class.
+   */
+  void writeClass(Class<?> clazz) throws IOException {
+    Integer index = this.classes.get(clazz);
+    if (index != null) {
+      writeVarLong(index + 1L);
+    }
+    else {
+      this.classes.put(clazz, this.classes.size());
+      writeVarLong(0);
+      writeString(clazz.getName());
+    }
+  }
+
+  /**
+   * The number of bytes written to the buffer of an output to memory since it was last reset.
+   *
+   * @return The number of bytes.
+   */
+  public int size() {
+    checkInMemory();
+    return this.count;
+  }
+
+  /**
+   * The buffer of an output to memory.
+   *
+   * @return The buffer (only the first {@link #size()} bytes of which are valid).
+   */
+  public byte[] bytes() {
+    checkInMemory();
+    return this.buffer;
+  }
+
+  /**
+   * Empty the buffer of an output to memory, keeping its capacity.
+   */
+  public void reset() {
+    checkInMemory();
+    this.count = 0;
+  }
+
+  /**
+   * Reserve a (fixed, five-byte) varint for the length of what follows, in an output to memory.
+   *
+   * @return The position of the length.
+   */
+  public int reserveLength() throws IOException {
+    checkInMemory();
+    makeRoom(LENGTH_SIZE);
+    int position = this.count;
+    this.count += LENGTH_SIZE;
+    return position;
+  }
+
+  /**
+   * Write the length of what was written since the length was reserved.
+   *
+   * @param position The position of the length.
+   */
+  public void writeLength(int position) {
+    checkInMemory();
+    int value = this.count - position - LENGTH_SIZE;
+    for (int i = 0; i < LENGTH_SIZE - 1; i++) {
+      this.buffer[position + i] = (byte) ((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    this.buffer[position + LENGTH_SIZE - 1] = (byte) value;
+  }
+
+  public void flush() throws IOException {
+    if (this.out != null) {
+      flushBuffer();
+      this.out.flush();
+    }
+  }
+
+  private void makeRoom(int length) throws IOException {
+    if (this.out != null) {
+      flushBuffer();
+    }
+    else if (this.count + length > this.buffer.length) {
+      this.buffer = Arrays.copyOf(this.buffer, Math.max(this.buffer.length * 2, this.count + length));
+    }
+  }
+
+  private void flushBuffer() throws IOException {
+    if (this.count > 0) {
+      this.out.write(this.buffer, 0, this.count);
+      this.count = 0;
+    }
+  }
+
+  private void checkInMemory() {
+    if (this.out != null) {
+      throw new IllegalStateException("Not an output to memory.");
+    }
+  }
+}
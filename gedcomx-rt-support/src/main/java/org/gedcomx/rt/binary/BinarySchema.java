@@ -0,0 +1,803 @@
+/**
+ * Copyright 2011-2012 Intellectual Reserve, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gedcomx.rt.binary;
+
+import org.gedcomx.rt.CapturedElement;
+import org.w3c.dom.Element;
+import org.xml.sax.InputSource;
+
+import javax.xml.bind.JAXBElement;
+import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.bind.annotation.XmlTransient;
+import javax.xml.bind.annotation.XmlType;
+import javax.xml.bind.annotation.adapters.XmlAdapter;
+import javax.xml.bind.annotation.adapters.XmlJavaTypeAdapter;
+import javax.xml.namespace.QName;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+import java.beans.BeanInfo;
+import java.beans.IntrospectionException;
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The schema of a class in the binary format: the properties of the class as JAXB sees them (the public getter/setter pairs
+ * that aren't {@link XmlTransient}, plus the fields that carry a JAXB annotation), in order of their name, each with the
+ * codec for its type. The schema of a class is derived from the class, so both ends of a binary document need the same
+ * version of the model.
+ *
+ * @author Ryan Heaton
+ */
+final class BinarySchema {
+
+  private static final ConcurrentHashMap<Class<?>, BinarySchema> SCHEMAS = new ConcurrentHashMap<Class<?>, BinarySchema>();
+
+  //DOM extension elements are written as XML; a document may come from elsewhere, so DTDs and external entities are refused.
+  private static final TransformerFactory TRANSFORMER_FACTORY = TransformerFactory.newInstance();
+  private static final DocumentBuilderFactory DOCUMENT_BUILDER_FACTORY;
+  static {
+    DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+    factory.setNamespaceAware(true);
+    factory.setExpandEntityReferences(false);
+    try {
+      factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+      factory.setFeature("http://xml.org/sax/features/external-general-entities", false);
+      factory.setFeature("http://xml.org/sax/features/external-parameter-entities", false);
+    }
+    catch (ParserConfigurationException e) {
+      throw new IllegalStateException(e);
+    }
+    DOCUMENT_BUILDER_FACTORY = factory;
+  }
+
+  //the tags of a value of a (possibly) polymorphic type.
+  private static final int TAG_NULL = 0;
+  private static final int TAG_DECLARED = 1;
+  private static final int TAG_ELEMENT = 2;
+  private static final int TAG_JAXB_ELEMENT = 3;
+  private static final int TAG_CLASS = 4;
+  private static final int TAG_CAPTURED_ELEMENT = 5;
+
+  //the events of a captured element.
+  private static final int EVENT_START = 1;
+  private static final int EVENT_NAMESPACE = 2;
+  private static final int EVENT_ATTRIBUTE = 3;
+  private static final int EVENT_TEXT = 4;
+  private static final int EVENT_END = 5;
+
+  private final Class<?> type;
+  private final Constructor<?> constructor;
+  private final Property[] properties;
+
+  private BinarySchema(Class<?> type) {
+    this.type = type;
+    try {
+      this.constructor = type.getDeclaredConstructor();
+      this.constructor.setAccessible(true);
+    }
+    catch (NoSuchMethodException e) {
+      throw new IllegalArgumentException("No no-arg constructor for " + type.getName() + ".");
+    }
+
+    SortedMap<String, Property> properties = new TreeMap<String, Property>();
+    BeanInfo beanInfo;
+    try {
+      beanInfo = Introspector.getBeanInfo(type, Object.class);
+    }
+    catch (IntrospectionException e) {
+      throw new IllegalArgumentException(e);
+    }
+    for (PropertyDescriptor descriptor : beanInfo.getPropertyDescriptors()) {
+      Method getter = descriptor.getReadMethod();
+      Method setter = descriptor.getWriteMethod();
+      if (getter != null && setter != null && !getter.isAnnotationPresent(XmlTransient.class) && !setter.isAnnotationPresent(XmlTransient.class)) {
+        properties.put(descriptor.getName(), new MethodProperty(getter, setter, codecFor(getter.getGenericReturnType())));
+      }
+    }
+    for (Class<?> clazz = type; clazz != null && clazz != Object.class; clazz = clazz.getSuperclass()) {
+      for (Field field : clazz.getDeclaredFields()) {
+        int modifiers = field.getModifiers();
+        if (!Modifier.isStatic(modifiers) && !Modifier.isTransient(modifiers) && isJaxbAnnotated(field) && !properties.containsKey(field.getName())) {
+          field.setAccessible(true);
+          properties.put(field.getName(), new FieldProperty(field, codecFor(field.getGenericType())));
+        }
+      }
+    }
+    this.properties = properties.values().toArray(new Property[properties.size()]);
+  }
+
+  /**
+   * The schema of the specified class.
+   *
+   * @param type The class.
+   * @return The schema.
+   */
+  static BinarySchema forType(Class<?> type) {
+    BinarySchema schema = SCHEMAS.get(type);
+    if (schema == null) {
+      schema = new BinarySchema(type);
+      BinarySchema existing = SCHEMAS.putIfAbsent(type, schema);
+      schema = existing == null ? schema : existing;
+    }
+    return schema;
+  }
+
+  /**
+   * Write a value of the specified declared type.
+   *
+   * @param value The value.
+   * @param declaredType The declared type of the value.
+   * @param out The output.
+   */
+  static void writeValue(Object value, Class<?> declaredType, BinaryOutput out) throws IOException {
+    new BeanCodec(declaredType).write(value, out);
+  }
+
+  /**
+   * Read a value of the specified declared type.
+   *
+   * @param declaredType The declared type of the value.
+   * @param in The input.
+   * @return The value.
+   */
+  static Object readValue(Class<?> declaredType, BinaryInput in) throws IOException {
+    return new BeanCodec(declaredType).read(in);
+  }
+
+  private void write(Object bean, BinaryOutput out) throws IOException {
+    for (Property property : this.properties) {
+      property.codec.write(property.get(bean), out);
+    }
+  }
+
+  private Object read(BinaryInput in) throws IOException {
+    Object bean;
+    try {
+      bean = this.constructor.newInstance();
+    }
+    catch (Exception e) {
+      throw new IOException("Unable to instantiate " + this.type.getName() + ": " + e.getMessage());
+    }
+    for (Property property : this.properties) {
+      Object value = property.codec.read(in);
+      //leave the defaults of the instance alone unless they differ.
+      if (value != null || property.get(bean) != null) {
+        property.set(bean, value);
+      }
+    }
+    return bean;
+  }
+
+  private static boolean isJaxbAnnotated(Field field) {
+    for (Annotation annotation : field.getAnnotations()) {
+      if (annotation.annotationType().getPackage().getName().equals(XmlTransient.class.getPackage().getName())) {
+        return annotation.annotationType() != XmlTransient.class;
+      }
+    }
+    return false;
+  }
+
+  private static Class<?> rawType(Type type) {
+    if (type instanceof Class) {
+      return (Class<?>) type;
+    }
+    else if (type instanceof ParameterizedType) {
+      return (Class<?>) ((ParameterizedType) type).getRawType();
+    }
+    return Object.class;
+  }
+
+  private static Type typeArgument(Type type, int index) {
+    return type instanceof ParameterizedType ? ((ParameterizedType) type).getActualTypeArguments()[index] : Object.class;
+  }
+
+  private static Codec codecFor(Type type) {
+    Class<?> clazz = rawType(type);
+    if (clazz == String.class) {
+      return STRING;
+    }
+    else if (clazz == Boolean.class || clazz == Boolean.TYPE) {
+      return BOOLEAN;
+    }
+    else if (clazz == Integer.class || clazz == Integer.TYPE || clazz == Long.class || clazz == Long.TYPE
+      || clazz == Short.class || clazz == Short.TYPE || clazz == Byte.class || clazz == Byte.TYPE) {
+      return new IntegerCodec(clazz);
+    }
+    else if (clazz == Double.class || clazz == Double.TYPE || clazz == Float.class || clazz == Float.TYPE) {
+      return new FloatingPointCodec(clazz);
+    }
+    else if (clazz == java.util.Date.class) {
+      return DATE;
+    }
+    else if (clazz == QName.class) {
+      return QNAME;
+    }
+    else if (clazz.isEnum()) {
+      return new EnumCodec(clazz);
+    }
+    else if (Collection.class.isAssignableFrom(clazz)) {
+      return new ListCodec(codecFor(typeArgument(type, 0)));
+    }
+    else if (Map.class.isAssignableFrom(clazz)) {
+      return new MapCodec(codecFor(typeArgument(type, 0)), codecFor(typeArgument(type, 1)));
+    }
+    else if (clazz.isAnnotationPresent(XmlJavaTypeAdapter.class)) {
+      return new AdapterCodec(clazz.getAnnotation(XmlJavaTypeAdapter.class).value());
+    }
+    return new BeanCodec(clazz);
+  }
+
+  private abstract static class Property {
+
+    protected final Codec codec;
+
+    protected Property(Codec codec) {
+      this.codec = codec;
+    }
+
+    abstract Object get(Object bean) throws IOException;
+
+    abstract void set(Object bean, Object value) throws IOException;
+  }
+
+  private static final class MethodProperty extends Property {
+
+    private final Method getter;
+    private final Method setter;
+
+    private MethodProperty(Method getter, Method setter, Codec codec) {
+      super(codec);
+      this.getter = getter;
+      this.setter = setter;
+    }
+
+    @Override
+    Object get(Object bean) throws IOException {
+      try {
+        return this.getter.invoke(bean);
+      }
+      catch (Exception e) {
+        throw new IOException("Unable to read " + this.getter + ": " + e.getMessage());
+      }
+    }
+
+    @Override
+    void set(Object bean, Object value) throws IOException {
+      try {
+        this.setter.invoke(bean, value);
+      }
+      catch (Exception e) {
+        throw new IOException("Unable to write " + this.setter + ": " + e.getMessage());
+      }
+    }
+  }
+
+  private static final class FieldProperty extends Property {
+
+    private final Field field;
+
+    private FieldProperty(Field field, Codec codec) {
+      super(codec);
+      this.field = field;
+    }
+
+    @Override
+    Object get(Object bean) throws IOException {
+      try {
+        return this.field.get(bean);
+      }
+      catch (IllegalAccessException e) {
+        throw new IOException("Unable to read " + this.field + ": " + e.getMessage());
+      }
+    }
+
+    @Override
+    void set(Object bean, Object value) throws IOException {
+      try {
+        this.field.set(bean, value);
+      }
+      catch (IllegalAccessException e) {
+        throw new IOException("Unable to write " + this.field + ": " + e.getMessage());
+      }
+    }
+  }
+
+  private abstract static class Codec {
+
+    abstract void write(Object value, BinaryOutput out) throws IOException;
+
+    abstract Object read(BinaryInput in) throws IOException;
+  }
+
+  private static final Codec STRING = new Codec() {
+    @Override
+    void write(Object value, BinaryOutput out) throws IOException {
+      out.writeString((String) value);
+    }
+
+    @Override
+    Object read(BinaryInput in) throws IOException {
+      return in.readString();
+    }
+  };
+
+  private static final Codec BOOLEAN = new Codec() {
+    @Override
+    void write(Object value, BinaryOutput out) throws IOException {
+      out.writeBoolean((Boolean) value);
+    }
+
+    @Override
+    Object read(BinaryInput in) throws IOException {
+      return in.readBoolean();
+    }
+  };
+
+  private static final Codec DATE = new Codec() {
+    @Override
+    void write(Object value, BinaryOutput out) throws IOException {
+      out.writeByte(value == null ? 0 : 1);
+      if (value != null) {
+        out.writeSignedVarLong(((java.util.Date) value).getTime());
+      }
+    }
+
+    @Override
+    Object read(BinaryInput in) throws IOException {
+      return in.readByte() == 0 ? null : new java.util.Date(in.readSignedVarLong());
+    }
+  };
+
+  private static final Codec QNAME = new Codec() {
+    @Override
+    void write(Object value, BinaryOutput out) throws IOException {
+      QName qname = (QName) value;
+      out.writeString(qname == null ? null : qname.getNamespaceURI());
+      if (qname != null) {
+        out.writeString(qname.getLocalPart());
+        out.writeString(qname.getPrefix());
+      }
+    }
+
+    @Override
+    Object read(BinaryInput in) throws IOException {
+      String namespace = in.readString();
+      return namespace == null ? null : new QName(namespace, in.readString(), in.readString());
+    }
+  };
+
+  private static final class IntegerCodec extends Codec {
+
+    private final Class<?> type;
+
+    private IntegerCodec(Class<?> type) {
+      this.type = type;
+    }
+
+    @Override
+    void write(Object value, BinaryOutput out) throws IOException {
+      if (!this.type.isPrimitive()) {
+        out.writeByte(value == null ? 0 : 1);
+      }
+      if (value != null) {
+        out.writeSignedVarLong(((Number) value).longValue());
+      }
+    }
+
+    @Override
+    Object read(BinaryInput in) throws IOException {
+      if (!this.type.isPrimitive() && in.readByte() == 0) {
+        return null;
+      }
+      long value = in.readSignedVarLong();
+      if (this.type == Integer.class || this.type == Integer.TYPE) {
+        return (int) value;
+      }
+      else if (this.type == Short.class || this.type == Short.TYPE) {
+        return (short) value;
+      }
+      else if (this.type == Byte.class || this.type == Byte.TYPE) {
+        return (byte) value;
+      }
+      return value;
+    }
+  }
+
+  private static final class FloatingPointCodec extends Codec {
+
+    private final Class<?> type;
+
+    private FloatingPointCodec(Class<?> type) {
+      this.type = type;
+    }
+
+    @Override
+    void write(Object value, BinaryOutput out) throws IOException {
+      if (!this.type.isPrimitive()) {
+        out.writeByte(value == null ? 0 : 1);
+      }
+      if (value != null) {
+        long bits = Double.doubleToLongBits(((Number) value).doubleValue());
+        for (int i = 0; i < 8; i++) {
+          out.writeByte((int) (bits >>> (i * 8)));
+        }
+      }
+    }
+
+    @Override
+    Object read(BinaryInput in) throws IOException {
+      if (!this.type.isPrimitive() && in.readByte() == 0) {
+        return null;
+      }
+      long bits = 0;
+      for (int i = 0; i < 8; i++) {
+        bits |= ((long) in.readByte()) << (i * 8);
+      }
+      double value = Double.longBitsToDouble(bits);
+      return this.type == Float.class || this.type == Float.TYPE ? (Object) (float) value : (Object) value;
+    }
+  }
+
+  private static final class EnumCodec extends Codec {
+
+    private final Class<?> type;
+
+    private EnumCodec(Class<?> type) {
+      this.type = type;
+    }
+
+    @Override
+    void write(Object value, BinaryOutput out) throws IOException {
+      out.writeString(value == null ? null : ((Enum) value).name());
+    }
+
+    @Override
+    @SuppressWarnings ( {"unchecked"} )
+    Object read(BinaryInput in) throws IOException {
+      String name = in.readString();
+      try {
+        return name == null ? null : Enum.valueOf((Class<Enum>) this.type, name);
+      }
+      catch (IllegalArgumentException e) {
+        throw new IOException("Unknown constant " + name + " of " + this.type.getName() + ".");
+      }
+    }
+  }
+
+  private static final class ListCodec extends Codec {
+
+    private final Codec elementCodec;
+
+    private ListCodec(Codec elementCodec) {
+      this.elementCodec = elementCodec;
+    }
+
+    @Override
+    void write(Object value, BinaryOutput out) throws IOException {
+      Collection<?> items = (Collection<?>) value;
+      out.writeCount(items == null ? -1 : items.size());
+      if (items != null) {
+        for (Object item : items) {
+          this.elementCodec.write(item, out);
+        }
+      }
+    }
+
+    @Override
+    Object read(BinaryInput in) throws IOException {
+      int count = in.readCount();
+      if (count < 0) {
+        return null;
+      }
+      List<Object> items = new ArrayList<Object>(Math.min(count, 1024));
+      for (int i = 0; i < count; i++) {
+        items.add(this.elementCodec.read(in));
+      }
+      return items;
+    }
+  }
+
+  private static final class MapCodec extends Codec {
+
+    private final Codec keyCodec;
+    private final Codec valueCodec;
+
+    private MapCodec(Codec keyCodec, Codec valueCodec) {
+      this.keyCodec = keyCodec;
+      this.valueCodec = valueCodec;
+    }
+
+    @Override
+    void write(Object value, BinaryOutput out) throws IOException {
+      Map<?, ?> map = (Map<?, ?>) value;
+      out.writeCount(map == null ? -1 : map.size());
+      if (map != null) {
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+          this.keyCodec.write(entry.getKey(), out);
+          this.valueCodec.write(entry.getValue(), out);
+        }
+      }
+    }
+
+    @Override
+    Object read(BinaryInput in) throws IOException {
+      int count = in.readCount();
+      if (count < 0) {
+        return null;
+      }
+      Map<Object, Object> map = new LinkedHashMap<Object, Object>();
+      for (int i = 0; i < count; i++) {
+        map.put(this.keyCodec.read(in), this.valueCodec.read(in));
+      }
+      return map;
+    }
+  }
+
+  private static final class AdapterCodec extends Codec {
+
+    private final XmlAdapter<Object, Object> adapter;
+
+    @SuppressWarnings ( {"unchecked"} )
+    private AdapterCodec(Class<? extends XmlAdapter> adapterClass) {
+      try {
+        this.adapter = adapterClass.newInstance();
+      }
+      catch (Exception e) {
+        throw new IllegalArgumentException("Unable to instantiate " + adapterClass.getName() + ".", e);
+      }
+    }
+
+    @Override
+    void write(Object value, BinaryOutput out) throws IOException {
+      Object adapted;
+      try {
+        adapted = value == null ? null : this.adapter.marshal(value);
+      }
+      catch (Exception e) {
+        throw new IOException("Unable to adapt " + value + ": " + e.getMessage());
+      }
+      if (adapted != null && !(adapted instanceof String)) {
+        throw new IOException("Unsupported adapted value: " + adapted);
+      }
+      out.writeString((String) adapted);
+    }
+
+    @Override
+    Object read(BinaryInput in) throws IOException {
+      String value = in.readString();
+      try {
+        return value == null ? null : this.adapter.unmarshal(value);
+      }
+      catch (Exception e) {
+        throw new IOException("Unable to adapt " + value + ": " + e.getMessage());
+      }
+    }
+  }
+
+  /**
+   * The codec of a value of a class of the model (or of an extension element), which may be an instance of a subclass of
+   * its declared type, or (for an extension element) a DOM element or a captured element.
+   */
+  private static final class BeanCodec extends Codec {
+
+    private final Class<?> declaredType;
+
+    private BeanCodec(Class<?> declaredType) {
+      this.declaredType = declaredType;
+    }
+
+    @Override
+    void write(Object value, BinaryOutput out) throws IOException {
+      if (value == null) {
+        out.writeVarLong(TAG_NULL);
+      }
+      else if (value.getClass() == this.declaredType) {
+        out.writeVarLong(TAG_DECLARED);
+        forType(this.declaredType).write(value, out);
+      }
+      else if (value instanceof CapturedElement) {
+        out.writeVarLong(TAG_CAPTURED_ELEMENT);
+        ((CapturedElement) value).replay(new CapturedElementOutput(out));
+      }
+      else if (value instanceof Element) {
+        out.writeVarLong(TAG_ELEMENT);
+        out.writeString(toXml((Element) value));
+      }
+      else if (value instanceof JAXBElement) {
+        JAXBElement<?> element = (JAXBElement<?>) value;
+        out.writeVarLong(TAG_JAXB_ELEMENT);
+        QNAME.write(element.getName(), out);
+        out.writeClass(element.getDeclaredType());
+        boolean global = element.getScope() == JAXBElement.GlobalScope.class;
+        out.writeByte(global ? 1 : 0);
+        if (!global) {
+          out.writeClass(element.getScope());
+        }
+        codecFor(element.getDeclaredType()).write(element.getValue(), out);
+      }
+      else if (isModel(value.getClass())) {
+        out.writeVarLong(TAG_CLASS);
+        out.writeClass(value.getClass());
+        forType(value.getClass()).write(value, out);
+      }
+      else {
+        throw new IOException("Unsupported value: " + value);
+      }
+    }
+
+    @Override
+    @SuppressWarnings ( {"unchecked"} )
+    Object read(BinaryInput in) throws IOException {
+      int tag = in.readVarInt();
+      switch (tag) {
+        case TAG_NULL:
+          return null;
+        case TAG_DECLARED:
+          return forType(this.declaredType).read(in);
+        case TAG_ELEMENT:
+          return fromXml(in.readString());
+        case TAG_CAPTURED_ELEMENT:
+          return readCapturedElement(in);
+        case TAG_JAXB_ELEMENT:
+          QName name = (QName) QNAME.read(in);
+          Class<?> declaredType = in.readClass();
+          Class<?> scope = in.readByte() == 1 ? JAXBElement.GlobalScope.class : in.readClass();
+          if (!isModel(declaredType) && !isSimple(declaredType)) {
+            throw new IOException("Unexpected class " + declaredType.getName() + " for an element.");
+          }
+          return new JAXBElement(name, declaredType, scope, codecFor(declaredType).read(in));
+        case TAG_CLASS:
+          Class<?> clazz = in.readClass();
+          if (!this.declaredType.isAssignableFrom(clazz) || !isModel(clazz)) {
+            throw new IOException("Unexpected class " + clazz.getName() + " for " + this.declaredType.getName() + ".");
+          }
+          return forType(clazz).read(in);
+        default:
+          throw new IOException("Unknown tag: " + tag);
+      }
+    }
+
+    private static boolean isModel(Class<?> clazz) {
+      //only classes bound to XML can be read, so a document can't name an arbitrary class to instantiate.
+      return clazz.isAnnotationPresent(XmlRootElement.class) || clazz.isAnnotationPresent(XmlType.class);
+    }
+
+    private static boolean isSimple(Class<?> clazz) {
+      return clazz == String.class || clazz == Boolean.class || Number.class.isAssignableFrom(clazz) && clazz.getName().startsWith("java.lang.")
+        || clazz == QName.class || clazz == java.util.Date.class;
+    }
+
+    private static CapturedElement readCapturedElement(BinaryInput in) throws IOException {
+      CapturedElement.Builder builder = new CapturedElement.Builder();
+      int depth = 0;
+      try {
+        do {
+          int event = in.readVarInt();
+          switch (event) {
+            case EVENT_START:
+              builder.startElement(in.readString(), in.readString(), in.readString());
+              depth++;
+              break;
+            case EVENT_NAMESPACE:
+              builder.namespace(in.readString(), in.readString());
+              break;
+            case EVENT_ATTRIBUTE:
+              builder.attribute(in.readString(), in.readString(), in.readString(), in.readString());
+              break;
+            case EVENT_TEXT:
+              builder.text(in.readString());
+              break;
+            case EVENT_END:
+              builder.endElement();
+              depth--;
+              break;
+            default:
+              throw new IOException("Unknown event: " + event);
+          }
+        }
+        while (depth > 0);
+        return builder.build();
+      }
+      catch (IllegalStateException e) {
+        throw new IOException("Malformed element: " + e.getMessage());
+      }
+    }
+
+    private static String toXml(Element element) throws IOException {
+      try {
+        Transformer transformer;
+        synchronized (TRANSFORMER_FACTORY) {
+          transformer = TRANSFORMER_FACTORY.newTransformer();
+        }
+        transformer.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "yes");
+        StringWriter writer = new StringWriter();
+        transformer.transform(new DOMSource(element), new StreamResult(writer));
+        return writer.toString();
+      }
+      catch (Exception e) {
+        throw new IOException("Unable to write element " + element.getNodeName() + ": " + e.getMessage());
+      }
+    }
+
+    private static Element fromXml(String xml) throws IOException {
+      try {
+        DocumentBuilder builder;
+        synchronized (DOCUMENT_BUILDER_FACTORY) {
+          builder = DOCUMENT_BUILDER_FACTORY.newDocumentBuilder();
+        }
+        return builder.parse(new InputSource(new StringReader(xml))).getDocumentElement();
+      }
+      catch (Exception e) {
+        throw new IOException("Unable to read an element: " + e.getMessage());
+      }
+    }
+  }
+
+  /**
+   * Writes the events of a captured element.
+   */
+  private static final class CapturedElementOutput implements CapturedElement.Handler<IOException> {
+
+    private final BinaryOutput out;
+
+    private CapturedElementOutput(BinaryOutput out) {
+      this.out = out;
+    }
+
+    public void startElement(String namespaceURI, String localName, String prefix) throws IOException {
+      this.out.writeVarLong(EVENT_START);
+      this.out.writeString(namespaceURI);
+      this.out.writeString(localName);
+      this.out.writeString(prefix);
+    }
+
+    public void namespace(String prefix, String namespaceURI) throws IOException {
+      this.out.writeVarLong(EVENT_NAMESPACE);
+      this.out.writeString(prefix);
+      this.out.writeString(namespaceURI);
+    }
+
+    public void attribute(String namespaceURI, String localName, String prefix, String value) throws IOException {
+      this.out.writeVarLong(EVENT_ATTRIBUTE);
+      this.out.writeString(namespaceURI);
+      this.out.writeString(localName);
+      this.out.writeString(prefix);
+      this.out.writeString(value);
+    }
+
+    public void text(String text) throws IOException {
+      this.out.writeVarLong(EVENT_TEXT);
+      this.out.writeString(text);
+    }
+
+    public void endElement() throws IOException {
+      this.out.writeVarLong(EVENT_END);
+    }
+  }
+}
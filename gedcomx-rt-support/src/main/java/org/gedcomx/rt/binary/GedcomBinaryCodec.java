@@ -0,0 +1,110 @@
+/**
+ * Copyright 2011-2012 Intellectual Reserve, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gedcomx.rt.binary;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * A compact binary format for the GEDCOM X model, for service-to-service traffic and caching where XML and JSON are too
+ * verbose. The format is driven by the JAXB binding of the model: an object is written as the values of its JAXB properties
+ * in the order of their names, without names or markup. Integers are varints, strings (including URIs, which are written
+ * through their XML adapter) are written once per document and then referenced through a string table, so the type URIs
+ * that recur across a document cost a byte or two each. An object of a subclass of its declared type (e.g. an extension
+ * element) is prefixed with its class, also written once per document; extension elements that JAXB leaves as DOM elements
+ * are written as XML.<br/><br/>
+ *
+ * Because the layout of an object is derived from its class, a document can only be read with the same version of the
+ * model with which it was written. Only classes that are bound to XML are instantiated when a document is read.
+ *
+ * @author Ryan Heaton
+ */
+public class GedcomBinaryCodec {
+
+  private static final byte[] MAGIC = {'G', 'X', 'B'};
+  private static final int VERSION = 1;
+
+  private GedcomBinaryCodec() {
+  }
+
+  /**
+   * Write an object of the model to a stream.
+   *
+   * @param value The object.
+   * @param out The stream.
+   * @throws IOException If the object couldn't be written.
+   */
+  public static void write(Object value, OutputStream out) throws IOException {
+    if (value == null) {
+      throw new IllegalArgumentException("A value must be provided.");
+    }
+    BinaryOutput output = new BinaryOutput(out);
+    output.writeBytes(MAGIC);
+    output.writeByte(VERSION);
+    BinarySchema.writeValue(value, Object.class, output);
+    output.flush();
+  }
+
+  /**
+   * Write an object of the model to a byte array.
+   *
+   * @param value The object.
+   * @return The bytes.
+   * @throws IOException If the object couldn't be written.
+   */
+  public static byte[] toBytes(Object value) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    write(value, out);
+    return out.toByteArray();
+  }
+
+  /**
+   * Read an object of the model from a stream. The stream may be read past the end of the object.
+   *
+   * @param in The stream.
+   * @param type The type of the object.
+   * @return The object.
+   * @throws IOException If the object couldn't be read.
+   */
+  public static <T> T read(InputStream in, Class<T> type) throws IOException {
+    BinaryInput input = new BinaryInput(in);
+    for (byte b : MAGIC) {
+      if (input.readByte() != b) {
+        throw new IOException("Not a GEDCOM X binary document.");
+      }
+    }
+    int version = input.readByte();
+    if (version != VERSION) {
+      throw new IOException("Unsupported version of the binary format: " + version);
+    }
+    return type.cast(BinarySchema.readValue(type, input));
+  }
+
+  /**
+   * Read an object of the model from a byte array.
+   *
+   * @param bytes The bytes.
+   * @param type The type of the object.
+   * @return The object.
+   * @throws IOException If the object couldn't be read.
+   */
+  public static <T> T fromBytes(byte[] bytes, Class<T> type) throws IOException {
+    return read(new ByteArrayInputStream(bytes), type);
+  }
+}
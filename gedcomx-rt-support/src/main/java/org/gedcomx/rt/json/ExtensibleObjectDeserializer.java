@@ -31,6 +31,8 @@ import javax.xml.namespace.QName;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Custom JSON serializer for @XmlAnyElement fields/properties
@@ -39,6 +41,11 @@ import java.util.List;
  */
 public class ExtensibleObjectDeserializer extends BeanDeserializer {
 
+  //memoized wrapper names for json property names; bounded because the property names come from the input.
+  private static final int MAX_CACHED_WRAPPER_NAMES = 2048;
+  private static final ConcurrentMap<String, QName> WRAPPER_NAMES = new ConcurrentHashMap<String, QName>();
+  private static final String XML_NS_PREFIX = XMLConstants.XML_NS_URI + "#";
+
   public ExtensibleObjectDeserializer(BeanDeserializer src) {
     super(src);
   }
@@ -86,23 +93,41 @@ public class ExtensibleObjectDeserializer extends BeanDeserializer {
   }
 
   private QName getWrapperName(String propName) {
+    QName qname = WRAPPER_NAMES.get(propName);
+    if (qname == null) {
+      qname = resolveWrapperName(propName);
+      if (WRAPPER_NAMES.size() < MAX_CACHED_WRAPPER_NAMES) {
+        WRAPPER_NAMES.putIfAbsent(propName, qname);
+      }
+    }
+    return qname;
+  }
+
+  private QName resolveWrapperName(String propName) {
     QName qname = GedcomNamespaceManager.findWrapperNameForJsonName(propName);
 
     if (qname == null && propName.indexOf(':') >= 0) {
       //if the propname has a ':', we'll treat it as a qname, because all qnames I know have a ':' in them.
-      List<String> knownNS = new ArrayList<String>(GedcomNamespaceManager.getKnownPrefixes().keySet());
-      knownNS.add(XMLConstants.XML_NS_URI + "#");
-      for (String ns : knownNS) {
-        if (propName.startsWith(ns)) {
-          String nsURI = propName.substring(0, ns.length());
-          String localPart = propName.substring(ns.length());
-          if (!"".equals(localPart)) {
-            qname = new QName(nsURI, localPart);
-          }
+      String ns = null;
+      for (String knownNS : GedcomNamespaceManager.getKnownPrefixes().keySet()) {
+        if (propName.startsWith(knownNS)) {
+          ns = knownNS;
           break;
         }
       }
 
+      if (ns == null && propName.startsWith(XML_NS_PREFIX)) {
+        ns = XML_NS_PREFIX;
+      }
+
+      if (ns != null) {
+        String nsURI = propName.substring(0, ns.length());
+        String localPart = propName.substring(ns.length());
+        if (!"".equals(localPart)) {
+          qname = new QName(nsURI, localPart);
+        }
+      }
+
       if (qname == null && propName.indexOf('#') > 0) {
         //well, it wasn't a known namespace; let's try separating ns from local part with a #
         int hashIndex = propName.indexOf('#');
@@ -19,21 +19,27 @@ import org.codehaus.jackson.JsonGenerationException;
 import org.codehaus.jackson.JsonGenerator;
 import org.codehaus.jackson.JsonProcessingException;
 import org.codehaus.jackson.map.JsonMappingException;
+import org.codehaus.jackson.map.JsonSerializer;
 import org.codehaus.jackson.map.SerializerProvider;
 import org.codehaus.jackson.map.ser.BeanSerializer;
+import org.gedcomx.rt.CapturedElement;
 import org.gedcomx.rt.GedcomNamespaceManager;
 import org.gedcomx.rt.SupportsExtensionAttributes;
 import org.gedcomx.rt.SupportsExtensionElements;
+import org.w3c.dom.Attr;
 import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
 import org.w3c.dom.Node;
 
+import javax.xml.XMLConstants;
 import javax.xml.bind.JAXBElement;
 import javax.xml.namespace.QName;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Custom JSON serializer for @XmlAnyElement fields/properties
@@ -42,6 +48,10 @@ import java.util.Map;
  */
 public class ExtensibleObjectSerializer extends BeanSerializer {
 
+  //what's been resolved for each class of extension element. serializers are specific to the mapper that created
+  //this serializer, so the cache is per instance.
+  private final ConcurrentMap<Class<?>, ExtensionType> extensionTypes = new ConcurrentHashMap<Class<?>, ExtensionType>();
+
   public ExtensibleObjectSerializer(BeanSerializer src) {
     super(src);
   }
@@ -83,75 +93,117 @@ public class ExtensibleObjectSerializer extends BeanSerializer {
 
   public void serializeExtensionElements(SupportsExtensionElements value, JsonGenerator jgen, SerializerProvider provider) throws IOException, JsonProcessingException {
     List<Object> extensionElements = value.getExtensionElements();
-    if (extensionElements != null) {
-      Map<String, List<Object>> extensionProperties = new HashMap<String, List<Object>>();
-      for (Object element : extensionElements) {
-        if (element != null) {
-          String name;
-          if (element instanceof Element) {
-            Element el = (Element) element;
-            name = GedcomNamespaceManager.nameFromQName(el.getNamespaceURI(), el.getLocalName());
-          }
-          else if (element instanceof JAXBElement) {
-            name = GedcomNamespaceManager.getJsonNameForWrapperName(((JAXBElement) element).getName());
-            if (name == null) {
-              name = GedcomNamespaceManager.nameFromQName(((JAXBElement) element).getName().getNamespaceURI(), ((JAXBElement) element).getName().getLocalPart());
-            }
-            element = ((JAXBElement) element).getValue();
-          }
-          else {
-            name = GedcomNamespaceManager.getJsonName(element.getClass());
-            if (name == null) {
-              throw new JsonMappingException("Unable to serialize custom element " + value +
-                                               " because it's not a JAXBElement, DOM element, nor is it annotated with either @JsonElementWrapper or @XmlRootElement.");
-            }
-          }
+    if (extensionElements != null && !extensionElements.isEmpty()) {
+      //extension elements are grouped by name in the order in which each name first appears, so the output is stable.
+      KeyedGroups extensionProperties = KeyedGroups.acquire();
+      try {
+        groupExtensionElements(value, extensionElements, extensionProperties, provider);
+        writeExtensionProperties(extensionProperties, jgen, provider);
+      }
+      finally {
+        extensionProperties.release();
+      }
+    }
+  }
 
-          List<Object> propList = extensionProperties.get(name);
-          if (propList == null) {
-            propList = new ArrayList<Object>();
-            extensionProperties.put(name, propList);
+  private void groupExtensionElements(SupportsExtensionElements value, List<Object> extensionElements, KeyedGroups extensionProperties, SerializerProvider provider) throws JsonMappingException {
+    for (Object element : extensionElements) {
+      if (element != null) {
+        String name;
+        if (element instanceof Element) {
+          Element el = (Element) element;
+          name = GedcomNamespaceManager.nameFromQName(el.getNamespaceURI(), el.getLocalName());
+        }
+        else if (element instanceof JAXBElement) {
+          name = GedcomNamespaceManager.getJsonNameForWrapperName(((JAXBElement) element).getName());
+          if (name == null) {
+            name = GedcomNamespaceManager.nameFromQName(((JAXBElement) element).getName().getNamespaceURI(), ((JAXBElement) element).getName().getLocalPart());
+          }
+          element = ((JAXBElement) element).getValue();
+        }
+        else {
+          name = getExtensionType(element.getClass(), provider).jsonName;
+          if (name == null) {
+            throw new JsonMappingException("Unable to serialize custom element " + value +
+                                             " because it's not a JAXBElement, DOM element, nor is it annotated with either @JsonElementWrapper or @XmlRootElement.");
           }
-
-          propList.add(element);
         }
+
+        extensionProperties.add(name, element);
       }
+    }
+  }
 
-      for (Map.Entry<String, List<Object>> prop : extensionProperties.entrySet()) {
-        if (prop.getValue().get(0) instanceof HasJsonKey) {
-          //we're serialize out this list as a keyed map.
-          jgen.writeFieldName(prop.getKey());
-          KeyedListSerializer.serializeGeneric(prop.getValue(), jgen, provider);
-        }
-        else {
-          jgen.writeArrayFieldStart(prop.getKey());
-          for (Object element : prop.getValue()) {
-            if (element instanceof Element) {
-              serializeElement((Element) element, jgen);
-            }
-            else {
-              provider.findTypedValueSerializer(element.getClass(), true, null).serialize(element, jgen, provider);
-            }
+  private void writeExtensionProperties(KeyedGroups extensionProperties, JsonGenerator jgen, SerializerProvider provider) throws IOException {
+    for (int prop = 0; prop < extensionProperties.getGroupCount(); prop++) {
+      int first = extensionProperties.first(prop);
+      Object firstElement = extensionProperties.getItem(first);
+      if (!(firstElement instanceof Element) && getExtensionType(firstElement.getClass(), provider).keyed) {
+        //we're serialize out this list as a keyed map.
+        jgen.writeFieldName(extensionProperties.getKey(prop));
+        KeyedListSerializer.serializeGroup(extensionProperties, prop, jgen, provider);
+      }
+      else {
+        jgen.writeArrayFieldStart(extensionProperties.getKey(prop));
+        for (int item = first; item >= 0; item = extensionProperties.next(item)) {
+          Object element = extensionProperties.getItem(item);
+          if (element instanceof CapturedElement) {
+            ((CapturedElement) element).replay(new CapturedElementWriter(jgen));
+          }
+          else if (element instanceof Element) {
+            serializeElement((Element) element, jgen);
+          }
+          else {
+            getExtensionType(element.getClass(), provider).serializer.serialize(element, jgen, provider);
           }
-          jgen.writeEndArray();
         }
+        jgen.writeEndArray();
       }
     }
   }
 
+  private ExtensionType getExtensionType(Class<?> type, SerializerProvider provider) throws JsonMappingException {
+    ExtensionType extensionType = this.extensionTypes.get(type);
+    if (extensionType == null) {
+      extensionType = new ExtensionType(GedcomNamespaceManager.getJsonName(type), HasJsonKey.class.isAssignableFrom(type), provider.findTypedValueSerializer(type, true, null));
+      this.extensionTypes.put(type, extensionType);
+    }
+    return extensionType;
+  }
+
+  /**
+   * The JSON name, whether it's a keyed type, and the serializer of a class of extension element.
+   */
+  private static final class ExtensionType {
+
+    private final String jsonName;
+    private final boolean keyed;
+    private final JsonSerializer<Object> serializer;
+
+    private ExtensionType(String jsonName, boolean keyed, JsonSerializer<Object> serializer) {
+      this.jsonName = jsonName;
+      this.keyed = keyed;
+      this.serializer = serializer;
+    }
+  }
+
   private void serializeElement(Element element, JsonGenerator jgen) throws IOException {
     boolean startObjectWritten = false;
     boolean writeValue = false;
     StringBuilder value = new StringBuilder();
+    NamedNodeMap attributes = element.getAttributes();
+    for (int i = 0; i < attributes.getLength(); i++) {
+      Attr attribute = (Attr) attributes.item(i);
+      if (!XMLConstants.XMLNS_ATTRIBUTE_NS_URI.equals(attribute.getNamespaceURI())) {
+        if (!startObjectWritten) {
+          jgen.writeStartObject();
+          startObjectWritten = true;
+        }
+        jgen.writeStringField(attribute.getLocalName() == null ? attribute.getName() : attribute.getLocalName(), attribute.getValue());
+      }
+    }
     for (Node child = element.getFirstChild(); child != null; child = child.getNextSibling()) {
       switch (child.getNodeType()) {
-        case Node.ATTRIBUTE_NODE:
-          if (!startObjectWritten) {
-            jgen.writeStartObject();
-            startObjectWritten = true;
-          }
-          jgen.writeStringField(child.getLocalName(), child.getNodeValue());
-          break;
         case Node.TEXT_NODE:
         case Node.CDATA_SECTION_NODE:
           writeValue = true;
@@ -182,4 +234,74 @@ public class ExtensibleObjectSerializer extends BeanSerializer {
       jgen.writeEndObject();
     }
   }
+
+  /**
+   * Writes a captured element the way {@link #serializeElement(Element, JsonGenerator)} writes a DOM element.
+   */
+  private static final class CapturedElementWriter implements CapturedElement.Handler<IOException> {
+
+    private final JsonGenerator jgen;
+    private final List<Boolean> startObjectWritten = new ArrayList<Boolean>();
+    private final List<StringBuilder> values = new ArrayList<StringBuilder>();
+
+    private CapturedElementWriter(JsonGenerator jgen) {
+      this.jgen = jgen;
+    }
+
+    public void startElement(String namespaceURI, String localName, String prefix) throws IOException {
+      if (!this.values.isEmpty()) {
+        startObject();
+        this.jgen.writeFieldName(prefix == null ? localName : prefix + ':' + localName);
+      }
+      this.startObjectWritten.add(Boolean.FALSE);
+      this.values.add(null);
+    }
+
+    public void namespace(String prefix, String namespaceURI) {
+      //namespace declarations aren't written.
+    }
+
+    public void attribute(String namespaceURI, String localName, String prefix, String value) throws IOException {
+      startObject();
+      this.jgen.writeStringField(localName, value);
+    }
+
+    public void text(String text) {
+      int last = this.values.size() - 1;
+      StringBuilder value = this.values.get(last);
+      if (value == null) {
+        value = new StringBuilder();
+        this.values.set(last, value);
+      }
+      value.append(text);
+    }
+
+    public void endElement() throws IOException {
+      int last = this.values.size() - 1;
+      boolean startObjectWritten = this.startObjectWritten.remove(last);
+      StringBuilder value = this.values.remove(last);
+      if (startObjectWritten) {
+        if (value != null) {
+          this.jgen.writeStringField("value", value.toString());
+        }
+        this.jgen.writeEndObject();
+      }
+      else if (value != null) {
+        this.jgen.writeString(value.toString());
+      }
+      else {
+        //empty object.
+        this.jgen.writeStartObject();
+        this.jgen.writeEndObject();
+      }
+    }
+
+    private void startObject() throws IOException {
+      int last = this.startObjectWritten.size() - 1;
+      if (!this.startObjectWritten.get(last)) {
+        this.jgen.writeStartObject();
+        this.startObjectWritten.set(last, Boolean.TRUE);
+      }
+    }
+  }
 }
@@ -0,0 +1,89 @@
+/**
+ * Copyright 2011-2012 Intellectual Reserve, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gedcomx.rt.json;
+
+import org.codehaus.jackson.map.ObjectMapper;
+import org.codehaus.jackson.map.ObjectReader;
+import org.codehaus.jackson.map.ObjectWriter;
+import org.codehaus.jackson.map.annotate.JsonSerialize;
+
+/**
+ * Shared, fully-configured JSON readers and writers for GEDCOM JSON data. They're profiles of one mapper that is
+ * configured once (including the {@link GedcomJacksonModule} and the "non-null" inclusion) and is never exposed, so
+ * its configuration can't change, it's safe to use from multiple threads, and its serializer and deserializer caches
+ * are kept warm across calls.<br/><br/>
+ *
+ * Create a new mapper with {@link GedcomJsonProvider#createObjectMapper(Class[])} if you need a different
+ * configuration.
+ *
+ * @author Ryan Heaton
+ */
+public class GedcomJsonMappers {
+
+  private static final ObjectMapper MAPPER;
+  private static final ObjectReader READER;
+  private static final ObjectWriter COMPACT_WRITER;
+  private static final ObjectWriter PRETTY_WRITER;
+
+  static {
+    ObjectMapper mapper = GedcomJsonProvider.createObjectMapper();
+    mapper.getSerializationConfig().setSerializationInclusion(JsonSerialize.Inclusion.NON_NULL);
+    MAPPER = mapper;
+    READER = mapper.reader();
+    COMPACT_WRITER = mapper.writer();
+    PRETTY_WRITER = mapper.defaultPrettyPrintingWriter();
+  }
+
+  private GedcomJsonMappers() {}
+
+  /**
+   * The shared mapper, for the readers of this package that need more than an {@link ObjectReader} (e.g. its factory).
+   * It must not be reconfigured.
+   *
+   * @return The shared mapper.
+   */
+  static ObjectMapper getMapper() {
+    return MAPPER;
+  }
+
+  /**
+   * The reader for values of the specified type.
+   *
+   * @param type The type of the values to read.
+   * @return The reader.
+   */
+  public static ObjectReader getReader(Class<?> type) {
+    return READER.withType(type);
+  }
+
+  /**
+   * The writer for compact (non-indented, non-null) output.
+   *
+   * @return The writer for compact output.
+   */
+  public static ObjectWriter getCompactWriter() {
+    return COMPACT_WRITER;
+  }
+
+  /**
+   * The writer for pretty (indented, non-null) output.
+   *
+   * @return The writer for pretty output.
+   */
+  public static ObjectWriter getPrettyWriter() {
+    return PRETTY_WRITER;
+  }
+}
@@ -0,0 +1,321 @@
+/**
+ * Copyright 2011-2012 Intellectual Reserve, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gedcomx.rt.json;
+
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.JsonToken;
+import org.codehaus.jackson.map.JsonMappingException;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.gedcomx.rt.GedcomNamespaceManager;
+
+import javax.xml.bind.JAXBElement;
+import javax.xml.namespace.QName;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.*;
+
+/**
+ * A pull-style reader of the extension elements of a GEDCOM JSON document (e.g. <code>{"persons" : [...], "relationships" : [...]}</code>).
+ * The document is read token by token, and each element is returned as soon as it is complete, so that the memory needed to
+ * read a document is bounded by the size of one element rather than by the size of the document.<br/><br/>
+ *
+ * The elements are read with the same semantics as the {@link ExtensibleObjectDeserializer}: the properties of known JSON
+ * types are read as lists (or keyed maps) of the type, and the properties of known wrapped types are read as lists of
+ * {@link JAXBElement}s. Other properties are skipped. The objects of container properties (by default, "resourceSets") are
+ * descended into rather than read whole, so the elements of each container are returned one at a time too.<br/><br/>
+ *
+ * The reader isn't thread-safe, and it can be iterated only once.
+ *
+ * @author Ryan Heaton
+ */
+public class GedcomJsonStreamReader implements Iterable<Object>, Closeable {
+
+  /**
+   * Handler for the elements of a document.
+   */
+  public interface Handler {
+
+    /**
+     * Handle an element.
+     *
+     * @param propertyName The name of the property that contains the element.
+     * @param element The element.
+     * @throws IOException If the element couldn't be handled.
+     */
+    void handle(String propertyName, Object element) throws IOException;
+  }
+
+  /**
+   * The names of the container properties that are descended into by default.
+   */
+  public static final Set<String> DEFAULT_CONTAINERS = Collections.unmodifiableSet(new HashSet<String>(Arrays.asList("resourceSets")));
+
+  private static final int OBJECT = 0;
+  private static final int CONTAINER_ARRAY = 1;
+  private static final int ELEMENT_ARRAY = 2;
+  private static final int KEYED_MAP = 3;
+  private static final int KEYED_ARRAY = 4;
+
+  private final JsonParser jp;
+  private final Set<String> containers;
+  private final LinkedList<Frame> stack = new LinkedList<Frame>();
+  private String propertyName;
+  private boolean iterated = false;
+
+  /**
+   * Create a reader for the specified document, read with the shared mapper of {@link GedcomJsonMappers}.
+   *
+   * @param in The document.
+   * @param types The element types to recognize (in addition to the types already known to the {@link GedcomNamespaceManager}).
+   * @throws IOException If the document couldn't be read.
+   */
+  public GedcomJsonStreamReader(InputStream in, Class<?>... types) throws IOException {
+    this(GedcomJsonMappers.getMapper(), in, DEFAULT_CONTAINERS, types);
+  }
+
+  /**
+   * Create a reader for the specified document.
+   *
+   * @param mapper The mapper with which to read the elements.
+   * @param in The document.
+   * @param containers The names of the container properties to descend into.
+   * @param types The element types to recognize (in addition to the types already known to the {@link GedcomNamespaceManager}).
+   * @throws IOException If the document couldn't be read.
+   */
+  public GedcomJsonStreamReader(ObjectMapper mapper, InputStream in, Set<String> containers, Class<?>... types) throws IOException {
+    for (Class<?> type : types) {
+      GedcomNamespaceManager.registerKnownJsonType(type);
+    }
+    this.containers = containers;
+    this.jp = mapper.getJsonFactory().createJsonParser(in);
+    if (this.jp.nextToken() != JsonToken.START_OBJECT) {
+      throw new JsonMappingException("Unable to read GEDCOM JSON document: expected start object, but got: " + this.jp.getCurrentToken(), this.jp.getCurrentLocation());
+    }
+    this.stack.addFirst(new Frame(OBJECT, null, null, null));
+  }
+
+  /**
+   * The name of the property that contains the last element that was read.
+   *
+   * @return The name of the property that contains the last element that was read.
+   */
+  public String getPropertyName() {
+    return propertyName;
+  }
+
+  /**
+   * Read the next element of the document.
+   *
+   * @return The next element, or null if there are no more elements.
+   * @throws IOException If the document couldn't be read.
+   */
+  public Object next() throws IOException {
+    while (!this.stack.isEmpty()) {
+      Frame frame = this.stack.getFirst();
+      JsonToken token = this.jp.nextToken();
+      if (token == null) {
+        throw new JsonMappingException("Unexpected end of GEDCOM JSON document.", this.jp.getCurrentLocation());
+      }
+
+      switch (frame.kind) {
+        case OBJECT:
+          if (token == JsonToken.END_OBJECT) {
+            this.stack.removeFirst();
+          }
+          else {
+            Object element = readProperty(this.jp.getCurrentName());
+            if (element != null) {
+              return element;
+            }
+          }
+          break;
+        case CONTAINER_ARRAY:
+          if (token == JsonToken.END_ARRAY) {
+            this.stack.removeFirst();
+          }
+          else if (token == JsonToken.START_OBJECT) {
+            this.stack.addFirst(new Frame(OBJECT, null, null, null));
+          }
+          else {
+            this.jp.skipChildren();
+          }
+          break;
+        case KEYED_MAP:
+          if (token == JsonToken.END_OBJECT) {
+            this.stack.removeFirst();
+          }
+          else {
+            String key = this.jp.getCurrentName();
+            JsonToken value = this.jp.nextToken();
+            if (value == JsonToken.START_ARRAY) {
+              this.stack.addFirst(new Frame(KEYED_ARRAY, frame.type, null, key));
+            }
+            else if (value != JsonToken.VALUE_NULL) {
+              return readElement(frame.type, null, key);
+            }
+          }
+          break;
+        default:
+          if (token == JsonToken.END_ARRAY) {
+            this.stack.removeFirst();
+          }
+          else if (token != JsonToken.VALUE_NULL) {
+            return readElement(frame.type, frame.wrapper, frame.key);
+          }
+          break;
+      }
+    }
+
+    return null;
+  }
+
+  /**
+   * Read the document, passing each element to the specified handler.
+   *
+   * @param handler The handler.
+   * @throws IOException If the document couldn't be read.
+   */
+  public void read(Handler handler) throws IOException {
+    Object element;
+    while ((element = next()) != null) {
+      handler.handle(this.propertyName, element);
+    }
+  }
+
+  /**
+   * Iterate through the elements of the document. The iterator throws an {@link IllegalStateException} if the document can't be read.
+   *
+   * @return The iterator.
+   */
+  public Iterator<Object> iterator() {
+    if (this.iterated) {
+      throw new IllegalStateException("A GEDCOM JSON stream reader can only be iterated once.");
+    }
+    this.iterated = true;
+
+    return new Iterator<Object>() {
+      private Object next;
+
+      public boolean hasNext() {
+        if (this.next == null) {
+          try {
+            this.next = GedcomJsonStreamReader.this.next();
+          }
+          catch (IOException e) {
+            throw new IllegalStateException(e);
+          }
+        }
+        return this.next != null;
+      }
+
+      public Object next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        Object next = this.next;
+        this.next = null;
+        return next;
+      }
+
+      public void remove() {
+        throw new UnsupportedOperationException();
+      }
+    };
+  }
+
+  public void close() throws IOException {
+    this.stack.clear();
+    this.jp.close();
+  }
+
+  /**
+   * Read the property at the current field name. Returns the element, if the property is a single element; otherwise, pushes
+   * the frame for the value of the property (or skips it) and returns null.
+   */
+  private Object readProperty(String name) throws IOException {
+    JsonToken token = this.jp.nextToken();
+    this.propertyName = name;
+
+    if (this.containers.contains(name)) {
+      if (token == JsonToken.START_ARRAY) {
+        this.stack.addFirst(new Frame(CONTAINER_ARRAY, null, null, null));
+      }
+      else if (token == JsonToken.START_OBJECT) {
+        this.stack.addFirst(new Frame(OBJECT, null, null, null));
+      }
+      else {
+        this.jp.skipChildren();
+      }
+      return null;
+    }
+
+    Class<?> type = GedcomNamespaceManager.getKnownJsonType(name);
+    QName wrapper = null;
+    if (type == null) {
+      type = GedcomNamespaceManager.getWrappedTypeForJsonName(name);
+      wrapper = type == null ? null : GedcomNamespaceManager.findWrapperNameForJsonName(name);
+      if (wrapper == null) {
+        type = null;
+      }
+    }
+
+    if (type == null || token == JsonToken.VALUE_NULL) {
+      //not an element; skip it.
+      this.jp.skipChildren();
+      return null;
+    }
+
+    if (wrapper == null && HasJsonKey.class.isAssignableFrom(type)) {
+      if (token != JsonToken.START_OBJECT) {
+        throw new JsonMappingException("Unable to parse keyed map of " + type.getName() + ": expect start object, but got: " + token.name(), this.jp.getCurrentLocation());
+      }
+      this.stack.addFirst(new Frame(KEYED_MAP, type, null, null));
+      return null;
+    }
+
+    if (token == JsonToken.START_ARRAY) {
+      this.stack.addFirst(new Frame(ELEMENT_ARRAY, type, wrapper, null));
+      return null;
+    }
+
+    return readElement(type, wrapper, null);
+  }
+
+  @SuppressWarnings ( {"unchecked"} )
+  private Object readElement(Class<?> type, QName wrapper, String key) throws IOException {
+    Object element = this.jp.readValueAs(type);
+    if (key != null && element instanceof HasJsonKey && !KeyedListSerializer.JSON_DEFAULT_KEY.equals(key)) {
+      ((HasJsonKey) element).setJsonKey(key);
+    }
+    return wrapper == null ? element : new JAXBElement(wrapper, type, element);
+  }
+
+  private static class Frame {
+
+    private final int kind;
+    private final Class<?> type;
+    private final QName wrapper;
+    private final String key;
+
+    private Frame(int kind, Class<?> type, QName wrapper, String key) {
+      this.kind = kind;
+      this.type = type;
+      this.wrapper = wrapper;
+      this.key = key;
+    }
+  }
+}
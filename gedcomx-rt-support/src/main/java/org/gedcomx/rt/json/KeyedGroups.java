@@ -0,0 +1,191 @@
+/**
+ * Copyright 2011-2012 Intellectual Reserve, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gedcomx.rt.json;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Items grouped by a JSON key, in the order in which each key first appears and, within a key, in the order in which the
+ * items were added. The groups are kept as linked lists of indexes into flat arrays, so grouping a list allocates nothing
+ * once the arrays have grown to fit, and instances are pooled per thread so they can be reused from one object to the next.
+ *
+ * @author Ryan Heaton
+ */
+final class KeyedGroups {
+
+  private static final int MAX_POOLED_CAPACITY = 1 << 16;
+  private static final ThreadLocal<KeyedGroups> POOL = new ThreadLocal<KeyedGroups>();
+
+  private final Map<String, Integer> groupsByKey = new HashMap<String, Integer>();
+  private String[] keys = new String[8];
+  private int[] heads = new int[8];
+  private int[] tails = new int[8];
+  private int[] sizes = new int[8];
+  private int groupCount = 0;
+  private Object[] items = new Object[16];
+  private int[] next = new int[16];
+  private int itemCount = 0;
+
+  private KeyedGroups() {
+  }
+
+  /**
+   * Acquire an empty instance, which must be released when it's no longer needed. Grouping is reentrant: an item that is
+   * serialized while its list is being written may itself acquire an instance.
+   *
+   * @return An empty instance.
+   */
+  static KeyedGroups acquire() {
+    KeyedGroups groups = POOL.get();
+    if (groups == null) {
+      return new KeyedGroups();
+    }
+    POOL.set(null);
+    return groups;
+  }
+
+  /**
+   * Release this instance back to the pool of the current thread.
+   */
+  void release() {
+    for (int i = 0; i < this.groupCount; i++) {
+      this.keys[i] = null;
+    }
+    for (int i = 0; i < this.itemCount; i++) {
+      this.items[i] = null;
+    }
+    this.groupsByKey.clear();
+    this.groupCount = 0;
+    this.itemCount = 0;
+    if (this.items.length <= MAX_POOLED_CAPACITY) {
+      POOL.set(this);
+    }
+  }
+
+  /**
+   * Add an item to the group of its key.
+   *
+   * @param key The key.
+   * @param item The item.
+   */
+  void add(String key, Object item) {
+    int group;
+    if (this.groupCount > 0 && key.equals(this.keys[this.groupCount - 1])) {
+      //items of the same key are usually next to each other.
+      group = this.groupCount - 1;
+    }
+    else {
+      Integer existing = this.groupsByKey.get(key);
+      if (existing == null) {
+        group = newGroup(key);
+      }
+      else {
+        group = existing;
+      }
+    }
+
+    if (this.itemCount == this.items.length) {
+      Object[] items = new Object[this.itemCount * 2];
+      System.arraycopy(this.items, 0, items, 0, this.itemCount);
+      this.items = items;
+      int[] next = new int[this.itemCount * 2];
+      System.arraycopy(this.next, 0, next, 0, this.itemCount);
+      this.next = next;
+    }
+
+    int index = this.itemCount++;
+    this.items[index] = item;
+    this.next[index] = -1;
+    if (this.sizes[group]++ == 0) {
+      this.heads[group] = index;
+    }
+    else {
+      this.next[this.tails[group]] = index;
+    }
+    this.tails[group] = index;
+  }
+
+  private int newGroup(String key) {
+    if (this.groupCount == this.keys.length) {
+      int capacity = this.groupCount * 2;
+      String[] keys = new String[capacity];
+      System.arraycopy(this.keys, 0, keys, 0, this.groupCount);
+      this.keys = keys;
+      this.heads = grow(this.heads, capacity);
+      this.tails = grow(this.tails, capacity);
+      this.sizes = grow(this.sizes, capacity);
+    }
+    int group = this.groupCount++;
+    this.keys[group] = key;
+    this.sizes[group] = 0;
+    this.groupsByKey.put(key, group);
+    return group;
+  }
+
+  private static int[] grow(int[] array, int capacity) {
+    int[] grown = new int[capacity];
+    System.arraycopy(array, 0, grown, 0, array.length);
+    return grown;
+  }
+
+  /**
+   * @return The number of groups.
+   */
+  int getGroupCount() {
+    return this.groupCount;
+  }
+
+  /**
+   * @param group The index of the group.
+   * @return The key of the group.
+   */
+  String getKey(int group) {
+    return this.keys[group];
+  }
+
+  /**
+   * @param group The index of the group.
+   * @return The number of items in the group.
+   */
+  int getSize(int group) {
+    return this.sizes[group];
+  }
+
+  /**
+   * @param group The index of the group.
+   * @return The index of the first item of the group.
+   */
+  int first(int group) {
+    return this.heads[group];
+  }
+
+  /**
+   * @param item The index of an item.
+   * @return The index of the next item in the same group, or -1 if it's the last.
+   */
+  int next(int item) {
+    return this.next[item];
+  }
+
+  /**
+   * @param item The index of an item.
+   * @return The item.
+   */
+  Object getItem(int item) {
+    return this.items[item];
+  }
+}
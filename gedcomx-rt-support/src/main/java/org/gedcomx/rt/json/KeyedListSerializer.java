@@ -21,9 +21,13 @@ import org.codehaus.jackson.map.JsonSerializer;
 import org.codehaus.jackson.map.SerializerProvider;
 
 import java.io.IOException;
-import java.util.*;
+import java.util.Collection;
 
 /**
+ * Serializes a list of keyed items as an object whose properties are the keys. Keys are written in the order in which they
+ * first appear in the list, and the items of a key in the order in which they appear in the list, so the same list is
+ * always written the same way.
+ *
  * @author Ryan Heaton
  */
 public class KeyedListSerializer extends JsonSerializer<Collection<? extends HasUniqueJsonKey>> {
@@ -40,39 +44,82 @@ public class KeyedListSerializer extends JsonSerializer<Collection<? extends Has
       jgen.writeNull();
     }
     else {
-      jgen.writeStartObject();
-      Map<String, List<Object>> bykey = new HashMap<String, List<Object>>();
-      for (Object keyed : value) {
-        String jsonKey = ((HasJsonKey) keyed).getJsonKey();
-        if (jsonKey == null) {
-          jsonKey = JSON_DEFAULT_KEY;
+      KeyedGroups bykey = KeyedGroups.acquire();
+      try {
+        for (Object keyed : value) {
+          bykey.add(getJsonKey(keyed), keyed);
         }
+        writeGroups(bykey, jgen, provider);
+      }
+      finally {
+        bykey.release();
+      }
+    }
+  }
 
-        List<Object> keyedList = bykey.get(jsonKey);
-        if (keyedList == null) {
-          keyedList = new ArrayList<Object>();
-          bykey.put(jsonKey, keyedList);
-        }
-        keyedList.add(keyed);
+  /**
+   * Serialize one group of a set of groups (e.g. the extension elements of a given name) as a keyed list.
+   *
+   * @param groups The groups.
+   * @param group The index of the group to serialize.
+   * @param jgen The generator.
+   * @param provider The provider.
+   */
+  static void serializeGroup(KeyedGroups groups, int group, JsonGenerator jgen, SerializerProvider provider) throws IOException {
+    KeyedGroups bykey = KeyedGroups.acquire();
+    try {
+      for (int item = groups.first(group); item >= 0; item = groups.next(item)) {
+        Object keyed = groups.getItem(item);
+        bykey.add(getJsonKey(keyed), keyed);
       }
+      writeGroups(bykey, jgen, provider);
+    }
+    finally {
+      bykey.release();
+    }
+  }
 
-      for (Map.Entry<String, List<Object>> keyedObjects : bykey.entrySet()) {
-        String jsonKey = keyedObjects.getKey();
-        jgen.writeFieldName(jsonKey);
-        boolean notUnique = keyedObjects.getValue().size() != 1 || (!(keyedObjects.getValue().get(0) instanceof HasUniqueJsonKey));
-        if (notUnique) {
-          jgen.writeStartArray();
-        }
+  private static String getJsonKey(Object keyed) {
+    String jsonKey = ((HasJsonKey) keyed).getJsonKey();
+    return jsonKey == null ? JSON_DEFAULT_KEY : jsonKey;
+  }
 
-        for (Object keyed : keyedObjects.getValue()) {
-          provider.findTypedValueSerializer(keyed.getClass(), true, null).serialize(keyed, jgen, provider);
+  private static void writeGroups(KeyedGroups bykey, JsonGenerator jgen, SerializerProvider provider) throws IOException {
+    jgen.writeStartObject();
+    Class<?> lastClass = null;
+    boolean lastUnique = false;
+    Class<?> serializedClass = null;
+    JsonSerializer<Object> serializer = null;
+    for (int group = 0; group < bykey.getGroupCount(); group++) {
+      jgen.writeFieldName(bykey.getKey(group));
+      int first = bykey.first(group);
+      boolean notUnique = bykey.getSize(group) != 1;
+      if (!notUnique) {
+        //the items of a list are usually of one class, and a failed interface check is relatively expensive.
+        Class<?> itemClass = bykey.getItem(first).getClass();
+        if (itemClass != lastClass) {
+          lastClass = itemClass;
+          lastUnique = HasUniqueJsonKey.class.isAssignableFrom(itemClass);
         }
+        notUnique = !lastUnique;
+      }
+      if (notUnique) {
+        jgen.writeStartArray();
+      }
 
-        if (notUnique) {
-          jgen.writeEndArray();
+      for (int item = first; item >= 0; item = bykey.next(item)) {
+        Object keyed = bykey.getItem(item);
+        if (keyed.getClass() != serializedClass) {
+          serializedClass = keyed.getClass();
+          serializer = provider.findTypedValueSerializer(serializedClass, true, null);
         }
+        serializer.serialize(keyed, jgen, provider);
+      }
+
+      if (notUnique) {
+        jgen.writeEndArray();
       }
-      jgen.writeEndObject();
     }
+    jgen.writeEndObject();
   }
 }